@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import java.lang.annotation.Target;
 
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
 
 /**
  * @author Clinton Begin
@@ -47,6 +48,36 @@ public @interface CacheNamespace {
 	// 是否阻塞
 	boolean blocking() default false;
 
+	/**
+	 * Serializer used to copy the results of read/write caches.
+	 * @since 3.5.0
+	 */
+	Class<? extends org.apache.ibatis.cache.CacheSerializer> serializer() default JdkCacheSerializer.class;
+
+	/**
+	 * Expire every entry flushInterval after it was put instead of clearing the whole cache.
+	 * @since 3.5.0
+	 */
+	boolean flushPerEntry() default false;
+
+	/**
+	 * Max random milliseconds added to the expiration of every entry. Implies flushPerEntry.
+	 * @since 3.5.0
+	 */
+	long flushJitter() default 0;
+
+	/**
+	 * Fraction of the expiration after which a read entry is reloaded in background. Implies flushPerEntry.
+	 * @since 3.5.0
+	 */
+	double refreshAhead() default 0;
+
+	/**
+	 * Max entries every thread mirrors to read them without locking, 0 for none. Requires readWrite false.
+	 * @since 3.5.0
+	 */
+	int nearCacheSize() default 0;
+
 	/**
 	 * Property values for a implementation object.
 	 * 给 Namespace 添加 key value
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -32,4 +32,13 @@ public @interface DeleteProvider {
 	Class<?> type();
 
 	String method();
+
+	/**
+	 * The method of the type returning the cache key of the sql, from the same arguments as {@link #method()}.
+	 * Calls with equal keys share the sql built by the first one, a null key is not cached.
+	 * Keys should take a few values, as the branches of the sql: the sql of at most 1024 keys is kept.
+	 * Empty when the sql is built on every call.
+	 * @since 3.5.0
+	 */
+	String cacheKeyMethod() default "";
 }
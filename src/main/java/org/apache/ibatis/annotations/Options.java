@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -65,4 +65,11 @@ public @interface Options {
 	String keyColumn() default "";
 
 	String resultSets() default "";
+
+	/**
+	 * Comma separated tables read or modified by the statement, used by the cacheInvalidationByTable setting.
+	 * When empty they are found in the SQL.
+	 * @since 3.5.0
+	 */
+	String tables() default "";
 }
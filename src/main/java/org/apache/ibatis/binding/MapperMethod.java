@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,9 +18,12 @@ package org.apache.ibatis.binding;
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.ResultPublisher;
+import org.apache.ibatis.lang.UsesJava8;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.FutureUtil;
 import org.apache.ibatis.reflection.Jdk;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.OptionalUtil;
@@ -30,12 +33,14 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.defaults.DefaultAsyncSqlSession;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * @author Clinton Begin
@@ -69,7 +74,29 @@ public class MapperMethod {
 	 * @return
 	 * 主要通过SqlSession 通过命令模式来进行操作
 	 */
-	public Object execute(SqlSession sqlSession, Object[] args) {
+	public Object execute(final SqlSession sqlSession, final Object[] args) {
+		if (method.returnsFuture()) {
+			return executeForFuture(sqlSession, args);
+		}
+		return executeCommand(sqlSession, args);
+	}
+
+	@UsesJava8
+	private Object executeForFuture(final SqlSession sqlSession, final Object[] args) {
+		// 只有每次调用都打开新会话的SqlSession 才能交给别的线程执行 否则直接在当前线程执行
+		java.util.concurrent.Executor executor = null;
+		if (sqlSession instanceof DefaultAsyncSqlSession.SessionPerCall) {
+			executor = sqlSession.getConfiguration().getAsyncExecutor();
+		}
+		return FutureUtil.supply(executor, new Callable<Object>() {
+			@Override
+			public Object call() {
+				return executeCommand(sqlSession, args);
+			}
+		});
+	}
+
+	private Object executeCommand(SqlSession sqlSession, Object[] args) {
 		Object result;
 		switch (command.getType()) {
 			case INSERT: {
@@ -103,6 +130,8 @@ public class MapperMethod {
 				} else if (method.returnsCursor()) {
 					// 游标返回
 					result = executeForCursor(sqlSession, args);
+				} else if (method.returnsPublisher()) {
+					result = executeForPublisher(sqlSession, args);
 				} else {
 					// 单结果集返回的
 					// 会做一些空处理
@@ -218,6 +247,15 @@ public class MapperMethod {
 		return result;
 	}
 
+	private <T> ResultPublisher<T> executeForPublisher(SqlSession sqlSession, Object[] args) {
+		Object param = method.convertArgsToSqlCommandParam(args);
+		if (method.hasRowBounds()) {
+			RowBounds rowBounds = method.extractRowBounds(args);
+			return sqlSession.<T>selectPublisher(command.getName(), param, rowBounds);
+		}
+		return sqlSession.<T>selectPublisher(command.getName(), param);
+	}
+
 	private <E> Object convertToDeclaredCollection(Configuration config, List<E> list) {
 		Object collection = config.getObjectFactory().create(method.getReturnType());
 		MetaObject metaObject = config.newMetaObject(collection);
@@ -368,7 +406,12 @@ public class MapperMethod {
 		 */
 		private final boolean returnsVoid;
 		private final boolean returnsCursor;
+		private final boolean returnsPublisher;
 		private final boolean returnsOptional;
+		/**
+		 * 是否返回 CompletableFuture 或者 CompletionStage  returnType 是它的结果类型
+		 */
+		private final boolean returnsFuture;
 		private final Class<?> returnType;
 		private final String mapKey;
 		private final Integer resultHandlerIndex;
@@ -377,16 +420,21 @@ public class MapperMethod {
 
 		public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
 			Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+			this.returnsFuture = FutureUtil.isFuture(resolvedReturnType);
+			if (this.returnsFuture) {
+				resolvedReturnType = FutureUtil.getResultType(resolvedReturnType);
+			}
 			if (resolvedReturnType instanceof Class<?>) {
 				this.returnType = (Class<?>) resolvedReturnType;
 			} else if (resolvedReturnType instanceof ParameterizedType) {
 				this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
 			} else {
-				this.returnType = method.getReturnType();
+				this.returnType = this.returnsFuture ? Object.class : method.getReturnType();
 			}
-			this.returnsVoid = void.class.equals(this.returnType);
+			this.returnsVoid = void.class.equals(this.returnType) || (this.returnsFuture && Void.class.equals(this.returnType));
 			this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
 			this.returnsCursor = Cursor.class.equals(this.returnType);
+			this.returnsPublisher = ResultPublisher.class.equals(this.returnType);
 			this.returnsOptional = Jdk.optionalExists && Optional.class.equals(this.returnType);
 			this.mapKey = getMapKey(method);
 			this.returnsMap = this.mapKey != null;
@@ -449,6 +497,13 @@ public class MapperMethod {
 			return returnsCursor;
 		}
 
+		/**
+		 * @since 3.5.0
+		 */
+		public boolean returnsPublisher() {
+			return returnsPublisher;
+		}
+
 		/**
 		 * return whether return type is {@code java.util.Optional}
 		 * @return return {@code true}, if return type is {@code java.util.Optional}
@@ -458,6 +513,15 @@ public class MapperMethod {
 			return returnsOptional;
 		}
 
+		/**
+		 * return whether return type is {@code java.util.concurrent.CompletableFuture} or {@code java.util.concurrent.CompletionStage}
+		 * @return return {@code true}, if the method returns a future, the other methods then describe its result
+		 * @since 3.5.0
+		 */
+		public boolean returnsFuture() {
+			return returnsFuture;
+		}
+
 		private Integer getUniqueParamIndex(Method method, Class<?> paramType) {
 			Integer index = null;
 			final Class<?>[] argTypes = method.getParameterTypes();
@@ -475,7 +539,7 @@ public class MapperMethod {
 
 		private String getMapKey(Method method) {
 			String mapKey = null;
-			if (Map.class.isAssignableFrom(method.getReturnType())) {
+			if (Map.class.isAssignableFrom(returnsFuture ? returnType : method.getReturnType())) {
 				final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
 				if (mapKeyAnnotation != null) {
 					mapKey = mapKeyAnnotation.value();
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.executor.ErrorContext;
@@ -161,6 +162,11 @@ public class MapperBuilderAssistant extends BaseBuilder {
 	                         Integer size,
 	                         boolean readWrite,
 	                         boolean blocking,
+	                         Class<? extends CacheSerializer> serializerClass,
+	                         boolean flushPerEntry,
+	                         Long flushJitter,
+	                         Double refreshAhead,
+	                         Integer nearCacheSize,
 	                         Properties props) {
 		// 创建一个缓存,根据当前 currentNamespace 并且添加到configuration中
 		// CacheBuilder    构建一个 lru缓存 注意这种构建者模式
@@ -171,13 +177,36 @@ public class MapperBuilderAssistant extends BaseBuilder {
 				.size(size)
 				.readWrite(readWrite)
 				.blocking(blocking)
+				.serializer(serializerClass)
+				.flushPerEntry(flushPerEntry)
+				.flushJitter(flushJitter)
+				.refreshAhead(refreshAhead)
+				.refresher(configuration.getCacheRefresher())
+				.removalListener(configuration.isCacheInvalidationByTable() ? configuration.getCacheDependencyTracker() : null)
+				.nearCacheSize(nearCacheSize)
 				.properties(props)
 				.build();
-		configuration.addCache(cache);
+		if (readWrite) {
+			configuration.addCache(cache);
+		} else {
+			configuration.addReadOnlyCache(cache);
+		}
 		currentCache = cache;
 		return cache;
 	}
 
+	/** Backward compatibility signature */
+	public Cache useNewCache(Class<? extends Cache> typeClass,
+	                         Class<? extends Cache> evictionClass,
+	                         Long flushInterval,
+	                         Integer size,
+	                         boolean readWrite,
+	                         boolean blocking,
+	                         Properties props) {
+		return useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, null,
+				false, null, null, null, props);
+	}
+
 	/**
 	 * 添加 parameterMap
 	 * @param id id
@@ -349,7 +378,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
 			String keyColumn,
 			String databaseId,
 			LanguageDriver lang,
-			String resultSets) {
+			String resultSets,
+			String tables) {
 
 		if (unresolvedCacheRef) {
 			throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -370,6 +400,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
 				.lang(lang)
 				.resultOrdered(resultOrdered)
 				.resultSets(resultSets)
+				.tables(tables)
 				.resultMaps(getStatementResultMaps(resultMap, resultType, id))
 				.resultSetType(resultSetType)
 				.flushCacheRequired(valueOrDefault(flushCache, !isSelect))
@@ -386,6 +417,35 @@ public class MapperBuilderAssistant extends BaseBuilder {
 		return statement;
 	}
 
+	/** Backward compatibility signature */
+	public MappedStatement addMappedStatement(
+			String id,
+			SqlSource sqlSource,
+			StatementType statementType,
+			SqlCommandType sqlCommandType,
+			Integer fetchSize,
+			Integer timeout,
+			String parameterMap,
+			Class<?> parameterType,
+			String resultMap,
+			Class<?> resultType,
+			ResultSetType resultSetType,
+			boolean flushCache,
+			boolean useCache,
+			boolean resultOrdered,
+			KeyGenerator keyGenerator,
+			String keyProperty,
+			String keyColumn,
+			String databaseId,
+			LanguageDriver lang,
+			String resultSets) {
+		return addMappedStatement(
+				id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+				parameterMap, parameterType, resultMap, resultType, resultSetType,
+				flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+				keyColumn, databaseId, lang, resultSets, null);
+	}
+
 	private <T> T valueOrDefault(T value, T defaultValue) {
 		return value == null ? defaultValue : value;
 	}
@@ -589,7 +649,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
 				id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
 				parameterMap, parameterType, resultMap, resultType, resultSetType,
 				flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
-				keyColumn, databaseId, lang, null);
+				keyColumn, databaseId, lang, null, null);
 	}
 
 }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -42,7 +42,7 @@ public class SqlSourceBuilder extends BaseBuilder {
 	}
 
 	public SqlSource parse(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters) {
-		ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters);
+		ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(this, parameterType, additionalParameters);
 		GenericTokenParser parser = new GenericTokenParser("#{", "}", handler);
 		// 解析 #{}  中间的内容  交给handler 去处理
 		String sql = parser.parse(originalSql);
@@ -50,19 +50,104 @@ public class SqlSourceBuilder extends BaseBuilder {
 		return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
 	}
 
+	/**
+	 * Builds the mapping of a #{} placeholder.
+	 * @param content The content of the placeholder, for error messages
+	 * @param propertiesMap The content parsed by {@link #parseParameterMapping(String)}
+	 * @param parameterType The type of the parameter object
+	 * @param metaParameters The additional parameters
+	 * @since 3.5.0
+	 */
+	public ParameterMapping buildParameterMapping(String content, Map<String, String> propertiesMap, Class<?> parameterType, MetaObject metaParameters) {
+		// 拿到属性
+		String property = propertiesMap.get("property");
+		Class<?> propertyType;
+		// 就是为了获取到 property 这个对象的类型
+		if (metaParameters.hasGetter(property)) { // issue #448 get type from additional params
+			propertyType = metaParameters.getGetterType(property);
+		} else if (typeHandlerRegistry.hasTypeHandler(parameterType)) {
+			propertyType = parameterType;
+		} else if (JdbcType.CURSOR.name().equals(propertiesMap.get("jdbcType"))) {
+			propertyType = java.sql.ResultSet.class;
+		} else if (property == null || Map.class.isAssignableFrom(parameterType)) {
+			propertyType = Object.class;
+		} else {
+			MetaClass metaClass = MetaClass.forClass(parameterType, configuration.getReflectorFactory());
+			if (metaClass.hasGetter(property)) {
+				propertyType = metaClass.getGetterType(property);
+			} else {
+				propertyType = Object.class;
+			}
+		}
+
+		ParameterMapping.Builder builder = new ParameterMapping.Builder(configuration, property, propertyType);
+		Class<?> javaType = propertyType;
+		// 拿到原型 然后继续解析 并且构造进去
+		String typeHandlerAlias = null;
+		for (Map.Entry<String, String> entry : propertiesMap.entrySet()) {
+			String name = entry.getKey();
+			String value = entry.getValue();
+			if ("javaType".equals(name)) {
+				javaType = resolveClass(value);
+				builder.javaType(javaType);
+			} else if ("jdbcType".equals(name)) {
+				builder.jdbcType(resolveJdbcType(value));
+			} else if ("mode".equals(name)) {
+				builder.mode(resolveParameterMode(value));
+			} else if ("numericScale".equals(name)) {
+				builder.numericScale(Integer.valueOf(value));
+			} else if ("resultMap".equals(name)) {
+				builder.resultMapId(value);
+			} else if ("typeHandler".equals(name)) {
+				typeHandlerAlias = value;
+			} else if ("jdbcTypeName".equals(name)) {
+				builder.jdbcTypeName(value);
+			} else if ("property".equals(name)) {
+				// Do Nothing
+			} else if ("expression".equals(name)) {
+				throw new BuilderException("Expression based parameters are not supported yet");
+			} else {
+				throw new BuilderException("An invalid property '" + name + "' was found in mapping #{" + content + "}.  Valid properties are " + parameterProperties);
+			}
+		}
+		if (typeHandlerAlias != null) {
+			builder.typeHandler(resolveTypeHandler(javaType, typeHandlerAlias));
+		}
+		// 不知不觉构造一个 ParameterMapping
+
+		return builder.build();
+	}
+
+	/**
+	 * 解析 content
+	 * @param content The content of a #{} placeholder
+	 * @since 3.5.0
+	 */
+	public static Map<String, String> parseParameterMapping(String content) {
+		try {
+			// 这个表达式 还记得么   () : , key=value
+			return new ParameterExpression(content);
+		} catch (BuilderException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			throw new BuilderException("Parsing error was found in mapping #{" + content + "}.  Check syntax #{property|(expression), var1=value1, var2=value2, ...} ", ex);
+		}
+	}
+
 	/**
 	 * 主要使用到这个静态内部类          TokenHandler
 	 */
-	private static class ParameterMappingTokenHandler extends BaseBuilder implements TokenHandler {
+	private static class ParameterMappingTokenHandler implements TokenHandler {
 
+		private final SqlSourceBuilder builder;
 		private List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
 		private Class<?> parameterType;
 		private MetaObject metaParameters;
 
-		public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters) {
-			super(configuration);
+		public ParameterMappingTokenHandler(SqlSourceBuilder builder, Class<?> parameterType, Map<String, Object> additionalParameters) {
+			this.builder = builder;
 			this.parameterType = parameterType;
-			this.metaParameters = configuration.newMetaObject(additionalParameters);
+			this.metaParameters = builder.configuration.newMetaObject(additionalParameters);
 		}
 
 		public List<ParameterMapping> getParameterMappings() {
@@ -72,87 +157,9 @@ public class SqlSourceBuilder extends BaseBuilder {
 		@Override
 		public String handleToken(String content) {
 			// 主要就是这个方法   处理 content
-			parameterMappings.add(buildParameterMapping(content));
+			parameterMappings.add(builder.buildParameterMapping(content, parseParameterMapping(content), parameterType, metaParameters));
 			return "?";
 		}
-
-		private ParameterMapping buildParameterMapping(String content) {
-			// 解析成 map
-			Map<String, String> propertiesMap = parseParameterMapping(content);
-			// 拿到属性
-			String property = propertiesMap.get("property");
-			Class<?> propertyType;
-			// 就是为了获取到 property 这个对象的类型
-			if (metaParameters.hasGetter(property)) { // issue #448 get type from additional params
-				propertyType = metaParameters.getGetterType(property);
-			} else if (typeHandlerRegistry.hasTypeHandler(parameterType)) {
-				propertyType = parameterType;
-			} else if (JdbcType.CURSOR.name().equals(propertiesMap.get("jdbcType"))) {
-				propertyType = java.sql.ResultSet.class;
-			} else if (property == null || Map.class.isAssignableFrom(parameterType)) {
-				propertyType = Object.class;
-			} else {
-				MetaClass metaClass = MetaClass.forClass(parameterType, configuration.getReflectorFactory());
-				if (metaClass.hasGetter(property)) {
-					propertyType = metaClass.getGetterType(property);
-				} else {
-					propertyType = Object.class;
-				}
-			}
-
-			ParameterMapping.Builder builder = new ParameterMapping.Builder(configuration, property, propertyType);
-			Class<?> javaType = propertyType;
-			// 拿到原型 然后继续解析 并且构造进去
-			String typeHandlerAlias = null;
-			for (Map.Entry<String, String> entry : propertiesMap.entrySet()) {
-				String name = entry.getKey();
-				String value = entry.getValue();
-				if ("javaType".equals(name)) {
-					javaType = resolveClass(value);
-					builder.javaType(javaType);
-				} else if ("jdbcType".equals(name)) {
-					builder.jdbcType(resolveJdbcType(value));
-				} else if ("mode".equals(name)) {
-					builder.mode(resolveParameterMode(value));
-				} else if ("numericScale".equals(name)) {
-					builder.numericScale(Integer.valueOf(value));
-				} else if ("resultMap".equals(name)) {
-					builder.resultMapId(value);
-				} else if ("typeHandler".equals(name)) {
-					typeHandlerAlias = value;
-				} else if ("jdbcTypeName".equals(name)) {
-					builder.jdbcTypeName(value);
-				} else if ("property".equals(name)) {
-					// Do Nothing
-				} else if ("expression".equals(name)) {
-					throw new BuilderException("Expression based parameters are not supported yet");
-				} else {
-					throw new BuilderException("An invalid property '" + name + "' was found in mapping #{" + content + "}.  Valid properties are " + parameterProperties);
-				}
-			}
-			if (typeHandlerAlias != null) {
-				builder.typeHandler(resolveTypeHandler(javaType, typeHandlerAlias));
-			}
-			// 不知不觉构造一个 ParameterMapping
-
-			return builder.build();
-		}
-
-		/**
-		 * 解析 content
-		 * @param content
-		 * @return
-		 */
-		private Map<String, String> parseParameterMapping(String content) {
-			try {
-				// 这个表达式 还记得么   () : , key=value
-				return new ParameterExpression(content);
-			} catch (BuilderException ex) {
-				throw ex;
-			} catch (Exception ex) {
-				throw new BuilderException("Parsing error was found in mapping #{" + content + "}.  Check syntax #{property|(expression), var1=value1, var2=value2, ...} ", ex);
-			}
-		}
 	}
 
 }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -66,6 +66,7 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.ResultPublisher;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
@@ -81,6 +82,7 @@ import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.parsing.PropertyParser;
+import org.apache.ibatis.reflection.FutureUtil;
 import org.apache.ibatis.reflection.Jdk;
 import org.apache.ibatis.reflection.TypeParameterResolver;
 import org.apache.ibatis.scripting.LanguageDriver;
@@ -215,8 +217,12 @@ public class MapperAnnotationBuilder {
 		if (cacheDomain != null) {
 			Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
 			Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
+			Long flushJitter = cacheDomain.flushJitter() == 0 ? null : cacheDomain.flushJitter();
+			Double refreshAhead = cacheDomain.refreshAhead() == 0 ? null : cacheDomain.refreshAhead();
+			Integer nearCacheSize = cacheDomain.nearCacheSize() == 0 ? null : cacheDomain.nearCacheSize();
 			Properties props = convertToProperties(cacheDomain.properties());
-			assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), props);
+			assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), cacheDomain.serializer(),
+					cacheDomain.flushPerEntry(), flushJitter, refreshAhead, nearCacheSize, props);
 		}
 	}
 
@@ -464,7 +470,9 @@ public class MapperAnnotationBuilder {
 					null,
 					languageDriver,
 					// ResultSets
-					options != null ? nullOrEmpty(options.resultSets()) : null);
+					options != null ? nullOrEmpty(options.resultSets()) : null,
+					// Tables
+					options != null ? nullOrEmpty(options.tables()) : null);
 		}
 	}
 
@@ -515,6 +523,12 @@ public class MapperAnnotationBuilder {
 		Class<?> returnType = method.getReturnType();
 		// 类 的方法 去找到返回值类型
 		Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+		// CompletableFuture 看它的结果类型
+		if (FutureUtil.isFuture(resolvedReturnType)) {
+			resolvedReturnType = FutureUtil.getResultType(resolvedReturnType);
+			returnType = resolvedReturnType instanceof ParameterizedType
+					? (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType() : Object.class;
+		}
 		// 类 或者 参数化类型
 		if (resolvedReturnType instanceof Class) {
 			// 类看是不是数据类
@@ -534,7 +548,8 @@ public class MapperAnnotationBuilder {
 			ParameterizedType parameterizedType = (ParameterizedType) resolvedReturnType;
 			Class<?> rawType = (Class<?>) parameterizedType.getRawType();
 			// 集合或者Cursor
-			if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType)) {
+			if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType)
+					|| ResultPublisher.class.isAssignableFrom(rawType)) {
 				// 参数化类型的实际参数
 				Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
 				if (actualTypeArguments != null && actualTypeArguments.length == 1) {
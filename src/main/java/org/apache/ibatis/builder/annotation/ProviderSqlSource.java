@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,13 +15,21 @@
  */
 package org.apache.ibatis.builder.annotation;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.lang.UsesJava7;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.parsing.PropertyParser;
@@ -37,6 +45,11 @@ import org.apache.ibatis.session.Configuration;
  */
 public class ProviderSqlSource implements SqlSource {
 
+	/**
+	 * 每个 provider 方法最多缓存的 sql 数量 超过之后新的 key 每次都生成
+	 */
+	static final int MAX_CACHED_SQL_SOURCES = 1024;
+
 	private final Configuration configuration;
 	private final SqlSourceBuilder sqlSourceParser;
 	private final Class<?> providerType;
@@ -45,6 +58,13 @@ public class ProviderSqlSource implements SqlSource {
 	private Class<?>[] providerMethodParameterTypes;
 	private ProviderContext providerContext;
 	private Integer providerContextIndex;
+	/**
+	 * 声明了 cacheKeyMethod 的时候 按 key 缓存解析好的 sql
+	 */
+	private Method cacheKeyMethod;
+	private CachedProviderMethods cachedProviderMethods;
+	private ConcurrentMap<CacheKey, SqlSource> sqlSources;
+	private final AtomicInteger cachedSqlSourceCount = new AtomicInteger();
 
 	/**
 	 * @deprecated Please use the {@link #ProviderSqlSource(Configuration, Object, Class, Method)} instead of this.
@@ -99,6 +119,52 @@ public class ProviderSqlSource implements SqlSource {
 				this.providerContextIndex = i;
 			}
 		}
+		String cacheKeyMethodName = getCacheKeyMethodName(provider);
+		if (cacheKeyMethodName.length() > 0) {
+			try {
+				this.cacheKeyMethod = this.providerType.getMethod(cacheKeyMethodName, this.providerMethodParameterTypes);
+			} catch (NoSuchMethodException e) {
+				throw new BuilderException("Error creating SqlSource for SqlProvider. Cache key method '"
+						+ cacheKeyMethodName + "' with the parameters of '" + providerMethod.getName() + "' not found in SqlProvider '"
+						+ this.providerType.getName() + "'.");
+			}
+			this.cachedProviderMethods = newCachedProviderMethods();
+			this.sqlSources = new ConcurrentHashMap<CacheKey, SqlSource>();
+		}
+	}
+
+	private static String getCacheKeyMethodName(Object provider) {
+		try {
+			return (String) provider.getClass().getMethod("cacheKeyMethod").invoke(provider);
+		} catch (NoSuchMethodException e) {
+			// 3.5.0 之前的注解
+			return "";
+		} catch (Exception e) {
+			throw new BuilderException("Error creating SqlSource for SqlProvider.  Cause: " + e, e);
+		}
+	}
+
+	@UsesJava7
+	private CachedProviderMethods newCachedProviderMethods() {
+		return new CachedProviderMethods(toMethodHandle(cacheKeyMethod), toMethodHandle(providerMethod));
+	}
+
+	/**
+	 * @return A handle taking the target, null for a static method, and the arguments as an array
+	 */
+	@UsesJava7
+	private MethodHandle toMethodHandle(Method method) {
+		try {
+			MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+			if (Modifier.isStatic(method.getModifiers())) {
+				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+			}
+			return handle.asSpreader(Object[].class, method.getParameterTypes().length)
+					.asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+		} catch (IllegalAccessException e) {
+			throw new BuilderException("Error creating SqlSource for SqlProvider. Method '" + method.getName()
+					+ "' of SqlProvider '" + this.providerType.getName() + "' is not accessible.  Cause: " + e, e);
+		}
 	}
 
 	@Override
@@ -115,18 +181,18 @@ public class ProviderSqlSource implements SqlSource {
 	private SqlSource createSqlSource(Object parameterObject) {
 		try {
 			int bindParameterCount = providerMethodParameterTypes.length - (providerContext == null ? 0 : 1);
-			String sql;
+			Object[] args;
 			if (providerMethodParameterTypes.length == 0) {
-				sql = invokeProviderMethod();
+				args = new Object[0];
 			} else if (bindParameterCount == 0) {
-				sql = invokeProviderMethod(providerContext);
+				args = new Object[]{providerContext};
 			} else if (bindParameterCount == 1 &&
 					(parameterObject == null || providerMethodParameterTypes[(providerContextIndex == null || providerContextIndex == 1) ? 0 : 1].isAssignableFrom(parameterObject.getClass()))) {
-				sql = invokeProviderMethod(extractProviderMethodArguments(parameterObject));
+				args = extractProviderMethodArguments(parameterObject);
 			} else if (parameterObject instanceof Map) {
 				@SuppressWarnings("unchecked")
 				Map<String, Object> params = (Map<String, Object>) parameterObject;
-				sql = invokeProviderMethod(extractProviderMethodArguments(params, providerMethodArgumentNames));
+				args = extractProviderMethodArguments(params, providerMethodArgumentNames);
 			} else {
 				throw new BuilderException("Error invoking SqlProvider method ("
 						+ providerType.getName() + "." + providerMethod.getName()
@@ -135,6 +201,10 @@ public class ProviderSqlSource implements SqlSource {
 						+ " using a specifying parameterObject. In this case, please specify a 'java.util.Map' object.");
 			}
 			Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
+			if (sqlSources != null) {
+				return getCachedSqlSource(parameterType, args);
+			}
+			String sql = invokeProviderMethod(args);
 			return sqlSourceParser.parse(replacePlaceholder(sql), parameterType, new HashMap<String, Object>());
 		} catch (BuilderException e) {
 			throw e;
@@ -145,6 +215,49 @@ public class ProviderSqlSource implements SqlSource {
 		}
 	}
 
+	/**
+	 * The mappings of the sql depend on the parameter type as well, so that it is part of the key.
+	 * Keys are expected to take a few values, past {@link #MAX_CACHED_SQL_SOURCES} the sql of new keys is not kept,
+	 * a slot is reserved before the put so that concurrent calls do not exceed it.
+	 */
+	@UsesJava7
+	private SqlSource getCachedSqlSource(Class<?> parameterType, Object[] args) throws Exception {
+		// 命中的时候只调用 key 方法 静态的就不用实例化
+		Object targetObject = Modifier.isStatic(cacheKeyMethod.getModifiers()) ? null : providerType.newInstance();
+		Object key = invoke(cachedProviderMethods.cacheKeyMethodHandle, targetObject, args);
+		CacheKey cacheKey = key == null ? null : new CacheKey(new Object[]{parameterType, key});
+		SqlSource sqlSource = cacheKey == null ? null : sqlSources.get(cacheKey);
+		if (sqlSource == null) {
+			if (targetObject == null && !Modifier.isStatic(providerMethod.getModifiers())) {
+				targetObject = providerType.newInstance();
+			}
+			CharSequence sql = (CharSequence) invoke(cachedProviderMethods.providerMethodHandle, targetObject, args);
+			sqlSource = sqlSourceParser.parse(replacePlaceholder(sql != null ? sql.toString() : null), parameterType,
+					new HashMap<String, Object>());
+			if (cacheKey != null && cachedSqlSourceCount.get() < MAX_CACHED_SQL_SOURCES) {
+				// 先占位 再放入 并发的时候也不会超过上限
+				if (cachedSqlSourceCount.incrementAndGet() > MAX_CACHED_SQL_SOURCES
+						|| sqlSources.putIfAbsent(cacheKey, sqlSource) != null) {
+					cachedSqlSourceCount.decrementAndGet();
+				}
+			}
+		}
+		return sqlSource;
+	}
+
+	@UsesJava7
+	private static Object invoke(MethodHandle handle, Object targetObject, Object[] args) throws Exception {
+		try {
+			return (Object) handle.invokeExact(targetObject, args);
+		} catch (Exception e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new BuilderException(t.toString(), t);
+		}
+	}
+
 	private Object[] extractProviderMethodArguments(Object parameterObject) {
 		if (providerContext != null) {
 			Object[] args = new Object[2];
@@ -187,4 +300,18 @@ public class ProviderSqlSource implements SqlSource {
 		return PropertyParser.parse(sql, configuration.getVariables());
 	}
 
+	/**
+	 * The handles of the cache key and provider methods, held apart so that only java 7 code refers to them.
+	 */
+	@UsesJava7
+	private static class CachedProviderMethods {
+		private final MethodHandle cacheKeyMethodHandle;
+		private final MethodHandle providerMethodHandle;
+
+		private CachedProviderMethods(MethodHandle cacheKeyMethodHandle, MethodHandle providerMethodHandle) {
+			this.cacheKeyMethodHandle = cacheKeyMethodHandle;
+			this.providerMethodHandle = providerMethodHandle;
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,11 +17,15 @@ package org.apache.ibatis.builder.xml;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.InvalidationTransport;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
@@ -38,6 +42,8 @@ import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+import org.apache.ibatis.scripting.xmltags.ExpressionEngine;
+import org.apache.ibatis.scripting.xmltags.OgnlExpressionCache;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
@@ -139,9 +145,12 @@ public class XMLConfigBuilder extends BaseBuilder {
 			// read it after objectFactory and objectWrapperFactory issue #631
 			environmentsElement(root.evalNode("environments"));
 			databaseIdProviderElement(root.evalNode("databaseIdProvider"));
+			cacheInvalidationElement(root.evalNode("cacheInvalidation"));
 			typeHandlerElement(root.evalNode("typeHandlers"));
 			mapperElement(root.evalNode("mappers"));
 		} catch (Exception e) {
+			// 已经打开的失效通知不会再有人关闭
+			configuration.close();
 			throw new BuilderException("Error parsing SQL Mapper Configuration. Cause: " + e, e);
 		}
 	}
@@ -316,6 +325,9 @@ public class XMLConfigBuilder extends BaseBuilder {
 		configuration.setAutoMappingBehavior(AutoMappingBehavior.valueOf(props.getProperty("autoMappingBehavior", "PARTIAL")));
 		configuration.setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.valueOf(props.getProperty("autoMappingUnknownColumnBehavior", "NONE")));
 		configuration.setCacheEnabled(booleanValueOf(props.getProperty("cacheEnabled"), true));
+		configuration.setCacheLoadCoalescing(booleanValueOf(props.getProperty("cacheLoadCoalescing"), false));
+		configuration.setCacheLoadCoalescingTimeout(integerValueOf(props.getProperty("cacheLoadCoalescingTimeout"), 30000));
+		configuration.setCacheInvalidationByTable(booleanValueOf(props.getProperty("cacheInvalidationByTable"), false));
 		configuration.setProxyFactory((ProxyFactory) createInstance(props.getProperty("proxyFactory")));
 		configuration.setLazyLoadingEnabled(booleanValueOf(props.getProperty("lazyLoadingEnabled"), false));
 		configuration.setAggressiveLazyLoading(booleanValueOf(props.getProperty("aggressiveLazyLoading"), false));
@@ -323,8 +335,19 @@ public class XMLConfigBuilder extends BaseBuilder {
 		configuration.setUseColumnLabel(booleanValueOf(props.getProperty("useColumnLabel"), true));
 		configuration.setUseGeneratedKeys(booleanValueOf(props.getProperty("useGeneratedKeys"), false));
 		configuration.setDefaultExecutorType(ExecutorType.valueOf(props.getProperty("defaultExecutorType", "SIMPLE")));
+		configuration.setBatchGrouping(booleanValueOf(props.getProperty("batchGrouping"), false));
+		batchGroupingOrderElement(props.getProperty("batchGroupingOrder"));
+		configuration.setBatchSize(integerValueOf(props.getProperty("batchSize"), null));
+		configuration.setBatchMaxBytes(integerValueOf(props.getProperty("batchMaxBytes"), null));
+		multiRowInsertLimitElement(props.getProperty("multiRowInsertLimit"));
+		configuration.setAsyncPoolSize(integerValueOf(props.getProperty("asyncPoolSize"), null));
+		configuration.setAsyncVirtualThreads(booleanValueOf(props.getProperty("asyncVirtualThreads"), false));
+		configuration.setMultiStatementPipelineEnabled(booleanValueOf(props.getProperty("multiStatementPipelineEnabled"), false));
 		configuration.setDefaultStatementTimeout(integerValueOf(props.getProperty("defaultStatementTimeout"), null));
 		configuration.setDefaultFetchSize(integerValueOf(props.getProperty("defaultFetchSize"), null));
+		configuration.setAdaptiveFetchSizeEnabled(booleanValueOf(props.getProperty("adaptiveFetchSizeEnabled"), false));
+		configuration.setAdaptiveFetchSizeMaxBytes(integerValueOf(props.getProperty("adaptiveFetchSizeMaxBytes"), 1024 * 1024));
+		configuration.setCancelInterruptedStatements(booleanValueOf(props.getProperty("cancelInterruptedStatements"), false));
 		configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
 		configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
 		configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
@@ -332,6 +355,11 @@ public class XMLConfigBuilder extends BaseBuilder {
 		configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
 		configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
 		configuration.setDefaultScriptingLanguage(resolveClass(props.getProperty("defaultScriptingLanguage")));
+		configuration.setCompiledDynamicSqlEnabled(booleanValueOf(props.getProperty("compiledDynamicSqlEnabled"), false));
+		configuration.setOgnlExpressionCacheSize(integerValueOf(props.getProperty("ognlExpressionCacheSize"), OgnlExpressionCache.DEFAULT_MAX_SIZE));
+		expressionEngineElement(props.getProperty("expressionEngine"));
+		configuration.setForeachArrayDatabaseIds(stringSetValueOf(props.getProperty("foreachArrayDatabaseIds"), ""));
+		configuration.setSqlShapeCacheSize(integerValueOf(props.getProperty("sqlShapeCacheSize"), 0));
 		@SuppressWarnings("unchecked")
 		Class<? extends TypeHandler> typeHandler = (Class<? extends TypeHandler>) resolveClass(props.getProperty("defaultEnumTypeHandler"));
 		configuration.setDefaultEnumTypeHandler(typeHandler);
@@ -345,6 +373,54 @@ public class XMLConfigBuilder extends BaseBuilder {
 		configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
 	}
 
+	/**
+	 * multiRowInsertLimit 解析 例如 "mysql=1000,oracle=0,100" 没有databaseId的是默认值
+	 * @param value
+	 */
+	private void batchGroupingOrderElement(String value) {
+		if (value == null) {
+			return;
+		}
+		List<String> order = new ArrayList<String>();
+		for (String id : value.split(",")) {
+			order.add(id.trim());
+		}
+		configuration.setBatchGroupingOrder(order);
+	}
+
+	private void multiRowInsertLimitElement(String value) {
+		if (value == null) {
+			return;
+		}
+		for (String limit : value.split(",")) {
+			String trimmed = limit.trim();
+			int equals = trimmed.indexOf('=');
+			if (equals < 0) {
+				configuration.setMultiRowInsertLimit(Integer.valueOf(trimmed));
+			} else {
+				configuration.setMultiRowInsertLimit(trimmed.substring(0, equals).trim(), Integer.valueOf(trimmed.substring(equals + 1).trim()));
+			}
+		}
+	}
+
+	/**
+	 * expressionEngine 解析 别名 OGNL COMPILED 或者类名
+	 * 有 OgnlExpressionCache 参数的构造方法就用 Configuration 的缓存
+	 * @param value
+	 */
+	private void expressionEngineElement(String value) throws Exception {
+		Class<?> type = resolveClass(value);
+		if (type != null) {
+			ExpressionEngine engine;
+			try {
+				engine = (ExpressionEngine) type.getConstructor(OgnlExpressionCache.class).newInstance(configuration.getOgnlExpressionCache());
+			} catch (NoSuchMethodException e) {
+				engine = (ExpressionEngine) type.newInstance();
+			}
+			configuration.setExpressionEngine(engine);
+		}
+	}
+
 	/**
 	 * environments 解析
 	 * @param context
@@ -395,6 +471,23 @@ public class XMLConfigBuilder extends BaseBuilder {
 		}
 	}
 
+	/**
+	 * 二级缓存失效通知其他节点
+	 * @param context
+	 * @throws Exception
+	 */
+	private void cacheInvalidationElement(XNode context) throws Exception {
+		if (context != null) {
+			String type = context.getStringAttribute("type");
+			Properties properties = context.getChildrenAsProperties();
+			InvalidationTransport transport = (InvalidationTransport) resolveClass(type).newInstance();
+			transport.setProperties(properties);
+			CacheInvalidationBus bus = new CacheInvalidationBus(configuration, transport);
+			bus.open();
+			configuration.setCacheInvalidationBus(bus);
+		}
+	}
+
 	private TransactionFactory transactionManagerElement(XNode context) throws Exception {
 		if (context != null) {
 			String type = context.getStringAttribute("type");
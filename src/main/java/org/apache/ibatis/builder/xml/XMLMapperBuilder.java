@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -33,6 +33,7 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.Discriminator;
@@ -278,9 +279,19 @@ public class XMLMapperBuilder extends BaseBuilder {
 			boolean readWrite = !context.getBooleanAttribute("readOnly", false);
 			// 阻塞
 			boolean blocking = context.getBooleanAttribute("blocking", false);
+			// 读写缓存的序列化方式
+			String serializer = context.getStringAttribute("serializer");
+			Class<? extends CacheSerializer> serializerClass = typeAliasRegistry.resolveAlias(serializer);
+			// 每个entry单独过期 随机增量 提前刷新
+			boolean flushPerEntry = context.getBooleanAttribute("flushPerEntry", false);
+			Long flushJitter = context.getLongAttribute("flushJitter");
+			Double refreshAhead = context.getDoubleAttribute("refreshAhead");
+			// 每个线程的近端缓存
+			Integer nearCacheSize = context.getIntAttribute("nearCacheSize");
 			Properties props = context.getChildrenAsProperties();
 			// 通过 builderAssistant 来构造一个协助缓存
-			builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+			builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, serializerClass,
+					flushPerEntry, flushJitter, refreshAhead, nearCacheSize, props);
 		}
 	}
 
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -114,6 +114,8 @@ public class XMLStatementBuilder extends BaseBuilder {
 		// Parse the SQL (pre: <selectKey> and <include> were parsed and removed)
 		SqlSource sqlSource = langDriver.createSqlSource(configuration, context, parameterTypeClass);
 		String resultSets = context.getStringAttribute("resultSets");
+		// 读取或者修改的表 按表失效缓存
+		String tables = context.getStringAttribute("tables");
 		String keyProperty = context.getStringAttribute("keyProperty");
 		String keyColumn = context.getStringAttribute("keyColumn");
 		KeyGenerator keyGenerator;
@@ -132,7 +134,7 @@ public class XMLStatementBuilder extends BaseBuilder {
 		builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
 				fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
 				resultSetTypeEnum, flushCache, useCache, resultOrdered,
-				keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+				keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, tables);
 	}
 
 	/**
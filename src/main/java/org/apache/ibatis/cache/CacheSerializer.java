@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * SPI for the serializers used by caches that store copies of the results,
+ * like the read/write cache (see {@link org.apache.ibatis.cache.decorators.SerializedCache}).
+ *
+ * Implementations must be thread safe and have a public no-args constructor.
+ *
+ * Configured per namespace with {@code <cache serializer="...">} or {@code @CacheNamespace(serializer = ...)}.
+ */
+public interface CacheSerializer {
+
+	/**
+	 * @param value The object to store, may be null
+	 * @return The bytes representing the value
+	 */
+	byte[] serialize(Object value);
+
+	/**
+	 * @param bytes The bytes returned by {@link #serialize(Object)}
+	 * @return A copy of the original value
+	 */
+	Object deserialize(byte[] bytes);
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
 
 /**
  * @author Clinton Begin
@@ -37,6 +38,18 @@ public class TransactionalCacheManager {
 	 * key 是Cache  value是 TransactionCache
 	 */
 	private final Map<Cache, TransactionalCache> transactionalCaches = new HashMap<Cache, TransactionalCache>();
+	/**
+	 * 通知其他节点缓存失效 可以为null
+	 */
+	private final CacheInvalidationBus invalidationBus;
+
+	public TransactionalCacheManager() {
+		this(null);
+	}
+
+	public TransactionalCacheManager(CacheInvalidationBus invalidationBus) {
+		this.invalidationBus = invalidationBus;
+	}
 
 	/**
 	 * 通过缓存管理器清楚某个Cache的缓存
@@ -66,6 +79,16 @@ public class TransactionalCacheManager {
 		getTransactionalCache(cache).putObject(key, value);
 	}
 
+	/**
+	 * 当前事务是否已经清除了这个Cache  (提交时才真正清除)
+	 * @param cache
+	 * @return
+	 */
+	public boolean isClearPending(Cache cache) {
+		TransactionalCache txCache = transactionalCaches.get(cache);
+		return txCache != null && txCache.isClearOnCommit();
+	}
+
 	/**
 	 * 事物进行提交
 	 * 针对封装的Map   拿到所有values TransactionCache对象然后集体 commit
@@ -93,7 +116,7 @@ public class TransactionalCacheManager {
 	private TransactionalCache getTransactionalCache(Cache cache) {
 		TransactionalCache txCache = transactionalCaches.get(cache);
 		if (txCache == null) {
-			txCache = new TransactionalCache(cache);
+			txCache = new TransactionalCache(cache, invalidationBus);
 			transactionalCaches.put(cache, txCache);
 		}
 		return txCache;
@@ -0,0 +1,192 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * Near cache decorator: mirrors the entries a thread reads into a small map owned by that thread,
+ * so that its next lookups of the same keys take no lock at all.
+ *
+ * A put or remove through this decorator increments the version of the key, once the delegate has been
+ * changed, and a clear increments the generation of the whole namespace. A mirrored entry is only served
+ * while both are the ones read before it was loaded, so a thread never reads an entry older than the last
+ * change made through the cache. Keys share their versions by hash, a change may drop a few other mirrored
+ * entries too. Changes made below this decorator (expirations and evictions) are not seen, mirrored entries
+ * are kept at most maxAge milliseconds.
+ *
+ * Mirrored values are shared, it must only be used on read only caches.
+ *
+ * 近端缓存 每个线程自己的一个小LRU 通过代数和key的版本判断是否失效
+ */
+public class NearCache implements Cache {
+
+	private final Cache delegate;
+	/**
+	 * 版本的分段数 2的幂
+	 */
+	private static final int VERSION_STRIPES = 1024;
+
+	/**
+	 * 代数 每次clear加1
+	 */
+	private final AtomicLong generation = new AtomicLong();
+	/**
+	 * key的版本 按hash分段 每次put或remove加1
+	 */
+	private final AtomicLongArray keyVersions = new AtomicLongArray(VERSION_STRIPES);
+	private final ThreadLocal<Mirror> mirrors = new ThreadLocal<Mirror>();
+	/**
+	 * 每个线程最多缓存的entry数量
+	 */
+	private int size = 256;
+	/**
+	 * 最长缓存时间 毫秒 0 不限制
+	 */
+	private long maxAge;
+
+	public NearCache(Cache delegate) {
+		this.delegate = delegate;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public void setMaxAge(long maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	@Override
+	public String getId() {
+		return delegate.getId();
+	}
+
+	@Override
+	public int getSize() {
+		return delegate.getSize();
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		delegate.putObject(key, value);
+		keyVersions.incrementAndGet(stripe(key));
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		// read before the delegate: a change made meanwhile makes the mirrored entry stale right away
+		long current = generation.get();
+		long version = keyVersions.get(stripe(key));
+		Mirror mirror = getMirror(current);
+		MirroredEntry entry = mirror.get(key);
+		if (entry != null) {
+			if (entry.version == version && (maxAge == 0 || System.currentTimeMillis() - entry.mirroredAt < maxAge)) {
+				return entry.value;
+			}
+			mirror.remove(key);
+		}
+		Object value = delegate.getObject(key);
+		if (value != null) {
+			mirror.put(key, new MirroredEntry(value, version, maxAge == 0 ? 0 : System.currentTimeMillis()));
+		}
+		return value;
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		Object removed = delegate.removeObject(key);
+		keyVersions.incrementAndGet(stripe(key));
+		return removed;
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+		generation.incrementAndGet();
+	}
+
+	@Override
+	public ReadWriteLock getReadWriteLock() {
+		return null;
+	}
+
+	@Override
+	public int hashCode() {
+		return delegate.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return delegate.equals(obj);
+	}
+
+	private static int stripe(Object key) {
+		int h = key.hashCode();
+		return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+	}
+
+	private Mirror getMirror(long current) {
+		Mirror mirror = mirrors.get();
+		if (mirror == null) {
+			mirror = new Mirror(size);
+			mirrors.set(mirror);
+		}
+		if (mirror.generation != current) {
+			mirror.clear();
+			mirror.generation = current;
+		}
+		return mirror;
+	}
+
+	/**
+	 * The entries mirrored by a thread, in access order.
+	 */
+	private static class Mirror extends LinkedHashMap<Object, MirroredEntry> {
+		private static final long serialVersionUID = 1L;
+		private final int maxSize;
+		private long generation;
+
+		private Mirror(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Object, MirroredEntry> eldest) {
+			return size() > maxSize;
+		}
+	}
+
+	private static class MirroredEntry {
+		private final Object value;
+		private final long version;
+		private final long mirroredAt;
+
+		private MirroredEntry(Object value, long version, long mirroredAt) {
+			this.value = value;
+			this.version = version;
+			this.mirroredAt = mirroredAt;
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * Reports the entries removed from the cache it decorates. Put right above the base cache, it sees the
+ * evictions and expirations made by the other decorators too.
+ *
+ * 通知移除的entry 放在最里层 淘汰和过期也能看到
+ */
+public class RemovalNotifyingCache implements Cache {
+
+	private final Cache delegate;
+	private final RemovalListener listener;
+
+	public RemovalNotifyingCache(Cache delegate, RemovalListener listener) {
+		this.delegate = delegate;
+		this.listener = listener;
+	}
+
+	@Override
+	public String getId() {
+		return delegate.getId();
+	}
+
+	@Override
+	public int getSize() {
+		return delegate.getSize();
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		delegate.putObject(key, value);
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		return delegate.getObject(key);
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		Object value = delegate.removeObject(key);
+		listener.removed(getId(), key);
+		return value;
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+		listener.cleared(getId());
+	}
+
+	@Override
+	public ReadWriteLock getReadWriteLock() {
+		return null;
+	}
+
+	@Override
+	public int hashCode() {
+		return delegate.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return delegate.equals(obj);
+	}
+
+	/**
+	 * Told about the entries removed from a cache, after they are.
+	 */
+	public interface RemovalListener {
+
+		void removed(String cacheId, Object key);
+
+		void cleared(String cacheId);
+	}
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,6 +15,11 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
@@ -24,6 +29,12 @@ import org.apache.ibatis.cache.Cache;
  * 有计划的缓存,那么怎么一个有计划
  * 一定的时间间隔,就会清除一次缓存    Cache.clean
  * 只要针对缓存操作就会触发这个操作
+ *
+ * Per entry mode: instead of clearing the whole namespace every clearInterval, every entry expires
+ * clearInterval (plus a random jitter) after it was put, so hot keys do not all miss at the same moment.
+ * With refresh ahead, an entry read after refreshAhead * its ttl is reloaded in background by the
+ * {@link Refresher} and readers keep getting the current value, even past its expiration, until the refresh lands.
+ * A refresh whose entry was removed or cleared meanwhile is dropped, its rows may predate the change.
  */
 public class ScheduledCache implements Cache {
 
@@ -39,19 +50,55 @@ public class ScheduledCache implements Cache {
 	 * 上次清楚的时间
 	 */
 	protected long lastClear;
+	/**
+	 * 是否每个entry单独过期
+	 */
+	private boolean perEntry;
+	/**
+	 * 过期时间的随机增量 毫秒
+	 */
+	private long jitter;
+	/**
+	 * 到达 ttl 的这个比例之后 后台刷新 0 不刷新
+	 */
+	private double refreshAhead;
+	private Refresher refresher;
+	private final ConcurrentHashMap<Object, Entry> entries = new ConcurrentHashMap<Object, Entry>();
+	private final Random random = new Random();
+	/**
+	 * 后台刷新线程放入新值时 它刷新的那个entry
+	 */
+	private final ThreadLocal<Entry> refreshedEntry = new ThreadLocal<Entry>();
 
 	public ScheduledCache(Cache delegate) {
 		this.delegate = delegate;
 		// 默认就是1小时
 		this.clearInterval = 60 * 60 * 1000; // 1 hour
 		// 当前时间可以通过  System.currentTimeMillis() 这个数字是毫秒？
-		this.lastClear = System.currentTimeMillis();
+		this.lastClear = currentTimeMillis();
 	}
 
 	public void setClearInterval(long clearInterval) {
 		this.clearInterval = clearInterval;
 	}
 
+	public void setPerEntry(boolean perEntry) {
+		this.perEntry = perEntry;
+	}
+
+	public void setJitter(long jitter) {
+		this.jitter = jitter;
+	}
+
+	public void setRefreshAhead(double refreshAhead) {
+		this.refreshAhead = refreshAhead;
+	}
+
+	public void setRefresher(Refresher refresher) {
+		this.refresher = refresher;
+		refresher.register(this);
+	}
+
 	@Override
 	public String getId() {
 		return delegate.getId();
@@ -66,26 +113,111 @@ public class ScheduledCache implements Cache {
 	@Override
 	public void putObject(Object key, Object object) {
 		clearWhenStale();
+		if (perEntry) {
+			long now = currentTimeMillis();
+			long ttl = clearInterval + (jitter > 0 ? (long) (random.nextDouble() * jitter) : 0);
+			long refreshAt = refreshAhead > 0 ? now + (long) (ttl * refreshAhead) : Long.MAX_VALUE;
+			Entry entry = new Entry(now + ttl, refreshAt);
+			Entry refreshed = refreshedEntry.get();
+			if (refreshed != null) {
+				// the value first, so that a removal or clear racing with the refresh always wins
+				delegate.putObject(key, object);
+				entry.source = refreshed.source;
+				if (!entries.replace(key, refreshed, entry)) {
+					delegate.removeObject(key);
+				}
+				return;
+			}
+			Entry previous = entries.get(key);
+			if (previous != null) {
+				// a refreshed entry keeps the way to refresh it again
+				entry.source = previous.source;
+			}
+			entries.put(key, entry);
+		}
 		delegate.putObject(key, object);
 	}
 
 	@Override
 	public Object getObject(Object key) {
-		return clearWhenStale() ? null : delegate.getObject(key);
+		if (perEntry) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				long now = currentTimeMillis();
+				// 只有抢到的线程去刷新
+				if (now >= entry.refreshAt && entry.source != null && refresher != null && entry.refreshing.compareAndSet(false, true)) {
+					if (!refresher.refresh(this, key, entry.source, entry)) {
+						entry.refreshing.set(false);
+					}
+				}
+				// stale while revalidate: an entry being refreshed is served until the new value lands
+				if (now >= entry.expiresAt && !entry.refreshing.get()) {
+					entries.remove(key);
+					delegate.removeObject(key);
+					return null;
+				}
+			}
+			// the key is checked first so that the sweep does not drop it before its refresh starts
+			clearWhenStale();
+		} else if (clearWhenStale()) {
+			return null;
+		}
+		return delegate.getObject(key);
 	}
 
 	@Override
 	public Object removeObject(Object key) {
 		clearWhenStale();
+		entries.remove(key);
 		return delegate.removeObject(key);
 	}
 
 	@Override
 	public void clear() {
-		lastClear = System.currentTimeMillis();
+		lastClear = currentTimeMillis();
+		entries.clear();
 		delegate.clear();
 	}
 
+	/**
+	 * Remembers how the value of the key was loaded, so that it can be refreshed ahead of its expiration.
+	 * @param key The key, it must be already in the cache
+	 * @param source Opaque object handed back to the {@link Refresher}
+	 */
+	public void attachSource(Object key, Object source) {
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			entry.source = source;
+		}
+	}
+
+	/**
+	 * Puts the reloaded value of a key through the namespace cache, which decorates this one, unless the entry was
+	 * removed or the cache cleared since the refresh was claimed.
+	 * @param cache The namespace cache
+	 * @param claim The claim handed to the {@link Refresher}
+	 */
+	public void putRefreshed(Cache cache, Object key, Object value, Object claim) {
+		if (entries.get(key) != claim) {
+			return;
+		}
+		refreshedEntry.set((Entry) claim);
+		try {
+			cache.putObject(key, value);
+		} finally {
+			refreshedEntry.remove();
+		}
+	}
+
+	/**
+	 * Called by the {@link Refresher} when a refresh ends, whether it succeeded or not.
+	 * @param key The refreshed key
+	 * @param claim The claim handed to the {@link Refresher}
+	 */
+	public void refreshDone(Object key, Object claim) {
+		((Entry) claim).refreshing.set(false);
+	}
+
 	@Override
 	public ReadWriteLock getReadWriteLock() {
 		return null;
@@ -104,10 +236,15 @@ public class ScheduledCache implements Cache {
 	/**
 	 * 触发清楚操作
 	 * 如果时间间隔>clearInterval 就清楚一次缓存
+	 * 单独过期的模式下 只清理过期的entry
 	 * @return
 	 */
 	private boolean clearWhenStale() {
-		if (System.currentTimeMillis() - lastClear > clearInterval) {
+		if (currentTimeMillis() - lastClear > clearInterval) {
+			if (perEntry) {
+				removeExpiredEntries();
+				return false;
+			}
 			// 调用clear方法
 			clear();
 			return true;
@@ -115,4 +252,57 @@ public class ScheduledCache implements Cache {
 		return false;
 	}
 
+	/**
+	 * @return The current time, overridden by tests that need to control the expirations
+	 */
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	private void removeExpiredEntries() {
+		long now = currentTimeMillis();
+		lastClear = now;
+		Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Object, Entry> entry = iterator.next();
+			if (now >= entry.getValue().expiresAt && !entry.getValue().refreshing.get()) {
+				iterator.remove();
+				delegate.removeObject(entry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Reloads entries of per entry caches in background.
+	 */
+	public interface Refresher {
+
+		/**
+		 * Called once for every cache configured with refresh ahead.
+		 */
+		void register(ScheduledCache cache);
+
+		/**
+		 * Schedules the reload of a key. The new value must be put with
+		 * {@link ScheduledCache#putRefreshed(Cache, Object, Object, Object)}
+		 * and {@link ScheduledCache#refreshDone(Object, Object)} called when done.
+		 * @param claim Identifies the refreshed entry, to hand back to the cache
+		 * @return false if the refresh could not be scheduled
+		 */
+		boolean refresh(ScheduledCache cache, Object key, Object source, Object claim);
+
+	}
+
+	private static class Entry {
+		private final long expiresAt;
+		private final long refreshAt;
+		private volatile Object source;
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+
+		private Entry(long expiresAt, long refreshAt) {
+			this.expiresAt = expiresAt;
+			this.refreshAt = refreshAt;
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,25 +15,22 @@
  */
 package org.apache.ibatis.cache.decorators;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
-import java.io.Serializable;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
-import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
 import org.apache.ibatis.io.Resources;
 
 /**
  * @author Clinton Begin
  * 让缓存拥有序列化的能力,主要就是两个方法
  * serialize
- * deserialize 两个方法来序列化和反序列化
+ * deserialize 两个方法来序列化和反序列化 具体交给CacheSerializer 默认jdk序列化
  *
  * 这个缓存存入的value 是序列化的内容,目的是什么可能为了减少空间把
  */
@@ -43,9 +40,18 @@ public class SerializedCache implements Cache {
 	 * 装饰的缓存对象
 	 */
 	private final Cache delegate;
+	/**
+	 * 序列化方式 默认jdk
+	 */
+	private final CacheSerializer serializer;
 
 	public SerializedCache(Cache delegate) {
+		this(delegate, new JdkCacheSerializer());
+	}
+
+	public SerializedCache(Cache delegate, CacheSerializer serializer) {
 		this.delegate = delegate;
+		this.serializer = serializer;
 	}
 
 	@Override
@@ -60,18 +66,14 @@ public class SerializedCache implements Cache {
 
 	@Override
 	public void putObject(Object key, Object object) {
-		if (object == null || object instanceof Serializable) {
-			// 序列化后存入到value中
-			delegate.putObject(key, serialize((Serializable) object));
-		} else {
-			throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
-		}
+		// 序列化后存入到value中
+		delegate.putObject(key, serializer.serialize(object));
 	}
 
 	@Override
 	public Object getObject(Object key) {
 		Object object = delegate.getObject(key);
-		return object == null ? null : deserialize((byte[]) object);
+		return object == null ? null : serializer.deserialize((byte[]) object);
 	}
 
 	@Override
@@ -99,41 +101,6 @@ public class SerializedCache implements Cache {
 		return delegate.equals(obj);
 	}
 
-	/**
-	 * 就仅仅是序列化的方法了,通过ObjectOutputStream来进行序列化
-	 * @param value
-	 * @return
-	 */
-	private byte[] serialize(Serializable value) {
-		try {
-			// 内存输出流
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			// 对象输出流 装饰模式
-			ObjectOutputStream oos = new ObjectOutputStream(bos);
-			// 进行输出
-			oos.writeObject(value);
-			oos.flush();
-			oos.close();
-			return bos.toByteArray();
-		} catch (Exception e) {
-			throw new CacheException("Error serializing object.  Cause: " + e, e);
-		}
-	}
-
-	private Serializable deserialize(byte[] value) {
-		// 将对象从流中读取出来
-		Serializable result;
-		try {
-			ByteArrayInputStream bis = new ByteArrayInputStream(value);
-			ObjectInputStream ois = new CustomObjectInputStream(bis);
-			result = (Serializable) ois.readObject();
-			ois.close();
-		} catch (Exception e) {
-			throw new CacheException("Error deserializing object.  Cause: " + e, e);
-		}
-		return result;
-	}
-
 	public static class CustomObjectInputStream extends ObjectInputStream {
 
 		public CustomObjectInputStream(InputStream in) throws IOException {
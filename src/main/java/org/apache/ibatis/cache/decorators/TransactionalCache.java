@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -59,9 +60,18 @@ public class TransactionalCache implements Cache {
 	 * 存放所有没有命中的key
 	 */
 	private final Set<Object> entriesMissedInCache;
+	/**
+	 * 提交清除时 通知其他节点 可以为null
+	 */
+	private final CacheInvalidationBus invalidationBus;
 
 	public TransactionalCache(Cache delegate) {
+		this(delegate, null);
+	}
+
+	public TransactionalCache(Cache delegate, CacheInvalidationBus invalidationBus) {
 		this.delegate = delegate;
+		this.invalidationBus = invalidationBus;
 		this.clearOnCommit = false;
 		this.entriesToAddOnCommit = new HashMap<Object, Object>();
 		this.entriesMissedInCache = new HashSet<Object>();
@@ -115,6 +125,14 @@ public class TransactionalCache implements Cache {
 		entriesToAddOnCommit.clear();
 	}
 
+	/**
+	 * 本事务中是否清除过缓存, 清除过之后读不到缓存里的数据
+	 * @return
+	 */
+	public boolean isClearOnCommit() {
+		return clearOnCommit;
+	}
+
 	/**
 	 * 调用事物缓存的commit方法
 	 */
@@ -123,6 +141,9 @@ public class TransactionalCache implements Cache {
 		if (clearOnCommit) {
 			// 缓存清除
 			delegate.clear();
+			if (invalidationBus != null) {
+				invalidationBus.publishClear(delegate);
+			}
 		}
 		flushPendingEntries();
 		reset();
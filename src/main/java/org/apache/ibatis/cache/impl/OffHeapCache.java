@@ -0,0 +1,261 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Off-heap cache implementation.
+ *
+ * Values are serialized and copied into direct {@link ByteBuffer} slabs so that large caches
+ * do not live in the collected heap. Only the keys and a small index entry per value stay on heap.
+ *
+ * Slabs are filled sequentially like a log. When the last slab is full, the oldest slab is recycled:
+ * every entry stored in it is evicted and writing starts again from its beginning.
+ * Overwritten or removed entries leave a hole that is reclaimed when their slab is recycled.
+ *
+ * Usage: {@code <cache type="OFF_HEAP"><property name="slabSize" value="16777216"/></cache>}
+ *
+ * Like any custom cache, this one is not wrapped by the standard decorators so it handles
+ * its own locking and copies values on every put and get (it is always read/write).
+ * Values are serialized with the serializer configured for the namespace, the JDK one by default.
+ */
+public class OffHeapCache implements Cache {
+
+	private static final Log log = LogFactory.getLog(OffHeapCache.class);
+
+	private final String id;
+	/**
+	 * key -> location of the serialized value
+	 */
+	private final Map<Object, Location> index = new HashMap<Object, Location>();
+	private ByteBuffer[] slabs;
+	/**
+	 * keys stored in every slab, used to evict them when the slab is recycled
+	 */
+	private Set<Object>[] slabKeys;
+	private int slabSize = 4 * 1024 * 1024;
+	private int slabCount = 16;
+	private int currentSlab;
+	private int writePosition;
+	private CacheSerializer serializer = new JdkCacheSerializer();
+
+	public OffHeapCache(String id) {
+		this.id = id;
+		initSlabs();
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	public int getSlabSize() {
+		return slabSize;
+	}
+
+	/**
+	 * Sets the size in bytes of every slab. Values bigger than a slab are not cached.
+	 * Changing it drops the cache content.
+	 */
+	public synchronized void setSlabSize(int slabSize) {
+		if (slabSize <= 0) {
+			throw new CacheException("Invalid slab size " + slabSize + " for cache " + id);
+		}
+		this.slabSize = slabSize;
+		initSlabs();
+	}
+
+	public int getSlabCount() {
+		return slabCount;
+	}
+
+	/**
+	 * Sets the number of slabs. The cache capacity in bytes is slabSize * slabCount.
+	 * Changing it drops the cache content.
+	 */
+	public synchronized void setSlabCount(int slabCount) {
+		if (slabCount <= 0) {
+			throw new CacheException("Invalid slab count " + slabCount + " for cache " + id);
+		}
+		this.slabCount = slabCount;
+		initSlabs();
+	}
+
+	public CacheSerializer getSerializer() {
+		return serializer;
+	}
+
+	public void setSerializer(CacheSerializer serializer) {
+		this.serializer = serializer;
+	}
+
+	@Override
+	public synchronized int getSize() {
+		return index.size();
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		// serialize out of the lock, only the copy into the slab is guarded
+		byte[] bytes = serializer.serialize(value);
+		if (bytes.length > slabSize) {
+			if (log.isDebugEnabled()) {
+				log.debug("Value of " + bytes.length + " bytes does not fit in a slab of cache " + id + ", skipping it");
+			}
+			synchronized (this) {
+				remove(key);
+			}
+			return;
+		}
+		synchronized (this) {
+			remove(key);
+			if (slabSize - writePosition < bytes.length) {
+				nextSlab();
+			}
+			ByteBuffer slab = slabs[currentSlab];
+			if (slab == null) {
+				// slabs are allocated lazily so small caches do not reserve the whole capacity
+				slab = ByteBuffer.allocateDirect(slabSize);
+				slabs[currentSlab] = slab;
+			}
+			ByteBuffer target = slab.duplicate();
+			target.position(writePosition);
+			target.put(bytes);
+			index.put(key, new Location(currentSlab, writePosition, bytes.length));
+			slabKeys[currentSlab].add(key);
+			writePosition += bytes.length;
+		}
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		byte[] bytes;
+		synchronized (this) {
+			Location location = index.get(key);
+			if (location == null) {
+				return null;
+			}
+			bytes = new byte[location.length];
+			ByteBuffer source = slabs[location.slab].duplicate();
+			source.position(location.offset);
+			source.get(bytes);
+		}
+		return serializer.deserialize(bytes);
+	}
+
+	@Override
+	public synchronized Object removeObject(Object key) {
+		remove(key);
+		return null;
+	}
+
+	@Override
+	public synchronized void clear() {
+		index.clear();
+		for (Set<Object> keys : slabKeys) {
+			keys.clear();
+		}
+		currentSlab = 0;
+		writePosition = 0;
+	}
+
+	@Override
+	public ReadWriteLock getReadWriteLock() {
+		return null;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (getId() == null) {
+			throw new CacheException("Cache instances require an ID.");
+		}
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof Cache)) {
+			return false;
+		}
+
+		Cache otherCache = (Cache) o;
+		return getId().equals(otherCache.getId());
+	}
+
+	@Override
+	public int hashCode() {
+		if (getId() == null) {
+			throw new CacheException("Cache instances require an ID.");
+		}
+		return getId().hashCode();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void initSlabs() {
+		index.clear();
+		slabs = new ByteBuffer[slabCount];
+		slabKeys = new Set[slabCount];
+		for (int i = 0; i < slabCount; i++) {
+			slabKeys[i] = new HashSet<Object>();
+		}
+		currentSlab = 0;
+		writePosition = 0;
+	}
+
+	private void remove(Object key) {
+		Location location = index.remove(key);
+		if (location != null) {
+			slabKeys[location.slab].remove(key);
+		}
+	}
+
+	/**
+	 * Moves to the next slab of the ring evicting everything it still holds.
+	 */
+	private void nextSlab() {
+		currentSlab = (currentSlab + 1) % slabCount;
+		writePosition = 0;
+		Set<Object> evicted = slabKeys[currentSlab];
+		for (Object key : evicted) {
+			index.remove(key);
+		}
+		evicted.clear();
+	}
+
+	private static class Location {
+		private final int slab;
+		private final int offset;
+		private final int length;
+
+		private Location(int slab, int offset, int length) {
+			this.slab = slab;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Publishes second level cache invalidations to the other nodes running the same mappers and applies theirs.
+ *
+ * A committed flush of a namespace cache clears that cache on every node. With the cacheInvalidationByTable
+ * setting the modified tables are sent instead, and every node invalidates its own dependent entries.
+ *
+ * Invalidations are not acknowledged, caches should keep a flushInterval as a safety net for lost messages.
+ */
+public class CacheInvalidationBus implements InvalidationTransport.Receiver {
+
+	private static final Log log = LogFactory.getLog(CacheInvalidationBus.class);
+
+	private static final int MAGIC = 0x4D424349;
+	private static final byte CLEAR = 1;
+	private static final byte TABLES = 3;
+
+	private final Configuration configuration;
+	private final InvalidationTransport transport;
+	private final UUID nodeId = UUID.randomUUID();
+
+	public CacheInvalidationBus(Configuration configuration, InvalidationTransport transport) {
+		this.configuration = configuration;
+		this.transport = transport;
+	}
+
+	public void open() {
+		transport.open(this);
+	}
+
+	public void close() {
+		transport.close();
+	}
+
+	public InvalidationTransport getTransport() {
+		return transport;
+	}
+
+	public void publishClear(Cache cache) {
+		ByteArrayOutputStream message = new ByteArrayOutputStream();
+		try {
+			DataOutputStream out = newMessage(message, CLEAR);
+			out.writeUTF(cache.getId());
+			out.flush();
+		} catch (IOException e) {
+			throw new CacheException("Error writing the invalidation of " + cache.getId() + ".  Cause: " + e, e);
+		}
+		send(message);
+	}
+
+	public void publishTables(Set<String> tables) {
+		ByteArrayOutputStream message = new ByteArrayOutputStream();
+		try {
+			DataOutputStream out = newMessage(message, TABLES);
+			out.writeInt(tables.size());
+			for (String table : tables) {
+				out.writeUTF(table);
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new CacheException("Error writing the invalidation of tables " + tables + ".  Cause: " + e, e);
+		}
+		send(message);
+	}
+
+	@Override
+	public void receive(byte[] message) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+			if (in.readInt() != MAGIC) {
+				return;
+			}
+			UUID sender = new UUID(in.readLong(), in.readLong());
+			if (nodeId.equals(sender)) {
+				// our own message
+				return;
+			}
+			byte type = in.readByte();
+			if (type == TABLES) {
+				Set<String> tables = new LinkedHashSet<String>();
+				for (int i = in.readInt(); i > 0; i--) {
+					tables.add(in.readUTF());
+				}
+				configuration.getCacheDependencyTracker().invalidate(tables);
+				return;
+			}
+			String cacheId = in.readUTF();
+			if (!configuration.hasCache(cacheId)) {
+				return;
+			}
+			if (type == CLEAR) {
+				configuration.getCache(cacheId).clear();
+			}
+		} catch (Exception e) {
+			log.warn("Error applying a cache invalidation message.  Cause: " + e);
+		}
+	}
+
+	private DataOutputStream newMessage(ByteArrayOutputStream message, byte type) throws IOException {
+		DataOutputStream out = new DataOutputStream(message);
+		out.writeInt(MAGIC);
+		out.writeLong(nodeId.getMostSignificantBits());
+		out.writeLong(nodeId.getLeastSignificantBits());
+		out.writeByte(type);
+		return out;
+	}
+
+	private void send(ByteArrayOutputStream message) {
+		try {
+			transport.send(message.toByteArray());
+		} catch (Exception e) {
+			// the write succeeded, a lost invalidation must not make it fail
+			log.warn("Error sending a cache invalidation message.  Cause: " + e);
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.Properties;
+
+/**
+ * Sends the invalidation messages of a {@link CacheInvalidationBus} to the other nodes and receives theirs.
+ *
+ * Delivery may be unreliable (a lost message leaves stale entries until they expire) but every message
+ * must be delivered whole or not at all. Messages are at most {@link #MAX_MESSAGE_SIZE} bytes long.
+ */
+public interface InvalidationTransport {
+
+	int MAX_MESSAGE_SIZE = 60000;
+
+	void setProperties(Properties properties);
+
+	/**
+	 * Starts receiving messages. Messages sent by this node may be received too, the bus ignores them.
+	 */
+	void open(Receiver receiver);
+
+	void send(byte[] message);
+
+	void close();
+
+	interface Receiver {
+
+		void receive(byte[] message);
+
+	}
+
+}
@@ -0,0 +1,188 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Sends every invalidation in a single UDP datagram.
+ *
+ * With a multicast {@code group} every node joins the group on {@code port} (default 4446) and
+ * messages are sent to the group. Otherwise messages are sent to each one of the comma separated
+ * {@code peers} (host:port) and received on {@code port}, which may run several nodes on one machine.
+ *
+ * Other properties: {@code bindAddress} to receive on a single interface and {@code timeToLive}
+ * for multicast messages (default 1, the local network).
+ */
+public class UdpInvalidationTransport implements InvalidationTransport {
+
+	private static final Log log = LogFactory.getLog(UdpInvalidationTransport.class);
+
+	private int port = 4446;
+	private String bindAddress;
+	private String group;
+	private int timeToLive = 1;
+	private volatile List<InetSocketAddress> peers = new ArrayList<InetSocketAddress>();
+	private DatagramSocket socket;
+	private Thread receiverThread;
+
+	@Override
+	public void setProperties(Properties properties) {
+		if (properties.getProperty("port") != null) {
+			port = Integer.parseInt(properties.getProperty("port"));
+		}
+		bindAddress = properties.getProperty("bindAddress");
+		group = properties.getProperty("group");
+		if (properties.getProperty("timeToLive") != null) {
+			timeToLive = Integer.parseInt(properties.getProperty("timeToLive"));
+		}
+		if (properties.getProperty("peers") != null) {
+			setPeers(properties.getProperty("peers"));
+		}
+	}
+
+	public void setPort(int port) {
+		this.port = port;
+	}
+
+	/**
+	 * @return The port messages are received on, useful when it was set to 0 to pick a free one
+	 */
+	public synchronized int getLocalPort() {
+		return socket == null ? port : socket.getLocalPort();
+	}
+
+	/**
+	 * @param peers Comma separated host:port addresses of the other nodes
+	 */
+	public void setPeers(String peers) {
+		List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+		for (String peer : peers.split(",")) {
+			String trimmed = peer.trim();
+			if (trimmed.length() == 0) {
+				continue;
+			}
+			int colon = trimmed.lastIndexOf(':');
+			if (colon < 0) {
+				throw new CacheException("Invalid peer '" + trimmed + "', expected host:port");
+			}
+			addresses.add(new InetSocketAddress(trimmed.substring(0, colon), Integer.parseInt(trimmed.substring(colon + 1))));
+		}
+		this.peers = addresses;
+	}
+
+	@Override
+	public synchronized void open(final Receiver receiver) {
+		if (socket != null) {
+			throw new CacheException("The invalidation transport is already open");
+		}
+		try {
+			if (group != null) {
+				MulticastSocket multicastSocket = new MulticastSocket(port);
+				multicastSocket.setTimeToLive(timeToLive);
+				// 指定了bindAddress时只在它的网卡上加入组播
+				NetworkInterface networkInterface = bindAddress == null ? null : NetworkInterface.getByInetAddress(InetAddress.getByName(bindAddress));
+				multicastSocket.joinGroup(new InetSocketAddress(InetAddress.getByName(group), port), networkInterface);
+				socket = multicastSocket;
+			} else if (bindAddress != null) {
+				socket = new DatagramSocket(new InetSocketAddress(bindAddress, port));
+			} else {
+				socket = new DatagramSocket(port);
+			}
+		} catch (IOException e) {
+			throw new CacheException("Error opening the invalidation transport on port " + port + ".  Cause: " + e, e);
+		}
+		final DatagramSocket receivingSocket = socket;
+		receiverThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				byte[] buffer = new byte[MAX_MESSAGE_SIZE];
+				while (!receivingSocket.isClosed()) {
+					DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+					try {
+						receivingSocket.receive(packet);
+					} catch (SocketException e) {
+						// closed
+						break;
+					} catch (IOException e) {
+						log.warn("Error receiving a cache invalidation.  Cause: " + e);
+						continue;
+					}
+					receiver.receive(Arrays.copyOfRange(packet.getData(), packet.getOffset(), packet.getOffset() + packet.getLength()));
+				}
+			}
+		}, "mybatis-cache-invalidation-" + getLocalPort());
+		receiverThread.setDaemon(true);
+		receiverThread.start();
+	}
+
+	@Override
+	public void send(byte[] message) {
+		if (message.length > MAX_MESSAGE_SIZE) {
+			throw new CacheException("Invalidation message of " + message.length + " bytes is too big");
+		}
+		DatagramSocket sendingSocket;
+		synchronized (this) {
+			sendingSocket = socket;
+		}
+		if (sendingSocket == null) {
+			throw new CacheException("The invalidation transport is not open");
+		}
+		try {
+			if (group != null) {
+				sendingSocket.send(new DatagramPacket(message, message.length, InetAddress.getByName(group), port));
+			} else {
+				for (InetSocketAddress peer : peers) {
+					sendingSocket.send(new DatagramPacket(message, message.length, peer));
+				}
+			}
+		} catch (IOException e) {
+			throw new CacheException("Error sending a cache invalidation.  Cause: " + e, e);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (socket != null) {
+			socket.close();
+			socket = null;
+		}
+		if (receiverThread != null) {
+			try {
+				receiverThread.join(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			receiverThread = null;
+		}
+	}
+
+}
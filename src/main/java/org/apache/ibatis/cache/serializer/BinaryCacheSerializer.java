@@ -0,0 +1,555 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * Compact binary serializer.
+ *
+ * Every value is written as a one byte tag followed by its data. Class names (and the property names of beans)
+ * are written once per serialized value and referenced by index afterwards, so lists of results
+ * only pay for their class descriptor once. Shared references and cycles are preserved.
+ *
+ * Beans (non JDK classes with a default constructor) are copied property by property using the
+ * {@link Reflector} of their class, so they do not need to be {@link Serializable}. Only the properties that
+ * have both a getter and a setter (or a field) are copied.
+ *
+ * Anything else (lazy loading proxies, JDK classes without a dedicated format, collections without a
+ * public default constructor, sorted collections with a comparator...) falls back to the standard java
+ * serialization and therefore has to be {@link Serializable}.
+ */
+public class BinaryCacheSerializer implements CacheSerializer {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final byte NULL = 0;
+	private static final byte REFERENCE = 1;
+	private static final byte STRING = 2;
+	private static final byte INTEGER = 3;
+	private static final byte LONG = 4;
+	private static final byte SHORT = 5;
+	private static final byte BYTE = 6;
+	private static final byte CHARACTER = 7;
+	private static final byte BOOLEAN = 8;
+	private static final byte FLOAT = 9;
+	private static final byte DOUBLE = 10;
+	private static final byte BIG_DECIMAL = 11;
+	private static final byte BIG_INTEGER = 12;
+	private static final byte DATE = 13;
+	private static final byte SQL_DATE = 14;
+	private static final byte SQL_TIME = 15;
+	private static final byte TIMESTAMP = 16;
+	private static final byte ENUM = 17;
+	private static final byte BYTE_ARRAY = 18;
+	private static final byte ARRAY = 19;
+	private static final byte COLLECTION = 20;
+	private static final byte MAP = 21;
+	private static final byte BEAN = 22;
+	private static final byte JAVA = 23;
+	private static final byte UNSUPPORTED = -1;
+
+	private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+	private final JdkCacheSerializer jdkSerializer = new JdkCacheSerializer();
+	private final Map<Class<?>, Byte> tags = new ConcurrentHashMap<Class<?>, Byte>();
+	private final Map<Class<?>, String[]> beanProperties = new ConcurrentHashMap<Class<?>, String[]>();
+
+	@Override
+	public byte[] serialize(Object value) {
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			Output output = new Output(new DataOutputStream(bos));
+			write(output, value);
+			output.out.flush();
+			return bos.toByteArray();
+		} catch (CacheException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CacheException("Error serializing object.  Cause: " + e, e);
+		}
+	}
+
+	@Override
+	public Object deserialize(byte[] bytes) {
+		try {
+			Input input = new Input(new DataInputStream(new ByteArrayInputStream(bytes)));
+			return read(input);
+		} catch (CacheException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CacheException("Error deserializing object.  Cause: " + e, e);
+		}
+	}
+
+	private void write(Output output, Object value) throws Exception {
+		DataOutputStream out = output.out;
+		if (value == null) {
+			out.writeByte(NULL);
+			return;
+		}
+		byte tag = tagFor(value);
+		if (tag == ARRAY || tag == COLLECTION || tag == MAP || tag == BEAN) {
+			Integer handle = output.handles.get(value);
+			if (handle != null) {
+				out.writeByte(REFERENCE);
+				writeVarInt(out, handle);
+				return;
+			}
+			output.handles.put(value, output.handles.size());
+		}
+		out.writeByte(tag);
+		switch (tag) {
+			case STRING:
+				writeString(out, (String) value);
+				break;
+			case INTEGER:
+				out.writeInt((Integer) value);
+				break;
+			case LONG:
+				out.writeLong((Long) value);
+				break;
+			case SHORT:
+				out.writeShort((Short) value);
+				break;
+			case BYTE:
+				out.writeByte((Byte) value);
+				break;
+			case CHARACTER:
+				out.writeChar((Character) value);
+				break;
+			case BOOLEAN:
+				out.writeBoolean((Boolean) value);
+				break;
+			case FLOAT:
+				out.writeFloat((Float) value);
+				break;
+			case DOUBLE:
+				out.writeDouble((Double) value);
+				break;
+			case BIG_DECIMAL:
+				writeString(out, value.toString());
+				break;
+			case BIG_INTEGER:
+				writeBytes(out, ((BigInteger) value).toByteArray());
+				break;
+			case DATE:
+			case SQL_DATE:
+			case SQL_TIME:
+				out.writeLong(((Date) value).getTime());
+				break;
+			case TIMESTAMP:
+				out.writeLong(((Timestamp) value).getTime());
+				out.writeInt(((Timestamp) value).getNanos());
+				break;
+			case ENUM:
+				writeClass(output, ((Enum<?>) value).getDeclaringClass(), null);
+				writeString(out, ((Enum<?>) value).name());
+				break;
+			case BYTE_ARRAY:
+				writeBytes(out, (byte[]) value);
+				break;
+			case ARRAY:
+				writeClass(output, value.getClass().getComponentType(), null);
+				int length = Array.getLength(value);
+				writeVarInt(out, length);
+				for (int i = 0; i < length; i++) {
+					write(output, Array.get(value, i));
+				}
+				break;
+			case COLLECTION:
+				Collection<?> collection = (Collection<?>) value;
+				writeClass(output, value.getClass(), null);
+				writeVarInt(out, collection.size());
+				for (Object element : collection) {
+					write(output, element);
+				}
+				break;
+			case MAP:
+				Map<?, ?> map = (Map<?, ?>) value;
+				writeClass(output, value.getClass(), null);
+				writeVarInt(out, map.size());
+				for (Map.Entry<?, ?> entry : map.entrySet()) {
+					write(output, entry.getKey());
+					write(output, entry.getValue());
+				}
+				break;
+			case BEAN:
+				String[] properties = getBeanProperties(value.getClass());
+				writeClass(output, value.getClass(), properties);
+				Reflector reflector = reflectorFactory.findForClass(value.getClass());
+				for (String property : properties) {
+					write(output, reflector.getGetInvoker(property).invoke(value, null));
+				}
+				break;
+			case JAVA:
+				writeBytes(out, jdkSerializer.serialize(value));
+				break;
+			default:
+				throw new CacheException("BinaryCacheSerializer cannot serialize an instance of " + value.getClass()
+						+ ". It is not a bean with a default constructor and it is not serializable.");
+		}
+	}
+
+	private Object read(Input input) throws Exception {
+		DataInputStream in = input.in;
+		byte tag = in.readByte();
+		switch (tag) {
+			case NULL:
+				return null;
+			case REFERENCE:
+				return input.handles.get(readVarInt(in));
+			case STRING:
+				return readString(in);
+			case INTEGER:
+				return in.readInt();
+			case LONG:
+				return in.readLong();
+			case SHORT:
+				return in.readShort();
+			case BYTE:
+				return in.readByte();
+			case CHARACTER:
+				return in.readChar();
+			case BOOLEAN:
+				return in.readBoolean();
+			case FLOAT:
+				return in.readFloat();
+			case DOUBLE:
+				return in.readDouble();
+			case BIG_DECIMAL:
+				return new BigDecimal(readString(in));
+			case BIG_INTEGER:
+				return new BigInteger(readBytes(in));
+			case DATE:
+				return new Date(in.readLong());
+			case SQL_DATE:
+				return new java.sql.Date(in.readLong());
+			case SQL_TIME:
+				return new Time(in.readLong());
+			case TIMESTAMP:
+				Timestamp timestamp = new Timestamp(in.readLong());
+				timestamp.setNanos(in.readInt());
+				return timestamp;
+			case ENUM:
+				return readEnum(readClass(input, false).type, readString(in));
+			case BYTE_ARRAY:
+				return readBytes(in);
+			case ARRAY: {
+				Class<?> componentType = readClass(input, false).type;
+				int length = readVarInt(in);
+				Object array = Array.newInstance(componentType, length);
+				input.handles.add(array);
+				for (int i = 0; i < length; i++) {
+					Array.set(array, i, read(input));
+				}
+				return array;
+			}
+			case COLLECTION: {
+				@SuppressWarnings("unchecked")
+				Collection<Object> collection = (Collection<Object>) newContainer(readClass(input, false).type);
+				input.handles.add(collection);
+				int size = readVarInt(in);
+				for (int i = 0; i < size; i++) {
+					collection.add(read(input));
+				}
+				return collection;
+			}
+			case MAP: {
+				@SuppressWarnings("unchecked")
+				Map<Object, Object> map = (Map<Object, Object>) newContainer(readClass(input, false).type);
+				input.handles.add(map);
+				int size = readVarInt(in);
+				for (int i = 0; i < size; i++) {
+					Object key = read(input);
+					map.put(key, read(input));
+				}
+				return map;
+			}
+			case BEAN: {
+				ClassDescriptor descriptor = readClass(input, true);
+				Reflector reflector = reflectorFactory.findForClass(descriptor.type);
+				Object bean = reflector.getDefaultConstructor().newInstance();
+				input.handles.add(bean);
+				for (String property : descriptor.properties) {
+					Object value = read(input);
+					reflector.getSetInvoker(property).invoke(bean, new Object[] { value });
+				}
+				return bean;
+			}
+			case JAVA:
+				return jdkSerializer.deserialize(readBytes(in));
+			default:
+				throw new CacheException("Error deserializing object.  Cause: unknown tag " + tag);
+		}
+	}
+
+	private byte tagFor(Object value) {
+		Class<?> type = value.getClass();
+		Byte tag = tags.get(type);
+		if (tag == null) {
+			tag = resolveTag(type);
+			tags.put(type, tag);
+		}
+		// a comparator would be lost when rebuilding the collection with its default constructor
+		if ((tag == COLLECTION && value instanceof SortedSet && ((SortedSet<?>) value).comparator() != null)
+				|| (tag == MAP && value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() != null)) {
+			return JAVA;
+		}
+		return tag;
+	}
+
+	private byte resolveTag(Class<?> type) {
+		if (type == String.class) {
+			return STRING;
+		} else if (type == Integer.class) {
+			return INTEGER;
+		} else if (type == Long.class) {
+			return LONG;
+		} else if (type == Short.class) {
+			return SHORT;
+		} else if (type == Byte.class) {
+			return BYTE;
+		} else if (type == Character.class) {
+			return CHARACTER;
+		} else if (type == Boolean.class) {
+			return BOOLEAN;
+		} else if (type == Float.class) {
+			return FLOAT;
+		} else if (type == Double.class) {
+			return DOUBLE;
+		} else if (type == BigDecimal.class) {
+			return BIG_DECIMAL;
+		} else if (type == BigInteger.class) {
+			return BIG_INTEGER;
+		} else if (type == Date.class) {
+			return DATE;
+		} else if (type == java.sql.Date.class) {
+			return SQL_DATE;
+		} else if (type == Time.class) {
+			return SQL_TIME;
+		} else if (type == Timestamp.class) {
+			return TIMESTAMP;
+		} else if (Enum.class.isAssignableFrom(type)) {
+			return ENUM;
+		} else if (type == byte[].class) {
+			return BYTE_ARRAY;
+		} else if (type.isArray() && !type.getComponentType().isPrimitive()) {
+			return ARRAY;
+		} else if (Collection.class.isAssignableFrom(type) && hasPublicDefaultConstructor(type)) {
+			return COLLECTION;
+		} else if (Map.class.isAssignableFrom(type) && hasPublicDefaultConstructor(type)) {
+			return MAP;
+		} else if (isBean(type)) {
+			return BEAN;
+		} else if (Serializable.class.isAssignableFrom(type)) {
+			return JAVA;
+		}
+		return UNSUPPORTED;
+	}
+
+	private boolean isBean(Class<?> type) {
+		if (type.getName().startsWith("java.")
+				|| Collection.class.isAssignableFrom(type)
+				|| Map.class.isAssignableFrom(type)
+				|| Modifier.isAbstract(type.getModifiers())
+				// lazy loading proxies must go through their writeReplace method
+				|| WriteReplaceInterface.class.isAssignableFrom(type)
+				|| type.getName().contains("$$")) {
+			return false;
+		}
+		return reflectorFactory.findForClass(type).hasDefaultConstructor();
+	}
+
+	private boolean hasPublicDefaultConstructor(Class<?> type) {
+		try {
+			return Modifier.isPublic(type.getModifiers()) && type.getConstructor() != null;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private String[] getBeanProperties(Class<?> type) {
+		String[] properties = beanProperties.get(type);
+		if (properties == null) {
+			Reflector reflector = reflectorFactory.findForClass(type);
+			List<String> names = new ArrayList<String>();
+			for (String name : reflector.getGetablePropertyNames()) {
+				if (reflector.hasSetter(name)) {
+					names.add(name);
+				}
+			}
+			properties = names.toArray(new String[names.size()]);
+			beanProperties.put(type, properties);
+		}
+		return properties;
+	}
+
+	private Object newContainer(Class<?> type) throws Exception {
+		Constructor<?> constructor = type.getConstructor();
+		return constructor.newInstance();
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object readEnum(Class<?> type, String name) {
+		return Enum.valueOf((Class<Enum>) type, name);
+	}
+
+	private void writeClass(Output output, Class<?> type, String[] properties) throws IOException {
+		DataOutputStream out = output.out;
+		// bean descriptors carry their property names so they are numbered apart
+		Map<Class<?>, Integer> classes = properties == null ? output.classes : output.beanClasses;
+		Integer index = classes.get(type);
+		if (index != null) {
+			writeVarInt(out, index + 1);
+			return;
+		}
+		classes.put(type, classes.size());
+		writeVarInt(out, 0);
+		writeString(out, type.getName());
+		if (properties != null) {
+			writeVarInt(out, properties.length);
+			for (String property : properties) {
+				writeString(out, property);
+			}
+		}
+	}
+
+	private ClassDescriptor readClass(Input input, boolean withProperties) throws IOException, ClassNotFoundException {
+		DataInputStream in = input.in;
+		List<ClassDescriptor> classes = withProperties ? input.beanClasses : input.classes;
+		int index = readVarInt(in);
+		if (index > 0) {
+			return classes.get(index - 1);
+		}
+		Class<?> type = Resources.classForName(readString(in));
+		String[] properties = null;
+		if (withProperties) {
+			properties = new String[readVarInt(in)];
+			for (int i = 0; i < properties.length; i++) {
+				properties[i] = readString(in);
+			}
+		}
+		ClassDescriptor descriptor = new ClassDescriptor(type, properties);
+		classes.add(descriptor);
+		return descriptor;
+	}
+
+	private void writeString(DataOutputStream out, String value) throws IOException {
+		writeBytes(out, value.getBytes(UTF_8));
+	}
+
+	private String readString(DataInputStream in) throws IOException {
+		return new String(readBytes(in), UTF_8);
+	}
+
+	private void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Lengths, sizes and indexes are usually small so they are written 7 bits at a time.
+	 */
+	private void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.readByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static class Output {
+		private final DataOutputStream out;
+		private final Map<Class<?>, Integer> classes = new HashMap<Class<?>, Integer>();
+		private final Map<Class<?>, Integer> beanClasses = new HashMap<Class<?>, Integer>();
+		private final Map<Object, Integer> handles = new IdentityHashMap<Object, Integer>();
+
+		private Output(DataOutputStream out) {
+			this.out = out;
+		}
+	}
+
+	private static class Input {
+		private final DataInputStream in;
+		private final List<ClassDescriptor> classes = new ArrayList<ClassDescriptor>();
+		private final List<ClassDescriptor> beanClasses = new ArrayList<ClassDescriptor>();
+		private final List<Object> handles = new ArrayList<Object>();
+
+		private Input(DataInputStream in) {
+			this.in = in;
+		}
+	}
+
+	private static class ClassDescriptor {
+		private final Class<?> type;
+		private final String[] properties;
+
+		private ClassDescriptor(Class<?> type, String[] properties) {
+			this.type = type;
+			this.properties = properties;
+		}
+	}
+
+}
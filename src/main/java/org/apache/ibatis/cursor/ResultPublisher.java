@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+/**
+ * Pushes the rows of a query to a {@link ResultSubscriber} as it requests them.
+ *
+ * It has the same contract as {@code java.util.concurrent.Flow.Publisher} and the Reactive Streams
+ * {@code Publisher}, which MyBatis does not depend on: adapting it to either one only forwards each method.
+ *
+ * @param <T> the type of the rows
+ * @since 3.5.0
+ */
+public interface ResultPublisher<T> {
+
+	/**
+	 * Starts the query for the subscriber. A publisher only accepts one subscriber.
+	 */
+	void subscribe(ResultSubscriber<? super T> subscriber);
+
+}
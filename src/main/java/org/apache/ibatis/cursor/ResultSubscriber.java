@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+/**
+ * Receives the rows of a {@link ResultPublisher}, as many as it requested.
+ *
+ * @param <T> the type of the rows
+ * @since 3.5.0
+ */
+public interface ResultSubscriber<T> {
+
+	void onSubscribe(ResultSubscription subscription);
+
+	void onNext(T item);
+
+	/**
+	 * The query failed, no more rows will follow.
+	 */
+	void onError(Throwable throwable);
+
+	/**
+	 * All the rows were sent.
+	 */
+	void onComplete();
+
+}
@@ -0,0 +1,202 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.ResultPublisher;
+import org.apache.ibatis.cursor.ResultSubscriber;
+import org.apache.ibatis.cursor.ResultSubscription;
+
+/**
+ * Publishes the rows of a {@link Cursor}, fetching from the database only as many rows as requested,
+ * so that a large result is streamed with bounded memory.
+ *
+ * Rows are fetched and sent in the thread calling {@link ResultSubscription#request(long)}, or on the
+ * executor if one is given. Requests made while rows are being sent are served by the sending thread,
+ * so the cursor is never read by two threads at once. The cursor, and the resource given with it such
+ * as its session, are closed on completion, error or cancellation.
+ *
+ * 游标的发布者 按订阅者的需求一行一行读取
+ */
+public class CursorPublisher<T> implements ResultPublisher<T> {
+
+	private final Cursor<T> cursor;
+	private final Executor executor;
+	private final Closeable resource;
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	public CursorPublisher(Cursor<T> cursor) {
+		this(cursor, null, null);
+	}
+
+	/**
+	 * @param executor Runs the fetches, null to fetch in the requesting thread
+	 * @param resource Closed after the cursor, may be null
+	 */
+	public CursorPublisher(Cursor<T> cursor, Executor executor, Closeable resource) {
+		this.cursor = cursor;
+		this.executor = executor;
+		this.resource = resource;
+	}
+
+	@Override
+	public void subscribe(ResultSubscriber<? super T> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("subscriber");
+		}
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new ResultSubscription() {
+				@Override
+				public void request(long n) {
+					// nothing to send
+				}
+
+				@Override
+				public void cancel() {
+					// nothing to release
+				}
+			});
+			subscriber.onError(new IllegalStateException("A cursor can only be published to one subscriber"));
+			return;
+		}
+		subscriber.onSubscribe(new CursorSubscription(subscriber));
+	}
+
+	private class CursorSubscription implements ResultSubscription, Runnable {
+
+		private final ResultSubscriber<? super T> subscriber;
+		private final AtomicLong requested = new AtomicLong();
+		/**
+		 * 大于0时有线程正在发送 其他线程的请求交给它处理
+		 */
+		private final AtomicInteger pending = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile Throwable invalidRequest;
+		private Iterator<T> iterator;
+		private boolean released;
+
+		private CursorSubscription(ResultSubscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("Requested " + n + " rows, it must be positive");
+			} else {
+				long current;
+				long next;
+				do {
+					current = requested.get();
+					next = current + n < 0 ? Long.MAX_VALUE : current + n;
+				} while (!requested.compareAndSet(current, next));
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			schedule();
+		}
+
+		private void schedule() {
+			if (pending.getAndIncrement() == 0) {
+				if (executor == null) {
+					run();
+				} else {
+					executor.execute(this);
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			while (true) {
+				if (released) {
+					return;
+				}
+				if (cancelled) {
+					release();
+					return;
+				}
+				if (invalidRequest != null) {
+					release();
+					subscriber.onError(invalidRequest);
+					return;
+				}
+				long demand = requested.get();
+				long sent = 0;
+				while (true) {
+					T row;
+					try {
+						if (iterator == null) {
+							iterator = cursor.iterator();
+						}
+						if (!iterator.hasNext()) {
+							release();
+							subscriber.onComplete();
+							return;
+						}
+						if (sent == demand || cancelled) {
+							break;
+						}
+						row = iterator.next();
+					} catch (RuntimeException e) {
+						release();
+						subscriber.onError(e);
+						return;
+					}
+					subscriber.onNext(row);
+					sent++;
+				}
+				if (sent > 0 && demand != Long.MAX_VALUE) {
+					requested.addAndGet(-sent);
+				}
+				missed = pending.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+
+		private void release() {
+			released = true;
+			try {
+				cursor.close();
+			} catch (IOException e) {
+				// ignore
+			}
+			if (resource != null) {
+				try {
+					resource.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -35,6 +36,9 @@ import org.apache.ibatis.logging.LogFactory;
 /**
  * This is a simple, synchronous, thread-safe database connection pool.
  *
+ * The pool is guarded by a lock rather than a monitor, so that virtual threads waiting for a connection
+ * do not pin their carrier thread.
+ *
  * @author Clinton Begin
  * 一个简单的线程安全的数据库连接池
  * 可以了解一下池化技术
@@ -328,7 +332,8 @@ public class PooledDataSource implements DataSource {
 	 * Closes all active and idle connections in the pool
 	 */
 	public void forceCloseAll() {
-		synchronized (state) {
+		state.lock.lock();
+		try {
 			expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
 			for (int i = state.activeConnections.size(); i > 0; i--) {
 				try {
@@ -358,6 +363,8 @@ public class PooledDataSource implements DataSource {
 					// ignore
 				}
 			}
+		} finally {
+			state.lock.unlock();
 		}
 		if (log.isDebugEnabled()) {
 			log.debug("PooledDataSource forcefully closed/removed all connections.");
@@ -386,7 +393,8 @@ public class PooledDataSource implements DataSource {
 	 */
 	protected void pushConnection(PooledConnection conn) throws SQLException {
 
-		synchronized (state) {
+		state.lock.lock();
+		try {
 			// 移除一个活跃Connection
 			state.activeConnections.remove(conn);
 			// 有效连接
@@ -405,7 +413,7 @@ public class PooledDataSource implements DataSource {
 					if (log.isDebugEnabled()) {
 						log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
 					}
-					state.notifyAll();
+					state.connectionReturned.signalAll();
 				} else {
 					state.accumulatedCheckoutTime += conn.getCheckoutTime();
 					if (!conn.getRealConnection().getAutoCommit()) {
@@ -425,6 +433,8 @@ public class PooledDataSource implements DataSource {
 				// badConnection ++
 				state.badConnectionCount++;
 			}
+		} finally {
+			state.lock.unlock();
 		}
 	}
 
@@ -443,7 +453,8 @@ public class PooledDataSource implements DataSource {
 
 		// 循环知道得到一个conn
 		while (conn == null) {
-			synchronized (state) {
+			state.lock.lock();
+			try {
 				// 有空闲线程
 				if (!state.idleConnections.isEmpty()) {
 					// Pool has available connection
@@ -514,7 +525,12 @@ public class PooledDataSource implements DataSource {
 									log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
 								}
 								long wt = System.currentTimeMillis();
-								state.wait(poolTimeToWait);
+								// wait(0) 是一直等待
+								if (poolTimeToWait > 0) {
+									state.connectionReturned.await(poolTimeToWait, TimeUnit.MILLISECONDS);
+								} else {
+									state.connectionReturned.await();
+								}
 								state.accumulatedWaitTime += System.currentTimeMillis() - wt;
 							} catch (InterruptedException e) {
 								break;
@@ -551,6 +567,8 @@ public class PooledDataSource implements DataSource {
 						}
 					}
 				}
+			} finally {
+				state.lock.unlock();
 			}
 
 		}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -330,6 +330,7 @@ public abstract class BaseExecutor implements Executor {
 	 */
 	protected void applyTransactionTimeout(Statement statement) throws SQLException {
 		StatementUtil.applyTransactionTimeout(statement, statement.getQueryTimeout(), transaction.getTimeout());
+		StatementUtil.applyDeadline(statement);
 	}
 
 	/**
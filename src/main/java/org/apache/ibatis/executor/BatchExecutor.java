@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,19 +17,28 @@ package org.apache.ibatis.executor;
 
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.statement.StatementWatchdog;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -55,6 +64,26 @@ public class BatchExecutor extends BaseExecutor {
 	private String currentSql;
 	private MappedStatement currentStatement;
 
+	/**
+	 * batchGrouping 开启时 还能加入的insert批次  (MappedStatement, sql) -> statementList 中的位置
+	 * update 和 delete 之后清空 后面的insert不能跑到它们前面执行 同一语句开新批次时替换掉旧的
+	 */
+	private final Map<GroupKey, Integer> openGroups = new HashMap<GroupKey, Integer>();
+
+	/**
+	 * 还没执行的行数 以及估算的字节数 达到 batchSize 或者 batchMaxBytes 自动flush
+	 */
+	private int pendingRows;
+	private long pendingBytes;
+	/**
+	 * 没有 BatchResultListener 时 自动flush的结果 下次flushStatements一起返回 只有更新数 没有参数
+	 */
+	private final List<BatchResult> autoFlushedResults = new ArrayList<BatchResult>();
+	/**
+	 * 合并成多行insert的批次 statementList 中的位置 -> 每一行的BoundSql  statementList 中对应的是null
+	 */
+	private final Map<Integer, List<BoundSql>> multiRowInserts = new HashMap<Integer, List<BoundSql>>();
+
 	public BatchExecutor(Configuration configuration, Transaction transaction) {
 		super(configuration, transaction);
 	}
@@ -65,14 +94,29 @@ public class BatchExecutor extends BaseExecutor {
 		final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
 		final BoundSql boundSql = handler.getBoundSql();
 		final String sql = boundSql.getSql();
-		final Statement stmt;
+		Statement stmt = null;
+		final Integer group = findOpenGroup(ms, sql);
 		// 主要是解决重复的
-		if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-			int last = statementList.size() - 1;
-			stmt = statementList.get(last);
+		if (isMultiRowInsert(ms, boundSql)) {
+			// 执行的时候才合并成一条语句
+			if (group != null) {
+				multiRowInserts.get(group).add(boundSql);
+				batchResultList.get(group).addParameterObject(parameterObject);
+			} else {
+				currentSql = sql;
+				currentStatement = ms;
+				openGroup(ms, sql, statementList.size());
+				List<BoundSql> rows = new ArrayList<BoundSql>();
+				rows.add(boundSql);
+				multiRowInserts.put(statementList.size(), rows);
+				statementList.add(null);
+				batchResultList.add(new BatchResult(ms, sql, parameterObject));
+			}
+		} else if (group != null) {
+			stmt = statementList.get(group);
 			applyTransactionTimeout(stmt);
 			handler.parameterize(stmt);//fix Issues 322
-			BatchResult batchResult = batchResultList.get(last);
+			BatchResult batchResult = batchResultList.get(group);
 			batchResult.addParameterObject(parameterObject);
 		} else {
 			Connection connection = getConnection(ms.getStatementLog());
@@ -80,15 +124,138 @@ public class BatchExecutor extends BaseExecutor {
 			handler.parameterize(stmt);    //fix Issues 322
 			currentSql = sql;
 			currentStatement = ms;
+			openGroup(ms, sql, statementList.size());
 			statementList.add(stmt);
 			batchResultList.add(new BatchResult(ms, sql, parameterObject));
 		}
 		// handler.parameterize(stmt);
 		// 然后去做批处理
-		handler.batch(stmt);
+		if (stmt != null) {
+			handler.batch(stmt);
+		}
+		pendingRows++;
+		if (configuration.getBatchMaxBytes() != null) {
+			pendingBytes += estimateSize(boundSql, parameterObject);
+		}
+		autoFlushIfNeeded();
 		return BATCH_UPDATE_RETURN_VALUE;
 	}
 
+	private void autoFlushIfNeeded() throws SQLException {
+		Integer batchSize = configuration.getBatchSize();
+		Integer batchMaxBytes = configuration.getBatchMaxBytes();
+		if ((batchSize != null && pendingRows >= batchSize) || (batchMaxBytes != null && pendingBytes >= batchMaxBytes)) {
+			List<BatchResult> results = executeBatches();
+			BatchResultListener listener = configuration.getBatchResultListener();
+			if (listener != null) {
+				listener.onFlush(results);
+			} else {
+				// 一直留着参数 大批量的时候内存就被它们占满了
+				for (BatchResult result : results) {
+					result.clearParameterObjects();
+				}
+				autoFlushedResults.addAll(results);
+			}
+		}
+	}
+
+	/**
+	 * Rough size of a batched row: its parameter values, plus a fixed overhead per parameter.
+	 */
+	private long estimateSize(BoundSql boundSql, Object parameterObject) {
+		long size = 0;
+		List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+		MetaObject metaObject = null;
+		for (ParameterMapping parameterMapping : parameterMappings) {
+			String propertyName = parameterMapping.getProperty();
+			Object value;
+			if (boundSql.hasAdditionalParameter(propertyName)) {
+				value = boundSql.getAdditionalParameter(propertyName);
+			} else if (parameterObject == null) {
+				value = null;
+			} else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+				value = parameterObject;
+			} else {
+				if (metaObject == null) {
+					metaObject = configuration.newMetaObject(parameterObject);
+				}
+				value = metaObject.getValue(propertyName);
+			}
+			size += 16;
+			if (value instanceof CharSequence) {
+				size += 2L * ((CharSequence) value).length();
+			} else if (value instanceof byte[]) {
+				size += ((byte[]) value).length;
+			} else if (value != null) {
+				size += 8;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Single row inserts of prepared statements whose keys, if any, are generated by the database
+	 * can be merged into multi row inserts.
+	 */
+	private boolean isMultiRowInsert(MappedStatement ms, BoundSql boundSql) {
+		if (configuration.getMultiRowInsertLimit() == null
+				|| ms.getSqlCommandType() != SqlCommandType.INSERT
+				|| ms.getStatementType() != StatementType.PREPARED) {
+			return false;
+		}
+		Class<?> keyGeneratorType = ms.getKeyGenerator().getClass();
+		if (!Jdbc3KeyGenerator.class.equals(keyGeneratorType) && !NoKeyGenerator.class.equals(keyGeneratorType)) {
+			return false;
+		}
+		return MultiRowInsert.hasOnlyInParameters(boundSql) && MultiRowInsert.findValuesTuple(boundSql.getSql()) >= 0;
+	}
+
+	/**
+	 * @return The index of the batch the statement can be added to, null if a new one is needed
+	 */
+	private Integer findOpenGroup(MappedStatement ms, String sql) {
+		if (sql.equals(currentSql) && ms.equals(currentStatement)) {
+			return statementList.size() - 1;
+		}
+		if (!configuration.isBatchGrouping() || ms.getSqlCommandType() != SqlCommandType.INSERT) {
+			return null;
+		}
+		Integer group = openGroups.get(new GroupKey(ms, sql));
+		if (group == null) {
+			return null;
+		}
+		// 加入这个批次 就会跑到后面的批次前面 只有后面的批次都可能依赖这条语句才行
+		List<String> order = configuration.getBatchGroupingOrder();
+		int rank = order.indexOf(ms.getId());
+		if (rank < 0) {
+			return null;
+		}
+		for (int i = group + 1, n = statementList.size(); i < n; i++) {
+			if (order.indexOf(batchResultList.get(i).getMappedStatement().getId()) <= rank) {
+				return null;
+			}
+		}
+		return group;
+	}
+
+	/**
+	 * Inserts are grouped by statement and the groups are executed in the order their first row was added.
+	 * A row joins the open group of its statement only if all the groups added after it belong to statements
+	 * that come later in {@link Configuration#getBatchGroupingOrder()}, so no row ever runs before a row it
+	 * may reference; otherwise it opens a new group. Other statements are barriers: later inserts never run
+	 * before them.
+	 */
+	private void openGroup(MappedStatement ms, String sql, int index) {
+		if (!configuration.isBatchGrouping()) {
+			return;
+		}
+		if (ms.getSqlCommandType() == SqlCommandType.INSERT) {
+			openGroups.put(new GroupKey(ms, sql), index);
+		} else {
+			openGroups.clear();
+		}
+	}
+
 	@Override
 	public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
 			throws SQLException {
@@ -120,17 +287,53 @@ public class BatchExecutor extends BaseExecutor {
 
 	@Override
 	public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+		if (isRollback) {
+			autoFlushedResults.clear();
+			closeStatements();
+			return Collections.emptyList();
+		}
+		List<BatchResult> results = executeBatches();
+		BatchResultListener listener = configuration.getBatchResultListener();
+		if (listener != null) {
+			if (!results.isEmpty()) {
+				listener.onFlush(results);
+			}
+			return results;
+		}
+		if (autoFlushedResults.isEmpty()) {
+			return results;
+		}
+		List<BatchResult> allResults = new ArrayList<BatchResult>(autoFlushedResults);
+		allResults.addAll(results);
+		autoFlushedResults.clear();
+		return allResults;
+	}
+
+	private List<BatchResult> executeBatches() throws SQLException {
 		try {
 			List<BatchResult> results = new ArrayList<BatchResult>();
-			if (isRollback) {
-				return Collections.emptyList();
-			}
 			for (int i = 0, n = statementList.size(); i < n; i++) {
 				Statement stmt = statementList.get(i);
-				applyTransactionTimeout(stmt);
 				BatchResult batchResult = batchResultList.get(i);
+				if (stmt == null) {
+					try {
+						batchResult.setUpdateCounts(executeMultiRowInsert(batchResult, multiRowInserts.get(i)));
+					} catch (SQLException e) {
+						BatchUpdateException cause = e instanceof BatchUpdateException ? (BatchUpdateException) e
+								: new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), new int[0], e);
+						throw new BatchExecutorException(batchFailureMessage(batchResult, i), cause, results, batchResult);
+					}
+					results.add(batchResult);
+					continue;
+				}
+				applyTransactionTimeout(stmt);
 				try {
-					batchResult.setUpdateCounts(stmt.executeBatch());
+					StatementWatchdog.Watch watch = configuration.getStatementWatchdog().watch(stmt);
+					try {
+						batchResult.setUpdateCounts(stmt.executeBatch());
+					} finally {
+						watch.end();
+					}
 					MappedStatement ms = batchResult.getMappedStatement();
 					List<Object> parameterObjects = batchResult.getParameterObjects();
 					KeyGenerator keyGenerator = ms.getKeyGenerator();
@@ -145,29 +348,104 @@ public class BatchExecutor extends BaseExecutor {
 					// Close statement to close cursor #1109
 					closeStatement(stmt);
 				} catch (BatchUpdateException e) {
-					StringBuilder message = new StringBuilder();
-					message.append(batchResult.getMappedStatement().getId())
-							.append(" (batch index #")
-							.append(i + 1)
-							.append(")")
-							.append(" failed.");
-					if (i > 0) {
-						message.append(" ")
-								.append(i)
-								.append(" prior sub executor(s) completed successfully, but will be rolled back.");
-					}
-					throw new BatchExecutorException(message.toString(), e, results, batchResult);
+					throw new BatchExecutorException(batchFailureMessage(batchResult, i), e, results, batchResult);
 				}
 				results.add(batchResult);
 			}
 			return results;
 		} finally {
-			for (Statement stmt : statementList) {
+			closeStatements();
+		}
+	}
+
+	private String batchFailureMessage(BatchResult batchResult, int i) {
+		StringBuilder message = new StringBuilder();
+		message.append(batchResult.getMappedStatement().getId())
+				.append(" (batch index #")
+				.append(i + 1)
+				.append(")")
+				.append(" failed.");
+		if (i > 0) {
+			message.append(" ")
+					.append(i)
+					.append(" prior sub executor(s) completed successfully, but will be rolled back.");
+		}
+		return message.toString();
+	}
+
+	/**
+	 * Executes the rows as {@code INSERT ... VALUES (...), (...)} statements of at most multiRowInsertLimit rows.
+	 * @return One update count per row, {@link Statement#SUCCESS_NO_INFO} when the driver did not report them all
+	 */
+	private int[] executeMultiRowInsert(BatchResult batchResult, List<BoundSql> rows) throws SQLException {
+		MappedStatement ms = batchResult.getMappedStatement();
+		List<Object> parameterObjects = batchResult.getParameterObjects();
+		String sql = rows.get(0).getSql();
+		int tuple = MultiRowInsert.findValuesTuple(sql);
+		int limit = configuration.getMultiRowInsertLimit();
+		int[] updateCounts = new int[rows.size()];
+		for (int from = 0; from < rows.size(); from += limit) {
+			int to = Math.min(from + limit, rows.size());
+			List<Object> chunkParameterObjects = parameterObjects.subList(from, to);
+			BoundSql boundSql = MultiRowInsert.rewrite(configuration, sql, tuple, rows.subList(from, to));
+			StatementHandler handler = configuration.newStatementHandler(this, ms, chunkParameterObjects.get(0), RowBounds.DEFAULT, null, boundSql);
+			Statement stmt = null;
+			try {
+				stmt = handler.prepare(getConnection(ms.getStatementLog()), transaction.getTimeout());
+				handler.parameterize(stmt);
+				PreparedStatement ps = (PreparedStatement) stmt;
+				StatementWatchdog.Watch watch = configuration.getStatementWatchdog().watch(ps);
+				try {
+					ps.execute();
+				} finally {
+					watch.end();
+				}
+				int count = ps.getUpdateCount();
+				Arrays.fill(updateCounts, from, to, count == to - from ? 1 : Statement.SUCCESS_NO_INFO);
+				if (Jdbc3KeyGenerator.class.equals(ms.getKeyGenerator().getClass())) {
+					((Jdbc3KeyGenerator) ms.getKeyGenerator()).processBatch(ms, stmt, new ArrayList<Object>(chunkParameterObjects));
+				}
+			} finally {
 				closeStatement(stmt);
 			}
-			currentSql = null;
-			statementList.clear();
-			batchResultList.clear();
+		}
+		return updateCounts;
+	}
+
+	private void closeStatements() {
+		for (Statement stmt : statementList) {
+			closeStatement(stmt);
+		}
+		currentSql = null;
+		statementList.clear();
+		batchResultList.clear();
+		openGroups.clear();
+		multiRowInserts.clear();
+		pendingRows = 0;
+		pendingBytes = 0;
+	}
+
+	private static class GroupKey {
+		private final MappedStatement ms;
+		private final String sql;
+
+		private GroupKey(MappedStatement ms, String sql) {
+			this.ms = ms;
+			this.sql = sql;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof GroupKey)) {
+				return false;
+			}
+			GroupKey other = (GroupKey) o;
+			return ms.equals(other.ms) && sql.equals(other.sql);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * ms.hashCode() + sql.hashCode();
 		}
 	}
 
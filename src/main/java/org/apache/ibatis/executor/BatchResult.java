@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -74,4 +74,11 @@ public class BatchResult {
 		this.parameterObjects.add(parameterObject);
 	}
 
+	/**
+	 * 自动flush的结果 没有listener的时候只保留更新数 参数可以被回收
+	 */
+	void clearParameterObjects() {
+		this.parameterObjects.clear();
+	}
+
 }
@@ -0,0 +1,32 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.List;
+
+/**
+ * Receives the results of every flush of a {@link BatchExecutor}, including the automatic ones
+ * triggered by the batchSize and batchMaxBytes settings.
+ *
+ * When a listener is configured the results of automatic flushes are not kept by the executor,
+ * so a long batch uses a bounded amount of memory. Without one they are returned by the next
+ * flushStatements with their update counts but without their parameter objects.
+ */
+public interface BatchResultListener {
+
+	void onFlush(List<BatchResult> results);
+
+}
@@ -0,0 +1,370 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.RemovalNotifyingCache;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Tracks the tables every second level cache entry was read from, so that a write invalidates
+ * only the entries that depend on the tables it modifies instead of its whole namespace.
+ *
+ * The tables of a statement are the ones declared in its {@code tables} attribute or, when there are none,
+ * the ones found in its SQL after FROM, JOIN, UPDATE, INTO and TRUNCATE. Entries whose tables are unknown
+ * are invalidated by any write. Writes whose tables are unknown flush their own cache as usual.
+ *
+ * One instance is shared by all the sessions of a {@link org.apache.ibatis.session.Configuration}. Caches built
+ * with it as their {@link RemovalNotifyingCache.RemovalListener} tell it about the entries they evict, expire or
+ * remove, so that it forgets them; the entries of the other caches are only forgotten when their tables change.
+ *
+ * @see CachingExecutor
+ */
+public class CacheDependencyTracker implements RemovalNotifyingCache.RemovalListener {
+
+	/**
+	 * Pseudo table of the entries whose tables are unknown
+	 */
+	static final String ANY_TABLE = "*";
+
+	private static final int MAX_PARSED_SQL = 1000;
+
+	private static final Set<String> NOT_AN_ALIAS = new HashSet<String>(Arrays.asList(
+			"where", "join", "inner", "left", "right", "full", "outer", "cross", "natural", "straight_join", "on", "using",
+			"group", "order", "having", "limit", "offset", "fetch", "for", "union", "except", "intersect", "minus",
+			"set", "values", "value", "select", "default", "returning", "window", "lateral", "partition", "connect", "start"));
+
+	/**
+	 * table -> cache id -> keys read from that table
+	 */
+	private final Map<String, Map<String, Dependents>> index = new HashMap<String, Map<String, Dependents>>();
+	/**
+	 * sql -> tables, an empty set when they are unknown
+	 */
+	private final Map<String, Set<String>> parsedSql = new ConcurrentHashMap<String, Set<String>>();
+	private int maxKeysPerTable = 10000;
+
+	public int getMaxKeysPerTable() {
+		return maxKeysPerTable;
+	}
+
+	/**
+	 * Beyond this number of entries of a cache depending on a table, the whole cache is cleared when the table is modified.
+	 */
+	public void setMaxKeysPerTable(int maxKeysPerTable) {
+		this.maxKeysPerTable = maxKeysPerTable;
+	}
+
+	/**
+	 * @return The tables read or modified by the statement, null if they are unknown
+	 */
+	public Set<String> getTables(MappedStatement ms, BoundSql boundSql) {
+		if (ms.getTables() != null) {
+			return normalize(Arrays.asList(ms.getTables()));
+		}
+		return getTables(boundSql.getSql());
+	}
+
+	/**
+	 * @return The tables modified by the statement, null if they are unknown
+	 */
+	public Set<String> getTables(MappedStatement ms, Object parameterObject) {
+		if (ms.getTables() != null) {
+			return normalize(Arrays.asList(ms.getTables()));
+		}
+		return getTables(ms.getBoundSql(parameterObject).getSql());
+	}
+
+	private Set<String> getTables(String sql) {
+		Set<String> tables = parsedSql.get(sql);
+		if (tables == null) {
+			tables = parseTables(sql);
+			if (parsedSql.size() < MAX_PARSED_SQL) {
+				parsedSql.put(sql, tables);
+			}
+		}
+		return tables.isEmpty() ? null : tables;
+	}
+
+	/**
+	 * Records that a committed entry depends on the given tables.
+	 * @param tables The tables, null if they are unknown
+	 */
+	public synchronized void register(Cache cache, Object key, Set<String> tables) {
+		Collection<String> dependencies = tables == null ? Collections.singleton(ANY_TABLE) : tables;
+		for (String table : dependencies) {
+			Map<String, Dependents> caches = index.get(table);
+			if (caches == null) {
+				caches = new HashMap<String, Dependents>();
+				index.put(table, caches);
+			}
+			Dependents dependents = caches.get(cache.getId());
+			if (dependents == null) {
+				dependents = new Dependents(cache);
+				caches.put(cache.getId(), dependents);
+			}
+			dependents.add(key, maxKeysPerTable);
+		}
+	}
+
+	/**
+	 * Removes from their caches the entries that depend on the modified tables or on unknown tables.
+	 */
+	public void invalidate(Set<String> tables) {
+		List<Map<String, Dependents>> invalidated = new ArrayList<Map<String, Dependents>>();
+		synchronized (this) {
+			for (String table : tables) {
+				Map<String, Dependents> caches = index.remove(table);
+				if (caches != null) {
+					invalidated.add(caches);
+				}
+			}
+			Map<String, Dependents> unknown = index.remove(ANY_TABLE);
+			if (unknown != null) {
+				invalidated.add(unknown);
+			}
+		}
+		// caches are not touched under the lock, they have their own locking
+		for (Map<String, Dependents> caches : invalidated) {
+			for (Dependents dependents : caches.values()) {
+				dependents.invalidate();
+			}
+		}
+	}
+
+	/**
+	 * Forgets an entry that is no longer in its cache.
+	 */
+	@Override
+	public synchronized void removed(String cacheId, Object key) {
+		for (Iterator<Map<String, Dependents>> tables = index.values().iterator(); tables.hasNext(); ) {
+			Map<String, Dependents> caches = tables.next();
+			Dependents dependents = caches.get(cacheId);
+			if (dependents != null && dependents.remove(key)) {
+				caches.remove(cacheId);
+				if (caches.isEmpty()) {
+					tables.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forgets all the entries of a cleared cache.
+	 */
+	@Override
+	public synchronized void cleared(String cacheId) {
+		for (Iterator<Map<String, Dependents>> tables = index.values().iterator(); tables.hasNext(); ) {
+			Map<String, Dependents> caches = tables.next();
+			if (caches.remove(cacheId) != null && caches.isEmpty()) {
+				tables.remove();
+			}
+		}
+	}
+
+	private static Set<String> normalize(Collection<String> tables) {
+		Set<String> normalized = new LinkedHashSet<String>();
+		for (String table : tables) {
+			String name = normalizeName(table);
+			if (name.length() > 0) {
+				normalized.add(name);
+			}
+		}
+		return normalized.isEmpty() ? null : Collections.unmodifiableSet(normalized);
+	}
+
+	/**
+	 * Lower case name without quotes nor schema, so that {@code "APP"."Blog"} and {@code blog} match.
+	 */
+	private static String normalizeName(String table) {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < table.length(); i++) {
+			char c = table.charAt(i);
+			if (c == '.') {
+				name.setLength(0);
+			} else if (c != '"' && c != '`' && c != '[' && c != ']' && !Character.isWhitespace(c)) {
+				name.append(c);
+			}
+		}
+		return name.toString().toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * Finds the tables after FROM, JOIN, UPDATE, INTO and TRUNCATE [TABLE], including the comma separated ones.
+	 * Subqueries are found by their own keywords. It may find tables that are not (a function called with FROM
+	 * in its arguments) and that only causes extra invalidations.
+	 * @return The tables, empty if none was found
+	 */
+	static Set<String> parseTables(String sql) {
+		List<String> tokens = tokenize(sql);
+		Set<String> tables = new LinkedHashSet<String>();
+		for (int i = 0; i < tokens.size(); i++) {
+			String keyword = tokens.get(i).toLowerCase(Locale.ENGLISH);
+			boolean from = "from".equals(keyword);
+			if (!from && !"join".equals(keyword) && !"update".equals(keyword) && !"into".equals(keyword) && !"truncate".equals(keyword)) {
+				continue;
+			}
+			int j = i + 1;
+			if ("truncate".equals(keyword) && j < tokens.size() && "table".equalsIgnoreCase(tokens.get(j))) {
+				j++;
+			}
+			while (j < tokens.size() && isName(tokens.get(j))) {
+				tables.add(normalizeName(tokens.get(j++)));
+				// skip the alias
+				if (j < tokens.size() && "as".equalsIgnoreCase(tokens.get(j))) {
+					j += 2;
+				} else if (j < tokens.size() && isName(tokens.get(j))) {
+					j++;
+				}
+				if (from && j < tokens.size() && ",".equals(tokens.get(j))) {
+					j++;
+				} else {
+					break;
+				}
+			}
+		}
+		return tables.isEmpty() ? Collections.<String>emptySet() : Collections.unmodifiableSet(tables);
+	}
+
+	private static boolean isName(String token) {
+		char first = token.charAt(0);
+		if (first == '"' || first == '`' || first == '[') {
+			return true;
+		}
+		return (Character.isLetter(first) || first == '_') && !NOT_AN_ALIAS.contains(token.toLowerCase(Locale.ENGLISH));
+	}
+
+	/**
+	 * Splits the sql in names (possibly quoted and qualified) and single char symbols, skipping literals and comments.
+	 */
+	private static List<String> tokenize(String sql) {
+		List<String> tokens = new ArrayList<String>();
+		int length = sql.length();
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '\'') {
+				i = skipQuoted(sql, i, '\'');
+			} else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+				while (i < length && sql.charAt(i) != '\n') {
+					i++;
+				}
+			} else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				int end = sql.indexOf("*/", i + 2);
+				i = end < 0 ? length : end + 2;
+			} else if (isNamePart(c) || c == '"' || c == '`' || c == '[') {
+				int start = i;
+				while (i < length) {
+					char n = sql.charAt(i);
+					if (n == '"' || n == '`') {
+						i = skipQuoted(sql, i, n);
+					} else if (n == '[') {
+						int end = sql.indexOf(']', i);
+						i = end < 0 ? length : end + 1;
+					} else if (isNamePart(n) || n == '.') {
+						i++;
+					} else {
+						break;
+					}
+				}
+				tokens.add(sql.substring(start, i));
+			} else {
+				tokens.add(String.valueOf(c));
+				i++;
+			}
+		}
+		return tokens;
+	}
+
+	private static boolean isNamePart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+	}
+
+	private static int skipQuoted(String sql, int start, char quote) {
+		int i = start + 1;
+		while (i < sql.length()) {
+			if (sql.charAt(i) == quote) {
+				// doubled quotes are escaped quotes
+				if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+					i += 2;
+					continue;
+				}
+				return i + 1;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * The entries of a cache that depend on a table.
+	 */
+	private static class Dependents {
+		private final Cache cache;
+		private Set<Object> keys = new HashSet<Object>();
+
+		private Dependents(Cache cache) {
+			this.cache = cache;
+		}
+
+		private void add(Object key, int maxKeys) {
+			if (keys != null) {
+				keys.add(key);
+				if (keys.size() > maxKeys) {
+					// too many to track, the whole cache will be cleared
+					keys = null;
+				}
+			}
+		}
+
+		/**
+		 * @return true if no key is left
+		 */
+		private boolean remove(Object key) {
+			return keys != null && keys.remove(key) && keys.isEmpty();
+		}
+
+		private void invalidate() {
+			// a blocking cache does not remove entries, removeObject only releases its locks
+			if (keys == null || cache instanceof BlockingCache) {
+				cache.clear();
+			} else {
+				for (Object key : keys) {
+					cache.removeObject(key);
+				}
+			}
+		}
+	}
+
+}
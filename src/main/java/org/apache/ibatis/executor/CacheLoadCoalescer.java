@@ -0,0 +1,197 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+
+/**
+ * Coalesces concurrent second level cache misses (single flight).
+ *
+ * The first session that misses a key runs the query, the others that miss the same key
+ * while it is running wait for it and share its result instead of hitting the database.
+ * Unlike {@link org.apache.ibatis.cache.decorators.BlockingCache} nothing is left locked when the
+ * query fails or its result is not cached: the in-flight load is always removed when it completes
+ * and its failure is reported to every waiting session.
+ *
+ * A thread that is running a load never waits for the load of another one: its nested misses run their own
+ * query. Only threads that run no load wait, so two loads can never wait for each other.
+ *
+ * Every waiting session gets its own copy of the result list, the loading session keeps the original one.
+ * The rows themselves are shared, like the hits of a read only cache, which is why
+ * {@link CachingExecutor} only coalesces the loads of read only caches.
+ *
+ * One instance is shared by all the sessions of a {@link org.apache.ibatis.session.Configuration}.
+ *
+ * @see CachingExecutor
+ */
+public class CacheLoadCoalescer {
+
+	private final ConcurrentMap<LoadKey, Load<?>> inFlight = new ConcurrentHashMap<LoadKey, Load<?>>();
+	private final AtomicInteger waiting = new AtomicInteger();
+	/**
+	 * 当前线程正在执行的 load 数量 大于0时不再等待别人 避免互相等待
+	 */
+	private final ThreadLocal<int[]> runningLoads = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+
+	/**
+	 * @param cache The cache that missed
+	 * @param key The missed key
+	 * @param timeout Max milliseconds to wait for a running load, null to wait until it completes
+	 * @param loader Runs the query when there is no load running for the key
+	 */
+	@SuppressWarnings("unchecked")
+	public <E> List<E> load(Cache cache, CacheKey key, Integer timeout, Callable<List<E>> loader) throws SQLException {
+		LoadKey loadKey = new LoadKey(cache, key);
+		Load<E> load = new Load<E>(loader);
+		Load<?> running = inFlight.putIfAbsent(loadKey, load);
+		int[] loads = runningLoads.get();
+		if (running == null) {
+			loads[0]++;
+			try {
+				load.run();
+			} finally {
+				loads[0]--;
+				inFlight.remove(loadKey, load);
+			}
+			return getOwnResult(load);
+		}
+		if (loads[0] > 0) {
+			// nested query of a running load: the thread running the other load may be waiting for this one
+			Load<E> nested = new Load<E>(loader);
+			loads[0]++;
+			try {
+				nested.run();
+			} finally {
+				loads[0]--;
+			}
+			return getOwnResult(nested);
+		}
+		List<E> shared = (List<E>) waitFor(running, key, timeout);
+		return shared == null ? null : new ArrayList<E>(shared);
+	}
+
+	/**
+	 * @return The number of loads currently running, for monitoring purposes
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * @return The number of sessions currently waiting for the load of another one, for monitoring purposes
+	 */
+	public int getWaitingCount() {
+		return waiting.get();
+	}
+
+	private <E> List<E> getOwnResult(Load<E> load) throws SQLException {
+		try {
+			return load.get();
+		} catch (InterruptedException e) {
+			// cannot happen, the load is already done
+			Thread.currentThread().interrupt();
+			throw new ExecutorException("Interrupted while reading a completed load", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ExecutorException("Error loading cache entry.  Cause: " + cause, cause);
+		}
+	}
+
+	private Object waitFor(Load<?> running, CacheKey key, Integer timeout) throws SQLException {
+		waiting.incrementAndGet();
+		try {
+			if (timeout == null) {
+				return running.get();
+			}
+			return running.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw new ExecutorException("Timed out after " + timeout + " ms waiting for the running load of key " + key, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExecutorException("Interrupted while waiting for the running load of key " + key, e);
+		} catch (ExecutionException e) {
+			// the exception belongs to the loading thread, report a new one with the original as cause
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				SQLException sqlException = (SQLException) cause;
+				throw new SQLException("The shared load of key " + key + " failed.  Cause: " + cause,
+						sqlException.getSQLState(), sqlException.getErrorCode(), cause);
+			}
+			throw new ExecutorException("The shared load of key " + key + " failed.  Cause: " + cause, cause);
+		} finally {
+			waiting.decrementAndGet();
+		}
+	}
+
+	private static class Load<E> extends FutureTask<List<E>> {
+		private Load(Callable<List<E>> loader) {
+			super(loader);
+		}
+	}
+
+	private static class LoadKey {
+		private final Cache cache;
+		private final CacheKey key;
+
+		private LoadKey(Cache cache, CacheKey key) {
+			this.cache = cache;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof LoadKey)) {
+				return false;
+			}
+			LoadKey other = (LoadKey) o;
+			return cache.getId().equals(other.cache.getId()) && key.equals(other.key);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * cache.getId().hashCode() + key.hashCode();
+		}
+	}
+
+}
@@ -0,0 +1,225 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.decorators.ScheduledCache;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
+
+/**
+ * Refresh ahead support for the second level cache.
+ *
+ * {@link CachingExecutor} attaches to every committed entry of a refresh ahead cache the statement,
+ * parameter and row bounds that loaded it. When the {@link ScheduledCache} asks for a refresh the statement
+ * is run again in background, on its own connection and transaction, and the result is put in the cache.
+ *
+ * The parameter objects are copied when the entry is loaded, as the caller may change or reuse them. Entries
+ * loaded with a parameter that cannot be copied (neither an immutable value nor serializable) are not refreshed,
+ * they simply expire.
+ *
+ * One instance is shared by all the sessions of a {@link Configuration}. Its threads are daemons
+ * created on the first refresh.
+ */
+public class CacheRefresher implements ScheduledCache.Refresher {
+
+	private static final Log log = LogFactory.getLog(CacheRefresher.class);
+
+	private final Configuration configuration;
+	private final Map<String, ScheduledCache> caches = new ConcurrentHashMap<String, ScheduledCache>();
+	private final int threads;
+	private final int queueSize;
+	private ThreadPoolExecutor executor;
+	private boolean closed;
+
+	public CacheRefresher(Configuration configuration) {
+		this(configuration, 2, 1000);
+	}
+
+	public CacheRefresher(Configuration configuration, int threads, int queueSize) {
+		this.configuration = configuration;
+		this.threads = threads;
+		this.queueSize = queueSize;
+	}
+
+	@Override
+	public void register(ScheduledCache cache) {
+		caches.put(cache.getId(), cache);
+	}
+
+	public boolean isRefreshAhead(Cache cache) {
+		return caches.containsKey(cache.getId());
+	}
+
+	/**
+	 * Remembers how to reload a committed entry.
+	 */
+	public void attachSource(Cache cache, CacheKey key, Source source) {
+		ScheduledCache scheduledCache = caches.get(cache.getId());
+		if (scheduledCache != null) {
+			scheduledCache.attachSource(key, source);
+		}
+	}
+
+	@Override
+	public boolean refresh(final ScheduledCache cache, final Object key, Object source, final Object claim) {
+		final Source refreshSource = (Source) source;
+		try {
+			getExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						reload(cache, key, refreshSource, claim);
+					} catch (Exception e) {
+						log.warn("Error refreshing the cache entry " + key + " of " + cache.getId() + ".  Cause: " + e);
+					} finally {
+						cache.refreshDone(key, claim);
+					}
+				}
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			if (log.isDebugEnabled()) {
+				log.debug("Refresh queue full, the entry " + key + " of " + cache.getId() + " will expire");
+			}
+			return false;
+		}
+	}
+
+	private void reload(ScheduledCache cache, Object key, Source source, Object claim) throws Exception {
+		Environment environment = configuration.getEnvironment();
+		if (environment == null) {
+			return;
+		}
+		TransactionFactory transactionFactory = environment.getTransactionFactory() == null
+				? new ManagedTransactionFactory() : environment.getTransactionFactory();
+		Transaction tx = transactionFactory.newTransaction(environment.getDataSource(), null, false);
+		// not a caching executor: it would answer with the entry being refreshed
+		// but built by the configuration, so that the plugins filter the reloaded rows as they filtered the first ones
+		Executor executor = configuration.newExecutor(tx, ExecutorType.SIMPLE, false);
+		try {
+			List<Object> list = executor.query(source.ms, source.parameterObject, source.rowBounds, Executor.NO_RESULT_HANDLER);
+			// dropped when the entry was removed or cleared meanwhile
+			cache.putRefreshed(source.ms.getCache(), key, list, claim);
+		} finally {
+			executor.close(false);
+		}
+	}
+
+	/**
+	 * Lets the refreshes already queued finish, rejects the next ones: their entries expire.
+	 */
+	public synchronized void close() {
+		closed = true;
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	private synchronized ThreadPoolExecutor getExecutor() {
+		if (closed) {
+			throw new RejectedExecutionException("The cache refresher is closed");
+		}
+		if (executor == null) {
+			final AtomicInteger count = new AtomicInteger();
+			executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "mybatis-cache-refresh-" + count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	/**
+	 * @return How the entry was loaded, with a copy of the parameter, or null when the parameter cannot be copied
+	 */
+	public static Source newSource(MappedStatement ms, Object parameterObject, RowBounds rowBounds) {
+		if (isImmutable(parameterObject)) {
+			return new Source(ms, parameterObject, rowBounds);
+		}
+		if (!(parameterObject instanceof Serializable)) {
+			return null;
+		}
+		try {
+			JdkCacheSerializer serializer = new JdkCacheSerializer();
+			return new Source(ms, serializer.deserialize(serializer.serialize(parameterObject)), rowBounds);
+		} catch (CacheException e) {
+			// a serializable object holding something that is not
+			return null;
+		}
+	}
+
+	private static boolean isImmutable(Object value) {
+		return value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+				|| value instanceof Enum || value instanceof Integer || value instanceof Long || value instanceof Short
+				|| value instanceof Byte || value instanceof Double || value instanceof Float
+				|| value instanceof BigDecimal || value instanceof BigInteger;
+	}
+
+	/**
+	 * How an entry was loaded.
+	 */
+	public static class Source {
+		private final MappedStatement ms;
+		private final Object parameterObject;
+		private final RowBounds rowBounds;
+
+		public Source(MappedStatement ms, Object parameterObject, RowBounds rowBounds) {
+			this.ms = ms;
+			this.parameterObject = parameterObject;
+			this.rowBounds = rowBounds;
+		}
+
+		public MappedStatement getMappedStatement() {
+			return ms;
+		}
+
+		public Object getParameterObject() {
+			return parameterObject;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,11 +16,17 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -28,6 +34,7 @@ import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
@@ -47,10 +54,34 @@ public class CachingExecutor implements Executor {
 	/**
 	 * 事物缓存管理
 	 */
-	private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+	private final TransactionalCacheManager tcm;
+	/**
+	 * 通知其他节点缓存失效 可以为null
+	 */
+	private final CacheInvalidationBus invalidationBus;
+	/**
+	 * refresh ahead 缓存 本事务中加载的entry 如何重新加载 提交之后交给CacheRefresher
+	 */
+	private final Map<Cache, Map<CacheKey, CacheRefresher.Source>> pendingRefreshSources = new HashMap<Cache, Map<CacheKey, CacheRefresher.Source>>();
+	/**
+	 * 按表失效 本事务中缓存的entry读取的表 以及修改过的表 提交之后交给CacheDependencyTracker
+	 */
+	private final Map<Cache, Map<CacheKey, Set<String>>> pendingDependencies = new HashMap<Cache, Map<CacheKey, Set<String>>>();
+	private final Set<String> modifiedTables = new HashSet<String>();
+	private CacheDependencyTracker dependencyTracker;
+	/**
+	 * 本事务有未提交的修改 查询结果可能包含它们 不能和其他session合并
+	 */
+	private boolean dirty;
 
 	public CachingExecutor(Executor delegate) {
+		this(delegate, null);
+	}
+
+	public CachingExecutor(Executor delegate, CacheInvalidationBus invalidationBus) {
 		this.delegate = delegate;
+		this.invalidationBus = invalidationBus;
+		this.tcm = new TransactionalCacheManager(invalidationBus);
 		delegate.setExecutorWrapper(this);
 	}
 
@@ -63,10 +94,15 @@ public class CachingExecutor implements Executor {
 	public void close(boolean forceRollback) {
 		try {
 			//issues #499, #524 and #573
+			dirty = false;
 			if (forceRollback) {
 				tcm.rollback();
+				pendingRefreshSources.clear();
+				clearTableDependencies();
 			} else {
 				tcm.commit();
+				attachRefreshSources();
+				commitTableDependencies();
 			}
 		} finally {
 			delegate.close(forceRollback);
@@ -80,8 +116,11 @@ public class CachingExecutor implements Executor {
 
 	@Override
 	public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-		// 通过字段来判断是否刷新缓存
-		flushCacheIfRequired(ms);
+		// 通过字段来判断是否刷新缓存 按表失效时只记录修改的表
+		if (!invalidateTablesIfEnabled(ms, parameterObject)) {
+			flushCacheIfRequired(ms);
+		}
+		dirty = true;
 		// 更新
 		return delegate.update(ms, parameterObject);
 	}
@@ -109,11 +148,25 @@ public class CachingExecutor implements Executor {
 			flushCacheIfRequired(ms);
 			if (ms.isUseCache() && resultHandler == null) {
 				ensureNoOutParams(ms, boundSql);
+				Set<String> tables = null;
+				if (ms.getConfiguration().isCacheInvalidationByTable()) {
+					tables = ms.getConfiguration().getCacheDependencyTracker().getTables(ms, boundSql);
+					if (dependsOnModifiedTables(tables)) {
+						// the cache does not know yet what this transaction wrote
+						return delegate.<E>query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+					}
+				}
 				@SuppressWarnings("unchecked")
 				List<E> list = (List<E>) tcm.getObject(cache, key);
 				if (list == null) {
-					list = delegate.<E>query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+					if (isCoalescingLoads(ms, cache)) {
+						list = coalescedQuery(ms, parameterObject, rowBounds, key, boundSql);
+					} else {
+						list = delegate.<E>query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+					}
 					tcm.putObject(cache, key, list); // issue #578 and #116
+					addRefreshSource(ms, cache, parameterObject, rowBounds, key);
+					addTableDependencies(ms, cache, key, tables);
 				}
 				return list;
 			}
@@ -129,7 +182,10 @@ public class CachingExecutor implements Executor {
 	@Override
 	public void commit(boolean required) throws SQLException {
 		delegate.commit(required);
+		dirty = false;
 		tcm.commit();
+		attachRefreshSources();
+		commitTableDependencies();
 	}
 
 	@Override
@@ -138,9 +194,134 @@ public class CachingExecutor implements Executor {
 			delegate.rollback(required);
 		} finally {
 			if (required) {
+				dirty = false;
 				tcm.rollback();
+				pendingRefreshSources.clear();
+				clearTableDependencies();
+			}
+		}
+	}
+
+	/**
+	 * 并发未命中同一个key时 只查一次库,其他session等待并共享结果
+	 * 本事务有未提交的修改时 (不论修改的是哪个namespace) 查到的是自己的视图 不能给别人 也不能读别人的 所以不参与
+	 * 读写缓存每次命中都返回一份拷贝 等待的session不能共享对象 所以只合并只读缓存
+	 */
+	private boolean isCoalescingLoads(MappedStatement ms, Cache cache) {
+		Configuration configuration = ms.getConfiguration();
+		return configuration.isCacheLoadCoalescing() && configuration.isReadOnlyCache(cache) && !dirty && !tcm.isClearPending(cache);
+	}
+
+	private <E> List<E> coalescedQuery(final MappedStatement ms, final Object parameterObject, final RowBounds rowBounds,
+			final CacheKey key, final BoundSql boundSql) throws SQLException {
+		Configuration configuration = ms.getConfiguration();
+		return configuration.getCacheLoadCoalescer().load(ms.getCache(), key, configuration.getCacheLoadCoalescingTimeout(),
+				new Callable<List<E>>() {
+					@Override
+					public List<E> call() throws Exception {
+						return delegate.<E>query(ms, parameterObject, rowBounds, null, key, boundSql);
+					}
+				});
+	}
+
+	private void addRefreshSource(MappedStatement ms, Cache cache, Object parameterObject, RowBounds rowBounds, CacheKey key) {
+		CacheRefresher refresher = ms.getConfiguration().getCacheRefresher();
+		if (refresher.isRefreshAhead(cache)) {
+			// 参数拷贝一份 调用者之后修改或者重用它 不会影响刷新
+			CacheRefresher.Source source = CacheRefresher.newSource(ms, parameterObject, rowBounds);
+			if (source == null) {
+				return;
+			}
+			Map<CacheKey, CacheRefresher.Source> sources = pendingRefreshSources.get(cache);
+			if (sources == null) {
+				sources = new HashMap<CacheKey, CacheRefresher.Source>();
+				pendingRefreshSources.put(cache, sources);
+			}
+			sources.put(key, source);
+		}
+	}
+
+	/**
+	 * 提交之后 entry 已经在缓存里了 再告诉它如何刷新
+	 */
+	private void attachRefreshSources() {
+		for (Map.Entry<Cache, Map<CacheKey, CacheRefresher.Source>> cacheSources : pendingRefreshSources.entrySet()) {
+			for (Map.Entry<CacheKey, CacheRefresher.Source> source : cacheSources.getValue().entrySet()) {
+				CacheRefresher refresher = source.getValue().getMappedStatement().getConfiguration().getCacheRefresher();
+				refresher.attachSource(cacheSources.getKey(), source.getKey(), source.getValue());
 			}
 		}
+		pendingRefreshSources.clear();
+	}
+
+	/**
+	 * 开启按表失效时 写操作记录修改的表 提交时只失效依赖这些表的entry
+	 * @return false 如果没有开启 或者不知道修改了哪些表 这时按原来的方式清空缓存
+	 */
+	private boolean invalidateTablesIfEnabled(MappedStatement ms, Object parameterObject) {
+		if (!ms.isFlushCacheRequired() || !ms.getConfiguration().isCacheInvalidationByTable()) {
+			return false;
+		}
+		dependencyTracker = ms.getConfiguration().getCacheDependencyTracker();
+		Set<String> tables = dependencyTracker.getTables(ms, parameterObject);
+		if (tables == null) {
+			return false;
+		}
+		modifiedTables.addAll(tables);
+		return true;
+	}
+
+	private boolean dependsOnModifiedTables(Set<String> tables) {
+		if (modifiedTables.isEmpty()) {
+			return false;
+		}
+		if (tables == null) {
+			return true;
+		}
+		for (String table : tables) {
+			if (modifiedTables.contains(table)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void addTableDependencies(MappedStatement ms, Cache cache, CacheKey key, Set<String> tables) {
+		if (ms.getConfiguration().isCacheInvalidationByTable()) {
+			dependencyTracker = ms.getConfiguration().getCacheDependencyTracker();
+			Map<CacheKey, Set<String>> dependencies = pendingDependencies.get(cache);
+			if (dependencies == null) {
+				dependencies = new HashMap<CacheKey, Set<String>>();
+				pendingDependencies.put(cache, dependencies);
+			}
+			dependencies.put(key, tables);
+		}
+	}
+
+	/**
+	 * 提交之后 先登记新的entry 再失效依赖修改过的表的entry 包括本事务中缓存的
+	 */
+	private void commitTableDependencies() {
+		if (pendingDependencies.isEmpty() && modifiedTables.isEmpty()) {
+			return;
+		}
+		for (Map.Entry<Cache, Map<CacheKey, Set<String>>> cacheDependencies : pendingDependencies.entrySet()) {
+			for (Map.Entry<CacheKey, Set<String>> dependency : cacheDependencies.getValue().entrySet()) {
+				dependencyTracker.register(cacheDependencies.getKey(), dependency.getKey(), dependency.getValue());
+			}
+		}
+		if (!modifiedTables.isEmpty()) {
+			dependencyTracker.invalidate(modifiedTables);
+			if (invalidationBus != null) {
+				invalidationBus.publishTables(modifiedTables);
+			}
+		}
+		clearTableDependencies();
+	}
+
+	private void clearTableDependencies() {
+		pendingDependencies.clear();
+		modifiedTables.clear();
 	}
 
 	private void ensureNoOutParams(MappedStatement ms, BoundSql boundSql) {
@@ -181,6 +362,8 @@ public class CachingExecutor implements Executor {
 		Cache cache = ms.getCache();
 		if (cache != null && ms.isFlushCacheRequired()) {
 			tcm.clear(cache);
+			pendingRefreshSources.remove(cache);
+			pendingDependencies.remove(cache);
 		}
 	}
 
@@ -0,0 +1,192 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Rewrites the rows of a batched single row insert into one {@code INSERT ... VALUES (...), (...)} statement.
+ *
+ * Only inserts that end with their VALUES tuple are rewritten, so {@code INSERT ... SELECT},
+ * {@code ON DUPLICATE KEY UPDATE} or {@code RETURNING} clauses are left to the regular batch.
+ */
+final class MultiRowInsert {
+
+	private MultiRowInsert() {
+		// Prevent Instantiation of Static Class
+	}
+
+	/**
+	 * @return The position of the opening parenthesis of the VALUES tuple, -1 if the sql cannot be rewritten
+	 */
+	static int findValuesTuple(String sql) {
+		String lowerSql = sql.toLowerCase();
+		if (!lowerSql.trim().startsWith("insert")) {
+			return -1;
+		}
+		int values = -1;
+		int depth = 0;
+		int length = sql.length();
+		for (int i = 0; i < length; i++) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"' || c == '`') {
+				i = skipQuoted(sql, i, c);
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+			} else if (depth == 0 && lowerSql.startsWith("values", i) && isBoundary(sql, i - 1) && isBoundary(sql, i + 6)) {
+				if (values >= 0) {
+					return -1;
+				}
+				values = i;
+			}
+		}
+		if (values < 0) {
+			return -1;
+		}
+		int tuple = values + 6;
+		while (tuple < length && Character.isWhitespace(sql.charAt(tuple))) {
+			tuple++;
+		}
+		if (tuple == length || sql.charAt(tuple) != '(') {
+			return -1;
+		}
+		int end = closingParenthesis(sql, tuple);
+		if (end < 0) {
+			return -1;
+		}
+		for (int i = end + 1; i < length; i++) {
+			char c = sql.charAt(i);
+			if (!Character.isWhitespace(c) && c != ';') {
+				return -1;
+			}
+		}
+		return tuple;
+	}
+
+	/**
+	 * @param sql A single row insert
+	 * @param tuple The position returned by {@link #findValuesTuple(String)}
+	 * @param rows The rows to bind, with their parameter values
+	 * @return The multi row insert, with every parameter taken from an additional parameter
+	 */
+	static BoundSql rewrite(Configuration configuration, String sql, int tuple, List<BoundSql> rows) {
+		int end = closingParenthesis(sql, tuple);
+		String tupleSql = sql.substring(tuple, end + 1);
+		StringBuilder multiRowSql = new StringBuilder(sql.substring(0, end + 1));
+		for (int row = 1; row < rows.size(); row++) {
+			multiRowSql.append(", ").append(tupleSql);
+		}
+		List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
+		Map<String, Object> values = new HashMap<String, Object>();
+		for (int row = 0; row < rows.size(); row++) {
+			copyParameters(configuration, rows.get(row), "__row_" + row + "_", parameterMappings, values);
+		}
+		BoundSql boundSql = new BoundSql(configuration, multiRowSql.toString(), parameterMappings, null);
+		for (Map.Entry<String, Object> value : values.entrySet()) {
+			boundSql.setAdditionalParameter(value.getKey(), value.getValue());
+		}
+		return boundSql;
+	}
+
+	/**
+	 * Appends the parameters of the source to the mappings, renamed to prefix + position, and puts their values
+	 * with the new names, so that the source can be bound among other statements.
+	 */
+	static void copyParameters(Configuration configuration, BoundSql source, String prefix, List<ParameterMapping> parameterMappings,
+			Map<String, Object> values) {
+		MetaObject metaObject = null;
+		Object parameterObject = source.getParameterObject();
+		for (ParameterMapping parameterMapping : source.getParameterMappings()) {
+			String property = prefix + parameterMappings.size();
+			Object value;
+			String propertyName = parameterMapping.getProperty();
+			if (source.hasAdditionalParameter(propertyName)) {
+				value = source.getAdditionalParameter(propertyName);
+			} else if (parameterObject == null) {
+				value = null;
+			} else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+				value = parameterObject;
+			} else {
+				if (metaObject == null) {
+					metaObject = configuration.newMetaObject(parameterObject);
+				}
+				value = metaObject.getValue(propertyName);
+			}
+			parameterMappings.add(new ParameterMapping.Builder(configuration, property, parameterMapping.getTypeHandler())
+					.javaType(parameterMapping.getJavaType())
+					.jdbcType(parameterMapping.getJdbcType())
+					.jdbcTypeName(parameterMapping.getJdbcTypeName())
+					.numericScale(parameterMapping.getNumericScale())
+					.build());
+			values.put(property, value);
+		}
+	}
+
+	/**
+	 * Stored procedure like OUT parameters cannot be repeated.
+	 */
+	static boolean hasOnlyInParameters(BoundSql boundSql) {
+		for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+			if (parameterMapping.getMode() != ParameterMode.IN) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isBoundary(String sql, int i) {
+		if (i < 0 || i >= sql.length()) {
+			return true;
+		}
+		char c = sql.charAt(i);
+		return !Character.isLetterOrDigit(c) && c != '_';
+	}
+
+	private static int closingParenthesis(String sql, int open) {
+		int depth = 0;
+		for (int i = open; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"' || c == '`') {
+				i = skipQuoted(sql, i, c);
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+				if (depth == 0) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static int skipQuoted(String sql, int start, char quote) {
+		int end = sql.indexOf(quote, start + 1);
+		return end < 0 ? sql.length() : end;
+	}
+
+}
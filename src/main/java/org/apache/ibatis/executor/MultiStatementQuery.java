@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Runs several selects as one multi statement query, whose result sets are mapped one after the other by the
+ * result maps of the selects, as the result sets of a procedure are.
+ *
+ * The driver has to accept several statements in one execution (e.g. MySQL with allowMultiQueries=true,
+ * SQL Server or PostgreSQL).
+ */
+public final class MultiStatementQuery {
+
+	private MultiStatementQuery() {
+		// Prevent Instantiation of Static Class
+	}
+
+	/**
+	 * Selects with several result maps, nested result sets, a second level cache or that flush the caches
+	 * have to run by themselves.
+	 */
+	public static boolean isCombinable(MappedStatement ms) {
+		return ms.getSqlCommandType() == SqlCommandType.SELECT
+				&& ms.getStatementType() != StatementType.CALLABLE
+				&& ms.getResultMaps().size() == 1
+				&& ms.getResultSets() == null
+				&& ms.getCache() == null
+				&& !ms.isFlushCacheRequired();
+	}
+
+	/**
+	 * @param statements Combinable selects
+	 * @param parameters The parameter of each select
+	 * @return The results of each select
+	 */
+	public static List<List<Object>> query(Executor executor, List<MappedStatement> statements, List<Object> parameters) throws SQLException {
+		Configuration configuration = statements.get(0).getConfiguration();
+		StringBuilder sql = new StringBuilder();
+		StringBuilder id = new StringBuilder();
+		List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
+		Map<String, Object> values = new HashMap<String, Object>();
+		List<ResultMap> resultMaps = new ArrayList<ResultMap>();
+		Integer timeout = null;
+		for (int i = 0; i < statements.size(); i++) {
+			MappedStatement ms = statements.get(i);
+			BoundSql boundSql = ms.getBoundSql(parameters.get(i));
+			if (i > 0) {
+				sql.append(";\n");
+				id.append('+');
+			}
+			sql.append(trimStatement(boundSql.getSql()));
+			id.append(ms.getId());
+			MultiRowInsert.copyParameters(configuration, boundSql, "__statement_" + i + "_", parameterMappings, values);
+			resultMaps.add(ms.getResultMaps().get(0));
+			if (ms.getTimeout() != null && (timeout == null || ms.getTimeout() > timeout)) {
+				timeout = ms.getTimeout();
+			}
+		}
+		MappedStatement combined = new MappedStatement.Builder(configuration, id.toString(),
+				new StaticSqlSource(configuration, sql.toString(), parameterMappings), SqlCommandType.SELECT)
+				.resultMaps(resultMaps)
+				.timeout(timeout)
+				.build();
+		BoundSql boundSql = combined.getBoundSql(null);
+		for (Map.Entry<String, Object> value : values.entrySet()) {
+			boundSql.setAdditionalParameter(value.getKey(), value.getValue());
+		}
+		CacheKey key = executor.createCacheKey(combined, null, RowBounds.DEFAULT, boundSql);
+		List<Object> results = executor.query(combined, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, key, boundSql);
+		if (statements.size() == 1) {
+			List<List<Object>> single = new ArrayList<List<Object>>();
+			single.add(results);
+			return single;
+		}
+		if (results.size() != statements.size()) {
+			throw new ExecutorException("Expected " + statements.size() + " result sets from '" + id
+					+ "', but found: " + results.size() + ".  Check that the driver allows multi statement queries.");
+		}
+		List<List<Object>> lists = new ArrayList<List<Object>>();
+		for (Object result : results) {
+			@SuppressWarnings("unchecked")
+			List<Object> list = (List<Object>) result;
+			lists.add(list);
+		}
+		return lists;
+	}
+
+	private static String trimStatement(String sql) {
+		int end = sql.length();
+		while (end > 0 && (Character.isWhitespace(sql.charAt(end - 1)) || sql.charAt(end - 1) == ';')) {
+			end--;
+		}
+		return sql.substring(0, end);
+	}
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -29,6 +29,7 @@ import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.executor.result.DefaultResultHandler;
 import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.executor.statement.AdaptiveFetchSize;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -93,6 +94,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 	private final Map<CacheKey, Object> nestedResultObjects = new HashMap<CacheKey, Object>();
 	private final Map<String, Object> ancestorObjects = new HashMap<String, Object>();
 	private Object previousRowValue;
+	/**
+	 * 读取的行数 给 AdaptiveFetchSize 用
+	 */
+	private long fetchedRows;
 
 	// multiple resultsets
 
@@ -239,6 +244,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
 		int resultSetCount = 0;
 		ResultSetWrapper rsw = getFirstResultSet(stmt);
+		int rowWidth = -1;
+		if (rsw != null && configuration.isAdaptiveFetchSizeEnabled()) {
+			rowWidth = AdaptiveFetchSize.estimateRowWidth(rsw.getResultSet().getMetaData());
+		}
 
 		List<ResultMap> resultMaps = mappedStatement.getResultMaps();
 		int resultMapCount = resultMaps.size();
@@ -266,6 +275,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 			}
 		}
 
+		if (rowWidth > 0) {
+			configuration.getAdaptiveFetchSize().record(mappedStatement, fetchedRows, rowWidth);
+		}
 		return collapseSingleResultList(multipleResults);
 	}
 
@@ -412,6 +424,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 		DefaultResultContext<Object> resultContext = new DefaultResultContext<Object>();
 		skipRows(rsw.getResultSet(), rowBounds);
 		while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
+			fetchedRows++;
 			ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
 			Object rowValue = getRowValue(rsw, discriminatedResultMap);
 			storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
@@ -974,6 +987,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 		Object rowValue = previousRowValue;
 		// while 循环 知道诶有数据
 		while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
+			fetchedRows++;
 			final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
 			final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
 			Object partialObject = nestedResultObjects.get(rowKey);
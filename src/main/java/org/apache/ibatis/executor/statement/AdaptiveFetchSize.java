@@ -0,0 +1,171 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Picks the fetch size of each select from the rows it returned before.
+ *
+ * The rows and the row width of every execution are folded into moving averages per statement. The next execution
+ * fetches the average rows plus a quarter, so that most results come in one round trip, but no more rows than fit
+ * in maxBytes. The fetch size never goes below minFetchSize, the defaultFetchSize when there is one: a statement
+ * that returned no rows or very wide ones keeps fetching a sane number of rows per round trip. Statements that
+ * have not run yet use the defaultFetchSize.
+ *
+ * One instance is shared by all the sessions of a {@link org.apache.ibatis.session.Configuration}.
+ */
+public class AdaptiveFetchSize {
+
+	/**
+	 * Weight of the last execution in the averages.
+	 */
+	private static final double WEIGHT = 0.2;
+	/**
+	 * Estimated bytes of a column whose driver reports no display size, or a huge one as for LOBs.
+	 */
+	private static final int UNKNOWN_COLUMN_WIDTH = 256;
+	/**
+	 * Minimum fetch size when there is no defaultFetchSize, the default of common drivers.
+	 */
+	public static final int DEFAULT_MIN_FETCH_SIZE = 10;
+
+	private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<String, Statistics>();
+	private int maxBytes = 1024 * 1024;
+	private int minFetchSize = DEFAULT_MIN_FETCH_SIZE;
+
+	public int getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @param maxBytes Bytes a fetch should not exceed, by the estimated row width
+	 */
+	public void setMaxBytes(int maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	public int getMinFetchSize() {
+		return minFetchSize;
+	}
+
+	/**
+	 * @param minFetchSize Fetch size the adaptive one never goes below, whatever the rows and their width
+	 */
+	public void setMinFetchSize(int minFetchSize) {
+		this.minFetchSize = minFetchSize;
+	}
+
+	/**
+	 * @return The fetch size for the next execution, null if the statement has not returned rows yet
+	 */
+	public Integer getFetchSize(MappedStatement ms) {
+		Statistics stats = statistics.get(ms.getId());
+		return stats == null ? null : Math.max(stats.fetchSize, minFetchSize);
+	}
+
+	/**
+	 * Records the rows a select returned.
+	 * @param rowWidth The estimated bytes of a row
+	 * @see #estimateRowWidth(ResultSetMetaData)
+	 */
+	public void record(MappedStatement ms, long rows, int rowWidth) {
+		Statistics stats = statistics.get(ms.getId());
+		if (stats == null) {
+			Statistics newStats = new Statistics();
+			stats = statistics.putIfAbsent(ms.getId(), newStats);
+			if (stats == null) {
+				stats = newStats;
+			}
+		}
+		stats.add(rows, rowWidth, maxBytes);
+	}
+
+	/**
+	 * @return The fetch size chosen for each statement, for monitoring purposes
+	 */
+	public Map<String, Integer> getFetchSizes() {
+		Map<String, Integer> fetchSizes = new HashMap<String, Integer>();
+		for (Map.Entry<String, Statistics> entry : statistics.entrySet()) {
+			fetchSizes.put(entry.getKey(), Math.max(entry.getValue().fetchSize, minFetchSize));
+		}
+		return fetchSizes;
+	}
+
+	/**
+	 * @return The moving average of the rows returned by the statement, 0 if it has not run yet
+	 */
+	public double getAverageRows(String statementId) {
+		Statistics stats = statistics.get(statementId);
+		return stats == null ? 0 : stats.averageRows;
+	}
+
+	/**
+	 * @return The moving average of the estimated bytes of a row of the statement, 0 if it has not run yet
+	 */
+	public double getAverageRowWidth(String statementId) {
+		Statistics stats = statistics.get(statementId);
+		return stats == null ? 0 : stats.averageRowWidth;
+	}
+
+	/**
+	 * @return The bytes of a row by the display size of its columns
+	 */
+	public static int estimateRowWidth(ResultSetMetaData metaData) throws SQLException {
+		int width = 0;
+		int columnCount = metaData.getColumnCount();
+		for (int i = 1; i <= columnCount; i++) {
+			int displaySize = metaData.getColumnDisplaySize(i);
+			width += displaySize <= 0 || displaySize > UNKNOWN_COLUMN_WIDTH ? UNKNOWN_COLUMN_WIDTH : displaySize;
+		}
+		return Math.max(width, 1);
+	}
+
+	private static class Statistics {
+
+		private volatile double averageRows;
+		private volatile double averageRowWidth;
+		private volatile boolean recorded;
+		/**
+		 * 还没有加上最小值
+		 */
+		private volatile int fetchSize;
+
+		synchronized void add(long rows, int rowWidth, int maxBytes) {
+			if (!recorded) {
+				recorded = true;
+				averageRows = rows;
+				averageRowWidth = rowWidth;
+			} else {
+				averageRows += WEIGHT * (rows - averageRows);
+				averageRowWidth += WEIGHT * (rowWidth - averageRowWidth);
+			}
+			long wanted = (long) Math.ceil(averageRows * 1.25) + 1;
+			long fitting = (long) (maxBytes / averageRowWidth);
+			// maxBytes 只限制上限 下限在取的时候加
+			fetchSize = (int) Math.max(1, Math.min(wanted, Math.min(fitting, Integer.MAX_VALUE)));
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -134,6 +134,7 @@ public abstract class BaseStatementHandler implements StatementHandler {
 			stmt.setQueryTimeout(queryTimeout);
 		}
 		StatementUtil.applyTransactionTimeout(stmt, queryTimeout, transactionTimeout);
+		StatementUtil.applyDeadline(stmt);
 	}
 
 	/**
@@ -147,6 +148,13 @@ public abstract class BaseStatementHandler implements StatementHandler {
 			stmt.setFetchSize(fetchSize);
 			return;
 		}
+		if (configuration.isAdaptiveFetchSizeEnabled()) {
+			Integer adaptiveFetchSize = configuration.getAdaptiveFetchSize().getFetchSize(mappedStatement);
+			if (adaptiveFetchSize != null) {
+				stmt.setFetchSize(adaptiveFetchSize);
+				return;
+			}
+		}
 		Integer defaultFetchSize = configuration.getDefaultFetchSize();
 		if (defaultFetchSize != null) {
 			stmt.setFetchSize(defaultFetchSize);
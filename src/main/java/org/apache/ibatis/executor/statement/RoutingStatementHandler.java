@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -38,6 +38,7 @@ import org.apache.ibatis.session.RowBounds;
 public class RoutingStatementHandler implements StatementHandler {
 
 	private final StatementHandler delegate;
+	private final StatementWatchdog watchdog;
 
 	public RoutingStatementHandler(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) {
 
@@ -54,6 +55,7 @@ public class RoutingStatementHandler implements StatementHandler {
 			default:
 				throw new ExecutorException("Unknown statement type: " + ms.getStatementType());
 		}
+		watchdog = ms.getConfiguration().getStatementWatchdog();
 
 	}
 
@@ -74,17 +76,39 @@ public class RoutingStatementHandler implements StatementHandler {
 
 	@Override
 	public int update(Statement statement) throws SQLException {
-		return delegate.update(statement);
+		StatementWatchdog.Watch watch = watchdog.watch(statement);
+		try {
+			return delegate.update(statement);
+		} catch (SQLException e) {
+			throw watch.explain(e);
+		} finally {
+			watch.end();
+		}
 	}
 
 	@Override
 	public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
-		return delegate.<E>query(statement, resultHandler);
+		StatementWatchdog.Watch watch = watchdog.watch(statement);
+		try {
+			return delegate.<E>query(statement, resultHandler);
+		} catch (SQLException e) {
+			throw watch.explain(e);
+		} finally {
+			watch.end();
+		}
 	}
 
 	@Override
 	public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
-		return delegate.queryCursor(statement);
+		// 只看执行 之后游标读取的时候不再管
+		StatementWatchdog.Watch watch = watchdog.watch(statement);
+		try {
+			return delegate.queryCursor(statement);
+		} catch (SQLException e) {
+			throw watch.explain(e);
+		} finally {
+			watch.end();
+		}
 	}
 
 	@Override
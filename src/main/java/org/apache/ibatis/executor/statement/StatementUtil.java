@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.apache.ibatis.executor.statement;
 import java.sql.SQLException;
 import java.sql.Statement;
 
+import org.apache.ibatis.session.Deadline;
+
 /**
  * Utility for {@link java.sql.Statement}.
  *
@@ -57,4 +59,20 @@ public class StatementUtil {
 		}
 	}
 
+	/**
+	 * Apply the deadline of the calling thread.
+	 * <p>
+	 * Update a query timeout to the seconds left before the {@link Deadline}, if any.
+	 * </p>
+	 * @param statement a target statement
+	 * @throws SQLException if a database access error occurs, this method is called on a closed <code>Statement</code>
+	 * @since 3.5.0
+	 */
+	public static void applyDeadline(Statement statement) throws SQLException {
+		Deadline deadline = Deadline.current();
+		if (deadline != null) {
+			applyTransactionTimeout(statement, statement.getQueryTimeout(), deadline.getRemainingSeconds());
+		}
+	}
+
 }
@@ -0,0 +1,177 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.Deadline;
+
+/**
+ * Cancels the running statements whose {@link Deadline} passed, or whose thread was interrupted when
+ * cancelInterruptedStatements is enabled, rather than waiting for the driver to time them out.
+ *
+ * A single daemon thread checks the running statements every {@link #CHECK_INTERVAL} milliseconds,
+ * and ends when there are none left.
+ *
+ * One instance is shared by all the sessions of a {@link org.apache.ibatis.session.Configuration}.
+ */
+public class StatementWatchdog {
+
+	static final long CHECK_INTERVAL = 50;
+
+	private static final Log log = LogFactory.getLog(StatementWatchdog.class);
+
+	private static final Watch NOT_WATCHED = new Watch(null, null, null);
+
+	private final Set<Watch> running = Collections.newSetFromMap(new ConcurrentHashMap<Watch, Boolean>());
+	private boolean cancelInterrupted;
+	private Thread thread;
+
+	public boolean isCancelInterrupted() {
+		return cancelInterrupted;
+	}
+
+	public void setCancelInterrupted(boolean cancelInterrupted) {
+		this.cancelInterrupted = cancelInterrupted;
+	}
+
+	/**
+	 * Watches a statement run by the calling thread, until {@link Watch#end()}.
+	 * @throws SQLTimeoutException if the deadline of the thread has already passed
+	 */
+	public Watch watch(Statement statement) throws SQLException {
+		Deadline deadline = Deadline.current();
+		if (deadline == null && !cancelInterrupted) {
+			return NOT_WATCHED;
+		}
+		if (deadline != null && deadline.isExpired()) {
+			throw new SQLTimeoutException("The deadline passed before running the statement");
+		}
+		Watch watch = new Watch(this, statement, deadline);
+		running.add(watch);
+		start();
+		return watch;
+	}
+
+	/**
+	 * @return The number of statements being watched, for monitoring purposes
+	 */
+	public int getRunningCount() {
+		return running.size();
+	}
+
+	private synchronized void start() {
+		if (thread == null) {
+			thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					check();
+				}
+			}, "mybatis-statement-watchdog");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private void check() {
+		while (true) {
+			try {
+				Thread.sleep(CHECK_INTERVAL);
+			} catch (InterruptedException e) {
+				// keep watching, the statements would not be cancelled otherwise
+			}
+			for (Watch watch : running) {
+				if (watch.cancelled != null) {
+					continue;
+				}
+				if (watch.deadline != null && watch.deadline.isExpired()) {
+					watch.cancel("its deadline passed");
+				} else if (watch.caller.isInterrupted()) {
+					watch.cancel("its thread was interrupted");
+				}
+			}
+			synchronized (this) {
+				if (running.isEmpty()) {
+					thread = null;
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A statement being watched.
+	 */
+	public static final class Watch {
+		private final StatementWatchdog watchdog;
+		private final Statement statement;
+		private final Deadline deadline;
+		private final Thread caller;
+		private volatile String cancelled;
+
+		private Watch(StatementWatchdog watchdog, Statement statement, Deadline deadline) {
+			this.watchdog = watchdog;
+			this.statement = statement;
+			this.deadline = deadline;
+			this.caller = Thread.currentThread();
+		}
+
+		/**
+		 * @return true if the statement was cancelled by the watchdog
+		 */
+		public boolean isCancelled() {
+			return cancelled != null;
+		}
+
+		/**
+		 * @return The failure of a cancelled statement, telling why it was cancelled
+		 */
+		public SQLException explain(SQLException e) {
+			if (cancelled == null) {
+				return e;
+			}
+			return new SQLTimeoutException("The statement was cancelled because " + cancelled + ".  Cause: " + e, e);
+		}
+
+		/**
+		 * Stops watching the statement, once it is done.
+		 */
+		public void end() {
+			if (watchdog != null) {
+				watchdog.running.remove(this);
+			}
+		}
+
+		private void cancel(String reason) {
+			cancelled = reason;
+			try {
+				statement.cancel();
+			} catch (SQLException e) {
+				if (log.isDebugEnabled()) {
+					log.debug("Error cancelling statement.  Cause: " + e);
+				}
+			}
+		}
+	}
+
+}
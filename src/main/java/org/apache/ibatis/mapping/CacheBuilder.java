@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -23,14 +23,18 @@ import java.util.Properties;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.decorators.BlockingCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.NearCache;
+import org.apache.ibatis.cache.decorators.RemovalNotifyingCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -73,6 +77,28 @@ public class CacheBuilder {
 	 * 是否阻塞
 	 */
 	private boolean blocking;
+	/**
+	 * 读写缓存使用的序列化方式
+	 */
+	private Class<? extends CacheSerializer> serializer;
+	/**
+	 * 每个entry单独过期 以及过期时间的随机增量
+	 */
+	private boolean flushPerEntry;
+	private Long flushJitter;
+	/**
+	 * 提前刷新 ttl的比例
+	 */
+	private Double refreshAhead;
+	private ScheduledCache.Refresher refresher;
+	/**
+	 * 移除entry时通知 null 不通知
+	 */
+	private RemovalNotifyingCache.RemovalListener removalListener;
+	/**
+	 * 每个线程的近端缓存大小 null 不使用
+	 */
+	private Integer nearCacheSize;
 
 	public CacheBuilder(String id) {
 		this.id = id;
@@ -111,6 +137,41 @@ public class CacheBuilder {
 		return this;
 	}
 
+	public CacheBuilder serializer(Class<? extends CacheSerializer> serializer) {
+		this.serializer = serializer;
+		return this;
+	}
+
+	public CacheBuilder flushPerEntry(boolean flushPerEntry) {
+		this.flushPerEntry = flushPerEntry;
+		return this;
+	}
+
+	public CacheBuilder flushJitter(Long flushJitter) {
+		this.flushJitter = flushJitter;
+		return this;
+	}
+
+	public CacheBuilder refreshAhead(Double refreshAhead) {
+		this.refreshAhead = refreshAhead;
+		return this;
+	}
+
+	public CacheBuilder refresher(ScheduledCache.Refresher refresher) {
+		this.refresher = refresher;
+		return this;
+	}
+
+	public CacheBuilder removalListener(RemovalNotifyingCache.RemovalListener removalListener) {
+		this.removalListener = removalListener;
+		return this;
+	}
+
+	public CacheBuilder nearCacheSize(Integer nearCacheSize) {
+		this.nearCacheSize = nearCacheSize;
+		return this;
+	}
+
 	public CacheBuilder properties(Properties properties) {
 		this.properties = properties;
 		return this;
@@ -123,9 +184,14 @@ public class CacheBuilder {
 	public Cache build() {
 		setDefaultImplementations();
 		Cache cache = newBaseCacheInstance(implementation, id);
+		setCacheSerializer(cache);
 		setCacheProperties(cache);
 		// issue #352, do not apply decorators to custom caches
 		if (PerpetualCache.class.equals(cache.getClass())) {
+			// 在淘汰的装饰器下面 才能看到淘汰和过期
+			if (removalListener != null) {
+				cache = new RemovalNotifyingCache(cache, removalListener);
+			}
 			// 装饰一遍
 			for (Class<? extends Cache> decorator : decorators) {
 				cache = newCacheDecoratorInstance(decorator, cache);
@@ -159,14 +225,43 @@ public class CacheBuilder {
 				metaCache.setValue("size", size);
 			}
 			if (clearInterval != null) {
-				cache = new ScheduledCache(cache);
-				((ScheduledCache) cache).setClearInterval(clearInterval);
+				ScheduledCache scheduledCache = new ScheduledCache(cache);
+				scheduledCache.setClearInterval(clearInterval);
+				// jitter 和 refresh ahead 只对单独过期的entry有意义
+				if (flushPerEntry || flushJitter != null || refreshAhead != null) {
+					scheduledCache.setPerEntry(true);
+					if (flushJitter != null) {
+						scheduledCache.setJitter(flushJitter);
+					}
+					if (refreshAhead != null) {
+						if (refreshAhead <= 0 || refreshAhead >= 1) {
+							throw new CacheException("refreshAhead must be between 0 and 1 (exclusive) but was " + refreshAhead);
+						}
+						scheduledCache.setRefreshAhead(refreshAhead);
+						if (refresher != null) {
+							scheduledCache.setRefresher(refresher);
+						}
+					}
+				}
+				cache = scheduledCache;
 			}
 			if (readWrite) {
-				cache = new SerializedCache(cache);
+				cache = new SerializedCache(cache, newSerializerInstance());
 			}
 			cache = new LoggingCache(cache);
 			cache = new SynchronizedCache(cache);
+			// 在同步之外 命中近端缓存就不用加锁了
+			if (nearCacheSize != null && nearCacheSize > 0) {
+				if (readWrite) {
+					throw new CacheException("The near cache of " + id + " shares the cached objects, it requires a read only cache");
+				}
+				NearCache nearCache = new NearCache(cache);
+				nearCache.setSize(nearCacheSize);
+				if (clearInterval != null) {
+					nearCache.setMaxAge(clearInterval);
+				}
+				cache = nearCache;
+			}
 			if (blocking) {
 				cache = new BlockingCache(cache);
 			}
@@ -176,6 +271,26 @@ public class CacheBuilder {
 		}
 	}
 
+	/**
+	 * 自己序列化的缓存(例如 OffHeapCache) 也使用配置的序列化方式
+	 * @param cache
+	 */
+	private void setCacheSerializer(Cache cache) {
+		MetaObject metaCache = SystemMetaObject.forObject(cache);
+		if (metaCache.hasSetter("serializer") && CacheSerializer.class.equals(metaCache.getSetterType("serializer"))) {
+			metaCache.setValue("serializer", newSerializerInstance());
+		}
+	}
+
+	private CacheSerializer newSerializerInstance() {
+		Class<? extends CacheSerializer> serializerClass = serializer == null ? JdkCacheSerializer.class : serializer;
+		try {
+			return serializerClass.newInstance();
+		} catch (Exception e) {
+			throw new CacheException("Could not instantiate cache serializer (" + serializerClass + "). Cause: " + e, e);
+		}
+	}
+
 	/**
 	 * 给缓存 添加属性了啊 通过xml 装配到 Properties中 然后去 配置缓存.
 	 * 其实这里的缓存是 本地缓存。
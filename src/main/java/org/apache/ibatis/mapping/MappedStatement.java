@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -153,6 +153,11 @@ public final class MappedStatement {
 	 */
 	private String[] resultSets;
 
+	/**
+	 * 读取或者修改的表 用于按表失效二级缓存
+	 */
+	private String[] tables;
+
 	MappedStatement() {
 		// constructor disabled
 	}
@@ -279,6 +284,11 @@ public final class MappedStatement {
 			return this;
 		}
 
+		public Builder tables(String tables) {
+			mappedStatement.tables = delimitedStringToArray(tables);
+			return this;
+		}
+
 		public MappedStatement build() {
 			assert mappedStatement.configuration != null;
 			assert mappedStatement.id != null;
@@ -387,6 +397,13 @@ public final class MappedStatement {
 		return resultSets;
 	}
 
+	/**
+	 * @since 3.5.0
+	 */
+	public String[] getTables() {
+		return tables;
+	}
+
 	public BoundSql getBoundSql(Object parameterObject) {
 		BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
 		List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
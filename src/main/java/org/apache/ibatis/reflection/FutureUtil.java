@@ -0,0 +1,89 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.ibatis.lang.UsesJava8;
+
+/**
+ * Support of mapper methods returning a {@link CompletableFuture} or a {@link CompletionStage}.
+ * 和OptionalUtil一样 使用了java8的api
+ */
+public abstract class FutureUtil {
+
+	/**
+	 * @return <code>true</code> if the type is {@code CompletableFuture} or {@code CompletionStage}
+	 */
+	@UsesJava8
+	public static boolean isFuture(Type type) {
+		if (!Jdk.completableFutureExists) {
+			return false;
+		}
+		Type rawType = type instanceof ParameterizedType ? ((ParameterizedType) type).getRawType() : type;
+		return CompletableFuture.class.equals(rawType) || CompletionStage.class.equals(rawType);
+	}
+
+	/**
+	 * @return The type of the result of the future type, Object if it is not declared
+	 */
+	public static Type getResultType(Type futureType) {
+		if (futureType instanceof ParameterizedType) {
+			return ((ParameterizedType) futureType).getActualTypeArguments()[0];
+		}
+		return Object.class;
+	}
+
+	/**
+	 * Runs the callable on the executor, or in the calling thread when the executor is null.
+	 * @return A future completed with the result of the callable, or with the exception it threw
+	 */
+	@UsesJava8
+	public static <T> CompletableFuture<T> supply(Executor executor, final Callable<T> callable) {
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					future.complete(callable.call());
+				} catch (Throwable t) {
+					future.completeExceptionally(t);
+				}
+			}
+		};
+		if (executor == null) {
+			task.run();
+			return future;
+		}
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private FutureUtil() {
+		super();
+	}
+
+}
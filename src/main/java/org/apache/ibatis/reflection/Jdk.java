@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -71,6 +71,22 @@ public class Jdk {
 		optionalExists = available;
 	}
 
+	/**
+	 * <code>true</code> if <code>java.util.concurrent.CompletableFuture</code> is available.
+	 */
+	public static final boolean completableFutureExists;
+
+	static {
+		boolean available = false;
+		try {
+			Resources.classForName("java.util.concurrent.CompletableFuture");
+			available = true;
+		} catch (ClassNotFoundException e) {
+			// ignore
+		}
+		completableFutureExists = available;
+	}
+
 	private Jdk() {
 		super();
 	}
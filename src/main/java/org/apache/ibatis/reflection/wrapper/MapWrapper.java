@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -101,6 +101,18 @@ public class MapWrapper extends BaseWrapper {
 			} else {
 				return metaValue.getGetterType(prop.getChildren());
 			}
+		} else if (prop.getIndex() != null) {
+			// list[0] 是元素的类型
+			Object collection = map.get(prop.getName());
+			Object value = null;
+			if (collection instanceof Map || collection instanceof List || collection instanceof Object[]) {
+				try {
+					value = getCollectionValue(prop, collection);
+				} catch (RuntimeException e) {
+					// 下标不对 和以前一样当作 Object
+				}
+			}
+			return value == null ? Object.class : value.getClass();
 		} else {
 			if (map.get(name) != null) {
 				return map.get(name).getClass();
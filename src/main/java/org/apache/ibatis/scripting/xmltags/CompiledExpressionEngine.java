@@ -0,0 +1,591 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import ognl.OgnlOps;
+
+import org.apache.ibatis.reflection.ReflectionException;
+
+/**
+ * Compiles the common expressions of the dynamic sql into accessors evaluated without OGNL:
+ * property paths, {@code null}, boolean, number and string literals, comparisons, {@code and}, {@code or}, {@code not}
+ * and the {@code size()}, {@code isEmpty()} and {@code length()} methods.
+ *
+ * The values and the comparisons follow the OGNL rules. Any other expression, or any value the accessors do not
+ * handle, as a property of a list or a getter that is not public, is evaluated by OGNL.
+ *
+ * @since 3.5.0
+ */
+public class CompiledExpressionEngine implements ExpressionEngine {
+
+	private static final Set<String> UNSUPPORTED_KEYWORDS = new HashSet<String>(Arrays.asList(
+			"in", "instanceof", "new", "bor", "xor", "band", "shl", "shr", "ushr"));
+	private static final Set<String> MAP_PSEUDO_PROPERTIES = new HashSet<String>(Arrays.asList(
+			"size", "isEmpty", "keys", "keySet", "values"));
+	private static final Method NO_GETTER;
+
+	static {
+		try {
+			NO_GETTER = Object.class.getMethod("toString");
+		} catch (NoSuchMethodException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final OgnlExpressionCache expressionCache;
+	private final ConcurrentMap<String, Node> expressions = new ConcurrentHashMap<String, Node>();
+	private final ConcurrentMap<Class<?>, ConcurrentMap<String, Method>> getters = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, Method>>();
+
+	public CompiledExpressionEngine() {
+		this(OgnlCache.getExpressionCache());
+	}
+
+	/**
+	 * @param expressionCache The parsed expressions of OGNL, usually the ones of the Configuration
+	 */
+	public CompiledExpressionEngine(OgnlExpressionCache expressionCache) {
+		this.expressionCache = expressionCache;
+	}
+
+	@Override
+	public Object getValue(String expression, Object root) {
+		Node node = expressions.get(expression);
+		if (node == null) {
+			node = compile(expression);
+			expressions.put(expression, node);
+		}
+		if (node != null && node != OGNL) {
+			try {
+				return node.getValue(root);
+			} catch (Fallback e) {
+				// OGNL 来决定
+			}
+		}
+		return expressionCache.getValue(expression, root);
+	}
+
+	/**
+	 * @return Whether the expression is evaluated without OGNL, at least for the values it usually gets
+	 */
+	public boolean isCompiled(String expression) {
+		return compile(expression) != OGNL;
+	}
+
+	private Node compile(String expression) {
+		try {
+			Parser parser = new Parser(expression);
+			Node node = parser.parseExpression();
+			parser.expectEnd();
+			return node;
+		} catch (Fallback e) {
+			return OGNL;
+		}
+	}
+
+	private Object getProperty(Object target, String name) {
+		if (target instanceof DynamicContext.ContextMap) {
+			// 和 ContextAccessor 一样
+			Map<?, ?> map = (Map<?, ?>) target;
+			Object result;
+			try {
+				result = map.get(name);
+			} catch (ReflectionException e) {
+				throw Fallback.INSTANCE;
+			}
+			if (result != null || map.containsKey(name)) {
+				return result;
+			}
+			Object parameterObject = map.get(DynamicContext.PARAMETER_OBJECT_KEY);
+			if (parameterObject instanceof Map) {
+				return ((Map<?, ?>) parameterObject).get(name);
+			}
+			return null;
+		}
+		if (target instanceof Map) {
+			if (MAP_PSEUDO_PROPERTIES.contains(name)) {
+				throw Fallback.INSTANCE;
+			}
+			return ((Map<?, ?>) target).get(name);
+		}
+		if (target == null || target instanceof Collection || target instanceof Iterator || target instanceof Class
+				|| target.getClass().isArray()) {
+			throw Fallback.INSTANCE;
+		}
+		Method getter = getGetter(target.getClass(), name);
+		if (getter == null) {
+			throw Fallback.INSTANCE;
+		}
+		try {
+			return getter.invoke(target);
+		} catch (Exception e) {
+			throw Fallback.INSTANCE;
+		}
+	}
+
+	private Method getGetter(Class<?> type, String name) {
+		ConcurrentMap<String, Method> typeGetters = getters.get(type);
+		if (typeGetters == null) {
+			typeGetters = new ConcurrentHashMap<String, Method>();
+			getters.put(type, typeGetters);
+		}
+		Method getter = typeGetters.get(name);
+		if (getter == null) {
+			getter = findGetter(type, name);
+			typeGetters.put(name, getter == null ? NO_GETTER : getter);
+		}
+		return getter == NO_GETTER ? null : getter;
+	}
+
+	private static Method findGetter(Class<?> type, String name) {
+		if (!Modifier.isPublic(type.getModifiers()) || name.isEmpty()) {
+			return null;
+		}
+		String capitalized = name.substring(0, 1).toUpperCase(Locale.ENGLISH) + name.substring(1);
+		try {
+			return type.getMethod("get" + capitalized);
+		} catch (NoSuchMethodException e) {
+			try {
+				Method method = type.getMethod("is" + capitalized);
+				return method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class ? method : null;
+			} catch (NoSuchMethodException e2) {
+				return null;
+			}
+		}
+	}
+
+	private static Object invoke(Object target, String method) {
+		if ("size".equals(method)) {
+			if (target instanceof Collection) {
+				return ((Collection<?>) target).size();
+			} else if (target instanceof Map) {
+				return ((Map<?, ?>) target).size();
+			}
+		} else if ("isEmpty".equals(method)) {
+			if (target instanceof Collection) {
+				return ((Collection<?>) target).isEmpty();
+			} else if (target instanceof Map) {
+				return ((Map<?, ?>) target).isEmpty();
+			} else if (target instanceof String) {
+				return ((String) target).isEmpty();
+			}
+		} else if ("length".equals(method) && target instanceof String) {
+			return ((String) target).length();
+		}
+		throw Fallback.INSTANCE;
+	}
+
+	/**
+	 * Raised when an expression or a value is left to OGNL.
+	 */
+	private static final class Fallback extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private static final Fallback INSTANCE = new Fallback();
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+
+	private abstract static class Node {
+		abstract Object getValue(Object root);
+	}
+
+	private static final Node OGNL = new Node() {
+		@Override
+		Object getValue(Object root) {
+			throw Fallback.INSTANCE;
+		}
+	};
+
+	private static final class Literal extends Node {
+		private final Object value;
+
+		Literal(Object value) {
+			this.value = value;
+		}
+
+		@Override
+		Object getValue(Object root) {
+			return value;
+		}
+	}
+
+	private final class Property extends Node {
+		private final Node target;
+		private final String name;
+
+		/**
+		 * @param target null for a property of the root
+		 */
+		Property(Node target, String name) {
+			this.target = target;
+			this.name = name;
+		}
+
+		@Override
+		Object getValue(Object root) {
+			return getProperty(target == null ? root : target.getValue(root), name);
+		}
+	}
+
+	private static final class MethodCall extends Node {
+		private final Node target;
+		private final String method;
+
+		MethodCall(Node target, String method) {
+			this.target = target;
+			this.method = method;
+		}
+
+		@Override
+		Object getValue(Object root) {
+			return invoke(target.getValue(root), method);
+		}
+	}
+
+	private static final class Not extends Node {
+		private final Node operand;
+
+		Not(Node operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		Object getValue(Object root) {
+			return OgnlOps.booleanValue(operand.getValue(root)) ? Boolean.FALSE : Boolean.TRUE;
+		}
+	}
+
+	/**
+	 * Returns the value that decided the result, as OGNL does, rather than a boolean.
+	 */
+	private static final class Junction extends Node {
+		private final List<Node> operands;
+		private final boolean and;
+
+		Junction(List<Node> operands, boolean and) {
+			this.operands = operands;
+			this.and = and;
+		}
+
+		@Override
+		Object getValue(Object root) {
+			Object result = null;
+			int last = operands.size() - 1;
+			for (int i = 0; i <= last; i++) {
+				result = operands.get(i).getValue(root);
+				if (i != last && OgnlOps.booleanValue(result) != and) {
+					break;
+				}
+			}
+			return result;
+		}
+	}
+
+	private static final class Comparison extends Node {
+		private final Node left;
+		private final String operator;
+		private final Node right;
+
+		Comparison(Node left, String operator, Node right) {
+			this.left = left;
+			this.operator = operator;
+			this.right = right;
+		}
+
+		@Override
+		Object getValue(Object root) {
+			Object v1 = left.getValue(root);
+			Object v2 = right.getValue(root);
+			try {
+				boolean result;
+				if ("==".equals(operator)) {
+					result = OgnlOps.equal(v1, v2);
+				} else if ("!=".equals(operator)) {
+					result = !OgnlOps.equal(v1, v2);
+				} else if ("<".equals(operator)) {
+					result = OgnlOps.less(v1, v2);
+				} else if (">".equals(operator)) {
+					result = OgnlOps.greater(v1, v2);
+				} else if ("<=".equals(operator)) {
+					result = !OgnlOps.greater(v1, v2);
+				} else {
+					result = !OgnlOps.less(v1, v2);
+				}
+				return result ? Boolean.TRUE : Boolean.FALSE;
+			} catch (RuntimeException e) {
+				throw Fallback.INSTANCE;
+			}
+		}
+	}
+
+	/**
+	 * Recursive descent parser of the supported subset, with the precedence of OGNL.
+	 */
+	private final class Parser {
+		private final String expression;
+		private int position;
+
+		Parser(String expression) {
+			this.expression = expression;
+		}
+
+		Node parseExpression() {
+			return parseOr();
+		}
+
+		void expectEnd() {
+			skipWhitespace();
+			if (position != expression.length()) {
+				throw Fallback.INSTANCE;
+			}
+		}
+
+		private Node parseOr() {
+			List<Node> operands = new ArrayList<Node>();
+			operands.add(parseAnd());
+			while (acceptOperator("||") || acceptWord("or")) {
+				operands.add(parseAnd());
+			}
+			return operands.size() == 1 ? operands.get(0) : new Junction(operands, false);
+		}
+
+		private Node parseAnd() {
+			List<Node> operands = new ArrayList<Node>();
+			operands.add(parseEquality());
+			while (acceptOperator("&&") || acceptWord("and")) {
+				operands.add(parseEquality());
+			}
+			return operands.size() == 1 ? operands.get(0) : new Junction(operands, true);
+		}
+
+		private Node parseEquality() {
+			Node node = parseRelational();
+			while (true) {
+				if (acceptOperator("==") || acceptWord("eq")) {
+					node = new Comparison(node, "==", parseRelational());
+				} else if (acceptOperator("!=") || acceptWord("neq")) {
+					node = new Comparison(node, "!=", parseRelational());
+				} else {
+					return node;
+				}
+			}
+		}
+
+		private Node parseRelational() {
+			Node node = parseUnary();
+			while (true) {
+				if (acceptOperator("<=") || acceptWord("lte")) {
+					node = new Comparison(node, "<=", parseUnary());
+				} else if (acceptOperator(">=") || acceptWord("gte")) {
+					node = new Comparison(node, ">=", parseUnary());
+				} else if (acceptOperator("<") || acceptWord("lt")) {
+					node = new Comparison(node, "<", parseUnary());
+				} else if (acceptOperator(">") || acceptWord("gt")) {
+					node = new Comparison(node, ">", parseUnary());
+				} else {
+					return node;
+				}
+			}
+		}
+
+		private Node parseUnary() {
+			skipWhitespace();
+			if (position < expression.length() && expression.charAt(position) == '!' && !expression.startsWith("!=", position)) {
+				position++;
+				return new Not(parseUnary());
+			}
+			if (acceptWord("not")) {
+				return new Not(parseUnary());
+			}
+			return parsePostfix();
+		}
+
+		private Node parsePostfix() {
+			Node node = parsePrimary();
+			while (acceptOperator(".")) {
+				String name = parseIdentifier();
+				if (acceptOperator("(")) {
+					if (!acceptOperator(")") || !("size".equals(name) || "isEmpty".equals(name) || "length".equals(name))) {
+						throw Fallback.INSTANCE;
+					}
+					node = new MethodCall(node, name);
+				} else {
+					node = new Property(node, name);
+				}
+			}
+			return node;
+		}
+
+		private Node parsePrimary() {
+			skipWhitespace();
+			if (position == expression.length()) {
+				throw Fallback.INSTANCE;
+			}
+			char c = expression.charAt(position);
+			if (c == '(') {
+				position++;
+				Node node = parseExpression();
+				if (!acceptOperator(")")) {
+					throw Fallback.INSTANCE;
+				}
+				return node;
+			}
+			if (c == '\'' || c == '"') {
+				return new Literal(parseString(c));
+			}
+			if (c == '-' || Character.isDigit(c)) {
+				return new Literal(parseNumber());
+			}
+			String name = parseIdentifier();
+			if ("null".equals(name)) {
+				return new Literal(null);
+			} else if ("true".equals(name)) {
+				return new Literal(Boolean.TRUE);
+			} else if ("false".equals(name)) {
+				return new Literal(Boolean.FALSE);
+			} else if (isKeyword(name) || peek('(')) {
+				throw Fallback.INSTANCE;
+			}
+			return new Property(null, name);
+		}
+
+		private Object parseString(char quote) {
+			int end = expression.indexOf(quote, position + 1);
+			if (end < 0) {
+				throw Fallback.INSTANCE;
+			}
+			String value = expression.substring(position + 1, end);
+			if (value.indexOf('\\') >= 0) {
+				throw Fallback.INSTANCE;
+			}
+			position = end + 1;
+			// OGNL 的 'x' 是 Character
+			if (quote == '\'' && value.length() == 1) {
+				return value.charAt(0);
+			}
+			return value;
+		}
+
+		private Object parseNumber() {
+			int start = position;
+			if (expression.charAt(position) == '-') {
+				position++;
+			}
+			int digits = position;
+			while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+				position++;
+			}
+			boolean decimal = false;
+			if (position < expression.length() - 1 && expression.charAt(position) == '.' && Character.isDigit(expression.charAt(position + 1))) {
+				decimal = true;
+				position++;
+				while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+					position++;
+				}
+			}
+			if (position == digits || (position < expression.length() && Character.isJavaIdentifierPart(expression.charAt(position)))) {
+				throw Fallback.INSTANCE;
+			}
+			String number = expression.substring(start, position);
+			if (decimal) {
+				return Double.valueOf(number);
+			}
+			if (position - digits > 1 && expression.charAt(digits) == '0') {
+				// 八进制
+				throw Fallback.INSTANCE;
+			}
+			try {
+				return Integer.valueOf(number);
+			} catch (NumberFormatException e) {
+				throw Fallback.INSTANCE;
+			}
+		}
+
+		private String parseIdentifier() {
+			skipWhitespace();
+			int start = position;
+			if (position < expression.length() && Character.isJavaIdentifierStart(expression.charAt(position))) {
+				position++;
+				while (position < expression.length() && Character.isJavaIdentifierPart(expression.charAt(position))) {
+					position++;
+				}
+			}
+			if (start == position) {
+				throw Fallback.INSTANCE;
+			}
+			return expression.substring(start, position);
+		}
+
+		private boolean isKeyword(String name) {
+			return UNSUPPORTED_KEYWORDS.contains(name) || "and".equals(name) || "or".equals(name) || "not".equals(name)
+					|| "eq".equals(name) || "neq".equals(name) || "lt".equals(name) || "lte".equals(name)
+					|| "gt".equals(name) || "gte".equals(name);
+		}
+
+		private boolean peek(char c) {
+			skipWhitespace();
+			return position < expression.length() && expression.charAt(position) == c;
+		}
+
+		private boolean acceptOperator(String operator) {
+			skipWhitespace();
+			if (!expression.startsWith(operator, position)) {
+				return false;
+			}
+			int end = position + operator.length();
+			// < 不能是 <= 的一部分, = 不能单独出现
+			if (end < expression.length() && ("<".equals(operator) || ">".equals(operator)) && expression.charAt(end) == '=') {
+				return false;
+			}
+			position = end;
+			return true;
+		}
+
+		private boolean acceptWord(String word) {
+			skipWhitespace();
+			int end = position + word.length();
+			if (!expression.startsWith(word, position)
+					|| (end < expression.length() && Character.isJavaIdentifierPart(expression.charAt(end)))) {
+				return false;
+			}
+			position = end;
+			return true;
+		}
+
+		private void skipWhitespace() {
+			while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+				position++;
+			}
+		}
+	}
+
+}
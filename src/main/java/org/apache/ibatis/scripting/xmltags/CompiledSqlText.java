@@ -0,0 +1,60 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.ibatis.parsing.TokenHandler;
+
+/**
+ * A sql text whose #{} placeholders are replaced by question marks, with a slot per placeholder.
+ */
+final class CompiledSqlText {
+
+	private final String sql;
+	private final List<ParameterSlot> slots;
+
+	CompiledSqlText(String sql, List<ParameterSlot> slots) {
+		this.sql = sql;
+		this.slots = slots;
+	}
+
+	static CompiledSqlText compile(String text) {
+		final List<ParameterSlot> slots = new ArrayList<ParameterSlot>();
+		GenericTokenParser parser = new GenericTokenParser("#{", "}", new TokenHandler() {
+			@Override
+			public String handleToken(String content) {
+				slots.add(new ParameterSlot(content, SqlSourceBuilder.parseParameterMapping(content)));
+				return "?";
+			}
+		});
+		String sql = parser.parse(text);
+		return new CompiledSqlText(sql, slots.isEmpty() ? Collections.<ParameterSlot>emptyList() : Collections.unmodifiableList(slots));
+	}
+
+	String getSql() {
+		return sql;
+	}
+
+	List<ParameterSlot> getSlots() {
+		return slots;
+	}
+
+}
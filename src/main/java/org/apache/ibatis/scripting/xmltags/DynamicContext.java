@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,7 +15,9 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import ognl.OgnlContext;
@@ -43,7 +45,10 @@ public class DynamicContext {
 	}
 
 	private final ContextMap bindings;
-	private final StringBuilder sqlBuilder = new StringBuilder();
+	private final StringBuilder sqlBuilder;
+	private final List<ParameterSlot> slots;
+	private final OgnlExpressionCache expressionCache;
+	private final SqlShape shape;
 	private int uniqueNumber = 0;
 
 	/**
@@ -52,6 +57,37 @@ public class DynamicContext {
 	 * @param parameterObject
 	 */
 	public DynamicContext(Configuration configuration, Object parameterObject) {
+		this(configuration, parameterObject, false);
+	}
+
+	/**
+	 * @param compiled Whether the #{} placeholders are replaced as they are appended, see {@link #getSlots()}
+	 */
+	DynamicContext(Configuration configuration, Object parameterObject, boolean compiled) {
+		this(configuration, parameterObject, compiled, 16);
+	}
+
+	/**
+	 * @param sqlCapacity The expected length of the sql, so that the builder does not grow while the nodes are applied
+	 */
+	DynamicContext(Configuration configuration, Object parameterObject, boolean compiled, int sqlCapacity) {
+		this(configuration, parameterObject, new StringBuilder(sqlCapacity), compiled ? new ArrayList<ParameterSlot>() : null, null);
+	}
+
+	/**
+	 * For a pass that only records the outcomes of the dynamic nodes in the shape, and binds the same values as a
+	 * regular pass would, without building any sql.
+	 */
+	DynamicContext(Configuration configuration, Object parameterObject, SqlShape shape) {
+		this(configuration, parameterObject, null, null, shape);
+	}
+
+	private DynamicContext(Configuration configuration, Object parameterObject, StringBuilder sqlBuilder, List<ParameterSlot> slots,
+			SqlShape shape) {
+		this.sqlBuilder = sqlBuilder;
+		this.slots = slots;
+		this.shape = shape;
+		this.expressionCache = configuration == null ? OgnlCache.getExpressionCache() : configuration.getOgnlExpressionCache();
 		if (parameterObject != null && !(parameterObject instanceof Map)) {
 			MetaObject metaObject = configuration.newMetaObject(parameterObject);
 			bindings = new ContextMap(metaObject);
@@ -63,6 +99,18 @@ public class DynamicContext {
 		bindings.put(DATABASE_ID_KEY, configuration.getDatabaseId());
 	}
 
+	/**
+	 * For the contexts that wrap another one: they share its bindings and override every method using the sql,
+	 * so that no bindings nor builder are allocated for them.
+	 */
+	DynamicContext(DynamicContext delegate) {
+		this.sqlBuilder = null;
+		this.slots = null;
+		this.shape = delegate.shape;
+		this.expressionCache = delegate.expressionCache;
+		this.bindings = delegate.bindings;
+	}
+
 	public Map<String, Object> getBindings() {
 		return bindings;
 	}
@@ -72,14 +120,126 @@ public class DynamicContext {
 	}
 
 	public void appendSql(String sql) {
+		if (isRecordingShape()) {
+			return;
+		}
+		if (isCompiled() && sql != null && sql.contains("#{")) {
+			// ${} 替换后的文本 或者自定义节点 只能在这里解析
+			CompiledSqlText compiledSql = CompiledSqlText.compile(sql);
+			appendCompiled(compiledSql.getSql(), compiledSql.getSlots());
+			return;
+		}
+		sqlBuilder.append(sql);
+		sqlBuilder.append(" ");
+	}
+
+	/**
+	 * Appends a sql whose #{} placeholders are already replaced by the given slots.
+	 * Only called when {@link #isCompiled()}.
+	 */
+	void appendCompiled(String sql, List<ParameterSlot> slots) {
+		if (isRecordingShape()) {
+			return;
+		}
 		sqlBuilder.append(sql);
 		sqlBuilder.append(" ");
+		this.slots.addAll(slots);
+	}
+
+	/**
+	 * Removes a keyword ending the sql appended so far, as the IN before a foreach bound as one array.
+	 * @return false when the sql does not end with the keyword
+	 */
+	boolean removeTrailingKeyword(String keyword) {
+		return sqlBuilder != null && removeTrailingKeyword(sqlBuilder, keyword);
+	}
+
+	static boolean removeTrailingKeyword(StringBuilder sql, String keyword) {
+		int start = trailingKeywordStart(sql, sql.length(), keyword);
+		if (start < 0) {
+			return false;
+		}
+		sql.setLength(start);
+		return true;
+	}
+
+	/**
+	 * @return true when the sql appended so far ends with the keywords, as the NOT IN before a foreach
+	 */
+	boolean endsWithKeywords(String... keywords) {
+		return sqlBuilder != null && endsWithKeywords(sqlBuilder, keywords);
+	}
+
+	static boolean endsWithKeywords(StringBuilder sql, String... keywords) {
+		int end = sql.length();
+		for (int i = keywords.length - 1; i >= 0 && end >= 0; i--) {
+			end = trailingKeywordStart(sql, end, keywords[i]);
+		}
+		return end >= 0;
+	}
+
+	/**
+	 * @return The start of the keyword ending the sql before the end, -1 when it does not end with it
+	 */
+	private static int trailingKeywordStart(StringBuilder sql, int end, String keyword) {
+		while (end > 0 && Character.isWhitespace(sql.charAt(end - 1))) {
+			end--;
+		}
+		int start = end - keyword.length();
+		if (start < 0 || !sql.substring(start, end).equalsIgnoreCase(keyword)) {
+			return -1;
+		}
+		if (start > 0 && (Character.isLetterOrDigit(sql.charAt(start - 1)) || sql.charAt(start - 1) == '_')) {
+			return -1;
+		}
+		return start;
+	}
+
+	boolean isCompiled() {
+		return slots != null;
+	}
+
+	/**
+	 * @return true when the nodes are applied only to record their outcomes, the appended sql being ignored
+	 */
+	boolean isRecordingShape() {
+		return shape != null;
+	}
+
+	/**
+	 * Records the outcome of a dynamic node, as whether an if matched, when {@link #isRecordingShape()}.
+	 */
+	void recordShape(int outcome) {
+		if (shape != null) {
+			shape.record(outcome);
+		}
+	}
+
+	/**
+	 * @return The #{} placeholders of the sql, in order, when {@link #isCompiled()}
+	 */
+	List<ParameterSlot> getSlots() {
+		return slots;
 	}
 
 	public String getSql() {
 		return sqlBuilder.toString().trim();
 	}
 
+	/**
+	 * @return The length of the sql appended so far, untrimmed
+	 */
+	int getSqlLength() {
+		return sqlBuilder.length();
+	}
+
+	/**
+	 * @return The value of an OGNL expression against the bindings, as a ${} or a bind needs it
+	 */
+	Object getOgnlValue(String expression) {
+		return expressionCache.getValue(expression, getBindings());
+	}
+
 	public int getUniqueNumber() {
 		return uniqueNumber++;
 	}
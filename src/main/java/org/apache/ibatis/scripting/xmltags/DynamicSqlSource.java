@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,11 +15,16 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.builder.SqlSourceBuilder;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -32,17 +37,30 @@ public class DynamicSqlSource implements SqlSource {
 
 	private final Configuration configuration;
 	private final SqlNode rootSqlNode;
+	private final SqlSourceBuilder sqlSourceParser;
+	// 上一次生成的 sql 长度, 下一次直接按这个长度分配 StringBuilder
+	private volatile int sqlLength = 16;
+	// 分支结果 -> 拼好的 sql, 只有 sql 完全由分支决定的时候才有
+	private final Map<SqlShape, CompiledSqlText> shapes;
 
 	public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
 		this.configuration = configuration;
 		this.rootSqlNode = rootSqlNode;
+		this.sqlSourceParser = new SqlSourceBuilder(configuration);
+		this.shapes = isShapeCacheable(rootSqlNode) ? new ConcurrentHashMap<SqlShape, CompiledSqlText>() : null;
 	}
 
 	@Override
 	public BoundSql getBoundSql(Object parameterObject) {
-		DynamicContext context = new DynamicContext(configuration, parameterObject);
+		if (shapes != null && configuration.getSqlShapeCacheSize() > 0) {
+			return getShapeCachedBoundSql(parameterObject);
+		}
+		if (configuration.isCompiledDynamicSqlEnabled()) {
+			return getCompiledBoundSql(parameterObject);
+		}
+		DynamicContext context = new DynamicContext(configuration, parameterObject, false, sqlLength);
 		rootSqlNode.apply(context);
-		SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+		sqlLength = context.getSqlLength();
 		Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
 		SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
 		// 构造BoundSQL对象 然后去进行操作了
@@ -53,4 +71,94 @@ public class DynamicSqlSource implements SqlSource {
 		return boundSql;
 	}
 
+	/**
+	 * The nodes append sql whose #{} placeholders are already replaced, so that only their mappings are resolved.
+	 */
+	private BoundSql getCompiledBoundSql(Object parameterObject) {
+		DynamicContext context = compile(parameterObject);
+		return bind(parameterObject, context.getSql(), context.getSlots(), context.getBindings());
+	}
+
+	/**
+	 * The branches are evaluated first, without building any sql. The sql is built only for a combination of
+	 * branches that was not met yet.
+	 */
+	private BoundSql getShapeCachedBoundSql(Object parameterObject) {
+		SqlShape shape = new SqlShape();
+		DynamicContext shapeContext = new DynamicContext(configuration, parameterObject, shape);
+		rootSqlNode.apply(shapeContext);
+		CompiledSqlText sql = shapes.get(shape);
+		if (sql == null) {
+			DynamicContext context = compile(parameterObject);
+			sql = new CompiledSqlText(context.getSql(), context.getSlots());
+			if (shapes.size() < configuration.getSqlShapeCacheSize()) {
+				shapes.put(shape, sql);
+			}
+		}
+		return bind(parameterObject, sql.getSql(), sql.getSlots(), shapeContext.getBindings());
+	}
+
+	private DynamicContext compile(Object parameterObject) {
+		DynamicContext context = new DynamicContext(configuration, parameterObject, true, sqlLength);
+		rootSqlNode.apply(context);
+		sqlLength = context.getSqlLength();
+		return context;
+	}
+
+	private BoundSql bind(Object parameterObject, String sql, List<ParameterSlot> slots, Map<String, Object> bindings) {
+		Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
+		MetaObject metaParameters = configuration.newMetaObject(bindings);
+		List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>(slots.size());
+		for (ParameterSlot slot : slots) {
+			parameterMappings.add(slot.getParameterMapping(sqlSourceParser, parameterType, metaParameters));
+		}
+		BoundSql boundSql = new BoundSql(configuration, sql, parameterMappings, parameterObject);
+		for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+			boundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
+		}
+		return boundSql;
+	}
+
+	/**
+	 * @return true when the sql depends only on the branches taken and the foreach sizes, not on the values:
+	 *         there is no ${}, no custom node, and no foreach that may be bound as one array
+	 */
+	static boolean isShapeCacheable(SqlNode node) {
+		Class<?> type = node.getClass();
+		if (type == StaticTextSqlNode.class || type == VarDeclSqlNode.class) {
+			return true;
+		}
+		if (type == TextSqlNode.class) {
+			return !((TextSqlNode) node).isDynamic();
+		}
+		if (type == MixedSqlNode.class) {
+			for (SqlNode child : ((MixedSqlNode) node).getContents()) {
+				if (!isShapeCacheable(child)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (type == IfSqlNode.class) {
+			return isShapeCacheable(((IfSqlNode) node).getContents());
+		}
+		if (type == ChooseSqlNode.class) {
+			ChooseSqlNode choose = (ChooseSqlNode) node;
+			for (SqlNode child : choose.getIfSqlNodes()) {
+				if (!isShapeCacheable(child)) {
+					return false;
+				}
+			}
+			return choose.getDefaultSqlNode() == null || isShapeCacheable(choose.getDefaultSqlNode());
+		}
+		if (type == TrimSqlNode.class || type == WhereSqlNode.class || type == SetSqlNode.class) {
+			return isShapeCacheable(((TrimSqlNode) node).getContents());
+		}
+		if (type == ForEachSqlNode.class) {
+			ForEachSqlNode forEach = (ForEachSqlNode) node;
+			return forEach.isShapeCacheable() && isShapeCacheable(forEach.getContents());
+		}
+		return false;
+	}
+
 }
@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+/**
+ * Evaluates the expressions of the dynamic sql, as the test of an {@code <if>} or {@code <when>}
+ * and the collection of a {@code <foreach>}.
+ *
+ * @since 3.5.0
+ * @see org.apache.ibatis.session.Configuration#setExpressionEngine(ExpressionEngine)
+ */
+public interface ExpressionEngine {
+
+	/**
+	 * @param expression An OGNL expression
+	 * @param root The bindings of the dynamic sql, or the object the expression is evaluated against
+	 * @return The value of the expression, as OGNL would return it
+	 */
+	Object getValue(String expression, Object root);
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.session.Configuration;
 
 /**
  * @author Clinton Begin
@@ -30,6 +31,20 @@ import org.apache.ibatis.builder.BuilderException;
  */
 public class ExpressionEvaluator {
 
+	private final Configuration configuration;
+
+	public ExpressionEvaluator() {
+		this(null);
+	}
+
+	/**
+	 * @param configuration Its expression engine evaluates the expressions, OGNL does when null
+	 * @since 3.5.0
+	 */
+	public ExpressionEvaluator(Configuration configuration) {
+		this.configuration = configuration;
+	}
+
 	/**
 	 * 计算是否 boolean
 	 * @param expression
@@ -37,7 +52,7 @@ public class ExpressionEvaluator {
 	 * @return
 	 */
 	public boolean evaluateBoolean(String expression, Object parameterObject) {
-		Object value = OgnlCache.getValue(expression, parameterObject);
+		Object value = getValue(expression, parameterObject);
 		if (value instanceof Boolean) {
 			return (Boolean) value;
 		}
@@ -54,7 +69,7 @@ public class ExpressionEvaluator {
 	 * @return
 	 */
 	public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
-		Object value = OgnlCache.getValue(expression, parameterObject);
+		Object value = getValue(expression, parameterObject);
 		if (value == null) {
 			throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
 		}
@@ -79,4 +94,11 @@ public class ExpressionEvaluator {
 		throw new BuilderException("Error evaluating expression '" + expression + "'.  Return value (" + value + ") was not iterable.");
 	}
 
+	private Object getValue(String expression, Object parameterObject) {
+		if (configuration == null) {
+			return OgnlCache.getValue(expression, parameterObject);
+		}
+		return configuration.getExpressionEngine().getValue(expression, parameterObject);
+	}
+
 }
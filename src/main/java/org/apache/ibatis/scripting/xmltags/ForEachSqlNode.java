@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,11 +15,17 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.SqlSourceBuilder;
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.parsing.TokenHandler;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.ArrayTypeHandler;
 
 /**
  * @author Clinton Begin
@@ -29,6 +35,25 @@ import org.apache.ibatis.session.Configuration;
 public class ForEachSqlNode implements SqlNode {
 	public static final String ITEM_PREFIX = "__frch_";
 
+	/**
+	 * How the items of an IN list, a foreach of a single #{item} in ( , ), are padded to the next power of two,
+	 * so that a few sql texts cover any number of items. Other lists are not padded.
+	 * @since 3.5.0
+	 */
+	public enum Padding {
+		/** The items are not padded */
+		NONE,
+		/** The last item is repeated */
+		LAST,
+		/** Null items are added, after NOT IN the last item is repeated instead */
+		NULL
+	}
+
+	/**
+	 * Oracle 的 IN 列表最多 1000 项 不补过这个数
+	 */
+	private static final int IN_LIST_LIMIT = 1000;
+
 	private final ExpressionEvaluator evaluator;
 	private final String collectionExpression;
 	private final SqlNode contents;
@@ -38,9 +63,27 @@ public class ForEachSqlNode implements SqlNode {
 	private final String item;
 	private final String index;
 	private final Configuration configuration;
+	private final Padding padding;
+	/**
+	 * 内容只是一个 #{item} 的时候 整个集合只绑定一次 每一项是集合的下标
+	 */
+	private final String itemTextBefore;
+	private final String itemContentSuffix;
+	private final String itemTextAfter;
+	private final CompiledSqlText compiledItemText;
+	private final boolean inList;
 
 	public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
-		this.evaluator = new ExpressionEvaluator();
+		this(configuration, contents, collectionExpression, index, item, open, close, separator, Padding.NONE);
+	}
+
+	/**
+	 * @param padding How the items are padded, null for none
+	 * @since 3.5.0
+	 */
+	public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator,
+			Padding padding) {
+		this.evaluator = new ExpressionEvaluator(configuration);
 		this.collectionExpression = collectionExpression;
 		this.contents = contents;
 		this.open = open;
@@ -49,15 +92,78 @@ public class ForEachSqlNode implements SqlNode {
 		this.index = index;
 		this.item = item;
 		this.configuration = configuration;
+		this.padding = padding == null ? Padding.NONE : padding;
+		String text = singleItemText(contents, item);
+		if (text != null) {
+			int start = text.indexOf("#{");
+			int end = text.indexOf('}', start);
+			String content = text.substring(start + 2, end);
+			this.itemTextBefore = text.substring(0, start);
+			this.itemContentSuffix = content.trim().substring(item.length());
+			this.itemTextAfter = text.substring(end + 1);
+			this.compiledItemText = CompiledSqlText.compile(text);
+		} else {
+			this.itemTextBefore = null;
+			this.itemContentSuffix = null;
+			this.itemTextAfter = null;
+			this.compiledItemText = null;
+		}
+		this.inList = text != null && open != null && close != null && separator != null
+				&& "(".equals(open.trim()) && ")".equals(close.trim()) && ",".equals(separator.trim());
+	}
+
+	/**
+	 * @return The text of the contents when it is a single #{} placeholder of the item itself
+	 */
+	private static String singleItemText(SqlNode contents, String item) {
+		if (item == null) {
+			return null;
+		}
+		SqlNode node = contents;
+		if (node instanceof MixedSqlNode && ((MixedSqlNode) node).getContents().size() == 1) {
+			node = ((MixedSqlNode) node).getContents().get(0);
+		}
+		if (node == null || node.getClass() != StaticTextSqlNode.class) {
+			return null;
+		}
+		String text = ((StaticTextSqlNode) node).getText();
+		int start = text.indexOf("#{");
+		int end = start < 0 ? -1 : text.indexOf('}', start);
+		if (end < 0 || text.indexOf("#{", end) >= 0 || text.contains("${")) {
+			return null;
+		}
+		try {
+			Map<String, String> propertiesMap = SqlSourceBuilder.parseParameterMapping(text.substring(start + 2, end));
+			return item.equals(propertiesMap.get("property")) ? text : null;
+		} catch (BuilderException e) {
+			return null;
+		}
 	}
 
 	@Override
 	public boolean apply(DynamicContext context) {
 		Map<String, Object> bindings = context.getBindings();
-		final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+		Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
 		if (!iterable.iterator().hasNext()) {
+			context.recordShape(0);
 			return true;
 		}
+		if (compiledItemText != null) {
+			List<?> items = asItemList(iterable);
+			if (items != null) {
+				context.recordShape(items.size());
+				applyItems(context, items);
+				return true;
+			}
+		}
+		if (padding != Padding.NONE) {
+			iterable = pad(context, toList(iterable));
+		}
+		if (context.isRecordingShape()) {
+			// 逐项绑定的 用负数 和上面只绑定一次的区分开
+			iterable = toList(iterable);
+			context.recordShape(-((List<?>) iterable).size());
+		}
 		boolean first = true;
 		applyOpen(context);
 		int i = 0;
@@ -79,7 +185,7 @@ public class ForEachSqlNode implements SqlNode {
 				applyIndex(context, i, uniqueNumber);
 				applyItem(context, o, uniqueNumber);
 			}
-			contents.apply(new FilteredDynamicContext(configuration, context, index, item, uniqueNumber));
+			contents.apply(new FilteredDynamicContext(context, index, item, uniqueNumber));
 			if (first) {
 				first = !((PrefixedContext) context).isPrefixApplied();
 			}
@@ -93,6 +199,122 @@ public class ForEachSqlNode implements SqlNode {
 		return true;
 	}
 
+	SqlNode getContents() {
+		return contents;
+	}
+
+	/**
+	 * @return false when the items may be bound as one array, or padded with nulls, which depends on the sql before
+	 *         the foreach
+	 */
+	boolean isShapeCacheable() {
+		return !inList || (!configuration.isForeachArrayDatabase() && padding != Padding.NULL);
+	}
+
+	/**
+	 * @return The items, null when they are map entries whose value is the item
+	 */
+	private static List<?> asItemList(Iterable<?> iterable) {
+		List<?> items = toList(iterable);
+		for (Object o : items) {
+			if (o instanceof Map.Entry) {
+				return null;
+			}
+		}
+		return items;
+	}
+
+	private static List<?> toList(Iterable<?> iterable) {
+		if (iterable instanceof List) {
+			return (List<?>) iterable;
+		}
+		List<Object> list = new ArrayList<Object>();
+		for (Object o : iterable) {
+			list.add(o);
+		}
+		return list;
+	}
+
+	/**
+	 * @return The items of an IN list padded to the next power of two, or to the IN list limit when they fit in it.
+	 *         A NOT IN list is padded with its last item, a null would make it match no row.
+	 */
+	private List<?> pad(DynamicContext context, List<?> items) {
+		if (!inList) {
+			// 不是 IN (...) 补出来的项会改变语义
+			return items;
+		}
+		int size = items.size();
+		int padded = Integer.highestOneBit(size);
+		if (padded < size) {
+			padded <<= 1;
+		}
+		if (size <= IN_LIST_LIMIT && padded > IN_LIST_LIMIT) {
+			padded = IN_LIST_LIMIT;
+		}
+		if (padded <= size) {
+			return items;
+		}
+		List<Object> paddedItems = new ArrayList<Object>(padded);
+		paddedItems.addAll(items);
+		Object last = padding == Padding.LAST || context.endsWithKeywords("NOT", "IN") ? items.get(size - 1) : null;
+		for (int i = size; i < padded; i++) {
+			paddedItems.add(last);
+		}
+		return paddedItems;
+	}
+
+	/**
+	 * Binds the items once, as a list each #{} refers to by position, instead of binding every item and index.
+	 */
+	private void applyItems(DynamicContext context, List<?> items) {
+		String name = itemizeItem(item, context.getUniqueNumber());
+		context.bind(name, items);
+		if (!applyArray(context, name, items)) {
+			if (padding != Padding.NONE) {
+				items = pad(context, items);
+				context.bind(name, items);
+			}
+			if (!context.isRecordingShape()) {
+				applyList(context, name, items.size());
+			}
+		}
+		context.getBindings().remove(item);
+		context.getBindings().remove(index);
+	}
+
+	/**
+	 * Appends the #{} of each item of the list bound with the name.
+	 */
+	private void applyList(DynamicContext context, String name, int size) {
+		applyOpen(context);
+		ParameterSlot itemSlot = context.isCompiled() ? compiledItemText.getSlots().get(0) : null;
+		for (int i = 0; i < size; i++) {
+			context.appendSql(i == 0 || separator == null ? "" : separator);
+			String element = new StringBuilder(name).append('[').append(i).append(']').toString();
+			if (itemSlot != null) {
+				context.appendCompiled(compiledItemText.getSql(), Collections.singletonList(itemSlot.rename(item, element)));
+			} else {
+				context.appendSql(new StringBuilder(itemTextBefore).append("#{").append(element).append(itemContentSuffix)
+						.append('}').append(itemTextAfter).toString());
+			}
+		}
+		applyClose(context);
+	}
+
+	/**
+	 * Replaces {@code IN (?, ?, ...)} by {@code = ANY(?)} with one array parameter, when the database supports it.
+	 */
+	private boolean applyArray(DynamicContext context, String name, List<?> items) {
+		if (!inList || !configuration.isForeachArrayDatabase() || ArrayTypeHandler.resolveTypeName(items) == null
+				|| !context.removeTrailingKeyword("IN")) {
+			return false;
+		}
+		String operator = context.removeTrailingKeyword("NOT") ? "<> ALL(" : "= ANY(";
+		context.appendSql(operator + "#{" + name + ",typeHandler=" + ArrayTypeHandler.class.getName() + "})");
+		return true;
+	}
+
 	private void applyIndex(DynamicContext context, Object o, int i) {
 		if (index != null) {
 			context.bind(index, o);
@@ -129,8 +351,8 @@ public class ForEachSqlNode implements SqlNode {
 		private final String itemIndex;
 		private final String item;
 
-		public FilteredDynamicContext(Configuration configuration, DynamicContext delegate, String itemIndex, String item, int i) {
-			super(configuration, null);
+		public FilteredDynamicContext(DynamicContext delegate, String itemIndex, String item, int i) {
+			super(delegate);
 			this.delegate = delegate;
 			this.index = i;
 			this.itemIndex = itemIndex;
@@ -154,6 +376,9 @@ public class ForEachSqlNode implements SqlNode {
 
 		@Override
 		public void appendSql(String sql) {
+			if (isRecordingShape()) {
+				return;
+			}
 			GenericTokenParser parser = new GenericTokenParser("#{", "}", new TokenHandler() {
 				@Override
 				public String handleToken(String content) {
@@ -168,6 +393,34 @@ public class ForEachSqlNode implements SqlNode {
 			delegate.appendSql(parser.parse(sql));
 		}
 
+		@Override
+		boolean isCompiled() {
+			return delegate.isCompiled();
+		}
+
+		@Override
+		boolean removeTrailingKeyword(String keyword) {
+			return delegate.removeTrailingKeyword(keyword);
+		}
+
+		@Override
+		boolean endsWithKeywords(String... keywords) {
+			return delegate.endsWithKeywords(keywords);
+		}
+
+		@Override
+		void appendCompiled(String sql, List<ParameterSlot> slots) {
+			List<ParameterSlot> renamed = new ArrayList<ParameterSlot>(slots.size());
+			for (ParameterSlot slot : slots) {
+				ParameterSlot newSlot = slot.rename(item, itemizeItem(item, index));
+				if (itemIndex != null && newSlot == slot) {
+					newSlot = slot.rename(itemIndex, itemizeItem(itemIndex, index));
+				}
+				renamed.add(newSlot);
+			}
+			delegate.appendCompiled(sql, renamed);
+		}
+
 		@Override
 		public int getUniqueNumber() {
 			return delegate.getUniqueNumber();
@@ -184,7 +437,7 @@ public class ForEachSqlNode implements SqlNode {
 		private boolean prefixApplied;
 
 		public PrefixedContext(DynamicContext delegate, String prefix) {
-			super(configuration, null);
+			super(delegate);
 			this.delegate = delegate;
 			this.prefix = prefix;
 			this.prefixApplied = false;
@@ -213,6 +466,30 @@ public class ForEachSqlNode implements SqlNode {
 			delegate.appendSql(sql);
 		}
 
+		@Override
+		boolean isCompiled() {
+			return delegate.isCompiled();
+		}
+
+		@Override
+		boolean removeTrailingKeyword(String keyword) {
+			return prefixApplied && delegate.removeTrailingKeyword(keyword);
+		}
+
+		@Override
+		boolean endsWithKeywords(String... keywords) {
+			return prefixApplied && delegate.endsWithKeywords(keywords);
+		}
+
+		@Override
+		void appendCompiled(String sql, List<ParameterSlot> slots) {
+			if (!prefixApplied && sql.trim().length() > 0) {
+				delegate.appendSql(prefix);
+				prefixApplied = true;
+			}
+			delegate.appendCompiled(sql, slots);
+		}
+
 		@Override
 		public String getSql() {
 			return delegate.getSql();
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import org.apache.ibatis.session.Configuration;
+
 /**
  * @author Clinton Begin
  * 就一个ognl 表达式是否成功就好
@@ -25,18 +27,31 @@ public class IfSqlNode implements SqlNode {
 	private final SqlNode contents;
 
 	public IfSqlNode(SqlNode contents, String test) {
+		this(null, contents, test);
+	}
+
+	/**
+	 * @param configuration Its expression engine evaluates the test
+	 * @since 3.5.0
+	 */
+	public IfSqlNode(Configuration configuration, SqlNode contents, String test) {
 		this.test = test;
 		this.contents = contents;
-		this.evaluator = new ExpressionEvaluator();
+		this.evaluator = new ExpressionEvaluator(configuration);
 	}
 
 	@Override
 	public boolean apply(DynamicContext context) {
-		if (evaluator.evaluateBoolean(test, context.getBindings())) {
+		boolean matched = evaluator.evaluateBoolean(test, context.getBindings());
+		context.recordShape(matched ? 1 : 0);
+		if (matched) {
 			contents.apply(context);
-			return true;
 		}
-		return false;
+		return matched;
+	}
+
+	SqlNode getContents() {
+		return contents;
 	}
 
 }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,14 +15,6 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
-import ognl.Ognl;
-import ognl.OgnlException;
-
-import org.apache.ibatis.builder.BuilderException;
-
 /**
  * Caches OGNL parsed expressions.
  *
@@ -30,35 +22,32 @@ import org.apache.ibatis.builder.BuilderException;
  *
  * @see <a href='http://code.google.com/p/mybatis/issues/detail?id=342'>Issue 342</a>
  *
- * 一个OgnlCache 封装一个ConcurrentHashMap
+ * 一个OgnlCache 封装一个有上限的 OgnlExpressionCache
  * 然后这里面 存放的是expression 和对应的解析后的值
  * OGNL 解析一次就本地缓存起来
  * 当然你的表达式就 OGNL表达式啦   类比el表达式了 ，就是一些规定的语法啦
  */
 public final class OgnlCache {
 
-	private static final Map<String, Object> expressionCache = new ConcurrentHashMap<String, Object>();
+	/**
+	 * 没有 Configuration 的时候用的 比如 ExpressionEvaluator 的无参构造
+	 */
+	private static final OgnlExpressionCache expressionCache = new OgnlExpressionCache();
 
 	private OgnlCache() {
 		// Prevent Instantiation of Static Class
 	}
 
 	public static Object getValue(String expression, Object root) {
-		try {
-			Map<Object, OgnlClassResolver> context = Ognl.createDefaultContext(root, new OgnlClassResolver());
-			return Ognl.getValue(parseExpression(expression), context, root);
-		} catch (OgnlException e) {
-			throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e, e);
-		}
+		return expressionCache.getValue(expression, root);
 	}
 
-	private static Object parseExpression(String expression) throws OgnlException {
-		Object node = expressionCache.get(expression);
-		if (node == null) {
-			node = Ognl.parseExpression(expression);
-			expressionCache.put(expression, node);
-		}
-		return node;
+	/**
+	 * @return The cache shared by the callers without a Configuration
+	 * @since 3.5.0
+	 */
+	public static OgnlExpressionCache getExpressionCache() {
+		return expressionCache;
 	}
 
 }
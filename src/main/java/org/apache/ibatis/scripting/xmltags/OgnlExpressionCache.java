@@ -0,0 +1,185 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ognl.Ognl;
+import ognl.OgnlException;
+
+import org.apache.ibatis.builder.BuilderException;
+
+/**
+ * A size bounded cache of the parsed OGNL expressions, with its statistics.
+ *
+ * Expressions are evicted in the order they were parsed, except those used since the last eviction pass, which get
+ * a second chance. Reads take no lock.
+ *
+ * @since 3.5.0
+ */
+public class OgnlExpressionCache {
+
+	public static final int DEFAULT_MAX_SIZE = 4096;
+
+	private final ConcurrentMap<String, Entry> expressions = new ConcurrentHashMap<String, Entry>();
+	private final Queue<String> evictionQueue = new ConcurrentLinkedQueue<String>();
+	private volatile int maxSize;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong parseTime = new AtomicLong();
+
+	public OgnlExpressionCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	public OgnlExpressionCache(int maxSize) {
+		setMaxSize(maxSize);
+	}
+
+	public Object getValue(String expression, Object root) {
+		try {
+			Map<Object, OgnlClassResolver> context = Ognl.createDefaultContext(root, new OgnlClassResolver());
+			return Ognl.getValue(parseExpression(expression), context, root);
+		} catch (OgnlException e) {
+			throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e, e);
+		}
+	}
+
+	/**
+	 * @return The parsed expression, parsed now if it is not cached
+	 */
+	public Object parseExpression(String expression) throws OgnlException {
+		Entry entry = expressions.get(expression);
+		if (entry != null) {
+			entry.referenced = true;
+			hitCount.incrementAndGet();
+			return entry.node;
+		}
+		missCount.incrementAndGet();
+		long start = System.nanoTime();
+		Object node = Ognl.parseExpression(expression);
+		parseTime.addAndGet(System.nanoTime() - start);
+		if (expressions.putIfAbsent(expression, new Entry(node)) == null) {
+			evictionQueue.offer(expression);
+			evict();
+		}
+		return node;
+	}
+
+	private void evict() {
+		// 每个表达式最多两轮: 第一轮清掉 referenced
+		int attempts = 2 * expressions.size() + 2;
+		while (expressions.size() > maxSize && attempts-- > 0) {
+			String expression = evictionQueue.poll();
+			if (expression == null) {
+				return;
+			}
+			Entry entry = expressions.get(expression);
+			if (entry == null) {
+				continue;
+			}
+			if (entry.referenced) {
+				entry.referenced = false;
+				evictionQueue.offer(expression);
+			} else if (expressions.remove(expression, entry)) {
+				evictionCount.incrementAndGet();
+			}
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @param maxSize The number of parsed expressions kept, 0 to parse every expression on every call
+	 */
+	public void setMaxSize(int maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("The max size of the OGNL expression cache cannot be negative: " + maxSize);
+		}
+		this.maxSize = maxSize;
+		evict();
+	}
+
+	public int getSize() {
+		return expressions.size();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return The share of the lookups that found a parsed expression, 0 before the first lookup
+	 */
+	public double getHitRatio() {
+		long hits = hitCount.get();
+		long requests = hits + missCount.get();
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * @return The time spent parsing expressions, in nanoseconds
+	 */
+	public long getTotalParseTime() {
+		return parseTime.get();
+	}
+
+	/**
+	 * @return The average time of a parse, in nanoseconds
+	 */
+	public long getAverageParseTime() {
+		long misses = missCount.get();
+		return misses == 0 ? 0 : parseTime.get() / misses;
+	}
+
+	public void clear() {
+		expressions.clear();
+		evictionQueue.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "OgnlExpressionCache[size=" + getSize() + ", maxSize=" + maxSize + ", hitRatio=" + getHitRatio()
+				+ ", evictions=" + getEvictionCount() + ", averageParseTime=" + getAverageParseTime() + "ns]";
+	}
+
+	private static final class Entry {
+		private final Object node;
+		private volatile boolean referenced;
+
+		Entry(Object node) {
+			this.node = node;
+		}
+	}
+
+}
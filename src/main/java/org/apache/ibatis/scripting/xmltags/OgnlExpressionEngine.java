@@ -0,0 +1,43 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+/**
+ * Evaluates every expression with OGNL.
+ *
+ * @since 3.5.0
+ */
+public class OgnlExpressionEngine implements ExpressionEngine {
+
+	private final OgnlExpressionCache expressionCache;
+
+	public OgnlExpressionEngine() {
+		this(OgnlCache.getExpressionCache());
+	}
+
+	/**
+	 * @param expressionCache The parsed expressions, usually the ones of the Configuration
+	 */
+	public OgnlExpressionEngine(OgnlExpressionCache expressionCache) {
+		this.expressionCache = expressionCache;
+	}
+
+	@Override
+	public Object getValue(String expression, Object root) {
+		return expressionCache.getValue(expression, root);
+	}
+
+}
@@ -0,0 +1,71 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+
+/**
+ * A #{} placeholder of a compiled dynamic sql, parsed once.
+ *
+ * Its mapping is resolved once per parameter type, unless its property is an additional parameter whose type
+ * depends on the call, as the items of a foreach.
+ */
+final class ParameterSlot {
+
+	private final String content;
+	private final Map<String, String> propertiesMap;
+	private final String property;
+	private final ConcurrentMap<Class<?>, ParameterMapping> mappings = new ConcurrentHashMap<Class<?>, ParameterMapping>();
+
+	ParameterSlot(String content, Map<String, String> propertiesMap) {
+		this.content = content;
+		this.propertiesMap = propertiesMap;
+		this.property = propertiesMap.get("property");
+	}
+
+	/**
+	 * @return The slot with its property renamed, as the content of a foreach does with its item and index
+	 */
+	ParameterSlot rename(String name, String newName) {
+		if (name == null || property == null || !(property.equals(name) || property.startsWith(name + "."))) {
+			return this;
+		}
+		Map<String, String> renamed = new HashMap<String, String>(propertiesMap);
+		String newProperty = newName + property.substring(name.length());
+		renamed.put("property", newProperty);
+		return new ParameterSlot(newName + content.trim().substring(name.length()), renamed);
+	}
+
+	ParameterMapping getParameterMapping(SqlSourceBuilder builder, Class<?> parameterType, MetaObject metaParameters) {
+		if (property != null && metaParameters.hasGetter(property)) {
+			return builder.buildParameterMapping(content, propertiesMap, parameterType, metaParameters);
+		}
+		ParameterMapping mapping = mappings.get(parameterType);
+		if (mapping == null) {
+			mapping = builder.buildParameterMapping(content, propertiesMap, parameterType, metaParameters);
+			mappings.put(parameterType, mapping);
+		}
+		return mapping;
+	}
+
+}
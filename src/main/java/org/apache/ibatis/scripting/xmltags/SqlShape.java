@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.Arrays;
+
+/**
+ * The outcomes of the dynamic nodes of a statement, in the order they are applied: whether each if matched and the
+ * size of each foreach. Two calls with the same outcomes build the same sql, whatever the parameter values.
+ */
+final class SqlShape {
+
+	private int[] outcomes = new int[16];
+	private int size;
+	private int hash;
+
+	void record(int outcome) {
+		if (size == outcomes.length) {
+			outcomes = Arrays.copyOf(outcomes, size << 1);
+		}
+		outcomes[size++] = outcome;
+		hash = 31 * hash + outcome;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof SqlShape)) {
+			return false;
+		}
+		SqlShape other = (SqlShape) o;
+		if (size != other.size || hash != other.hash) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (outcomes[i] != other.outcomes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(Arrays.copyOf(outcomes, size));
+	}
+
+}
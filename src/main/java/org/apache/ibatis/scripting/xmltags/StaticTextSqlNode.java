@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ package org.apache.ibatis.scripting.xmltags;
  */
 public class StaticTextSqlNode implements SqlNode {
 	private final String text;
+	private volatile CompiledSqlText compiledText;
 
 	public StaticTextSqlNode(String text) {
 		this.text = text;
@@ -28,9 +29,22 @@ public class StaticTextSqlNode implements SqlNode {
 
 	@Override
 	public boolean apply(DynamicContext context) {
+		if (context.isCompiled()) {
+			CompiledSqlText compiled = compiledText;
+			if (compiled == null) {
+				compiled = CompiledSqlText.compile(text);
+				compiledText = compiled;
+			}
+			context.appendCompiled(compiled.getSql(), compiled.getSlots());
+			return true;
+		}
 		// 主要就是SqlBuilder appendSql
 		context.appendSql(text);
 		return true;
 	}
 
+	String getText() {
+		return text;
+	}
+
 }
\ No newline at end of file
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -75,7 +75,7 @@ public class TextSqlNode implements SqlNode {
 			} else if (SimpleTypeRegistry.isSimpleType(parameter.getClass())) {
 				context.getBindings().put("value", parameter);
 			}
-			Object value = OgnlCache.getValue(content, context.getBindings());
+			Object value = context.getOgnlValue(content);
 			String srtValue = (value == null ? "" : String.valueOf(value)); // issue #274 return "" instead of "null"
 			checkInjection(srtValue);
 			return srtValue;
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -34,6 +35,10 @@ public class TrimSqlNode implements SqlNode {
 
 	// 一个SqlNode 四个属性 一个配置想
 
+	// 每个线程复用的 trim 缓冲, 嵌套的 trim 各取一个, 太大的不留
+	private static final ThreadLocal<ArrayDeque<StringBuilder>> SCRATCH_BUFFERS = new ThreadLocal<ArrayDeque<StringBuilder>>();
+	private static final int SCRATCH_BUFFER_MAX_CAPACITY = 8192;
+
 	private final SqlNode contents;
 	private final String prefix;
 	private final String suffix;
@@ -58,12 +63,39 @@ public class TrimSqlNode implements SqlNode {
 	@Override
 	public boolean apply(DynamicContext context) {
 		// 主要这个方法了
+		if (context.isRecordingShape()) {
+			// 没有 sql 可以 trim
+			return contents.apply(context);
+		}
 		FilteredDynamicContext filteredDynamicContext = new FilteredDynamicContext(context);
 		boolean result = contents.apply(filteredDynamicContext);
 		filteredDynamicContext.applyAll();
 		return result;
 	}
 
+	SqlNode getContents() {
+		return contents;
+	}
+
+	private static StringBuilder acquireScratchBuffer() {
+		ArrayDeque<StringBuilder> buffers = SCRATCH_BUFFERS.get();
+		StringBuilder buffer = buffers == null ? null : buffers.poll();
+		return buffer == null ? new StringBuilder(256) : buffer;
+	}
+
+	private static void releaseScratchBuffer(StringBuilder buffer) {
+		if (buffer.capacity() > SCRATCH_BUFFER_MAX_CAPACITY) {
+			return;
+		}
+		ArrayDeque<StringBuilder> buffers = SCRATCH_BUFFERS.get();
+		if (buffers == null) {
+			buffers = new ArrayDeque<StringBuilder>();
+			SCRATCH_BUFFERS.set(buffers);
+		}
+		buffer.setLength(0);
+		buffers.push(buffer);
+	}
+
 	/**
 	 * 解析Overrides
 	 * @param overrides
@@ -92,24 +124,33 @@ public class TrimSqlNode implements SqlNode {
 		private boolean prefixApplied;
 		private boolean suffixApplied;
 		private StringBuilder sqlBuffer;
+		private List<ParameterSlot> slotBuffer;
 
 		public FilteredDynamicContext(DynamicContext delegate) {
-			super(configuration, null);
+			super(delegate);
 			this.delegate = delegate;
 			this.prefixApplied = false;
 			this.suffixApplied = false;
-			this.sqlBuffer = new StringBuilder();
+			this.sqlBuffer = acquireScratchBuffer();
+			this.slotBuffer = delegate.isCompiled() ? new ArrayList<ParameterSlot>() : null;
 		}
 
 		public void applyAll() {
-			// 全部应用
-			sqlBuffer = new StringBuilder(sqlBuffer.toString().trim());
-			String trimmedUppercaseSql = sqlBuffer.toString().toUpperCase(Locale.ENGLISH);
-			if (trimmedUppercaseSql.length() > 0) {
-				applyPrefix(sqlBuffer, trimmedUppercaseSql);
-				applySuffix(sqlBuffer, trimmedUppercaseSql);
+			// 全部应用, 在缓冲上原地 trim, 前后缀都在修改之前匹配
+			trim(sqlBuffer);
+			if (sqlBuffer.length() > 0) {
+				int suffixLength = overriddenSuffixLength(sqlBuffer);
+				applyPrefix(sqlBuffer);
+				applySuffix(sqlBuffer, suffixLength);
+			}
+			String sql = sqlBuffer.toString();
+			releaseScratchBuffer(sqlBuffer);
+			sqlBuffer = null;
+			if (slotBuffer != null) {
+				delegate.appendCompiled(sql, slotBuffer);
+			} else {
+				delegate.appendSql(sql);
 			}
-			delegate.appendSql(sqlBuffer.toString());
 		}
 
 		@Override
@@ -129,9 +170,35 @@ public class TrimSqlNode implements SqlNode {
 
 		@Override
 		public void appendSql(String sql) {
+			if (slotBuffer != null && sql != null && sql.contains("#{")) {
+				CompiledSqlText compiledSql = CompiledSqlText.compile(sql);
+				appendCompiled(compiledSql.getSql(), compiledSql.getSlots());
+				return;
+			}
 			sqlBuffer.append(sql);
 		}
 
+		@Override
+		boolean isCompiled() {
+			return slotBuffer != null;
+		}
+
+		@Override
+		boolean removeTrailingKeyword(String keyword) {
+			return removeTrailingKeyword(sqlBuffer, keyword);
+		}
+
+		@Override
+		boolean endsWithKeywords(String... keywords) {
+			return endsWithKeywords(sqlBuffer, keywords);
+		}
+
+		@Override
+		void appendCompiled(String sql, List<ParameterSlot> slots) {
+			sqlBuffer.append(sql);
+			slotBuffer.addAll(slots);
+		}
+
 		@Override
 		public String getSql() {
 			return delegate.getSql();
@@ -140,15 +207,15 @@ public class TrimSqlNode implements SqlNode {
 		/**
 		 * 应用前缀
 		 * @param sql
-		 * @param trimmedUppercaseSql
 		 */
-		private void applyPrefix(StringBuilder sql, String trimmedUppercaseSql) {
+		private void applyPrefix(StringBuilder sql) {
 			if (!prefixApplied) {
 				prefixApplied = true;
 				if (prefixesToOverride != null) {
 					for (String toRemove : prefixesToOverride) {
-						if (trimmedUppercaseSql.startsWith(toRemove)) {
-							sql.delete(0, toRemove.trim().length());
+						if (regionMatches(sql, 0, toRemove, 0, toRemove.length())) {
+							int start = trimmedStart(toRemove);
+							sql.delete(0, trimmedEnd(toRemove, start) - start);
 							break;
 						}
 					}
@@ -160,23 +227,34 @@ public class TrimSqlNode implements SqlNode {
 			}
 		}
 
+		/**
+		 * @return The length of the suffix to override the trimmed sql ends with, -1 if none
+		 */
+		private int overriddenSuffixLength(StringBuilder sql) {
+			if (suffixApplied || suffixesToOverride == null) {
+				return -1;
+			}
+			for (String toRemove : suffixesToOverride) {
+				// 去掉空白后匹配, 等同于 endsWith(toRemove) || endsWith(toRemove.trim())
+				int start = trimmedStart(toRemove);
+				int length = trimmedEnd(toRemove, start) - start;
+				if (regionMatches(sql, sql.length() - length, toRemove, start, length)) {
+					return length;
+				}
+			}
+			return -1;
+		}
+
 		/**
 		 * 应用 后缀
 		 * @param sql
-		 * @param trimmedUppercaseSql
+		 * @param suffixLength
 		 */
-		private void applySuffix(StringBuilder sql, String trimmedUppercaseSql) {
+		private void applySuffix(StringBuilder sql, int suffixLength) {
 			if (!suffixApplied) {
 				suffixApplied = true;
-				if (suffixesToOverride != null) {
-					for (String toRemove : suffixesToOverride) {
-						if (trimmedUppercaseSql.endsWith(toRemove) || trimmedUppercaseSql.endsWith(toRemove.trim())) {
-							int start = sql.length() - toRemove.trim().length();
-							int end = sql.length();
-							sql.delete(start, end);
-							break;
-						}
-					}
+				if (suffixLength >= 0) {
+					sql.delete(sql.length() - suffixLength, sql.length());
 				}
 				if (suffix != null) {
 					sql.append(" ");
@@ -187,4 +265,53 @@ public class TrimSqlNode implements SqlNode {
 
 	}
 
+	/**
+	 * Trims the whitespaces of the buffer as {@link String#trim()} does, without copying it.
+	 */
+	private static void trim(StringBuilder sql) {
+		int end = sql.length();
+		while (end > 0 && sql.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		sql.setLength(end);
+		int start = 0;
+		while (start < end && sql.charAt(start) <= ' ') {
+			start++;
+		}
+		sql.delete(0, start);
+	}
+
+	private static int trimmedStart(String value) {
+		int start = 0;
+		while (start < value.length() && value.charAt(start) <= ' ') {
+			start++;
+		}
+		return start;
+	}
+
+	private static int trimmedEnd(String value, int start) {
+		int end = value.length();
+		while (end > start && value.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		return end;
+	}
+
+	/**
+	 * Compares a region of the sql with a region of an upper case override, ignoring the case of the sql.
+	 */
+	private static boolean regionMatches(StringBuilder sql, int offset, String upperCase, int start, int length) {
+		if (offset < 0 || length < 0 || offset + length > sql.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			char c = sql.charAt(offset + i);
+			char u = upperCase.charAt(start + i);
+			if (c != u && Character.toUpperCase(c) != u) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -32,7 +32,7 @@ public class VarDeclSqlNode implements SqlNode {
 
 	@Override
 	public boolean apply(DynamicContext context) {
-		final Object value = OgnlCache.getValue(expression, context.getBindings());
+		final Object value = context.getOgnlValue(expression);
 		// 直接表达式解析玩 然后 bindjiuok
 		context.bind(name, value);
 		return true;
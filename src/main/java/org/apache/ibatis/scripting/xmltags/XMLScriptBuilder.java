@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -244,8 +244,9 @@ public class XMLScriptBuilder extends BaseBuilder {
 			String open = nodeToHandle.getStringAttribute("open");
 			String close = nodeToHandle.getStringAttribute("close");
 			String separator = nodeToHandle.getStringAttribute("separator");
+			ForEachSqlNode.Padding padding = ForEachSqlNode.Padding.valueOf(nodeToHandle.getStringAttribute("padding", ForEachSqlNode.Padding.NONE.toString()));
 			// foreach 的内容就多了,去解析操作吧
-			ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator);
+			ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator, padding);
 			targetContents.add(forEachSqlNode);
 		}
 	}
@@ -263,7 +264,7 @@ public class XMLScriptBuilder extends BaseBuilder {
 			MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
 			String test = nodeToHandle.getStringAttribute("test");
 			// 直接表达式是否成功吧
-			IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test);
+			IfSqlNode ifSqlNode = new IfSqlNode(configuration, mixedSqlNode, test);
 			targetContents.add(ifSqlNode);
 		}
 	}
@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.ResultPublisher;
+import org.apache.ibatis.lang.UsesJava8;
+
+/**
+ * Executes statements without blocking the calling thread.
+ *
+ * Every call runs in its own {@link SqlSession}, committed when the statement succeeds and rolled back otherwise,
+ * on the threads of {@link Configuration#getAsyncExecutor()}. There are as many of them as connections in the
+ * pool, so a call waits in the queue rather than on a thread holding out for a connection.
+ *
+ * Unlike a {@link SqlSession} it is thread safe and there is nothing to close.
+ *
+ * @since 3.5.0
+ */
+@UsesJava8
+public interface AsyncSqlSession {
+
+	/**
+	 * @see SqlSession#selectOne(String)
+	 */
+	<T> CompletionStage<T> selectOne(String statement);
+
+	/**
+	 * @see SqlSession#selectOne(String, Object)
+	 */
+	<T> CompletionStage<T> selectOne(String statement, Object parameter);
+
+	/**
+	 * @see SqlSession#selectList(String)
+	 */
+	<E> CompletionStage<List<E>> selectList(String statement);
+
+	/**
+	 * @see SqlSession#selectList(String, Object)
+	 */
+	<E> CompletionStage<List<E>> selectList(String statement, Object parameter);
+
+	/**
+	 * @see SqlSession#selectList(String, Object, RowBounds)
+	 */
+	<E> CompletionStage<List<E>> selectList(String statement, Object parameter, RowBounds rowBounds);
+
+	/**
+	 * Runs the query and fetches the rows on the asynchronous threads, as the subscriber requests them.
+	 * The session of the query is closed when all the rows are sent or when the subscription is cancelled.
+	 * @see SqlSession#selectPublisher(String, Object)
+	 */
+	<T> ResultPublisher<T> selectPublisher(String statement, Object parameter);
+
+	/**
+	 * Runs the select once per partition, concurrently, each in its own session. The rows of the partitions are mapped
+	 * in parallel and passed to the handler, which must be thread safe. When a partition fails the others stop
+	 * handling rows, and the stage completes exceptionally once they all ended.
+	 * @param partitions The parameter of each partition, see {@link Partitions}
+	 * @param handler Thread safe handler of the rows of every partition
+	 */
+	CompletionStage<Void> selectPartitioned(String statement, List<?> partitions, ResultHandler<?> handler);
+
+	/**
+	 * Runs the select once per partition, concurrently, each in its own session, and returns their rows in the order
+	 * of the partitions: all the rows of the first one, then of the second one and so on. The partitions read ahead
+	 * keep a bounded buffer of rows. Closing the cursor stops the partitions and closes their sessions.
+	 * @param partitions The parameter of each partition, see {@link Partitions}
+	 */
+	<T> Cursor<T> selectPartitionedCursor(String statement, List<?> partitions);
+
+	/**
+	 * @see SqlSession#insert(String)
+	 */
+	CompletionStage<Integer> insert(String statement);
+
+	/**
+	 * @see SqlSession#insert(String, Object)
+	 */
+	CompletionStage<Integer> insert(String statement, Object parameter);
+
+	/**
+	 * @see SqlSession#update(String)
+	 */
+	CompletionStage<Integer> update(String statement);
+
+	/**
+	 * @see SqlSession#update(String, Object)
+	 */
+	CompletionStage<Integer> update(String statement, Object parameter);
+
+	/**
+	 * @see SqlSession#delete(String)
+	 */
+	CompletionStage<Integer> delete(String statement);
+
+	/**
+	 * @see SqlSession#delete(String, Object)
+	 */
+	CompletionStage<Integer> delete(String statement, Object parameter);
+
+	/**
+	 * Mapper methods returning a {@link java.util.concurrent.CompletableFuture} or a {@link CompletionStage}
+	 * run asynchronously, the others block like the methods of a mapper of a {@link SqlSession}.
+	 * Each call runs in its own session.
+	 * @param type Mapper interface class
+	 * @return a thread safe mapper bound to this session
+	 */
+	<T> T getMapper(Class<T> type);
+
+	Configuration getConfiguration();
+
+}
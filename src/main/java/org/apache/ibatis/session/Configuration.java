@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.session;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -24,6 +25,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
@@ -35,11 +43,21 @@ import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.UdpInvalidationTransport;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.BinaryCacheSerializer;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResultListener;
+import org.apache.ibatis.executor.CacheDependencyTracker;
+import org.apache.ibatis.executor.CacheLoadCoalescer;
+import org.apache.ibatis.executor.CacheRefresher;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ReuseExecutor;
@@ -51,8 +69,10 @@ import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.statement.AdaptiveFetchSize;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.statement.StatementWatchdog;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -82,6 +102,10 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.CompiledExpressionEngine;
+import org.apache.ibatis.scripting.xmltags.ExpressionEngine;
+import org.apache.ibatis.scripting.xmltags.OgnlExpressionCache;
+import org.apache.ibatis.scripting.xmltags.OgnlExpressionEngine;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
@@ -149,6 +173,66 @@ public class Configuration {
 	 */
 	private boolean cacheEnabled = true;
 
+	/**
+	 * 二级缓存并发未命中时 是否合并成一次查询
+	 */
+	private boolean cacheLoadCoalescing;
+
+	/**
+	 * 等待合并查询的超时时间 毫秒
+	 */
+	private Integer cacheLoadCoalescingTimeout = 30000;
+
+	/**
+	 * 写操作只失效依赖被修改的表的缓存entry 而不是清空整个namespace
+	 */
+	private boolean cacheInvalidationByTable;
+
+	/**
+	 * 通知其他节点二级缓存失效 可以为null
+	 */
+	private CacheInvalidationBus cacheInvalidationBus;
+
+	/**
+	 * 批处理时 交替执行的insert语句 是否按语句分组批处理
+	 */
+	private boolean batchGrouping;
+
+	/**
+	 * 分组批处理时 insert语句的依赖顺序 语句id 被依赖的在前 只有排在后面的语句的批次可以被跳过
+	 */
+	private List<String> batchGroupingOrder = new ArrayList<String>();
+
+	/**
+	 * 批处理 达到这么多行 或者估算的参数字节数 自动执行 null不限制
+	 */
+	private Integer batchSize;
+	private Integer batchMaxBytes;
+	/**
+	 * 批处理的insert 最多这么多行合并成一条 INSERT ... VALUES (...), (...) null或者小于2不合并
+	 * 可以按 databaseId 设置
+	 */
+	private Integer multiRowInsertLimit;
+	private final Map<String, Integer> databaseMultiRowInsertLimits = new HashMap<String, Integer>();
+	/**
+	 * 每次批处理执行后的回调 可以为null
+	 */
+	private BatchResultListener batchResultListener;
+
+	/**
+	 * AsyncSqlSession 的线程数 null的话和连接池的最大连接数一样
+	 */
+	private Integer asyncPoolSize;
+	/**
+	 * 每次调用一个虚拟线程 需要 JDK 21
+	 */
+	private boolean asyncVirtualThreads;
+	private java.util.concurrent.Executor asyncExecutor;
+	/**
+	 * Pipeline 的 select 合并成一个多语句的查询 需要驱动支持
+	 */
+	private boolean multiStatementPipelineEnabled;
+
 	/**
 	 * null处理
 	 */
@@ -188,6 +272,26 @@ public class Configuration {
 	 * fetchSize  拉取数量
 	 */
 	private Integer defaultFetchSize;
+	/**
+	 * 根据之前返回的行数来选择 fetchSize
+	 */
+	private boolean adaptiveFetchSizeEnabled;
+	/**
+	 * 动态Sql 的 #{} 只解析一次
+	 */
+	private boolean compiledDynamicSqlEnabled;
+	/**
+	 * 动态Sql 的表达式引擎 默认 OGNL
+	 */
+	private ExpressionEngine expressionEngine;
+	/**
+	 * 这些数据库上 foreach 的 IN 列表 绑定成一个数组参数 = ANY(?)
+	 */
+	private Set<String> foreachArrayDatabaseIds = new HashSet<String>();
+	/**
+	 * 每个动态Sql 按分支结果缓存的 sql 个数 0 就是不缓存
+	 */
+	private int sqlShapeCacheSize;
 
 	/**
 	 * 执行
@@ -227,6 +331,12 @@ public class Configuration {
 	// 注册一对东西
 
 	private final MapperRegistry mapperRegistry = new MapperRegistry(this);
+	private final CacheLoadCoalescer cacheLoadCoalescer = new CacheLoadCoalescer();
+	private final AdaptiveFetchSize adaptiveFetchSize = new AdaptiveFetchSize();
+	private final StatementWatchdog statementWatchdog = new StatementWatchdog();
+	private final OgnlExpressionCache ognlExpressionCache = new OgnlExpressionCache();
+	private final CacheRefresher cacheRefresher = new CacheRefresher(this);
+	private final CacheDependencyTracker cacheDependencyTracker = new CacheDependencyTracker();
 	private final InterceptorChain interceptorChain = new InterceptorChain();
 	private final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry();
 	private final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
@@ -236,6 +346,10 @@ public class Configuration {
 
 	private final Map<String, MappedStatement> mappedStatements = new StrictMap<MappedStatement>("Mapped Statements collection");
 	private final Map<String, Cache> caches = new StrictMap<Cache>("Caches collection");
+	/**
+	 * 只读缓存的 id 命中时直接共享缓存的对象
+	 */
+	private final Set<String> readOnlyCacheIds = new HashSet<String>();
 	private final Map<String, ResultMap> resultMaps = new StrictMap<ResultMap>("Result Maps collection");
 	private final Map<String, ParameterMap> parameterMaps = new StrictMap<ParameterMap>("Parameter Maps collection");
 	private final Map<String, KeyGenerator> keyGenerators = new StrictMap<KeyGenerator>("Key Generators collection");
@@ -262,6 +376,7 @@ public class Configuration {
 	}
 
 	public Configuration() {
+		this.expressionEngine = new OgnlExpressionEngine(ognlExpressionCache);
 		// 类型别名注册
 		typeAliasRegistry.registerAlias("JDBC", JdbcTransactionFactory.class);
 		typeAliasRegistry.registerAlias("MANAGED", ManagedTransactionFactory.class);
@@ -275,12 +390,21 @@ public class Configuration {
 		typeAliasRegistry.registerAlias("LRU", LruCache.class);
 		typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
 		typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+		typeAliasRegistry.registerAlias("OFF_HEAP", OffHeapCache.class);
+
+		typeAliasRegistry.registerAlias("JDK_SERIALIZER", JdkCacheSerializer.class);
+		typeAliasRegistry.registerAlias("BINARY_SERIALIZER", BinaryCacheSerializer.class);
 
 		typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
+		typeAliasRegistry.registerAlias("UDP", UdpInvalidationTransport.class);
+
 		typeAliasRegistry.registerAlias("XML", XMLLanguageDriver.class);
 		typeAliasRegistry.registerAlias("RAW", RawLanguageDriver.class);
 
+		typeAliasRegistry.registerAlias("OGNL", OgnlExpressionEngine.class);
+		typeAliasRegistry.registerAlias("COMPILED", CompiledExpressionEngine.class);
+
 		typeAliasRegistry.registerAlias("SLF4J", Slf4jImpl.class);
 		typeAliasRegistry.registerAlias("COMMONS_LOGGING", JakartaCommonsLoggingImpl.class);
 		typeAliasRegistry.registerAlias("LOG4J", Log4jImpl.class);
@@ -497,6 +621,275 @@ public class Configuration {
 		this.cacheEnabled = cacheEnabled;
 	}
 
+	/**
+	 * @since 3.5.0
+	 */
+	public boolean isCacheLoadCoalescing() {
+		return cacheLoadCoalescing;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setCacheLoadCoalescing(boolean cacheLoadCoalescing) {
+		this.cacheLoadCoalescing = cacheLoadCoalescing;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public Integer getCacheLoadCoalescingTimeout() {
+		return cacheLoadCoalescingTimeout;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setCacheLoadCoalescingTimeout(Integer cacheLoadCoalescingTimeout) {
+		this.cacheLoadCoalescingTimeout = cacheLoadCoalescingTimeout;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public boolean isCacheInvalidationByTable() {
+		return cacheInvalidationByTable;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setCacheInvalidationByTable(boolean cacheInvalidationByTable) {
+		this.cacheInvalidationByTable = cacheInvalidationByTable;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public CacheInvalidationBus getCacheInvalidationBus() {
+		return cacheInvalidationBus;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+		this.cacheInvalidationBus = cacheInvalidationBus;
+	}
+
+	/**
+	 * Releases the resources started with this configuration: the threads of the async executor and of the cache
+	 * refresher, which finish the tasks already queued and then end, and the socket and thread of the cache
+	 * invalidation bus. Call it once the SqlSessionFactory built on this configuration is no longer used.
+	 *
+	 * @since 3.5.0
+	 */
+	public void close() {
+		synchronized (this) {
+			if (asyncExecutor instanceof ExecutorService) {
+				((ExecutorService) asyncExecutor).shutdown();
+			}
+		}
+		cacheRefresher.close();
+		if (cacheInvalidationBus != null) {
+			cacheInvalidationBus.close();
+		}
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public boolean isBatchGrouping() {
+		return batchGrouping;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setBatchGrouping(boolean batchGrouping) {
+		this.batchGrouping = batchGrouping;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public List<String> getBatchGroupingOrder() {
+		return batchGroupingOrder;
+	}
+
+	/**
+	 * Sets the ids of the insert statements that batch grouping may reorder, each before the ones it is
+	 * referenced by.
+	 * @since 3.5.0
+	 */
+	public void setBatchGroupingOrder(List<String> batchGroupingOrder) {
+		this.batchGroupingOrder = batchGroupingOrder;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public Integer getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setBatchSize(Integer batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public Integer getBatchMaxBytes() {
+		return batchMaxBytes;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setBatchMaxBytes(Integer batchMaxBytes) {
+		this.batchMaxBytes = batchMaxBytes;
+	}
+
+	/**
+	 * @return The maximum number of rows of a multi row insert for the current databaseId, null if disabled
+	 * @since 3.5.0
+	 */
+	public Integer getMultiRowInsertLimit() {
+		Integer limit = multiRowInsertLimit;
+		if (databaseId != null && databaseMultiRowInsertLimits.containsKey(databaseId)) {
+			limit = databaseMultiRowInsertLimits.get(databaseId);
+		}
+		return limit == null || limit < 2 ? null : limit;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setMultiRowInsertLimit(Integer multiRowInsertLimit) {
+		this.multiRowInsertLimit = multiRowInsertLimit;
+	}
+
+	/**
+	 * Overrides the multi row insert limit for a databaseId, 0 disables multi row inserts on that database.
+	 * @since 3.5.0
+	 */
+	public void setMultiRowInsertLimit(String databaseId, Integer multiRowInsertLimit) {
+		databaseMultiRowInsertLimits.put(databaseId, multiRowInsertLimit);
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public BatchResultListener getBatchResultListener() {
+		return batchResultListener;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setBatchResultListener(BatchResultListener batchResultListener) {
+		this.batchResultListener = batchResultListener;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public Integer getAsyncPoolSize() {
+		return asyncPoolSize;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setAsyncPoolSize(Integer asyncPoolSize) {
+		this.asyncPoolSize = asyncPoolSize;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public boolean isAsyncVirtualThreads() {
+		return asyncVirtualThreads;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setAsyncVirtualThreads(boolean asyncVirtualThreads) {
+		this.asyncVirtualThreads = asyncVirtualThreads;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public boolean isMultiStatementPipelineEnabled() {
+		return multiStatementPipelineEnabled;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setMultiStatementPipelineEnabled(boolean multiStatementPipelineEnabled) {
+		this.multiStatementPipelineEnabled = multiStatementPipelineEnabled;
+	}
+
+	/**
+	 * The threads that run the statements of {@link AsyncSqlSession}s. Unless asyncPoolSize is set, there are as many
+	 * as active connections allowed by a {@link PooledDataSource}, or 10 with other data sources. Calls beyond that
+	 * are queued, idle threads end after a minute.
+	 *
+	 * With asyncVirtualThreads every call runs in its own virtual thread, which waits for a connection of the pool
+	 * without holding a platform thread. On a JDK without virtual threads the pool above is used.
+	 * @since 3.5.0
+	 */
+	public synchronized java.util.concurrent.Executor getAsyncExecutor() {
+		if (asyncExecutor == null && asyncVirtualThreads) {
+			try {
+				asyncExecutor = (java.util.concurrent.Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (Exception e) {
+				// before JDK 21
+			}
+		}
+		if (asyncExecutor == null) {
+			ThreadPoolExecutor threadPoolExecutor;
+			int threads = 10;
+			if (asyncPoolSize != null) {
+				threads = asyncPoolSize;
+			} else if (environment != null && environment.getDataSource() instanceof PooledDataSource) {
+				threads = ((PooledDataSource) environment.getDataSource()).getPoolMaximumActiveConnections();
+			}
+			final AtomicInteger count = new AtomicInteger();
+			threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "mybatis-async-" + count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			threadPoolExecutor.allowCoreThreadTimeOut(true);
+			asyncExecutor = threadPoolExecutor;
+		}
+		return asyncExecutor;
+	}
+
+	public CacheLoadCoalescer getCacheLoadCoalescer() {
+		return cacheLoadCoalescer;
+	}
+
+	public CacheRefresher getCacheRefresher() {
+		return cacheRefresher;
+	}
+
+	public CacheDependencyTracker getCacheDependencyTracker() {
+		return cacheDependencyTracker;
+	}
+
 	public Integer getDefaultStatementTimeout() {
 		return defaultStatementTimeout;
 	}
@@ -517,6 +910,164 @@ public class Configuration {
 	 */
 	public void setDefaultFetchSize(Integer defaultFetchSize) {
 		this.defaultFetchSize = defaultFetchSize;
+		// 自适应的fetchSize 不小于默认的
+		adaptiveFetchSize.setMinFetchSize(defaultFetchSize == null ? AdaptiveFetchSize.DEFAULT_MIN_FETCH_SIZE : defaultFetchSize);
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public boolean isAdaptiveFetchSizeEnabled() {
+		return adaptiveFetchSizeEnabled;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setAdaptiveFetchSizeEnabled(boolean adaptiveFetchSizeEnabled) {
+		this.adaptiveFetchSizeEnabled = adaptiveFetchSizeEnabled;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public boolean isCompiledDynamicSqlEnabled() {
+		return compiledDynamicSqlEnabled;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setCompiledDynamicSqlEnabled(boolean compiledDynamicSqlEnabled) {
+		this.compiledDynamicSqlEnabled = compiledDynamicSqlEnabled;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public ExpressionEngine getExpressionEngine() {
+		return expressionEngine;
+	}
+
+	/**
+	 * @param expressionEngine Evaluates the expressions of the XML dynamic sql, OGNL when null
+	 * @since 3.5.0
+	 */
+	public void setExpressionEngine(ExpressionEngine expressionEngine) {
+		this.expressionEngine = expressionEngine == null ? new OgnlExpressionEngine(ognlExpressionCache) : expressionEngine;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public Set<String> getForeachArrayDatabaseIds() {
+		return foreachArrayDatabaseIds;
+	}
+
+	/**
+	 * @param foreachArrayDatabaseIds The databaseIds on which a foreach of single parameters after IN is bound as
+	 *        one array parameter, written {@code = ANY(?)}, so that the sql stays the same whatever the number of items
+	 * @since 3.5.0
+	 */
+	public void setForeachArrayDatabaseIds(Set<String> foreachArrayDatabaseIds) {
+		Set<String> databaseIds = new HashSet<String>();
+		for (String databaseId : foreachArrayDatabaseIds) {
+			if (databaseId.trim().length() > 0) {
+				databaseIds.add(databaseId.trim());
+			}
+		}
+		this.foreachArrayDatabaseIds = databaseIds;
+	}
+
+	/**
+	 * @return Whether the database of this configuration binds the IN lists of foreach as arrays
+	 * @since 3.5.0
+	 */
+	public boolean isForeachArrayDatabase() {
+		return databaseId != null && foreachArrayDatabaseIds.contains(databaseId);
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public int getSqlShapeCacheSize() {
+		return sqlShapeCacheSize;
+	}
+
+	/**
+	 * @param sqlShapeCacheSize The number of sql kept per dynamic statement, one per combination of branches taken
+	 *          and foreach sizes, 0 to build the sql on every call
+	 * @since 3.5.0
+	 */
+	public void setSqlShapeCacheSize(int sqlShapeCacheSize) {
+		this.sqlShapeCacheSize = sqlShapeCacheSize;
+	}
+
+	/**
+	 * The parsed OGNL expressions of the dynamic sql, with their hit ratio and parse time.
+	 * @since 3.5.0
+	 */
+	public OgnlExpressionCache getOgnlExpressionCache() {
+		return ognlExpressionCache;
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public int getOgnlExpressionCacheSize() {
+		return ognlExpressionCache.getMaxSize();
+	}
+
+	/**
+	 * @param ognlExpressionCacheSize The number of parsed OGNL expressions kept
+	 * @since 3.5.0
+	 */
+	public void setOgnlExpressionCacheSize(int ognlExpressionCacheSize) {
+		ognlExpressionCache.setMaxSize(ognlExpressionCacheSize);
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public int getAdaptiveFetchSizeMaxBytes() {
+		return adaptiveFetchSize.getMaxBytes();
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setAdaptiveFetchSizeMaxBytes(int adaptiveFetchSizeMaxBytes) {
+		adaptiveFetchSize.setMaxBytes(adaptiveFetchSizeMaxBytes);
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public boolean isCancelInterruptedStatements() {
+		return statementWatchdog.isCancelInterrupted();
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public void setCancelInterruptedStatements(boolean cancelInterruptedStatements) {
+		statementWatchdog.setCancelInterrupted(cancelInterruptedStatements);
+	}
+
+	/**
+	 * Cancels the statements running past their {@link Deadline}, or whose thread was interrupted.
+	 * @since 3.5.0
+	 */
+	public StatementWatchdog getStatementWatchdog() {
+		return statementWatchdog;
+	}
+
+	/**
+	 * The fetch sizes chosen with adaptiveFetchSizeEnabled, and the averages they come from.
+	 * @since 3.5.0
+	 */
+	public AdaptiveFetchSize getAdaptiveFetchSize() {
+		return adaptiveFetchSize;
 	}
 
 	public boolean isUseColumnLabel() {
@@ -661,6 +1212,15 @@ public class Configuration {
 	}
 
 	public Executor newExecutor(Transaction transaction, ExecutorType executorType) {
+		return newExecutor(transaction, executorType, cacheEnabled);
+	}
+
+	/**
+	 * @param cached false for an executor that always queries the database, as the one reloading cache entries,
+	 *          the plugins still apply to it
+	 * @since 3.5.0
+	 */
+	public Executor newExecutor(Transaction transaction, ExecutorType executorType, boolean cached) {
 		executorType = executorType == null ? defaultExecutorType : executorType;
 		executorType = executorType == null ? ExecutorType.SIMPLE : executorType;
 		Executor executor;
@@ -671,8 +1231,8 @@ public class Configuration {
 		} else {
 			executor = new SimpleExecutor(this, transaction);
 		}
-		if (cacheEnabled) {
-			executor = new CachingExecutor(executor);
+		if (cached) {
+			executor = new CachingExecutor(executor, cacheInvalidationBus);
 		}
 		executor = (Executor) interceptorChain.pluginAll(executor);
 		return executor;
@@ -702,6 +1262,22 @@ public class Configuration {
 		caches.put(cache.getId(), cache);
 	}
 
+	/**
+	 * Adds a cache whose hits share the cached objects instead of returning copies of them.
+	 * @since 3.5.0
+	 */
+	public void addReadOnlyCache(Cache cache) {
+		addCache(cache);
+		readOnlyCacheIds.add(cache.getId());
+	}
+
+	/**
+	 * @since 3.5.0
+	 */
+	public boolean isReadOnlyCache(Cache cache) {
+		return readOnlyCacheIds.contains(cache.getId());
+	}
+
 	public Collection<String> getCacheNames() {
 		return caches.keySet();
 	}
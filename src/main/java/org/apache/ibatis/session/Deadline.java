@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time the statements run by a thread must be done by, whatever their session.
+ *
+ * The query timeout of the statements is shortened to the time left, and the statements still running at the
+ * deadline are cancelled. A deadline started within another one cannot end after it.
+ * <pre>
+ * Deadline deadline = Deadline.start(2, TimeUnit.SECONDS);
+ * try {
+ *   blogMapper.selectBlogs();
+ * } finally {
+ *   deadline.end();
+ * }
+ * </pre>
+ * The calls of an {@link AsyncSqlSession} keep the deadline of the thread that made them.
+ *
+ * @since 3.5.0
+ */
+public final class Deadline {
+
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<Deadline>();
+
+	private final long nanos;
+	private final Deadline previous;
+
+	private Deadline(long nanos, Deadline previous) {
+		this.nanos = nanos;
+		this.previous = previous;
+	}
+
+	/**
+	 * Starts a deadline for the statements run by the calling thread, until {@link #end()}.
+	 */
+	public static Deadline start(long timeout, TimeUnit unit) {
+		long nanos = System.nanoTime() + unit.toNanos(timeout);
+		Deadline previous = CURRENT.get();
+		if (previous != null && previous.nanos - nanos < 0) {
+			nanos = previous.nanos;
+		}
+		return bind(nanos, previous);
+	}
+
+	/**
+	 * @return The deadline of the calling thread, null if there is none
+	 */
+	public static Deadline current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Starts the same deadline on the calling thread, until {@link #end()}. Used to carry a deadline over to the
+	 * thread that runs a call on behalf of another one.
+	 */
+	public Deadline propagate() {
+		return bind(nanos, CURRENT.get());
+	}
+
+	/**
+	 * Restores the deadline the calling thread had before this one.
+	 */
+	public void end() {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	public long remaining(TimeUnit unit) {
+		return unit.convert(nanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	public boolean isExpired() {
+		return nanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * @return The query timeout matching the time left, at least one second
+	 */
+	public int getRemainingSeconds() {
+		long remaining = nanos - System.nanoTime();
+		long seconds = (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+		return (int) Math.max(1, Math.min(seconds, Integer.MAX_VALUE));
+	}
+
+	private static Deadline bind(long nanos, Deadline previous) {
+		Deadline deadline = new Deadline(nanos, previous);
+		CURRENT.set(deadline);
+		return deadline;
+	}
+
+}
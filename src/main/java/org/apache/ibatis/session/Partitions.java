@@ -0,0 +1,83 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parameters splitting a select into partitions, for {@link AsyncSqlSession#selectPartitioned}.
+ *
+ * Every partition is a mutable map, other parameters of the select can be put in each of them.
+ *
+ * @since 3.5.0
+ */
+public final class Partitions {
+
+	private Partitions() {
+		// Prevent Instantiation of Static Class
+	}
+
+	/**
+	 * Key ranges, for selects filtering on {@code id >= #{from} and id < #{to}}. Every partition also has
+	 * its "partition" number.
+	 * @param from First key of the first range
+	 * @param to Key after the last range
+	 * @param count Number of ranges, as even as possible
+	 */
+	public static List<Map<String, Object>> ranges(long from, long to, int count) {
+		if (count < 1 || to < from) {
+			throw new IllegalArgumentException("Cannot split [" + from + ", " + to + ") into " + count + " ranges");
+		}
+		List<Map<String, Object>> partitions = new ArrayList<Map<String, Object>>(count);
+		long size = (to - from) / count;
+		long remainder = (to - from) % count;
+		long start = from;
+		for (int i = 0; i < count; i++) {
+			long end = start + size + (i < remainder ? 1 : 0);
+			Map<String, Object> partition = new HashMap<String, Object>();
+			partition.put("partition", i);
+			partition.put("from", start);
+			partition.put("to", end);
+			partitions.add(partition);
+			start = end;
+		}
+		return partitions;
+	}
+
+	/**
+	 * Modulo buckets, for selects filtering on {@code mod(id, #{buckets}) = #{bucket}}. Every partition also has
+	 * its "partition" number, equal to its bucket.
+	 * @param buckets Number of buckets
+	 */
+	public static List<Map<String, Object>> buckets(int buckets) {
+		if (buckets < 1) {
+			throw new IllegalArgumentException("Cannot split into " + buckets + " buckets");
+		}
+		List<Map<String, Object>> partitions = new ArrayList<Map<String, Object>>(buckets);
+		for (int i = 0; i < buckets; i++) {
+			Map<String, Object> partition = new HashMap<String, Object>();
+			partition.put("partition", i);
+			partition.put("bucket", i);
+			partition.put("buckets", buckets);
+			partitions.add(partition);
+		}
+		return partitions;
+	}
+
+}
@@ -0,0 +1,56 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+
+/**
+ * Queues independent selects of a {@link SqlSession} and runs them together.
+ *
+ * With multiStatementPipelineEnabled the queued selects are sent as one multi statement query and their result sets
+ * are read one after the other. Otherwise they run in parallel on connections of their own, unless the session has
+ * pending changes, which those connections could not see.
+ *
+ * @since 3.5.0
+ */
+public interface Pipeline {
+
+	<E> Result<List<E>> selectList(String statement);
+
+	<E> Result<List<E>> selectList(String statement, Object parameter);
+
+	<T> Result<T> selectOne(String statement);
+
+	<T> Result<T> selectOne(String statement, Object parameter);
+
+	/**
+	 * Runs the queued selects. Getting a result does it too.
+	 */
+	void execute();
+
+	/**
+	 * The result of a queued select.
+	 */
+	interface Result<T> {
+
+		/**
+		 * @return The result, after running the queued selects if needed
+		 */
+		T get();
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.ResultPublisher;
 import org.apache.ibatis.executor.BatchResult;
 
 /**
@@ -149,6 +150,45 @@ public interface SqlSession extends Closeable {
 	 */
 	<T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
 
+	/**
+	 * A ResultPublisher sends the results of a Cursor as the subscriber requests them, and closes it when
+	 * they are all sent or when the subscription is cancelled.
+	 * The rows are fetched in the thread requesting them, which must not use this session meanwhile.
+	 * @param <T> the published element type.
+	 * @param statement Unique identifier matching the statement to use.
+	 * @return Publisher of mapped objects
+	 * @since 3.5.0
+	 */
+	<T> ResultPublisher<T> selectPublisher(String statement);
+
+	/**
+	 * @see #selectPublisher(String)
+	 * @param <T> the published element type.
+	 * @param statement Unique identifier matching the statement to use.
+	 * @param parameter A parameter object to pass to the statement.
+	 * @return Publisher of mapped objects
+	 * @since 3.5.0
+	 */
+	<T> ResultPublisher<T> selectPublisher(String statement, Object parameter);
+
+	/**
+	 * @see #selectPublisher(String)
+	 * @param <T> the published element type.
+	 * @param statement Unique identifier matching the statement to use.
+	 * @param parameter A parameter object to pass to the statement.
+	 * @param rowBounds  Bounds to limit object retrieval
+	 * @return Publisher of mapped objects
+	 * @since 3.5.0
+	 */
+	<T> ResultPublisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds);
+
+	/**
+	 * Starts a pipeline of selects that run together, saving the round trips of running them one by one.
+	 * @return Pipeline bound to this session
+	 * @since 3.5.0
+	 */
+	Pipeline pipeline();
+
 	/**
 	 * Retrieve a single row mapped from the statement key and parameter
 	 * using a {@code ResultHandler}.
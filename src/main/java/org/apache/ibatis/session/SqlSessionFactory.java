@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -79,6 +79,13 @@ public interface SqlSessionFactory {
 	 */
 	SqlSession openSession(ExecutorType execType, TransactionIsolationLevel level);
 
+	/**
+	 * 打开一个异步会话 每次调用都在自己的会话里执行
+	 * @return
+	 * @since 3.5.0
+	 */
+	AsyncSqlSession openAsyncSession();
+
 	/**
 	 * 执行类型外带 连接对象
 	 * @param execType
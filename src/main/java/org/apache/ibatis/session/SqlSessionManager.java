@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Properties;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.ResultPublisher;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
@@ -163,6 +164,11 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
 		return sqlSessionFactory.openSession(execType, level);
 	}
 
+	@Override
+	public AsyncSqlSession openAsyncSession() {
+		return sqlSessionFactory.openAsyncSession();
+	}
+
 	@Override
 	public SqlSession openSession(ExecutorType execType, Connection connection) {
 		return sqlSessionFactory.openSession(execType, connection);
@@ -198,6 +204,21 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
 		return sqlSessionProxy.<K, V>selectMap(statement, parameter, mapKey, rowBounds);
 	}
 
+	@Override
+	public <T> ResultPublisher<T> selectPublisher(String statement) {
+		return sqlSessionProxy.selectPublisher(statement);
+	}
+
+	@Override
+	public <T> ResultPublisher<T> selectPublisher(String statement, Object parameter) {
+		return sqlSessionProxy.selectPublisher(statement, parameter);
+	}
+
+	@Override
+	public <T> ResultPublisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds) {
+		return sqlSessionProxy.selectPublisher(statement, parameter, rowBounds);
+	}
+
 	@Override
 	public <T> Cursor<T> selectCursor(String statement) {
 		return sqlSessionProxy.selectCursor(statement);
@@ -278,6 +299,15 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
 		return getConfiguration().getMapper(type, this);
 	}
 
+	@Override
+	public Pipeline pipeline() {
+		final SqlSession sqlSession = localSqlSession.get();
+		if (sqlSession == null) {
+			throw new SqlSessionException("Error:  Cannot start a pipeline.  No managed session is started.");
+		}
+		return sqlSession.pipeline();
+	}
+
 	@Override
 	public Connection getConnection() {
 		final SqlSession sqlSession = localSqlSession.get();
@@ -0,0 +1,314 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.ResultPublisher;
+import org.apache.ibatis.cursor.defaults.CursorPublisher;
+import org.apache.ibatis.lang.UsesJava8;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.FutureUtil;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Deadline;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+/**
+ * The default implementation for {@link AsyncSqlSession}.
+ *
+ * 异步的SqlSession 每次调用都在 Configuration 的异步线程池里 用一个新的SqlSession执行
+ */
+@UsesJava8
+public class DefaultAsyncSqlSession implements AsyncSqlSession {
+
+	private final SqlSessionFactory sqlSessionFactory;
+	/**
+	 * 每次调用都打开一个新会话的SqlSession 执行完提交 出错回滚
+	 */
+	private final SessionPerCall sqlSessionProxy;
+
+	public DefaultAsyncSqlSession(SqlSessionFactory sqlSessionFactory) {
+		this.sqlSessionFactory = sqlSessionFactory;
+		this.sqlSessionProxy = (SessionPerCall) Proxy.newProxyInstance(
+				SessionPerCall.class.getClassLoader(),
+				new Class[]{SessionPerCall.class},
+				new SessionPerCallInterceptor());
+	}
+
+	@Override
+	public <T> CompletionStage<T> selectOne(final String statement) {
+		return supply(new Callable<T>() {
+			@Override
+			public T call() {
+				return sqlSessionProxy.<T>selectOne(statement);
+			}
+		});
+	}
+
+	@Override
+	public <T> CompletionStage<T> selectOne(final String statement, final Object parameter) {
+		return supply(new Callable<T>() {
+			@Override
+			public T call() {
+				return sqlSessionProxy.<T>selectOne(statement, parameter);
+			}
+		});
+	}
+
+	@Override
+	public <E> CompletionStage<List<E>> selectList(String statement) {
+		return selectList(statement, null, RowBounds.DEFAULT);
+	}
+
+	@Override
+	public <E> CompletionStage<List<E>> selectList(String statement, Object parameter) {
+		return selectList(statement, parameter, RowBounds.DEFAULT);
+	}
+
+	@Override
+	public <E> CompletionStage<List<E>> selectList(final String statement, final Object parameter, final RowBounds rowBounds) {
+		return supply(new Callable<List<E>>() {
+			@Override
+			public List<E> call() {
+				return sqlSessionProxy.<E>selectList(statement, parameter, rowBounds);
+			}
+		});
+	}
+
+	@Override
+	public <T> ResultPublisher<T> selectPublisher(String statement, Object parameter) {
+		return sqlSessionProxy.selectPublisher(statement, parameter);
+	}
+
+	@Override
+	public CompletionStage<Void> selectPartitioned(final String statement, List<?> partitions, final ResultHandler<?> handler) {
+		final AtomicBoolean failed = new AtomicBoolean();
+		@SuppressWarnings("unchecked")
+		final ResultHandler<Object> rowHandler = (ResultHandler<Object>) handler;
+		final ResultHandler<Object> stoppingHandler = new ResultHandler<Object>() {
+			@Override
+			public void handleResult(ResultContext<? extends Object> resultContext) {
+				if (failed.get()) {
+					resultContext.stop();
+				} else {
+					rowHandler.handleResult(resultContext);
+				}
+			}
+		};
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[partitions.size()];
+		for (int i = 0; i < futures.length; i++) {
+			final Object partition = partitions.get(i);
+			futures[i] = supply(new Callable<Void>() {
+				@Override
+				public Void call() {
+					try {
+						sqlSessionProxy.select(statement, partition, stoppingHandler);
+						return null;
+					} catch (RuntimeException e) {
+						failed.set(true);
+						throw e;
+					}
+				}
+			});
+		}
+		return CompletableFuture.allOf(futures);
+	}
+
+	@Override
+	public <T> Cursor<T> selectPartitionedCursor(String statement, List<?> partitions) {
+		return new PartitionedCursor<T>(sqlSessionFactory, getConfiguration().getAsyncExecutor(), statement, partitions);
+	}
+
+	@Override
+	public CompletionStage<Integer> insert(String statement) {
+		return insert(statement, null);
+	}
+
+	@Override
+	public CompletionStage<Integer> insert(final String statement, final Object parameter) {
+		return supply(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return sqlSessionProxy.insert(statement, parameter);
+			}
+		});
+	}
+
+	@Override
+	public CompletionStage<Integer> update(String statement) {
+		return update(statement, null);
+	}
+
+	@Override
+	public CompletionStage<Integer> update(final String statement, final Object parameter) {
+		return supply(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return sqlSessionProxy.update(statement, parameter);
+			}
+		});
+	}
+
+	@Override
+	public CompletionStage<Integer> delete(String statement) {
+		return delete(statement, null);
+	}
+
+	@Override
+	public CompletionStage<Integer> delete(final String statement, final Object parameter) {
+		return supply(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return sqlSessionProxy.delete(statement, parameter);
+			}
+		});
+	}
+
+	@Override
+	public <T> T getMapper(Class<T> type) {
+		return getConfiguration().getMapper(type, sqlSessionProxy);
+	}
+
+	@Override
+	public Configuration getConfiguration() {
+		return sqlSessionFactory.getConfiguration();
+	}
+
+	private <T> CompletableFuture<T> supply(final Callable<T> callable) {
+		final Deadline deadline = Deadline.current();
+		if (deadline == null) {
+			return FutureUtil.supply(getConfiguration().getAsyncExecutor(), callable);
+		}
+		return FutureUtil.supply(getConfiguration().getAsyncExecutor(), new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				Deadline propagated = deadline.propagate();
+				try {
+					return callable.call();
+				} finally {
+					propagated.end();
+				}
+			}
+		});
+	}
+
+	/**
+	 * A {@link SqlSession} that runs every statement in a new session, so it can be used by several threads.
+	 * Mapper methods returning futures run asynchronously only on such a session.
+	 */
+	public interface SessionPerCall extends SqlSession {
+	}
+
+	/**
+	 * Opens its own session and cursor when the publisher first reads it, closes both with it.
+	 */
+	private class SessionCursor implements Cursor<Object> {
+		private final Object[] args;
+		private SqlSession sqlSession;
+		private Cursor<Object> cursor;
+
+		private SessionCursor(Object[] args) {
+			this.args = args;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return cursor != null && cursor.isOpen();
+		}
+
+		@Override
+		public boolean isConsumed() {
+			return cursor != null && cursor.isConsumed();
+		}
+
+		@Override
+		public int getCurrentIndex() {
+			return cursor == null ? -1 : cursor.getCurrentIndex();
+		}
+
+		@Override
+		public Iterator<Object> iterator() {
+			if (cursor == null) {
+				sqlSession = sqlSessionFactory.openSession();
+				String statement = (String) args[0];
+				Object parameter = args.length > 1 ? args[1] : null;
+				RowBounds rowBounds = args.length > 2 ? (RowBounds) args[2] : RowBounds.DEFAULT;
+				cursor = sqlSession.selectCursor(statement, parameter, rowBounds);
+			}
+			return cursor.iterator();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				if (cursor != null) {
+					cursor.close();
+				}
+			} finally {
+				if (sqlSession != null) {
+					sqlSession.close();
+				}
+			}
+		}
+	}
+
+	private class SessionPerCallInterceptor implements InvocationHandler {
+		public SessionPerCallInterceptor() {
+			// Prevent Synthetic Access
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if ("getMapper".equals(method.getName())) {
+				return getConfiguration().getMapper((Class<?>) args[0], (SqlSession) proxy);
+			} else if ("getConfiguration".equals(method.getName())) {
+				return getConfiguration();
+			} else if (Object.class.equals(method.getDeclaringClass())) {
+				return method.invoke(this, args);
+			} else if ("selectPublisher".equals(method.getName())) {
+				// 会话要等到所有行都发送完才能关闭
+				return new CursorPublisher<Object>(new SessionCursor(args), getConfiguration().getAsyncExecutor(), null);
+			}
+			final SqlSession sqlSession = sqlSessionFactory.openSession();
+			try {
+				final Object result = method.invoke(sqlSession, args);
+				sqlSession.commit();
+				return result;
+			} catch (Throwable t) {
+				sqlSession.rollback();
+				throw ExceptionUtil.unwrapThrowable(t);
+			} finally {
+				sqlSession.close();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,215 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.exceptions.TooManyResultsException;
+import org.apache.ibatis.executor.MultiStatementQuery;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Pipeline;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+/**
+ * The default implementation for {@link Pipeline}.
+ * Note that this class is not Thread-Safe, as its session.
+ */
+final class DefaultPipeline implements Pipeline {
+
+	private final DefaultSqlSession sqlSession;
+	private final Configuration configuration;
+	private final List<QueuedSelect<?>> queue = new ArrayList<QueuedSelect<?>>();
+
+	DefaultPipeline(DefaultSqlSession sqlSession, Configuration configuration) {
+		this.sqlSession = sqlSession;
+		this.configuration = configuration;
+	}
+
+	@Override
+	public <E> Result<List<E>> selectList(String statement) {
+		return this.<E>selectList(statement, null);
+	}
+
+	@Override
+	public <E> Result<List<E>> selectList(String statement, Object parameter) {
+		return enqueue(new QueuedSelect<List<E>>(statement, parameter, false));
+	}
+
+	@Override
+	public <T> Result<T> selectOne(String statement) {
+		return this.<T>selectOne(statement, null);
+	}
+
+	@Override
+	public <T> Result<T> selectOne(String statement, Object parameter) {
+		return enqueue(new QueuedSelect<T>(statement, parameter, true));
+	}
+
+	@Override
+	public void execute() {
+		if (queue.isEmpty()) {
+			return;
+		}
+		List<QueuedSelect<?>> selects = new ArrayList<QueuedSelect<?>>(queue);
+		queue.clear();
+		try {
+			List<QueuedSelect<?>> remaining = selects;
+			if (selects.size() > 1 && configuration.isMultiStatementPipelineEnabled()) {
+				remaining = runCombined(selects);
+			}
+			if (remaining.size() > 1 && !sqlSession.isDirty() && configuration.getEnvironment() != null) {
+				runInParallel(remaining);
+			} else {
+				for (QueuedSelect<?> select : remaining) {
+					select.complete(sqlSession.selectList(select.statement, select.parameter));
+				}
+			}
+		} catch (RuntimeException e) {
+			for (QueuedSelect<?> select : selects) {
+				select.fail(e);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @return The selects that could not be combined
+	 */
+	private List<QueuedSelect<?>> runCombined(List<QueuedSelect<?>> selects) {
+		List<QueuedSelect<?>> combined = new ArrayList<QueuedSelect<?>>();
+		List<QueuedSelect<?>> remaining = new ArrayList<QueuedSelect<?>>();
+		List<MappedStatement> statements = new ArrayList<MappedStatement>();
+		List<Object> parameters = new ArrayList<Object>();
+		for (QueuedSelect<?> select : selects) {
+			MappedStatement ms = configuration.getMappedStatement(select.statement);
+			if (MultiStatementQuery.isCombinable(ms)) {
+				combined.add(select);
+				statements.add(ms);
+				parameters.add(select.parameter);
+			} else {
+				remaining.add(select);
+			}
+		}
+		if (combined.size() < 2) {
+			return selects;
+		}
+		List<List<Object>> results = sqlSession.selectMultiStatement(statements, parameters);
+		for (int i = 0; i < combined.size(); i++) {
+			combined.get(i).complete(results.get(i));
+		}
+		return remaining;
+	}
+
+	/**
+	 * Runs the first select in this session meanwhile the others run in sessions of their own.
+	 */
+	private void runInParallel(List<QueuedSelect<?>> selects) {
+		final SqlSessionFactory sqlSessionFactory = new DefaultSqlSessionFactory(configuration);
+		List<FutureTask<List<Object>>> tasks = new ArrayList<FutureTask<List<Object>>>();
+		for (int i = 1; i < selects.size(); i++) {
+			final QueuedSelect<?> select = selects.get(i);
+			FutureTask<List<Object>> task = new FutureTask<List<Object>>(new Callable<List<Object>>() {
+				@Override
+				public List<Object> call() {
+					SqlSession session = sqlSessionFactory.openSession();
+					try {
+						return session.selectList(select.statement, select.parameter);
+					} finally {
+						session.close();
+					}
+				}
+			});
+			configuration.getAsyncExecutor().execute(task);
+			tasks.add(task);
+		}
+		QueuedSelect<?> first = selects.get(0);
+		first.complete(sqlSession.selectList(first.statement, first.parameter));
+		for (int i = 1; i < selects.size(); i++) {
+			try {
+				selects.get(i).complete(tasks.get(i - 1).get());
+			} catch (ExecutionException e) {
+				// the selects only throw unchecked exceptions, already wrapped by their session
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw (RuntimeException) e.getCause();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw ExceptionFactory.wrapException("Interrupted while querying database.  Cause: " + e, e);
+			}
+		}
+	}
+
+	private <T> Result<T> enqueue(QueuedSelect<T> select) {
+		queue.add(select);
+		return select;
+	}
+
+	private class QueuedSelect<T> implements Result<T> {
+
+		private final String statement;
+		private final Object parameter;
+		private final boolean one;
+		private boolean done;
+		private Object value;
+		private RuntimeException failure;
+
+		QueuedSelect(String statement, Object parameter, boolean one) {
+			this.statement = statement;
+			this.parameter = parameter;
+			this.one = one;
+		}
+
+		void complete(List<Object> list) {
+			done = true;
+			if (!one) {
+				value = list;
+			} else if (list.size() == 1) {
+				value = list.get(0);
+			} else if (list.size() > 1) {
+				failure = new TooManyResultsException("Expected one result (or null) to be returned by selectOne(), but found: " + list.size());
+			}
+		}
+
+		void fail(RuntimeException e) {
+			if (!done) {
+				done = true;
+				failure = e;
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T get() {
+			if (!done) {
+				execute();
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return (T) value;
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -26,15 +26,19 @@ import java.util.Map;
 
 import org.apache.ibatis.binding.BindingException;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.ResultPublisher;
+import org.apache.ibatis.cursor.defaults.CursorPublisher;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.MultiStatementQuery;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Pipeline;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
@@ -123,6 +127,21 @@ public class DefaultSqlSession implements SqlSession {
 		return mapResultHandler.getMappedResults();
 	}
 
+	@Override
+	public <T> ResultPublisher<T> selectPublisher(String statement) {
+		return selectPublisher(statement, null);
+	}
+
+	@Override
+	public <T> ResultPublisher<T> selectPublisher(String statement, Object parameter) {
+		return selectPublisher(statement, parameter, RowBounds.DEFAULT);
+	}
+
+	@Override
+	public <T> ResultPublisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds) {
+		return new CursorPublisher<T>(this.<T>selectCursor(statement, parameter, rowBounds));
+	}
+
 	@Override
 	public <T> Cursor<T> selectCursor(String statement) {
 		return selectCursor(statement, null);
@@ -172,6 +191,25 @@ public class DefaultSqlSession implements SqlSession {
 		}
 	}
 
+	@Override
+	public Pipeline pipeline() {
+		return new DefaultPipeline(this, configuration);
+	}
+
+	List<List<Object>> selectMultiStatement(List<MappedStatement> statements, List<Object> parameters) {
+		try {
+			List<Object> wrappedParameters = new ArrayList<Object>();
+			for (Object parameter : parameters) {
+				wrappedParameters.add(wrapCollection(parameter));
+			}
+			return MultiStatementQuery.query(executor, statements, wrappedParameters);
+		} catch (Exception e) {
+			throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
+		} finally {
+			ErrorContext.instance().reset();
+		}
+	}
+
 	@Override
 	public void select(String statement, Object parameter, ResultHandler handler) {
 		select(statement, parameter, RowBounds.DEFAULT, handler);
@@ -332,6 +370,10 @@ public class DefaultSqlSession implements SqlSession {
 		cursorList.add(cursor);
 	}
 
+	boolean isDirty() {
+		return dirty;
+	}
+
 	private boolean isCommitOrRollbackRequired(boolean force) {
 		return (!autoCommit && dirty) || force;
 	}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.AsyncSqlSession;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
@@ -89,6 +90,11 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
 		return openSessionFromConnection(execType, connection);
 	}
 
+	@Override
+	public AsyncSqlSession openAsyncSession() {
+		return new DefaultAsyncSqlSession(this);
+	}
+
 	@Override
 	public Configuration getConfiguration() {
 		return configuration;
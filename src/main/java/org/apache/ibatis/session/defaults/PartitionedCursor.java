@@ -0,0 +1,230 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+/**
+ * Returns the rows of the partitions of a select in the order of the partitions, while the following partitions are
+ * read ahead in sessions of their own. Each partition buffers up to {@link #BUFFERED_ROWS} rows, then waits.
+ */
+final class PartitionedCursor<T> implements Cursor<T> {
+
+	static final int BUFFERED_ROWS = 1000;
+
+	private static final Object END = new Object();
+	private static final Object NULL = new Object();
+
+	private final SqlSessionFactory sqlSessionFactory;
+	private final Executor executor;
+	private final String statement;
+	private final List<?> partitions;
+	private final List<BlockingQueue<Object>> queues;
+	private volatile boolean closed;
+	private boolean iteratorRetrieved;
+	private boolean consumed;
+	private int currentIndex = -1;
+
+	PartitionedCursor(SqlSessionFactory sqlSessionFactory, Executor executor, String statement, List<?> partitions) {
+		this.sqlSessionFactory = sqlSessionFactory;
+		this.executor = executor;
+		this.statement = statement;
+		this.partitions = partitions;
+		this.queues = new ArrayList<BlockingQueue<Object>>(partitions.size());
+		for (int i = 0; i < partitions.size(); i++) {
+			queues.add(new ArrayBlockingQueue<Object>(BUFFERED_ROWS));
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return iteratorRetrieved && !closed;
+	}
+
+	@Override
+	public boolean isConsumed() {
+		return consumed;
+	}
+
+	@Override
+	public int getCurrentIndex() {
+		return currentIndex;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		if (iteratorRetrieved) {
+			throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+		}
+		if (closed) {
+			throw new IllegalStateException("A Cursor is already closed.");
+		}
+		iteratorRetrieved = true;
+		try {
+			for (int i = 0; i < partitions.size(); i++) {
+				executor.execute(new PartitionReader(partitions.get(i), queues.get(i)));
+			}
+		} catch (RuntimeException e) {
+			// 已经启动的分区看到关闭后自己结束
+			close();
+			throw e;
+		}
+		return new PartitionIterator();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		for (BlockingQueue<Object> queue : queues) {
+			queue.clear();
+		}
+	}
+
+	private class PartitionReader implements Runnable {
+		private final Object partition;
+		private final BlockingQueue<Object> queue;
+
+		PartitionReader(Object partition, BlockingQueue<Object> queue) {
+			this.partition = partition;
+			this.queue = queue;
+		}
+
+		@Override
+		public void run() {
+			if (closed) {
+				return;
+			}
+			SqlSession sqlSession = sqlSessionFactory.openSession();
+			try {
+				Cursor<Object> cursor = sqlSession.selectCursor(statement, partition);
+				for (Object row : cursor) {
+					if (!offer(row == null ? NULL : row)) {
+						return;
+					}
+				}
+				offer(END);
+			} catch (Throwable t) {
+				offer(new Failure(t));
+			} finally {
+				sqlSession.close();
+			}
+		}
+
+		/**
+		 * @return false when the cursor is closed meanwhile, or when the reader is interrupted, the partition
+		 *         then ends with a failure instead of the rows still buffered
+		 */
+		private boolean offer(Object item) {
+			try {
+				while (!closed) {
+					if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				// the iterator must not wait for this partition forever: nothing else adds to the queue,
+				// so once cleared there is room for the failure
+				queue.clear();
+				queue.offer(item instanceof Failure ? item : new Failure(e));
+			}
+			return false;
+		}
+	}
+
+	private class PartitionIterator implements Iterator<T> {
+		private int partition;
+		private Object next;
+
+		@Override
+		public boolean hasNext() {
+			if (next == null) {
+				next = fetch();
+			}
+			return next != END;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Object row = next;
+			next = null;
+			currentIndex++;
+			return row == NULL ? null : (T) row;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("Cannot remove element from Cursor");
+		}
+
+		private Object fetch() {
+			while (!closed && partition < queues.size()) {
+				Object item;
+				try {
+					item = queues.get(partition).take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					close();
+					throw ExceptionFactory.wrapException("Interrupted while reading partition " + partition + ".  Cause: " + e, e);
+				}
+				if (item == END) {
+					partition++;
+				} else if (item instanceof Failure) {
+					close();
+					Throwable cause = ((Failure) item).cause;
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw ExceptionFactory.wrapException("Error querying partition " + partition + ".  Cause: " + cause, (Exception) cause);
+				} else {
+					return item;
+				}
+			}
+			if (!closed) {
+				consumed = true;
+				close();
+			}
+			return END;
+		}
+	}
+
+	private static class Failure {
+		private final Throwable cause;
+
+		Failure(Throwable cause) {
+			this.cause = cause;
+		}
+	}
+
+}
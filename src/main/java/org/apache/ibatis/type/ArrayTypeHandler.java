@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,19 +15,36 @@
  */
 package org.apache.ibatis.type;
 
+import java.math.BigDecimal;
 import java.sql.Array;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * @author Clinton Begin
  * 数组类型处理
  * 直接setArray getArray
+ * 参数也可以是 Collection 或者 Object[] 用 Connection.createArrayOf 转成 Array
  */
 public class ArrayTypeHandler extends BaseTypeHandler<Object> {
 
+	private static final Map<Class<?>, String> STANDARD_TYPE_NAMES = new HashMap<Class<?>, String>();
+
+	static {
+		STANDARD_TYPE_NAMES.put(String.class, "VARCHAR");
+		STANDARD_TYPE_NAMES.put(Integer.class, "INTEGER");
+		STANDARD_TYPE_NAMES.put(Long.class, "BIGINT");
+		STANDARD_TYPE_NAMES.put(Short.class, "SMALLINT");
+		STANDARD_TYPE_NAMES.put(BigDecimal.class, "NUMERIC");
+		STANDARD_TYPE_NAMES.put(Boolean.class, "BOOLEAN");
+	}
+
 	public ArrayTypeHandler() {
 		super();
 	}
@@ -35,7 +52,36 @@ public class ArrayTypeHandler extends BaseTypeHandler<Object> {
 	@Override
 	public void setNonNullParameter(PreparedStatement ps, int i, Object parameter, JdbcType jdbcType) throws SQLException {
 		// 直接setArray啊
-		ps.setArray(i, (Array) parameter);
+		if (parameter instanceof Array) {
+			ps.setArray(i, (Array) parameter);
+			return;
+		}
+		Collection<?> elements = parameter instanceof Object[] ? Arrays.asList((Object[]) parameter) : (Collection<?>) parameter;
+		String typeName = resolveTypeName(elements);
+		if (typeName == null) {
+			throw new TypeException("Cannot find the SQL type of the array elements " + elements);
+		}
+		ps.setArray(i, ps.getConnection().createArrayOf(typeName, elements.toArray()));
+	}
+
+	/**
+	 * @return The SQL type name of the elements, null when they are all null, of different classes,
+	 *         or of a class without standard type name
+	 * @since 3.5.0
+	 */
+	public static String resolveTypeName(Iterable<?> elements) {
+		Class<?> type = null;
+		for (Object element : elements) {
+			if (element == null) {
+				continue;
+			}
+			if (type == null) {
+				type = element.getClass();
+			} else if (type != element.getClass()) {
+				return null;
+			}
+		}
+		return type == null ? null : STANDARD_TYPE_NAMES.get(type);
 	}
 
 	@Override
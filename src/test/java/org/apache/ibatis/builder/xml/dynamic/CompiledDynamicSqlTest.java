@@ -0,0 +1,132 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml.dynamic;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
+import org.apache.ibatis.scripting.xmltags.IfSqlNode;
+import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
+import org.apache.ibatis.scripting.xmltags.SetSqlNode;
+import org.apache.ibatis.scripting.xmltags.SqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
+import org.apache.ibatis.scripting.xmltags.TextSqlNode;
+import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class CompiledDynamicSqlTest {
+
+  @Test
+  public void shouldBindLikeTheParsedSqlInsideWhere() {
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("id", 1);
+    param.put("name", "n");
+    assertSameBoundSql(param, new Builder() {
+      @Override
+      public SqlNode build(Configuration configuration) {
+        return mixed(new StaticTextSqlNode("SELECT * FROM BLOG"),
+            new WhereSqlNode(configuration, mixed(
+                new IfSqlNode(mixed(new StaticTextSqlNode("AND ID = #{id}")), "id != null"),
+                new IfSqlNode(mixed(new StaticTextSqlNode("AND NAME = #{name,jdbcType=VARCHAR}")), "name != null"))));
+      }
+    });
+  }
+
+  @Test
+  public void shouldRenameTheItemsOfNestedForEach() {
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("rows", Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c")));
+    BoundSql boundSql = assertSameBoundSql(param, new Builder() {
+      @Override
+      public SqlNode build(Configuration configuration) {
+        SqlNode inner = new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("#{value} = #{i}")),
+            "row", "j", "value", "(", ")", " OR ");
+        return mixed(new StaticTextSqlNode("SELECT * FROM BLOG WHERE"),
+            new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("#{i} <> 0 AND"), inner), "rows", "i", "row", null, null, " OR "));
+      }
+    });
+    assertEquals("__frch_value_1", boundSql.getParameterMappings().get(1).getProperty());
+    assertEquals("c", boundSql.getAdditionalParameter("__frch_value_4"));
+  }
+
+  @Test
+  public void shouldParseTheTextOfDollarExpressions() {
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("column", "NAME");
+    param.put("name", "n");
+    param.put("id", 2);
+    assertSameBoundSql(param, new Builder() {
+      @Override
+      public SqlNode build(Configuration configuration) {
+        return mixed(new StaticTextSqlNode("UPDATE BLOG"),
+            new SetSqlNode(configuration, mixed(new TextSqlNode("${column} = #{name},"))),
+            new StaticTextSqlNode("WHERE ID = #{id}"));
+      }
+    });
+  }
+
+  @Test
+  public void shouldResolveTheTypesOfEachCall() {
+    Configuration configuration = new Configuration();
+    configuration.setCompiledDynamicSqlEnabled(true);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixed(
+        new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("#{item}")), "list", null, "item", "(", ")", ",")));
+    Map<String, Object> integers = new HashMap<String, Object>();
+    integers.put("list", Arrays.asList(1));
+    Map<String, Object> strings = new HashMap<String, Object>();
+    strings.put("list", Arrays.asList("a"));
+    assertEquals(Integer.class, source.getBoundSql(integers).getParameterMappings().get(0).getJavaType());
+    assertEquals(String.class, source.getBoundSql(strings).getParameterMappings().get(0).getJavaType());
+  }
+
+  private BoundSql assertSameBoundSql(Object parameterObject, Builder builder) {
+    Configuration parsedConfiguration = new Configuration();
+    BoundSql expected = new DynamicSqlSource(parsedConfiguration, builder.build(parsedConfiguration)).getBoundSql(parameterObject);
+    Configuration compiledConfiguration = new Configuration();
+    compiledConfiguration.setCompiledDynamicSqlEnabled(true);
+    DynamicSqlSource compiled = new DynamicSqlSource(compiledConfiguration, builder.build(compiledConfiguration));
+    compiled.getBoundSql(parameterObject);
+    BoundSql actual = compiled.getBoundSql(parameterObject);
+    assertEquals(expected.getSql(), actual.getSql());
+    List<ParameterMapping> expectedMappings = expected.getParameterMappings();
+    List<ParameterMapping> actualMappings = actual.getParameterMappings();
+    assertEquals(expectedMappings.size(), actualMappings.size());
+    for (int i = 0; i < expectedMappings.size(); i++) {
+      assertEquals(expectedMappings.get(i).getProperty(), actualMappings.get(i).getProperty());
+      assertEquals(expectedMappings.get(i).getJavaType(), actualMappings.get(i).getJavaType());
+      assertEquals(expectedMappings.get(i).getJdbcType(), actualMappings.get(i).getJdbcType());
+    }
+    return actual;
+  }
+
+  private static MixedSqlNode mixed(SqlNode... contents) {
+    return new MixedSqlNode(Arrays.asList(contents));
+  }
+
+  private interface Builder {
+    SqlNode build(Configuration configuration);
+  }
+
+}
@@ -0,0 +1,94 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml.dynamic;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.scripting.xmltags.CompiledExpressionEngine;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.OgnlCache;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class CompiledExpressionEngineTest {
+
+  private final CompiledExpressionEngine engine = new CompiledExpressionEngine();
+
+  @Test
+  public void shouldEvaluateLikeOgnl() {
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("name", "cbegin");
+    param.put("empty", "");
+    param.put("id", 3);
+    param.put("amount", 2.5d);
+    param.put("ids", new ArrayList<Integer>(Arrays.asList(1, 2)));
+    param.put("none", new ArrayList<Integer>());
+    param.put("nested", singletonMap("code", "A"));
+    param.put("author", new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS));
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), param).getBindings();
+    String[] expressions = {
+        "name != null", "name == null", "name != null and name != ''", "empty == ''", "missing == null",
+        "id == 3", "id eq 3L", "id > 2", "id >= 3 && id lt 4", "id <= 2 or id == 3", "amount > 2", "amount == 2.5",
+        "id == '3'", "id != -1", "!(id == 3)", "not empty", "ids.size() > 0", "none.isEmpty()", "name.length() == 6",
+        "nested.code == 'AB'", "nested.code == \"A\"", "author.username == name", "author.password == null",
+        "name and id", "empty or id", "id", "_parameter.name"};
+    for (String expression : expressions) {
+      assertEquals(expression, OgnlCache.getValue(expression, bindings), engine.getValue(expression, bindings));
+    }
+  }
+
+  @Test
+  public void shouldCompileTheCommonExpressions() {
+    assertTrue(engine.isCompiled("name != null and name != ''"));
+    assertTrue(engine.isCompiled("ids != null and ids.size() > 0"));
+    assertTrue(engine.isCompiled("!(a.b.c gte -1.5) || d"));
+    assertFalse(engine.isCompiled("id == 3L"));
+    assertFalse(engine.isCompiled("ids.contains(1)"));
+    assertFalse(engine.isCompiled("id + 1 > 2"));
+    assertFalse(engine.isCompiled("@java.lang.Math@abs(id) > 2"));
+    assertFalse(engine.isCompiled("id in {1, 2}"));
+  }
+
+  @Test
+  public void shouldLeaveTheSpecialPropertiesToOgnl() {
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("map", singletonMap("size", "big"));
+    param.put("list", new ArrayList<String>(Arrays.asList("a", "b")));
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), param).getBindings();
+    assertEquals(1, engine.getValue("map.size", bindings));
+    assertEquals(2, engine.getValue("list.size", bindings));
+  }
+
+  @Test
+  public void shouldEvaluateAgainstABean() {
+    Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+    assertEquals(Boolean.TRUE, engine.getValue("username == 'cbegin' and password == null", author));
+  }
+
+  private static Map<String, Object> singletonMap(String key, Object value) {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put(key, value);
+    return map;
+  }
+
+}
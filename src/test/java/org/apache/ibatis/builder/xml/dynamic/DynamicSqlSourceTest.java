@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -37,6 +37,7 @@ import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
 import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
+import org.apache.ibatis.scripting.xmltags.TrimSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -255,6 +256,28 @@ public class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals(expected, boundSql.getSql());
   }
 
+  @Test
+  public void shouldTrimNestedNodesAcrossCalls() throws Exception {
+    DynamicSqlSource source = createDynamicSqlSource(
+        new TextSqlNode("SELECT * FROM BLOG"),
+        new WhereSqlNode(new Configuration(), mixedContents(
+            new IfSqlNode(mixedContents(new TextSqlNode("and ID = #{id} ")), "id != null"),
+            new TextSqlNode("And ( "),
+            new TrimSqlNode(new Configuration(), mixedContents(
+                new IfSqlNode(mixedContents(new TextSqlNode("or NAME = #{name} ")), "name != null"),
+                new TextSqlNode("OR NAME IS NULL ,")), null, "OR ", null, ","),
+            new TextSqlNode(" )"))));
+    Map<String, Object> both = new HashMap<String, Object>();
+    both.put("id", 1);
+    both.put("name", "blog");
+    assertEquals("SELECT * FROM BLOG WHERE  ID = ? And (  NAME = ? OR NAME IS NULL  )", source.getBoundSql(both).getSql());
+    Map<String, Object> none = new HashMap<String, Object>();
+    none.put("id", null);
+    none.put("name", null);
+    assertEquals("SELECT * FROM BLOG WHERE  (  NAME IS NULL  )", source.getBoundSql(none).getSql());
+    assertEquals("SELECT * FROM BLOG WHERE  ID = ? And (  NAME = ? OR NAME IS NULL  )", source.getBoundSql(both).getSql());
+  }
+
   @Test
   public void shouldTrimNoWhereClause() throws Exception {
     final String expected = "SELECT * FROM BLOG";
@@ -0,0 +1,202 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml.dynamic;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
+import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
+import org.apache.ibatis.scripting.xmltags.SqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
+import org.apache.ibatis.scripting.xmltags.TextSqlNode;
+import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.ArrayTypeHandler;
+import org.junit.Test;
+
+public class ForEachItemListTest {
+
+  @Test
+  public void shouldBindTheCollectionOnce() {
+    Configuration configuration = new Configuration();
+    BoundSql boundSql = select(configuration, "id", "#{id}").getBoundSql(ids(1, 2, 3));
+    assertEquals(expand(configuration, ids(1, 2, 3)).getSql(), boundSql.getSql());
+    List<ParameterMapping> mappings = boundSql.getParameterMappings();
+    assertEquals(3, mappings.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Integer.class, mappings.get(i).getJavaType());
+      assertEquals(i + 1, boundSql.getAdditionalParameter(mappings.get(i).getProperty()));
+    }
+    assertFalse(boundSql.hasAdditionalParameter("__frch_id_1"));
+    assertFalse(boundSql.hasAdditionalParameter("id"));
+  }
+
+  @Test
+  public void shouldBindTheCollectionOnceWhenCompiled() {
+    Configuration configuration = new Configuration();
+    configuration.setCompiledDynamicSqlEnabled(true);
+    BoundSql boundSql = select(configuration, "id", "#{id,jdbcType=INTEGER}").getBoundSql(ids(1, 2));
+    assertEquals(expand(configuration, ids(1, 2)).getSql(), boundSql.getSql());
+    assertEquals(2, boundSql.getParameterMappings().size());
+    ParameterMapping second = boundSql.getParameterMappings().get(1);
+    assertEquals(Integer.class, second.getJavaType());
+    assertEquals(2, boundSql.getAdditionalParameter(second.getProperty()));
+  }
+
+  @Test
+  public void shouldBindArraysOfABean() {
+    BoundSql boundSql = select(new Configuration(), "id", "#{id}").getBoundSql(new IdArray(new Long[] {7L, 8L}));
+    ParameterMapping first = boundSql.getParameterMappings().get(0);
+    assertEquals(Long.class, first.getJavaType());
+    assertEquals(7L, boundSql.getAdditionalParameter(first.getProperty()));
+  }
+
+  @Test
+  public void shouldBindAnArrayWhereTheDatabaseSupportsIt() {
+    Configuration configuration = new Configuration();
+    configuration.setDatabaseId("postgresql");
+    configuration.setForeachArrayDatabaseIds(Collections.singleton("postgresql"));
+    BoundSql boundSql = select(configuration, "id", "#{id}").getBoundSql(ids(1, 2, 3));
+    assertEquals("SELECT * FROM BLOG WHERE ID = ANY(?)", boundSql.getSql());
+    ParameterMapping mapping = boundSql.getParameterMappings().get(0);
+    assertTrue(mapping.getTypeHandler() instanceof ArrayTypeHandler);
+    assertEquals(Arrays.asList(1, 2, 3), boundSql.getAdditionalParameter(mapping.getProperty()));
+    assertEquals("the sql does not depend on the items", boundSql.getSql(), select(configuration, "id", "#{id}").getBoundSql(ids(4)).getSql());
+  }
+
+  @Test
+  public void shouldBindAnArrayInsideWhere() {
+    Configuration configuration = new Configuration();
+    configuration.setDatabaseId("postgresql");
+    configuration.setForeachArrayDatabaseIds(Collections.singleton("postgresql"));
+    configuration.setCompiledDynamicSqlEnabled(true);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixed(new StaticTextSqlNode("SELECT * FROM BLOG"),
+        new WhereSqlNode(configuration, mixed(new StaticTextSqlNode("ID NOT IN"),
+            new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("#{id}")), "ids", null, "id", "(", ")", ",")))));
+    BoundSql boundSql = source.getBoundSql(ids(1, 2));
+    assertEquals("SELECT * FROM BLOG WHERE ID <> ALL(?)", boundSql.getSql());
+    assertEquals(1, boundSql.getParameterMappings().size());
+  }
+
+  @Test
+  public void shouldExpandItemsWithoutAnArrayType() {
+    Configuration configuration = new Configuration();
+    configuration.setDatabaseId("postgresql");
+    configuration.setForeachArrayDatabaseIds(Collections.singleton("postgresql"));
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("ids", Arrays.<Object>asList(1, "a"));
+    assertEquals(expand(configuration, param).getSql(), select(configuration, "id", "#{id}").getBoundSql(param).getSql());
+  }
+
+  @Test
+  public void shouldPadToTheNextPowerOfTwo() {
+    Configuration configuration = new Configuration();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixed(new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("#{id}")), "ids", null, "id", "(", ")", ",", ForEachSqlNode.Padding.LAST)));
+    BoundSql five = source.getBoundSql(ids(1, 2, 3, 4, 5));
+    BoundSql seven = source.getBoundSql(ids(1, 2, 3, 4, 5, 6, 7));
+    assertEquals(five.getSql(), seven.getSql());
+    assertEquals(8, five.getParameterMappings().size());
+    assertEquals(5, five.getAdditionalParameter(five.getParameterMappings().get(7).getProperty()));
+    assertEquals(4, source.getBoundSql(ids(1, 2, 3, 4)).getParameterMappings().size());
+  }
+
+  @Test
+  public void shouldPadWithNulls() {
+    Configuration configuration = new Configuration();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixed(new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("#{id}")), "ids", null, "id", "(", ")", ",", ForEachSqlNode.Padding.NULL)));
+    BoundSql boundSql = source.getBoundSql(ids(1, 2, 3));
+    assertEquals(4, boundSql.getParameterMappings().size());
+    assertNull(boundSql.getAdditionalParameter(boundSql.getParameterMappings().get(3).getProperty()));
+  }
+
+  @Test
+  public void shouldPadNotInListsWithTheLastItem() {
+    Configuration configuration = new Configuration();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixed(new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID NOT IN"),
+        new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("#{id}")), "ids", null, "id", "(", ")", ",", ForEachSqlNode.Padding.NULL)));
+    BoundSql boundSql = source.getBoundSql(ids(1, 2, 3));
+    assertEquals(4, boundSql.getParameterMappings().size());
+    assertEquals(3, boundSql.getAdditionalParameter(boundSql.getParameterMappings().get(3).getProperty()));
+  }
+
+  @Test
+  public void shouldNotPadOtherContents() {
+    Configuration configuration = new Configuration();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixed(new StaticTextSqlNode("SELECT * FROM BLOG WHERE"),
+        new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("ID = #{id}")), "ids", null, "id", "(", ")", " OR ", ForEachSqlNode.Padding.LAST)));
+    assertEquals(3, source.getBoundSql(ids(1, 2, 3)).getParameterMappings().size());
+  }
+
+  @Test
+  public void shouldNotPadPastTheInListLimit() {
+    Configuration configuration = new Configuration();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixed(new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("#{id}")), "ids", null, "id", "(", ")", ",", ForEachSqlNode.Padding.LAST)));
+    Integer[] ids = new Integer[600];
+    Arrays.fill(ids, 1);
+    assertEquals(1000, source.getBoundSql(ids(ids)).getParameterMappings().size());
+  }
+
+  private static DynamicSqlSource select(Configuration configuration, String item, String content) {
+    return select(configuration, item, new StaticTextSqlNode(content));
+  }
+
+  private static DynamicSqlSource select(Configuration configuration, String item, SqlNode content) {
+    return new DynamicSqlSource(configuration, mixed(new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixed(content), "ids", null, item, "(", ")", ",")));
+  }
+
+  /**
+   * A text node is not a single static #{item}, so it takes the path binding every item.
+   */
+  private static BoundSql expand(Configuration configuration, Object parameterObject) {
+    return select(configuration, "id", new TextSqlNode("#{id}")).getBoundSql(parameterObject);
+  }
+
+  private static Map<String, Object> ids(Integer... ids) {
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("ids", Arrays.asList(ids));
+    return param;
+  }
+
+  private static MixedSqlNode mixed(SqlNode... contents) {
+    return new MixedSqlNode(Arrays.asList(contents));
+  }
+
+  public static class IdArray {
+    private final Long[] ids;
+
+    public IdArray(Long[] ids) {
+      this.ids = ids;
+    }
+
+    public Long[] getIds() {
+      return ids;
+    }
+  }
+
+}
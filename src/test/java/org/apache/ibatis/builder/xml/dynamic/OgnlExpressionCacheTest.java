@@ -0,0 +1,79 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml.dynamic;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.scripting.xmltags.OgnlExpressionCache;
+import org.junit.Test;
+
+public class OgnlExpressionCacheTest {
+
+  @Test
+  public void shouldCountHitsAndMisses() {
+    OgnlExpressionCache cache = new OgnlExpressionCache(10);
+    Map<String, Object> root = new HashMap<String, Object>();
+    root.put("id", 1);
+    assertEquals(Boolean.TRUE, cache.getValue("id == 1", root));
+    assertEquals(Boolean.TRUE, cache.getValue("id == 1", root));
+    assertEquals(Boolean.FALSE, cache.getValue("id == 2", root));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.getSize());
+    assertEquals(1.0 / 3, cache.getHitRatio(), 0.0001);
+    assertTrue(cache.getTotalParseTime() > 0);
+  }
+
+  @Test
+  public void shouldStayWithinItsMaxSize() {
+    OgnlExpressionCache cache = new OgnlExpressionCache(100);
+    Map<String, Object> root = new HashMap<String, Object>();
+    root.put("id", 1);
+    for (int i = 0; i < 1000; i++) {
+      cache.getValue("id == " + i, root);
+    }
+    assertEquals(100, cache.getSize());
+    assertEquals(900, cache.getEvictionCount());
+  }
+
+  @Test
+  public void shouldGiveTheExpressionsInUseASecondChance() {
+    OgnlExpressionCache cache = new OgnlExpressionCache(2);
+    Map<String, Object> root = new HashMap<String, Object>();
+    root.put("id", 1);
+    cache.getValue("id == 0", root);
+    cache.getValue("id == 1", root);
+    cache.getValue("id == 0", root);
+    cache.getValue("id == 2", root);
+    long misses = cache.getMissCount();
+    cache.getValue("id == 0", root);
+    assertEquals("the expression used before the eviction is still cached", misses, cache.getMissCount());
+  }
+
+  @Test
+  public void shouldShrinkWhenTheMaxSizeIsLowered() {
+    OgnlExpressionCache cache = new OgnlExpressionCache(10);
+    for (int i = 0; i < 10; i++) {
+      cache.getValue("id == " + i, new HashMap<String, Object>());
+    }
+    cache.setMaxSize(0);
+    assertEquals(0, cache.getSize());
+  }
+
+}
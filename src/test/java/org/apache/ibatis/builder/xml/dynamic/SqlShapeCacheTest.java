@@ -0,0 +1,170 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml.dynamic;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
+import org.apache.ibatis.scripting.xmltags.IfSqlNode;
+import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
+import org.apache.ibatis.scripting.xmltags.SqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
+import org.apache.ibatis.scripting.xmltags.TextSqlNode;
+import org.apache.ibatis.scripting.xmltags.VarDeclSqlNode;
+import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class SqlShapeCacheTest {
+
+  @Test
+  public void shouldBindTheValuesOfEachCallToTheCachedSql() {
+    Configuration configuration = new Configuration();
+    configuration.setSqlShapeCacheSize(16);
+    DynamicSqlSource cached = new DynamicSqlSource(configuration, select(configuration));
+    Configuration uncachedConfiguration = new Configuration();
+    DynamicSqlSource uncached = new DynamicSqlSource(uncachedConfiguration, select(uncachedConfiguration));
+    List<Map<String, Object>> params = new ArrayList<Map<String, Object>>();
+    params.add(param(1, "a", "x", 1, 2));
+    params.add(param(2, null, null, 3, 4));
+    params.add(param(null, "b", "y", 5, -6, 7));
+    params.add(param(3, "c", "z", 8, 9));
+    params.add(param(null, null, "w"));
+    params.add(param(4, null, null, -1, 2));
+    for (int round = 0; round < 2; round++) {
+      for (Map<String, Object> param : params) {
+        assertSameBinding(uncached.getBoundSql(param), cached.getBoundSql(param), param);
+      }
+    }
+  }
+
+  @Test
+  public void shouldReuseTheSqlOfTheSameBranches() {
+    Configuration configuration = new Configuration();
+    configuration.setSqlShapeCacheSize(16);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, select(configuration));
+    String first = source.getBoundSql(param(1, "a", null, 1, 2)).getSql();
+    assertSame(first, source.getBoundSql(param(2, "b", null, 3, 4)).getSql());
+    assertNotSame(first, source.getBoundSql(param(2, "b", null, 3, 4, 5)).getSql());
+    assertNotSame(first, source.getBoundSql(param(2, null, null, 3, 4)).getSql());
+  }
+
+  @Test
+  public void shouldNotKeepMoreSqlThanTheCacheSize() {
+    Configuration configuration = new Configuration();
+    configuration.setSqlShapeCacheSize(1);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, select(configuration));
+    String first = source.getBoundSql(param(1, null, null)).getSql();
+    String second = source.getBoundSql(param(null, "a", null)).getSql();
+    assertSame(first, source.getBoundSql(param(2, null, null)).getSql());
+    assertNotSame(second, source.getBoundSql(param(null, "b", null)).getSql());
+  }
+
+  @Test
+  public void shouldNotCacheTheSqlOfDollarExpressions() {
+    Configuration configuration = new Configuration();
+    configuration.setSqlShapeCacheSize(16);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixed(new TextSqlNode("SELECT * FROM BLOG ORDER BY ${column}")));
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("column", "ID");
+    assertEquals("SELECT * FROM BLOG ORDER BY ID", source.getBoundSql(param).getSql());
+    param.put("column", "NAME");
+    assertEquals("SELECT * FROM BLOG ORDER BY NAME", source.getBoundSql(param).getSql());
+  }
+
+  @Test
+  public void shouldNotCacheTheForEachBoundAsOneArray() {
+    Configuration configuration = new Configuration();
+    configuration.setSqlShapeCacheSize(16);
+    configuration.setDatabaseId("postgresql");
+    configuration.setForeachArrayDatabaseIds(new HashSet<String>(Arrays.asList("postgresql")));
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixed(new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("#{id}")), "ids", null, "id", "(", ")", ",")));
+    Map<String, Object> param = param(null, null, null, 1, 2);
+    String first = source.getBoundSql(param).getSql();
+    assertNotSame(first, source.getBoundSql(param).getSql());
+  }
+
+  @Test
+  public void shouldNotCacheTheForEachPaddedWithNulls() {
+    Configuration configuration = new Configuration();
+    configuration.setSqlShapeCacheSize(16);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixed(new StaticTextSqlNode("SELECT * FROM BLOG WHERE ID NOT IN"),
+        new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("#{id}")), "ids", null, "id", "(", ")", ",", ForEachSqlNode.Padding.NULL)));
+    Map<String, Object> param = param(null, null, null, 1, 2, 3);
+    BoundSql boundSql = source.getBoundSql(param);
+    assertNotSame(boundSql.getSql(), source.getBoundSql(param).getSql());
+    assertEquals(3, boundSql.getAdditionalParameter(boundSql.getParameterMappings().get(3).getProperty()));
+  }
+
+  private static SqlNode select(Configuration configuration) {
+    List<SqlNode> whens = new ArrayList<SqlNode>();
+    whens.add(new IfSqlNode(configuration, mixed(new StaticTextSqlNode("AND TITLE = #{title}")), "title != null"));
+    return mixed(new StaticTextSqlNode("SELECT * FROM BLOG"),
+        new WhereSqlNode(configuration, mixed(
+            new IfSqlNode(configuration, mixed(new StaticTextSqlNode("AND ID = #{id}")), "id != null"),
+            new IfSqlNode(configuration, mixed(new VarDeclSqlNode("pattern", "'%' + name + '%'"),
+                new StaticTextSqlNode("AND NAME LIKE #{pattern}")), "name != null"),
+            new ChooseSqlNode(whens, mixed(new StaticTextSqlNode("AND TITLE IS NULL"))),
+            new IfSqlNode(configuration, mixed(new StaticTextSqlNode("AND ID IN"),
+                new ForEachSqlNode(configuration, mixed(new StaticTextSqlNode("#{item}")), "ids", null, "item", "(", ")", ",")),
+                "ids.size() > 0"),
+            new ForEachSqlNode(configuration, mixed(new IfSqlNode(configuration, mixed(new StaticTextSqlNode("AND AUTHOR_ID <> #{i}")), "i > 0")),
+                "ids", "index", "i", null, null, null))));
+  }
+
+  private static Map<String, Object> param(Integer id, String name, String title, Integer... ids) {
+    Map<String, Object> param = new HashMap<String, Object>();
+    param.put("id", id);
+    param.put("name", name);
+    param.put("title", title);
+    param.put("ids", new ArrayList<Integer>(Arrays.asList(ids)));
+    return param;
+  }
+
+  private static void assertSameBinding(BoundSql expected, BoundSql actual, Map<String, Object> param) {
+    assertEquals(expected.getSql(), actual.getSql());
+    List<ParameterMapping> expectedMappings = expected.getParameterMappings();
+    List<ParameterMapping> actualMappings = actual.getParameterMappings();
+    assertEquals(expectedMappings.size(), actualMappings.size());
+    for (int i = 0; i < expectedMappings.size(); i++) {
+      assertEquals(expectedMappings.get(i).getProperty(), actualMappings.get(i).getProperty());
+      assertEquals(expectedMappings.get(i).getJavaType(), actualMappings.get(i).getJavaType());
+      assertEquals(valueOf(expected, expectedMappings.get(i).getProperty(), param),
+          valueOf(actual, actualMappings.get(i).getProperty(), param));
+    }
+  }
+
+  private static Object valueOf(BoundSql boundSql, String property, Map<String, Object> param) {
+    return boundSql.hasAdditionalParameter(property) ? boundSql.getAdditionalParameter(property) : param.get(property);
+  }
+
+  private static MixedSqlNode mixed(SqlNode... contents) {
+    return new MixedSqlNode(Arrays.asList(contents));
+  }
+
+}
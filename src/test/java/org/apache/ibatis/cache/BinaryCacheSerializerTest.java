@@ -0,0 +1,145 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.BinaryCacheSerializer;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.Test;
+
+public class BinaryCacheSerializerTest {
+
+  private final CacheSerializer serializer = new BinaryCacheSerializer();
+
+  @Test
+  public void shouldCopyBeansThroughTheirProperties() {
+    List<Author> authors = new ArrayList<Author>();
+    for (int i = 0; i < 10; i++) {
+      authors.add(new Author(i, "user" + i, "pass" + i, "user" + i + "@example.com", null, Section.NEWS));
+    }
+    Object copy = serializer.deserialize(serializer.serialize(authors));
+    assertEquals(authors, copy);
+    assertNotSame(authors, copy);
+  }
+
+  @Test
+  public void shouldBeSmallerThanJavaSerialization() {
+    List<Author> authors = new ArrayList<Author>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "user" + i, "pass" + i, "user" + i + "@example.com", "bio", Section.VIDEOS));
+    }
+    assertTrue(serializer.serialize(authors).length < new JdkCacheSerializer().serialize(authors).length);
+  }
+
+  @Test
+  public void shouldCopyBeansThatAreNotSerializable() {
+    Node node = new Node();
+    node.setName("root");
+    Node copy = (Node) serializer.deserialize(serializer.serialize(node));
+    assertEquals("root", copy.getName());
+  }
+
+  @Test
+  public void shouldPreserveSharedReferencesAndCycles() {
+    Node parent = new Node();
+    Node child = new Node();
+    parent.setName("parent");
+    parent.getChildren().add(child);
+    parent.getChildren().add(child);
+    child.setParent(parent);
+    Node copy = (Node) serializer.deserialize(serializer.serialize(parent));
+    assertSame(copy.getChildren().get(0), copy.getChildren().get(1));
+    assertSame(copy, copy.getChildren().get(0).getParent());
+  }
+
+  @Test
+  public void shouldCopySimpleValuesAndJdkTypes() {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("decimal", new BigDecimal("12.30"));
+    map.put("timestamp", new Timestamp(123456789L));
+    map.put("array", new String[] { "a", null });
+    map.put("ints", new int[] { 1, 2 });
+    map.put("unmodifiable", Collections.unmodifiableList(Arrays.asList(1L, 2L)));
+    @SuppressWarnings("unchecked")
+    Map<String, Object> copy = (Map<String, Object>) serializer.deserialize(serializer.serialize(map));
+    assertEquals(new BigDecimal("12.30"), copy.get("decimal"));
+    assertEquals(new Timestamp(123456789L), copy.get("timestamp"));
+    assertArrayEquals(new String[] { "a", null }, (Object[]) copy.get("array"));
+    assertArrayEquals(new int[] { 1, 2 }, (int[]) copy.get("ints"));
+    assertEquals(Arrays.asList(1L, 2L), copy.get("unmodifiable"));
+  }
+
+  @Test
+  public void shouldWorkAsSerializedCacheSerializer() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), serializer);
+    Node node = new Node();
+    cache.putObject(0, node);
+    assertNotNull(cache.getObject(0));
+    assertNotSame(node, cache.getObject(0));
+    cache.putObject(1, null);
+    assertNull(cache.getObject(1));
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectNonSerializableJdkObjects() {
+    serializer.serialize(new Object());
+  }
+
+  public static class Node {
+    private String name;
+    private Node parent;
+    private List<Node> children = new ArrayList<Node>();
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Node getParent() {
+      return parent;
+    }
+
+    public void setParent(Node parent) {
+      this.parent = parent;
+    }
+
+    public List<Node> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Node> children) {
+      this.children = children;
+    }
+  }
+
+}
@@ -0,0 +1,127 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.UdpInvalidationTransport;
+import org.apache.ibatis.session.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheInvalidationBusTest {
+
+  private Node nodeA;
+  private Node nodeB;
+
+  @Before
+  public void setUp() {
+    nodeA = new Node();
+    nodeB = new Node();
+    nodeA.transport.setPeers("127.0.0.1:" + nodeB.transport.getLocalPort());
+    nodeB.transport.setPeers("127.0.0.1:" + nodeA.transport.getLocalPort());
+  }
+
+  @After
+  public void tearDown() {
+    nodeA.bus.close();
+    nodeB.bus.close();
+  }
+
+  @Test
+  public void shouldClearTheCacheOfOtherNodes() throws Exception {
+    nodeA.cache.putObject("blog", "blog");
+    nodeB.cache.putObject("blog", "blog");
+    nodeA.bus.publishClear(nodeA.cache);
+    waitUntilEmpty(nodeB.cache);
+    assertEquals("the sender already cleared its own cache", 1, nodeA.cache.getSize());
+  }
+
+  @Test
+  public void shouldInvalidateTablesOnOtherNodes() throws Exception {
+    nodeB.cache.putObject("blog", "blog");
+    nodeB.cache.putObject("author", "author");
+    nodeB.configuration.getCacheDependencyTracker().register(nodeB.cache, "blog", Collections.singleton("blog"));
+    nodeB.configuration.getCacheDependencyTracker().register(nodeB.cache, "author", Collections.singleton("author"));
+    nodeA.bus.publishTables(Collections.singleton("blog"));
+    waitUntilSize(nodeB.cache, 1);
+    assertNotNull(nodeB.cache.getObject("author"));
+  }
+
+  @Test
+  public void shouldPublishCommittedClears() throws Exception {
+    nodeB.cache.putObject("blog", "blog");
+    TransactionalCache txCache = new TransactionalCache(nodeA.cache, nodeA.bus);
+    txCache.clear();
+    Thread.sleep(100);
+    assertEquals("nothing is published before commit", 1, nodeB.cache.getSize());
+    txCache.commit();
+    waitUntilEmpty(nodeB.cache);
+  }
+
+  @Test
+  public void shouldIgnoreOwnMessages() throws Exception {
+    nodeA.transport.setPeers("127.0.0.1:" + nodeA.transport.getLocalPort() + ",127.0.0.1:" + nodeB.transport.getLocalPort());
+    nodeA.cache.putObject("blog", "blog");
+    nodeB.cache.putObject("blog", "blog");
+    nodeA.bus.publishClear(new PerpetualCache("ns"));
+    waitUntilEmpty(nodeB.cache);
+    Thread.sleep(100);
+    assertEquals(1, nodeA.cache.getSize());
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldCloseTheTransportWithTheConfiguration() {
+    nodeA.configuration.setCacheInvalidationBus(nodeA.bus);
+    nodeA.configuration.close();
+    nodeA.transport.send(new byte[1]);
+  }
+
+  private static void waitUntilEmpty(Cache cache) throws InterruptedException {
+    waitUntilSize(cache, 0);
+  }
+
+  private static void waitUntilSize(Cache cache, int size) throws InterruptedException {
+    for (int i = 0; i < 100 && cache.getSize() != size; i++) {
+      Thread.sleep(20);
+    }
+    assertEquals(size, cache.getSize());
+  }
+
+  private static class Node {
+    private final Configuration configuration = new Configuration();
+    private final Cache cache = new PerpetualCache("ns");
+    private final UdpInvalidationTransport transport = new UdpInvalidationTransport();
+    private final CacheInvalidationBus bus = new CacheInvalidationBus(configuration, transport);
+
+    private Node() {
+      configuration.addCache(cache);
+      Properties properties = new Properties();
+      properties.setProperty("port", "0");
+      properties.setProperty("bindAddress", "127.0.0.1");
+      transport.setProperties(properties);
+      bus.open();
+    }
+  }
+
+}
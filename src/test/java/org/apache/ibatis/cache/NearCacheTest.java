@@ -0,0 +1,175 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.NearCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class NearCacheTest {
+
+  @Test
+  public void shouldServeRepeatedReadsFromTheThreadMirror() {
+    CountingCache shared = new CountingCache();
+    NearCache cache = new NearCache(shared);
+    cache.putObject("blog", "blog");
+    for (int i = 0; i < 10; i++) {
+      assertEquals("blog", cache.getObject("blog"));
+    }
+    assertEquals(1, shared.reads.get());
+  }
+
+  @Test
+  public void shouldNotMirrorMisses() {
+    CountingCache shared = new CountingCache();
+    NearCache cache = new NearCache(shared);
+    assertNull(cache.getObject("blog"));
+    assertNull(cache.getObject("blog"));
+    assertEquals(2, shared.reads.get());
+  }
+
+  @Test
+  public void shouldDropMirrorsOnAnyChange() throws Exception {
+    final NearCache cache = new NearCache(new PerpetualCache("shared"));
+    cache.putObject("blog", "old");
+    assertEquals("old", cache.getObject("blog"));
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        cache.putObject("blog", "new");
+      }
+    });
+    writer.start();
+    writer.join();
+    assertEquals("new", cache.getObject("blog"));
+    cache.removeObject("blog");
+    assertNull(cache.getObject("blog"));
+    cache.putObject("blog", "blog");
+    assertEquals("blog", cache.getObject("blog"));
+    cache.clear();
+    assertNull(cache.getObject("blog"));
+  }
+
+  @Test
+  public void shouldNotMirrorAValueReadWhileItIsReplaced() {
+    final NearCache[] near = new NearCache[1];
+    Cache shared = new PerpetualCache("shared") {
+      @Override
+      public void putObject(Object key, Object value) {
+        // a reader in between the version change and the delegate change
+        near[0].getObject(key);
+        super.putObject(key, value);
+      }
+    };
+    near[0] = new NearCache(shared);
+    near[0].putObject("blog", "old");
+    near[0].putObject("blog", "new");
+    assertEquals("new", near[0].getObject("blog"));
+  }
+
+  @Test
+  public void shouldKeepTheMirrorOnPutsOfOtherKeys() {
+    CountingCache shared = new CountingCache();
+    NearCache cache = new NearCache(shared);
+    cache.putObject("blog", "blog");
+    cache.getObject("blog");
+    for (int i = 0; i < 10; i++) {
+      cache.putObject("author" + i, "author");
+    }
+    cache.getObject("blog");
+    assertEquals(1, shared.reads.get());
+  }
+
+  @Test
+  public void shouldKeepOneMirrorPerThread() throws Exception {
+    CountingCache shared = new CountingCache();
+    final NearCache cache = new NearCache(shared);
+    cache.putObject("blog", "blog");
+    cache.getObject("blog");
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        cache.getObject("blog");
+        cache.getObject("blog");
+      }
+    });
+    reader.start();
+    reader.join();
+    assertEquals(2, shared.reads.get());
+  }
+
+  @Test
+  public void shouldBoundTheMirror() {
+    CountingCache shared = new CountingCache();
+    NearCache cache = new NearCache(shared);
+    cache.setSize(2);
+    for (int i = 0; i < 3; i++) {
+      cache.putObject(i, i);
+    }
+    for (int i = 0; i < 3; i++) {
+      cache.getObject(i);
+    }
+    cache.getObject(2);
+    assertEquals(3, shared.reads.get());
+    cache.getObject(0);
+    assertEquals("the eldest entry was evicted", 4, shared.reads.get());
+  }
+
+  @Test
+  public void shouldExpireMirroredEntries() throws Exception {
+    CountingCache shared = new CountingCache();
+    NearCache cache = new NearCache(shared);
+    cache.setMaxAge(50);
+    cache.putObject("blog", "blog");
+    cache.getObject("blog");
+    cache.getObject("blog");
+    assertEquals(1, shared.reads.get());
+    Thread.sleep(100);
+    cache.getObject("blog");
+    assertEquals(2, shared.reads.get());
+  }
+
+  @Test
+  public void shouldBeTheOutermostLockFreeDecorator() {
+    Cache cache = new CacheBuilder("blogs").nearCacheSize(10).readWrite(false).build();
+    assertTrue(cache instanceof NearCache);
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRequireAReadOnlyCache() {
+    new CacheBuilder("blogs").nearCacheSize(10).readWrite(true).build();
+  }
+
+  private static class CountingCache extends PerpetualCache {
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private CountingCache() {
+      super("shared");
+    }
+
+    @Override
+    public Object getObject(Object key) {
+      reads.incrementAndGet();
+      return super.getObject(key);
+    }
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -19,6 +19,11 @@ import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.junit.Test;
 
 public class ScheduledCacheTest {
@@ -65,4 +70,139 @@ public class ScheduledCacheTest {
     assertNull(cache.getObject(4));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldExpireEntriesIndividually() {
+    AtomicLong clock = new AtomicLong();
+    ScheduledCache cache = perEntryCache(clock);
+    cache.setClearInterval(300);
+    cache.putObject(0, 0);
+    clock.set(200);
+    cache.putObject(1, 1);
+    clock.set(400);
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getObject(1));
+    clock.set(600);
+    assertNull(cache.getObject(1));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldAddJitterToExpiration() {
+    AtomicLong clock = new AtomicLong();
+    ScheduledCache cache = perEntryCache(clock);
+    cache.setClearInterval(100);
+    cache.setJitter(60000);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    clock.set(200);
+    int alive = 0;
+    for (int i = 0; i < 100; i++) {
+      if (cache.getObject(i) != null) {
+        alive++;
+      }
+    }
+    assertTrue(alive > 90);
+  }
+
+  @Test
+  public void shouldServeStaleValueWhileRefreshing() {
+    AtomicLong clock = new AtomicLong();
+    RecordingRefresher refresher = new RecordingRefresher();
+    ScheduledCache cache = perEntryCache(clock);
+    cache.setClearInterval(200);
+    cache.setRefreshAhead(0.5);
+    cache.setRefresher(refresher);
+    assertSame(cache, refresher.registered);
+    cache.putObject(0, "old");
+    cache.attachSource(0, "source");
+    assertEquals("old", cache.getObject(0));
+    assertTrue(refresher.refreshed.isEmpty());
+    clock.set(300);
+    // past the expiration but a refresh is running
+    assertEquals("old", cache.getObject(0));
+    assertEquals("old", cache.getObject(0));
+    assertEquals(1, refresher.refreshed.size());
+    assertEquals("source", refresher.refreshed.get(0));
+    cache.putRefreshed(cache, 0, "new", refresher.claims.get(0));
+    cache.refreshDone(0, refresher.claims.get(0));
+    assertEquals("new", cache.getObject(0));
+    clock.set(450);
+    assertEquals("new", cache.getObject(0));
+    assertEquals("the refreshed entry keeps its source", 2, refresher.refreshed.size());
+  }
+
+  @Test
+  public void shouldDropTheRefreshOfAFlushedEntry() {
+    AtomicLong clock = new AtomicLong();
+    RecordingRefresher refresher = new RecordingRefresher();
+    ScheduledCache cache = perEntryCache(clock);
+    cache.setClearInterval(200);
+    cache.setRefreshAhead(0.5);
+    cache.setRefresher(refresher);
+    cache.putObject(0, "old");
+    cache.attachSource(0, "source");
+    cache.putObject(1, "old");
+    cache.attachSource(1, "source");
+    clock.set(150);
+    cache.getObject(0);
+    cache.getObject(1);
+    assertEquals(2, refresher.claims.size());
+    cache.removeObject(0);
+    cache.putRefreshed(cache, 0, "stale", refresher.claims.get(0));
+    assertNull(cache.getObject(0));
+    cache.clear();
+    cache.putObject(1, "current");
+    cache.putRefreshed(cache, 1, "stale", refresher.claims.get(1));
+    assertEquals("current", cache.getObject(1));
+  }
+
+  @Test
+  public void shouldExpireWhenRefreshIsRejected() {
+    AtomicLong clock = new AtomicLong();
+    RecordingRefresher refresher = new RecordingRefresher();
+    refresher.accept = false;
+    ScheduledCache cache = perEntryCache(clock);
+    cache.setClearInterval(100);
+    cache.setRefreshAhead(0.5);
+    cache.setRefresher(refresher);
+    cache.putObject(0, 0);
+    cache.attachSource(0, "source");
+    clock.set(150);
+    assertNull(cache.getObject(0));
+  }
+
+  /**
+   * @return A per entry cache whose time is the clock
+   */
+  private static ScheduledCache perEntryCache(final AtomicLong clock) {
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("DefaultCache")) {
+      @Override
+      protected long currentTimeMillis() {
+        return clock.get();
+      }
+    };
+    cache.setPerEntry(true);
+    return cache;
+  }
+
+  private static class RecordingRefresher implements ScheduledCache.Refresher {
+    private ScheduledCache registered;
+    private final List<Object> refreshed = new ArrayList<Object>();
+    private final List<Object> claims = new ArrayList<Object>();
+    private boolean accept = true;
+
+    @Override
+    public void register(ScheduledCache cache) {
+      registered = cache;
+    }
+
+    @Override
+    public boolean refresh(ScheduledCache cache, Object key, Object source, Object claim) {
+      refreshed.add(source);
+      claims.add(claim);
+      return accept;
+    }
+  }
+
+}
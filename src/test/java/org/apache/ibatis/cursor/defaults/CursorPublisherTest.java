@@ -0,0 +1,188 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.ResultSubscriber;
+import org.apache.ibatis.cursor.ResultSubscription;
+import org.junit.Test;
+
+public class CursorPublisherTest {
+
+  @Test
+  public void shouldSendOnlyTheRequestedRows() {
+    ListCursor cursor = new ListCursor(1, 2, 3, 4, 5);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new CursorPublisher<Integer>(cursor).subscribe(subscriber);
+    assertEquals(0, cursor.fetched);
+    subscriber.subscription.request(2);
+    assertEquals(Arrays.asList("1", "2"), subscriber.events);
+    // one row ahead to know whether there are more
+    assertEquals(3, cursor.fetched);
+    subscriber.subscription.request(10);
+    assertEquals(Arrays.asList("1", "2", "3", "4", "5", "complete"), subscriber.events);
+    assertTrue(cursor.closed);
+  }
+
+  @Test
+  public void shouldServeRequestsMadeWhileSending() {
+    ListCursor cursor = new ListCursor(1, 2, 3);
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(Integer item) {
+        super.onNext(item);
+        // one at a time, requested from onNext
+        subscription.request(1);
+      }
+    };
+    new CursorPublisher<Integer>(cursor).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    assertEquals(Arrays.asList("1", "2", "3", "complete"), subscriber.events);
+  }
+
+  @Test
+  public void shouldCloseTheCursorOnCancel() {
+    ListCursor cursor = new ListCursor(1, 2, 3);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new CursorPublisher<Integer>(cursor).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+    assertTrue(cursor.closed);
+    subscriber.subscription.request(1);
+    assertEquals(Arrays.asList("1"), subscriber.events);
+  }
+
+  @Test
+  public void shouldReportFetchErrors() {
+    ListCursor cursor = new ListCursor(1, null, 3);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new CursorPublisher<Integer>(cursor).subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(Arrays.asList("1", "error IllegalStateException"), subscriber.events);
+    assertTrue(cursor.closed);
+  }
+
+  @Test
+  public void shouldRejectInvalidRequestsAndSecondSubscribers() {
+    ListCursor cursor = new ListCursor(1);
+    CursorPublisher<Integer> publisher = new CursorPublisher<Integer>(cursor);
+    RecordingSubscriber first = new RecordingSubscriber();
+    publisher.subscribe(first);
+    RecordingSubscriber second = new RecordingSubscriber();
+    publisher.subscribe(second);
+    assertEquals(Arrays.asList("error IllegalStateException"), second.events);
+    first.subscription.request(0);
+    assertEquals(Arrays.asList("error IllegalArgumentException"), first.events);
+    assertTrue(cursor.closed);
+  }
+
+  private static class RecordingSubscriber implements ResultSubscriber<Integer> {
+    protected ResultSubscription subscription;
+    protected final List<String> events = new ArrayList<String>();
+
+    @Override
+    public void onSubscribe(ResultSubscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(Integer item) {
+      events.add(String.valueOf(item));
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      events.add("error " + throwable.getClass().getSimpleName());
+    }
+
+    @Override
+    public void onComplete() {
+      events.add("complete");
+    }
+  }
+
+  /**
+   * Counts the fetched rows, a null row fails when fetched.
+   */
+  private static class ListCursor implements Cursor<Integer> {
+    private final List<Integer> rows;
+    private int fetched;
+    private boolean closed;
+
+    private ListCursor(Integer... rows) {
+      this.rows = Arrays.asList(rows);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return fetched > 0 && !closed;
+    }
+
+    @Override
+    public boolean isConsumed() {
+      return fetched == rows.size();
+    }
+
+    @Override
+    public int getCurrentIndex() {
+      return fetched - 1;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+      return new Iterator<Integer>() {
+        private Integer next;
+
+        @Override
+        public boolean hasNext() {
+          if (next == null && fetched < rows.size()) {
+            next = rows.get(fetched++);
+            if (next == null) {
+              throw new IllegalStateException("Bad row");
+            }
+          }
+          return next != null;
+        }
+
+        @Override
+        public Integer next() {
+          hasNext();
+          Integer row = next;
+          next = null;
+          return row;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AutoFlushBatchExecutorTest {
+
+  private Configuration configuration;
+  private List<String> events;
+  private BatchExecutor executor;
+  private MappedStatement insertName;
+
+  @Before
+  public void setUp() {
+    configuration = new Configuration();
+    events = new ArrayList<String>();
+    executor = new BatchExecutor(configuration, new JdbcTransaction(RecordingJdbc.connection(events)));
+    List<ParameterMapping> parameterMappings = Collections.singletonList(
+        new ParameterMapping.Builder(configuration, "name", String.class).build());
+    insertName = new MappedStatement.Builder(configuration, "insertName",
+        new StaticSqlSource(configuration, "insert into names values (?)", parameterMappings), SqlCommandType.INSERT).build();
+  }
+
+  @Test
+  public void shouldFlushEveryBatchSizeStatements() throws Exception {
+    configuration.setBatchSize(2);
+    for (int i = 0; i < 5; i++) {
+      executor.update(insertName, "name" + i);
+    }
+    assertEquals(2, countExecutions());
+    List<BatchResult> results = executor.flushStatements();
+    assertEquals(3, countExecutions());
+    assertEquals("auto flushed results are returned by the next flush", 3, results.size());
+    assertEquals("name4", results.get(2).getParameterObjects().get(0));
+  }
+
+  @Test
+  public void shouldKeepOnlyTheUpdateCountsOfAutoFlushedResults() throws Exception {
+    configuration.setBatchSize(2);
+    for (int i = 0; i < 3; i++) {
+      executor.update(insertName, "name" + i);
+    }
+    List<BatchResult> results = executor.flushStatements();
+    assertEquals(2, results.size());
+    assertEquals(2, results.get(0).getUpdateCounts().length);
+    assertTrue(results.get(0).getParameterObjects().isEmpty());
+    assertEquals(Arrays.<Object>asList("name2"), results.get(1).getParameterObjects());
+  }
+
+  @Test
+  public void shouldFlushWhenTheParametersGrowTooBig() throws Exception {
+    configuration.setBatchMaxBytes(1000);
+    StringBuilder longName = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      longName.append('x');
+    }
+    executor.update(insertName, "short");
+    assertEquals(0, countExecutions());
+    executor.update(insertName, longName.toString());
+    executor.update(insertName, longName.toString());
+    assertEquals(1, countExecutions());
+  }
+
+  @Test
+  public void shouldStreamResultsToTheListener() throws Exception {
+    final List<BatchResult> received = new ArrayList<BatchResult>();
+    configuration.setBatchSize(2);
+    configuration.setBatchResultListener(new BatchResultListener() {
+      @Override
+      public void onFlush(List<BatchResult> results) {
+        received.addAll(results);
+      }
+    });
+    for (int i = 0; i < 5; i++) {
+      executor.update(insertName, "name" + i);
+    }
+    assertEquals(2, received.size());
+    List<BatchResult> results = executor.flushStatements();
+    assertEquals("only the last flush is returned", 1, results.size());
+    assertEquals(3, received.size());
+  }
+
+  @Test
+  public void shouldDropAutoFlushedResultsOnRollback() throws Exception {
+    configuration.setBatchSize(2);
+    for (int i = 0; i < 3; i++) {
+      executor.update(insertName, "name" + i);
+    }
+    executor.rollback(true);
+    assertTrue(executor.flushStatements().isEmpty());
+  }
+
+  private int countExecutions() {
+    int executions = 0;
+    for (String event : events) {
+      if (event.startsWith("execute")) {
+        executions++;
+      }
+    }
+    return executions;
+  }
+
+}
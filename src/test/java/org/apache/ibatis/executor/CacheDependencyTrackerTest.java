@@ -0,0 +1,173 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.RemovalNotifyingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class CacheDependencyTrackerTest {
+
+  @Test
+  public void shouldFindTablesOfQueries() {
+    assertEquals(tables("blog"), CacheDependencyTracker.parseTables("select * from blog where id = ?"));
+    assertEquals(tables("blog", "author"),
+        CacheDependencyTracker.parseTables("SELECT b.id FROM Blog b INNER JOIN \"APP\".\"AUTHOR\" a ON a.id = b.author_id"));
+    assertEquals(tables("blog", "author", "post"),
+        CacheDependencyTracker.parseTables("select * from blog as b, author a, post where b.id = ?"));
+    assertEquals(tables("blog", "post"),
+        CacheDependencyTracker.parseTables("select * from blog where id in (select blog_id from post where subject = 'from comment')"));
+    assertEquals(tables("blog"),
+        CacheDependencyTracker.parseTables("select /* from author */ * from blog -- join post\n where id = ?"));
+  }
+
+  @Test
+  public void shouldFindTablesOfWrites() {
+    assertEquals(tables("blog"), CacheDependencyTracker.parseTables("insert into blog (id, title) values (?, ?)"));
+    assertEquals(tables("blog"), CacheDependencyTracker.parseTables("update blog set title = ? where id = ?"));
+    assertEquals(tables("blog"), CacheDependencyTracker.parseTables("delete from `blog` where id = ?"));
+    assertEquals(tables("blog"), CacheDependencyTracker.parseTables("truncate table blog"));
+  }
+
+  @Test
+  public void shouldReturnEmptySetWhenNoTableIsFound() {
+    assertTrue(CacheDependencyTracker.parseTables("select 1").isEmpty());
+    assertTrue(CacheDependencyTracker.parseTables("{call refresh_blogs(?)}").isEmpty());
+  }
+
+  @Test
+  public void shouldPreferDeclaredTables() {
+    Configuration configuration = new Configuration();
+    MappedStatement ms = new MappedStatement.Builder(configuration, "selectBlog",
+        new StaticSqlSource(configuration, "select * from blog_view"), SqlCommandType.SELECT)
+        .tables(" Blog,author").build();
+    CacheDependencyTracker tracker = new CacheDependencyTracker();
+    assertEquals(tables("blog", "author"), tracker.getTables(ms, (Object) null));
+  }
+
+  @Test
+  public void shouldInvalidateOnlyDependentEntries() {
+    CacheDependencyTracker tracker = new CacheDependencyTracker();
+    Cache blogs = new PerpetualCache("blogs");
+    Cache authors = new PerpetualCache("authors");
+    blogs.putObject("blog", "blog");
+    blogs.putObject("blogWithAuthor", "blogWithAuthor");
+    authors.putObject("author", "author");
+    tracker.register(blogs, "blog", tables("blog"));
+    tracker.register(blogs, "blogWithAuthor", tables("blog", "author"));
+    tracker.register(authors, "author", tables("author"));
+    tracker.invalidate(tables("author"));
+    assertNotNull(blogs.getObject("blog"));
+    assertNull(blogs.getObject("blogWithAuthor"));
+    assertNull(authors.getObject("author"));
+    tracker.invalidate(tables("author"));
+    assertNotNull(blogs.getObject("blog"));
+  }
+
+  @Test
+  public void shouldInvalidateEntriesWithUnknownTablesOnAnyWrite() {
+    CacheDependencyTracker tracker = new CacheDependencyTracker();
+    Cache cache = new PerpetualCache("cache");
+    cache.putObject("unknown", "unknown");
+    cache.putObject("blog", "blog");
+    tracker.register(cache, "unknown", null);
+    tracker.register(cache, "blog", tables("blog"));
+    tracker.invalidate(tables("post"));
+    assertNull(cache.getObject("unknown"));
+    assertNotNull(cache.getObject("blog"));
+  }
+
+  @Test
+  public void shouldClearTheCacheWhenTooManyEntriesAreTracked() {
+    CacheDependencyTracker tracker = new CacheDependencyTracker();
+    tracker.setMaxKeysPerTable(2);
+    Cache cache = new PerpetualCache("cache");
+    for (int i = 0; i < 3; i++) {
+      cache.putObject(i, i);
+      tracker.register(cache, i, tables("blog"));
+    }
+    cache.putObject("untracked", "untracked");
+    tracker.invalidate(tables("blog"));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldClearBlockingCaches() {
+    CacheDependencyTracker tracker = new CacheDependencyTracker();
+    Cache cache = new BlockingCache(new PerpetualCache("cache"));
+    assertNull(cache.getObject("blog"));
+    cache.putObject("blog", "blog");
+    tracker.register(cache, "blog", tables("blog"));
+    tracker.invalidate(tables("blog"));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldForgetEvictedEntries() {
+    CacheDependencyTracker tracker = new CacheDependencyTracker();
+    tracker.setMaxKeysPerTable(2);
+    LruCache cache = new LruCache(new RemovalNotifyingCache(new PerpetualCache("cache"), tracker));
+    cache.setSize(3);
+    cache.putObject("author", "author");
+    tracker.register(cache, "author", tables("author"));
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+      tracker.register(cache, i, tables("blog"));
+      cache.getObject("author");
+    }
+    tracker.invalidate(tables("blog"));
+    assertEquals("author", cache.getObject("author"));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldForgetTheEntriesOfClearedCaches() {
+    CacheDependencyTracker tracker = new CacheDependencyTracker();
+    tracker.setMaxKeysPerTable(2);
+    Cache cache = new RemovalNotifyingCache(new PerpetualCache("cache"), tracker);
+    for (int i = 0; i < 2; i++) {
+      cache.putObject(i, i);
+      tracker.register(cache, i, tables("blog"));
+    }
+    cache.clear();
+    for (int i = 2; i < 4; i++) {
+      cache.putObject(i, i);
+      tracker.register(cache, i, tables("blog"));
+    }
+    cache.putObject("untracked", "untracked");
+    tracker.invalidate(tables("blog"));
+    assertEquals(1, cache.getSize());
+  }
+
+  private static Set<String> tables(String... tables) {
+    return Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(tables)));
+  }
+
+}
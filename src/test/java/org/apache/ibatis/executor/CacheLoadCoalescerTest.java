@@ -0,0 +1,307 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.After;
+import org.junit.Test;
+
+public class CacheLoadCoalescerTest {
+
+  private final CacheLoadCoalescer coalescer = new CacheLoadCoalescer();
+  private final Cache cache = new PerpetualCache("default");
+  private final CacheKey key = new CacheKey(new Object[] { "select", 1 });
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldRunOneQueryForConcurrentMisses() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger queries = new AtomicInteger();
+    final Callable<List<String>> loader = new Callable<List<String>>() {
+      @Override
+      public List<String> call() throws Exception {
+        queries.incrementAndGet();
+        release.await();
+        return Collections.singletonList("row");
+      }
+    };
+    List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+    for (int i = 0; i < 4; i++) {
+      results.add(executor.submit(new Callable<List<String>>() {
+        @Override
+        public List<String> call() throws Exception {
+          return coalescer.load(cache, key, null, loader);
+        }
+      }));
+    }
+    waitForFollowers(coalescer, 3);
+    release.countDown();
+    for (Future<List<String>> result : results) {
+      assertEquals(Collections.singletonList("row"), result.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, queries.get());
+    assertEquals(0, coalescer.getInFlightCount());
+  }
+
+  @Test
+  public void shouldReportFailureToEveryWaitingSession() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final Callable<List<String>> loader = new Callable<List<String>>() {
+      @Override
+      public List<String> call() throws Exception {
+        release.await();
+        throw new SQLException("boom", "42000", 7);
+      }
+    };
+    List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+    for (int i = 0; i < 3; i++) {
+      results.add(executor.submit(new Callable<List<String>>() {
+        @Override
+        public List<String> call() throws Exception {
+          return coalescer.load(cache, key, null, loader);
+        }
+      }));
+    }
+    waitForFollowers(coalescer, 2);
+    release.countDown();
+    for (Future<List<String>> result : results) {
+      try {
+        result.get(5, TimeUnit.SECONDS);
+        fail();
+      } catch (java.util.concurrent.ExecutionException e) {
+        SQLException cause = (SQLException) e.getCause();
+        assertEquals("42000", cause.getSQLState());
+        assertEquals(7, cause.getErrorCode());
+      }
+    }
+    assertEquals(0, coalescer.getInFlightCount());
+    // nothing stays locked after a failure
+    assertEquals(Collections.singletonList("again"), coalescer.load(cache, key, null, new Callable<List<String>>() {
+      @Override
+      public List<String> call() throws Exception {
+        return Collections.singletonList("again");
+      }
+    }));
+  }
+
+  @Test
+  public void shouldStopWaitingAfterTimeout() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(1);
+    Future<List<String>> leader = executor.submit(new Callable<List<String>>() {
+      @Override
+      public List<String> call() throws Exception {
+        return coalescer.load(cache, key, null, new Callable<List<String>>() {
+          @Override
+          public List<String> call() throws Exception {
+            started.countDown();
+            release.await();
+            return Collections.singletonList("row");
+          }
+        });
+      }
+    });
+    started.await();
+    try {
+      coalescer.load(cache, key, 50, new Callable<List<String>>() {
+        @Override
+        public List<String> call() throws Exception {
+          throw new IllegalStateException("should wait for the running load");
+        }
+      });
+      fail();
+    } catch (ExecutorException e) {
+      assertTrue(e.getMessage().contains("Timed out"));
+    }
+    release.countDown();
+    assertEquals(Collections.singletonList("row"), leader.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldNotWaitForItselfOnNestedLoadOfTheSameKey() throws Exception {
+    List<String> result = coalescer.load(cache, key, null, new Callable<List<String>>() {
+      @Override
+      public List<String> call() throws Exception {
+        return coalescer.load(cache, key, null, new Callable<List<String>>() {
+          @Override
+          public List<String> call() throws Exception {
+            return Collections.singletonList("nested");
+          }
+        });
+      }
+    });
+    assertEquals(Collections.singletonList("nested"), result);
+  }
+
+  @Test(timeout = 5000)
+  public void shouldNotWaitForEachOtherOnCrossedNestedLoads() throws Exception {
+    final CacheKey otherKey = new CacheKey(new Object[] { "select", 2 });
+    final CountDownLatch bothLoading = new CountDownLatch(2);
+    Future<List<String>> first = executor.submit(nestedLoad(key, otherKey, bothLoading));
+    Future<List<String>> second = executor.submit(nestedLoad(otherKey, key, bothLoading));
+    assertEquals(Collections.singletonList("nested"), first.get());
+    assertEquals(Collections.singletonList("nested"), second.get());
+  }
+
+  @Test
+  public void shouldNotCoalesceTheLoadsOfASessionWithPendingWrites() throws Exception {
+    final Configuration configuration = new Configuration();
+    configuration.setCacheLoadCoalescing(true);
+    configuration.addReadOnlyCache(cache);
+    final MappedStatement select = new MappedStatement.Builder(configuration, "selectRow",
+        new StaticSqlSource(configuration, "select * from row"), SqlCommandType.SELECT).cache(cache).useCache(true).build();
+    MappedStatement update = new MappedStatement.Builder(configuration, "updateRow",
+        new StaticSqlSource(configuration, "update row"), SqlCommandType.UPDATE).build();
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger queries = new AtomicInteger();
+    final Executor writer = new CachingExecutor(blockingExecutor(release, queries));
+    writer.update(update, null);
+    final Executor reader = new CachingExecutor(blockingExecutor(release, queries));
+    List<Future<List<Object>>> results = new ArrayList<Future<List<Object>>>();
+    for (final Executor session : Arrays.asList(writer, reader)) {
+      results.add(executor.submit(new Callable<List<Object>>() {
+        @Override
+        public List<Object> call() throws Exception {
+          return session.query(select, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        }
+      }));
+    }
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (queries.get() < 2 && System.nanoTime() < deadline) {
+      Thread.yield();
+    }
+    release.countDown();
+    results.get(0).get(5, TimeUnit.SECONDS);
+    results.get(1).get(5, TimeUnit.SECONDS);
+    assertEquals("neither shares the view of the session that wrote", 2, queries.get());
+  }
+
+  @Test
+  public void shouldGiveEachSessionItsOwnResultList() throws Exception {
+    final Configuration configuration = new Configuration();
+    configuration.setCacheLoadCoalescing(true);
+    configuration.addReadOnlyCache(cache);
+    final MappedStatement ms = new MappedStatement.Builder(configuration, "selectRow",
+        new StaticSqlSource(configuration, "select * from row"), SqlCommandType.SELECT).cache(cache).useCache(true).build();
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger queries = new AtomicInteger();
+    List<Future<List<Object>>> results = new ArrayList<Future<List<Object>>>();
+    for (int i = 0; i < 2; i++) {
+      final Executor session = new CachingExecutor(blockingExecutor(release, queries));
+      results.add(executor.submit(new Callable<List<Object>>() {
+        @Override
+        public List<Object> call() throws Exception {
+          return session.query(ms, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        }
+      }));
+    }
+    waitForFollowers(configuration.getCacheLoadCoalescer(), 1);
+    release.countDown();
+    List<Object> first = results.get(0).get(5, TimeUnit.SECONDS);
+    List<Object> second = results.get(1).get(5, TimeUnit.SECONDS);
+    assertEquals(1, queries.get());
+    assertEquals(first, second);
+    assertNotSame(first, second);
+  }
+
+  /**
+   * @return A load of the key whose query, once the other load is running too, misses the other key
+   */
+  private Callable<List<String>> nestedLoad(final CacheKey loadedKey, final CacheKey nestedKey, final CountDownLatch bothLoading) {
+    return new Callable<List<String>>() {
+      @Override
+      public List<String> call() throws Exception {
+        return coalescer.load(cache, loadedKey, null, new Callable<List<String>>() {
+          @Override
+          public List<String> call() throws Exception {
+            bothLoading.countDown();
+            bothLoading.await();
+            return coalescer.load(cache, nestedKey, null, new Callable<List<String>>() {
+              @Override
+              public List<String> call() throws Exception {
+                return Collections.singletonList("nested");
+              }
+            });
+          }
+        });
+      }
+    };
+  }
+
+  /**
+   * @return An executor whose queries wait for the release and return a new list of one row
+   */
+  private static Executor blockingExecutor(final CountDownLatch release, final AtomicInteger queries) {
+    return (Executor) Proxy.newProxyInstance(Executor.class.getClassLoader(), new Class<?>[] { Executor.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("createCacheKey".equals(method.getName())) {
+              return new CacheKey(new Object[] { "selectRow" });
+            } else if ("query".equals(method.getName())) {
+              queries.incrementAndGet();
+              release.await();
+              return new ArrayList<Object>(Collections.singletonList("row"));
+            } else if ("update".equals(method.getName())) {
+              return 1;
+            }
+            return null;
+          }
+        });
+  }
+
+  private static void waitForFollowers(CacheLoadCoalescer coalescer, int followers) {
+    // the other threads join the running load before it is released
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (coalescer.getWaitingCount() < followers) {
+      if (System.nanoTime() > deadline) {
+        fail("The followers did not join the running load");
+      }
+      Thread.yield();
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.ScheduledCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Test;
+
+public class CacheRefresherTest {
+
+  @Test
+  public void shouldRejectRefreshesOnceClosed() {
+    CacheRefresher refresher = new CacheRefresher(new Configuration());
+    refresher.close();
+    ScheduledCache cache = new ScheduledCache(new PerpetualCache("cache"));
+    assertFalse(refresher.refresh(cache, "key", CacheRefresher.newSource(null, "name", RowBounds.DEFAULT), null));
+  }
+
+  @Test
+  public void shouldKeepImmutableParameters() {
+    String parameter = "name";
+    assertSame(parameter, CacheRefresher.newSource(null, parameter, RowBounds.DEFAULT).getParameterObject());
+  }
+
+  @Test
+  public void shouldCopyMutableParameters() {
+    ArrayList<Integer> parameter = new ArrayList<Integer>();
+    parameter.add(1);
+    CacheRefresher.Source source = CacheRefresher.newSource(null, parameter, RowBounds.DEFAULT);
+    parameter.add(2);
+    List<?> copy = (List<?>) source.getParameterObject();
+    assertNotSame(parameter, copy);
+    assertEquals(1, copy.size());
+  }
+
+  @Test
+  public void shouldNotRefreshParametersThatCannotBeCopied() {
+    assertNull(CacheRefresher.newSource(null, new Object(), RowBounds.DEFAULT));
+    ArrayList<Object> parameter = new ArrayList<Object>();
+    parameter.add(new Object());
+    assertNull(CacheRefresher.newSource(null, parameter, RowBounds.DEFAULT));
+  }
+
+}
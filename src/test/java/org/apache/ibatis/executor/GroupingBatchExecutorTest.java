@@ -0,0 +1,158 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GroupingBatchExecutorTest {
+
+  private Configuration configuration;
+  private List<String> events;
+  private BatchExecutor executor;
+  private MappedStatement insertOrder;
+  private MappedStatement insertLine;
+  private MappedStatement updateStock;
+
+  @Before
+  public void setUp() {
+    configuration = new Configuration();
+    configuration.setBatchGrouping(true);
+    configuration.setBatchGroupingOrder(Arrays.asList("insertOrder", "insertLine"));
+    events = new ArrayList<String>();
+    executor = new BatchExecutor(configuration, new JdbcTransaction(RecordingJdbc.connection(events)));
+    insertOrder = statement("insertOrder", "insert into orders values (1)", SqlCommandType.INSERT);
+    insertLine = statement("insertLine", "insert into order_lines values (1)", SqlCommandType.INSERT);
+    updateStock = statement("updateStock", "update stock set quantity = 0", SqlCommandType.UPDATE);
+  }
+
+  @Test
+  public void shouldBatchInterleavedInserts() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      executor.update(insertOrder, "order" + i);
+      executor.update(insertLine, "line" + i);
+      executor.update(insertLine, "line" + i + "b");
+    }
+    List<BatchResult> results = executor.flushStatements();
+    assertEquals(Arrays.asList(
+        "prepare insert into orders values (1)", "prepare insert into order_lines values (1)",
+        "execute insert into orders values (1) x3", "execute insert into order_lines values (1) x6"), prepareAndExecuteEvents());
+    assertEquals(2, results.size());
+    assertSame(insertOrder, results.get(0).getMappedStatement());
+    assertEquals(Arrays.<Object>asList("order0", "order1", "order2"), results.get(0).getParameterObjects());
+    assertEquals(6, results.get(1).getUpdateCounts().length);
+  }
+
+  @Test
+  public void shouldNotMoveInsertsBeforeUpdates() throws Exception {
+    executor.update(insertOrder, "order0");
+    executor.update(updateStock, "stock");
+    executor.update(insertOrder, "order1");
+    executor.update(insertLine, "line1");
+    executor.update(insertOrder, "order2");
+    List<BatchResult> results = executor.flushStatements();
+    assertEquals(Arrays.asList(
+        "execute insert into orders values (1) x1", "execute update stock set quantity = 0 x1",
+        "execute insert into orders values (1) x2", "execute insert into order_lines values (1) x1"), executeEvents());
+    assertEquals(4, results.size());
+  }
+
+  @Test
+  public void shouldBatchOnlyConsecutiveStatementsByDefault() throws Exception {
+    configuration.setBatchGrouping(false);
+    executor.update(insertOrder, "order0");
+    executor.update(insertLine, "line0");
+    executor.update(insertOrder, "order1");
+    assertEquals(3, executor.flushStatements().size());
+  }
+
+  @Test
+  public void shouldStartNewGroupsAfterAFlush() throws Exception {
+    executor.update(insertOrder, "order0");
+    executor.flushStatements();
+    executor.update(insertLine, "line0");
+    executor.update(insertOrder, "order1");
+    executor.update(insertOrder, "order2");
+    List<BatchResult> results = executor.flushStatements();
+    assertEquals(2, results.size());
+    assertSame(insertLine, results.get(0).getMappedStatement());
+    assertEquals(Arrays.<Object>asList("order1", "order2"), results.get(1).getParameterObjects());
+  }
+
+  @Test
+  public void shouldNotMoveAnInsertBeforeTheGroupOfAStatementItMayReference() throws Exception {
+    executor.update(insertLine, "line0");
+    executor.update(insertOrder, "order2");
+    executor.update(insertLine, "line2");
+    executor.update(insertOrder, "order3");
+    List<BatchResult> results = executor.flushStatements();
+    assertEquals(Arrays.asList(
+        "execute insert into order_lines values (1) x1", "execute insert into orders values (1) x2",
+        "execute insert into order_lines values (1) x1"), executeEvents());
+    assertEquals(Arrays.<Object>asList("line0"), results.get(0).getParameterObjects());
+    assertEquals(Arrays.<Object>asList("order2", "order3"), results.get(1).getParameterObjects());
+    assertEquals(Arrays.<Object>asList("line2"), results.get(2).getParameterObjects());
+  }
+
+  @Test
+  public void shouldNotReorderStatementsWithoutAnOrder() throws Exception {
+    configuration.setBatchGroupingOrder(new ArrayList<String>());
+    executor.update(insertOrder, "order0");
+    executor.update(insertLine, "line0");
+    executor.update(insertLine, "line0b");
+    executor.update(insertOrder, "order1");
+    executor.flushStatements();
+    assertEquals(Arrays.asList(
+        "execute insert into orders values (1) x1", "execute insert into order_lines values (1) x2",
+        "execute insert into orders values (1) x1"), executeEvents());
+  }
+
+  private List<String> executeEvents() {
+    List<String> executes = new ArrayList<String>();
+    for (String event : events) {
+      if (event.startsWith("execute")) {
+        executes.add(event);
+      }
+    }
+    return executes;
+  }
+
+  private List<String> prepareAndExecuteEvents() {
+    List<String> selected = new ArrayList<String>();
+    for (String event : events) {
+      if (event.startsWith("prepare") || event.startsWith("execute")) {
+        selected.add(event);
+      }
+    }
+    return selected;
+  }
+
+  private MappedStatement statement(String id, String sql, SqlCommandType type) {
+    return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, sql), type).build();
+  }
+
+}
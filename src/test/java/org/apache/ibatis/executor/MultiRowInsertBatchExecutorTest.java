@@ -0,0 +1,143 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.*;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiRowInsertBatchExecutorTest {
+
+  private Configuration configuration;
+  private List<String> events;
+  private BatchExecutor executor;
+  private MappedStatement insertName;
+
+  @Before
+  public void setUp() {
+    configuration = new Configuration();
+    configuration.setMultiRowInsertLimit(3);
+    events = new ArrayList<String>();
+    executor = new BatchExecutor(configuration, new JdbcTransaction(RecordingJdbc.connection(events)));
+    insertName = statement("insertName", "insert into names (name) values (?)", SqlCommandType.INSERT);
+  }
+
+  @Test
+  public void shouldMergeRowsUpToTheLimit() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      executor.update(insertName, "name" + i);
+    }
+    List<BatchResult> results = executor.flushStatements();
+    assertEquals(Arrays.asList(
+        "execute insert into names (name) values (?), (?), (?) [name0, name1, name2]",
+        "execute insert into names (name) values (?), (?) [name3, name4]"), executeEvents());
+    assertEquals(1, results.size());
+    assertEquals(5, results.get(0).getParameterObjects().size());
+    assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, results.get(0).getUpdateCounts());
+  }
+
+  @Test
+  public void shouldUseTheLimitOfTheDatabase() throws Exception {
+    configuration.setMultiRowInsertLimit("oracle", 0);
+    configuration.setMultiRowInsertLimit("mysql", 1000);
+    configuration.setDatabaseId("oracle");
+    assertNull(configuration.getMultiRowInsertLimit());
+    configuration.setDatabaseId("mysql");
+    assertEquals(Integer.valueOf(1000), configuration.getMultiRowInsertLimit());
+    configuration.setDatabaseId("hsqldb");
+    assertEquals(Integer.valueOf(3), configuration.getMultiRowInsertLimit());
+  }
+
+  @Test
+  public void shouldBatchStatementsThatCannotBeMerged() throws Exception {
+    MappedStatement insertSelect = statement("insertSelect", "insert into names (name) select name from users where id = ?",
+        SqlCommandType.INSERT);
+    MappedStatement update = statement("update", "update names set name = ?", SqlCommandType.UPDATE);
+    executor.update(insertSelect, "a");
+    executor.update(insertSelect, "b");
+    executor.update(update, "c");
+    executor.flushStatements();
+    assertEquals(Arrays.asList(
+        "prepare insert into names (name) select name from users where id = ?",
+        "prepare update names set name = ?",
+        "execute insert into names (name) select name from users where id = ? x2",
+        "execute update names set name = ? x1"), events);
+  }
+
+  @Test
+  public void shouldReportUnknownUpdateCounts() throws Exception {
+    MappedStatement insertIgnore = statement("insertIgnore", "insert ignore into names (name, alias) values (?, 'x')",
+        SqlCommandType.INSERT);
+    executor.update(insertIgnore, "a");
+    executor.update(insertIgnore, "b");
+    executor.update(insertIgnore, "c");
+    List<BatchResult> results = executor.flushStatements();
+    assertEquals(Collections.singletonList(
+        "execute insert ignore into names (name, alias) values (?, 'x'), (?, 'x'), (?, 'x') [a, b, c]"), executeEvents());
+    // the stub reports one row per parameter: 3 here, the same as the rows
+    assertArrayEquals(new int[] { 1, 1, 1 }, results.get(0).getUpdateCounts());
+    events.clear();
+    MappedStatement insertPair = statement("insertPair", "insert into pairs (a, b) values (?, ?)", SqlCommandType.INSERT);
+    executor.update(insertPair, "a");
+    executor.update(insertPair, "b");
+    results = executor.flushStatements();
+    assertArrayEquals(new int[] { Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO }, results.get(0).getUpdateCounts());
+  }
+
+  @Test
+  public void shouldFindTheValuesTuple() {
+    assertEquals(28, MultiRowInsert.findValuesTuple("insert into t (a, b) values (?, ?)"));
+    assertEquals(22, MultiRowInsert.findValuesTuple("INSERT INTO t VALUES  (?, 'values (x)');"));
+    assertEquals(-1, MultiRowInsert.findValuesTuple("insert into t (a) values (?) on duplicate key update a = values(a)"));
+    assertEquals(-1, MultiRowInsert.findValuesTuple("insert into t (a) values (?) returning id"));
+    assertEquals(-1, MultiRowInsert.findValuesTuple("insert into t (a) select a from s"));
+    assertEquals(-1, MultiRowInsert.findValuesTuple("update t set a = ?"));
+  }
+
+  private List<String> executeEvents() {
+    List<String> executes = new ArrayList<String>();
+    for (String event : events) {
+      if (event.startsWith("execute")) {
+        executes.add(event);
+      }
+    }
+    return executes;
+  }
+
+  private MappedStatement statement(String id, String sql, SqlCommandType sqlCommandType) {
+    List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
+    for (int i = 0; i < sql.length(); i++) {
+      if (sql.charAt(i) == '?') {
+        parameterMappings.add(new ParameterMapping.Builder(configuration, "name", String.class).build());
+      }
+    }
+    return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, sql, parameterMappings), sqlCommandType).build();
+  }
+
+}
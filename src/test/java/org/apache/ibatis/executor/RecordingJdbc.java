@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JDBC stubs that record the prepared and executed batches, for executor tests that need no database.
+ * Statements executed without batching record their parameters and report one updated row per parameter.
+ */
+final class RecordingJdbc {
+
+  private RecordingJdbc() {
+  }
+
+  static Connection connection(final List<String> events) {
+    return (Connection) Proxy.newProxyInstance(RecordingJdbc.class.getClassLoader(), new Class<?>[] { Connection.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("prepareStatement".equals(method.getName())) {
+              events.add("prepare " + args[0]);
+              return statement((String) args[0], events);
+            }
+            return defaultValue(method);
+          }
+        });
+  }
+
+  private static PreparedStatement statement(final String sql, final List<String> events) {
+    return (PreparedStatement) Proxy.newProxyInstance(RecordingJdbc.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+        new InvocationHandler() {
+          private int batched;
+          private final List<Object> parameters = new ArrayList<Object>();
+
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+              parameters.add(args[1]);
+            } else if ("execute".equals(method.getName())) {
+              events.add("execute " + sql + " " + parameters);
+              return false;
+            } else if ("getUpdateCount".equals(method.getName())) {
+              return parameters.size();
+            } else if ("addBatch".equals(method.getName())) {
+              batched++;
+            } else if ("executeBatch".equals(method.getName())) {
+              events.add("execute " + sql + " x" + batched);
+              int[] counts = new int[batched];
+              Arrays.fill(counts, 1);
+              batched = 0;
+              return counts;
+            }
+            return defaultValue(method);
+          }
+        });
+  }
+
+  private static Object defaultValue(Method method) {
+    Class<?> type = method.getReturnType();
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,119 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AdaptiveFetchSizeTest {
+
+  private Configuration configuration;
+  private AdaptiveFetchSize adaptiveFetchSize;
+  private MappedStatement ms;
+
+  @Before
+  public void setUp() {
+    configuration = new Configuration();
+    adaptiveFetchSize = configuration.getAdaptiveFetchSize();
+    ms = new MappedStatement.Builder(configuration, "selectNames", new StaticSqlSource(configuration, "select name from names"),
+        SqlCommandType.SELECT).build();
+  }
+
+  @Test
+  public void shouldFetchTheAverageRowsPlusAQuarter() {
+    assertNull(adaptiveFetchSize.getFetchSize(ms));
+    adaptiveFetchSize.record(ms, 100, 10);
+    assertEquals(Integer.valueOf(126), adaptiveFetchSize.getFetchSize(ms));
+    adaptiveFetchSize.record(ms, 200, 10);
+    assertEquals(120.0, adaptiveFetchSize.getAverageRows("selectNames"), 0.001);
+    assertEquals(Integer.valueOf(151), adaptiveFetchSize.getFetchSizes().get("selectNames"));
+  }
+
+  @Test
+  public void shouldNotFetchMoreRowsThanFitInMaxBytes() {
+    configuration.setAdaptiveFetchSizeMaxBytes(2000);
+    adaptiveFetchSize.record(ms, 500, 100);
+    assertEquals(Integer.valueOf(20), adaptiveFetchSize.getFetchSize(ms));
+  }
+
+  @Test
+  public void shouldNotFetchLessThanTheMinimum() {
+    configuration.setAdaptiveFetchSizeMaxBytes(1000);
+    adaptiveFetchSize.record(ms, 500, 10000);
+    assertEquals(Integer.valueOf(AdaptiveFetchSize.DEFAULT_MIN_FETCH_SIZE), adaptiveFetchSize.getFetchSize(ms));
+    adaptiveFetchSize.record(ms, 0, 10);
+    configuration.setDefaultFetchSize(50);
+    assertEquals(Integer.valueOf(50), adaptiveFetchSize.getFetchSize(ms));
+    assertEquals(Integer.valueOf(50), adaptiveFetchSize.getFetchSizes().get("selectNames"));
+  }
+
+  @Test
+  public void shouldEstimateTheRowWidthByTheDisplaySizes() throws Exception {
+    ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { ResultSetMetaData.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("getColumnCount".equals(method.getName())) {
+              return 3;
+            }
+            int column = (Integer) args[0];
+            return column == 1 ? 11 : column == 2 ? Integer.MAX_VALUE : 0;
+          }
+        });
+    assertEquals(11 + 256 + 256, AdaptiveFetchSize.estimateRowWidth(metaData));
+  }
+
+  @Test
+  public void shouldApplyTheAdaptiveFetchSizeInsteadOfTheDefault() throws Exception {
+    final List<Object> fetchSizes = new ArrayList<Object>();
+    Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("setFetchSize".equals(method.getName())) {
+              fetchSizes.add(args[0]);
+            }
+            return null;
+          }
+        });
+    configuration.setDefaultFetchSize(1000);
+    configuration.setAdaptiveFetchSizeEnabled(true);
+    BaseStatementHandler handler = new SimpleStatementHandler(null, ms, null, null, null, null);
+    handler.setFetchSize(statement);
+    adaptiveFetchSize.record(ms, 3000, 10);
+    handler.setFetchSize(statement);
+    adaptiveFetchSize.record(ms, 0, 10);
+    handler.setFetchSize(statement);
+    assertEquals(1000, fetchSizes.get(0));
+    assertEquals(3751, fetchSizes.get(1));
+    assertEquals(3001, fetchSizes.get(2));
+  }
+
+}
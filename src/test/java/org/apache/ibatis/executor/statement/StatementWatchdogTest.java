@@ -0,0 +1,169 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.ibatis.session.Deadline;
+import org.junit.After;
+import org.junit.Test;
+
+public class StatementWatchdogTest {
+
+  private final StatementWatchdog watchdog = new StatementWatchdog();
+
+  @After
+  public void endDeadlines() {
+    while (Deadline.current() != null) {
+      Deadline.current().end();
+    }
+  }
+
+  @Test
+  public void shouldCancelAStatementRunningPastItsDeadline() throws Exception {
+    Deadline deadline = Deadline.start(100, TimeUnit.MILLISECONDS);
+    try {
+      runBlockingStatement();
+      fail();
+    } catch (SQLTimeoutException e) {
+      assertTrue(e.getMessage().contains("deadline passed"));
+    } finally {
+      deadline.end();
+    }
+    assertEquals(0, watchdog.getRunningCount());
+  }
+
+  @Test
+  public void shouldCancelAStatementWhoseThreadIsInterrupted() throws Exception {
+    watchdog.setCancelInterrupted(true);
+    final AtomicReference<SQLException> failure = new AtomicReference<SQLException>();
+    final CountDownLatch running = new CountDownLatch(1);
+    Thread caller = new Thread() {
+      @Override
+      public void run() {
+        try {
+          running.countDown();
+          runBlockingStatement();
+        } catch (SQLException e) {
+          failure.set(e);
+        }
+      }
+    };
+    caller.start();
+    running.await();
+    caller.interrupt();
+    caller.join(5000);
+    assertTrue(failure.get().getMessage().contains("interrupted"));
+  }
+
+  @Test
+  public void shouldNotRunAStatementPastItsDeadline() throws Exception {
+    Deadline.start(-1, TimeUnit.MILLISECONDS);
+    try {
+      watchdog.watch(statement(new CountDownLatch(1)));
+      fail();
+    } catch (SQLTimeoutException e) {
+      assertEquals(0, watchdog.getRunningCount());
+    }
+  }
+
+  @Test
+  public void shouldNotWatchWithoutDeadline() throws Exception {
+    StatementWatchdog.Watch watch = watchdog.watch(statement(new CountDownLatch(1)));
+    assertEquals(0, watchdog.getRunningCount());
+    watch.end();
+  }
+
+  @Test
+  public void shouldNotExtendTheDeadlineOfTheCaller() {
+    Deadline outer = Deadline.start(1, TimeUnit.SECONDS);
+    Deadline inner = Deadline.start(1, TimeUnit.HOURS);
+    assertTrue(inner.remaining(TimeUnit.SECONDS) <= 1);
+    inner.end();
+    assertSame(outer, Deadline.current());
+    outer.end();
+    assertNull(Deadline.current());
+  }
+
+  @Test
+  public void shouldShortenTheQueryTimeoutToTheDeadline() throws Exception {
+    final AtomicReference<Object> queryTimeout = new AtomicReference<Object>(30);
+    Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("setQueryTimeout".equals(method.getName())) {
+              queryTimeout.set(args[0]);
+            }
+            return "getQueryTimeout".equals(method.getName()) ? queryTimeout.get() : null;
+          }
+        });
+    Deadline deadline = Deadline.start(1500, TimeUnit.MILLISECONDS);
+    StatementUtil.applyDeadline(statement);
+    deadline.end();
+    assertEquals(2, queryTimeout.get());
+  }
+
+  private void runBlockingStatement() throws SQLException {
+    Statement statement = statement(new CountDownLatch(1));
+    StatementWatchdog.Watch watch = watchdog.watch(statement);
+    try {
+      statement.execute("select pg_sleep(3600)");
+    } catch (SQLException e) {
+      throw watch.explain(e);
+    } finally {
+      watch.end();
+    }
+  }
+
+  /**
+   * A statement whose execution blocks until it is cancelled.
+   */
+  private Statement statement(final CountDownLatch cancelled) {
+    return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            if ("cancel".equals(method.getName())) {
+              cancelled.countDown();
+            } else if ("execute".equals(method.getName())) {
+              // like a socket read, keeps blocking when interrupted
+              long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+              while (cancelled.getCount() > 0) {
+                if (System.nanoTime() - end > 0) {
+                  return false;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+              }
+              throw new SQLException("ERROR: canceling statement due to user request");
+            }
+            return null;
+          }
+        });
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,6 +17,9 @@ package org.apache.ibatis.jdbc;
 
 import static org.junit.Assert.*;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -24,10 +27,15 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PoolState;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -145,4 +153,96 @@ public class PooledDataSourceTest extends BaseDataTest {
     rs.close();
     st.close();
   }
+
+  @Test
+  public void shouldShareFewConnectionsBetweenManyThreads() throws Exception {
+    AtomicInteger createdConnections = new AtomicInteger();
+    final PooledDataSource ds = createStubbedDataSource(createdConnections);
+    ds.setPoolMaximumActiveConnections(5);
+    final CountDownLatch done = new CountDownLatch(200);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < 200; i++) {
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            Connection connection = ds.getConnection();
+            Thread.sleep(1);
+            connection.close();
+          } catch (Throwable t) {
+            failure.set(t);
+          } finally {
+            done.countDown();
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    assertTrue(done.await(30, TimeUnit.SECONDS));
+    assertNull(failure.get());
+    assertTrue(createdConnections.get() <= 5);
+    PoolState state = ds.getPoolState();
+    assertEquals(0, state.getActiveConnectionCount());
+    assertEquals(200, state.getRequestCount());
+    assertTrue(state.getHadToWaitCount() > 0);
+  }
+
+  @Test
+  public void shouldWakeUpAWaitingThreadWhenAConnectionIsReturned() throws Exception {
+    AtomicInteger createdConnections = new AtomicInteger();
+    final PooledDataSource ds = createStubbedDataSource(createdConnections);
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolTimeToWait(60000);
+    ds.setPoolMaximumCheckoutTime(60000);
+    Connection connection = ds.getConnection();
+    final CountDownLatch gotConnection = new CountDownLatch(1);
+    Thread waiting = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          ds.getConnection().close();
+          gotConnection.countDown();
+        } catch (Exception e) {
+          // the latch is not counted down
+        }
+      }
+    });
+    waiting.start();
+    assertFalse(gotConnection.await(100, TimeUnit.MILLISECONDS));
+    connection.close();
+    assertTrue(gotConnection.await(5, TimeUnit.SECONDS));
+    assertEquals(1, createdConnections.get());
+  }
+
+  private static PooledDataSource createStubbedDataSource(final AtomicInteger createdConnections) {
+    return new PooledDataSource(new UnpooledDataSource() {
+      @Override
+      public Connection getConnection() {
+        createdConnections.incrementAndGet();
+        return stubConnection();
+      }
+    });
+  }
+
+  private static Connection stubConnection() {
+    return (Connection) Proxy.newProxyInstance(PooledDataSourceTest.class.getClassLoader(), new Class<?>[] { Connection.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("getAutoCommit".equals(method.getName())) {
+              return true;
+            } else if ("isClosed".equals(method.getName())) {
+              return false;
+            } else if ("hashCode".equals(method.getName())) {
+              return System.identityHashCode(proxy);
+            } else if ("equals".equals(method.getName())) {
+              return proxy == args[0];
+            }
+            return null;
+          }
+        });
+  }
 }
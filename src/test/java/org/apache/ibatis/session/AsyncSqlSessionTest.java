@@ -0,0 +1,226 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.ResultPublisher;
+import org.apache.ibatis.cursor.ResultSubscriber;
+import org.apache.ibatis.cursor.ResultSubscription;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.defaults.DefaultAsyncSqlSession;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncSqlSessionTest {
+
+  private Configuration configuration;
+  private List<String> events;
+  private AsyncSqlSession asyncSession;
+
+  @Before
+  public void setUp() {
+    configuration = new Configuration();
+    configuration.setAsyncPoolSize(2);
+    configuration.addMapper(NamesMapper.class);
+    events = Collections.synchronizedList(new ArrayList<String>());
+    asyncSession = new DefaultAsyncSqlSession(sqlSessionFactory());
+  }
+
+  @Test
+  public void shouldRunEachCallInItsOwnSession() throws Exception {
+    CompletionStage<String> name = asyncSession.selectOne("selectName", 1);
+    assertEquals("selectName(1)", name.toCompletableFuture().get(5, TimeUnit.SECONDS));
+    assertEquals(3, events.size());
+    assertTrue(events.get(0).startsWith("selectOne on mybatis-async-"));
+    assertEquals("commit", events.get(1));
+    assertEquals("close", events.get(2));
+  }
+
+  @Test
+  public void shouldRollbackAndFailTheFuture() throws Exception {
+    CompletableFuture<Integer> inserted = asyncSession.insert("fail", "a").toCompletableFuture();
+    try {
+      inserted.get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof PersistenceException);
+    }
+    assertEquals("rollback", events.get(1));
+    assertEquals("close", events.get(2));
+  }
+
+  @Test
+  public void shouldRunMapperMethodsReturningFuturesAsynchronously() throws Exception {
+    NamesMapper mapper = asyncSession.getMapper(NamesMapper.class);
+    List<String> names = mapper.selectNames().get(5, TimeUnit.SECONDS);
+    assertEquals(1, names.size());
+    assertTrue(names.get(0).startsWith("mybatis-async-"));
+    assertEquals(Integer.valueOf(1), mapper.insertName("a").toCompletableFuture().get(5, TimeUnit.SECONDS));
+    assertEquals(1, mapper.countNames());
+  }
+
+  @Test
+  public void shouldRunMapperMethodsReturningFuturesInTheCallingThreadOfARegularSession() throws Exception {
+    NamesMapper mapper = configuration.getMapper(NamesMapper.class, sqlSession());
+    CompletableFuture<List<String>> names = mapper.selectNames();
+    assertTrue(names.isDone());
+    assertEquals(Thread.currentThread().getName(), names.get().get(0));
+    assertTrue(mapper.insertName("fail").toCompletableFuture().isCompletedExceptionally());
+  }
+
+  @Test
+  public void shouldPublishRowsFromTheirOwnSession() throws Exception {
+    final List<Object> rows = Collections.synchronizedList(new ArrayList<Object>());
+    final CountDownLatch completed = new CountDownLatch(1);
+    ResultPublisher<Object> publisher = asyncSession.selectPublisher("selectNames", null);
+    assertTrue("the query runs when subscribed", events.isEmpty());
+    publisher.subscribe(new ResultSubscriber<Object>() {
+      @Override
+      public void onSubscribe(ResultSubscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(Object item) {
+        rows.add(item);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+      }
+
+      @Override
+      public void onComplete() {
+        completed.countDown();
+      }
+    });
+    assertTrue(completed.await(5, TimeUnit.SECONDS));
+    assertEquals(Arrays.<Object>asList("a", "b"), rows);
+    assertTrue(events.get(0).startsWith("selectCursor on mybatis-async-"));
+    assertEquals(Arrays.asList("cursor close", "close"), events.subList(1, 3));
+  }
+
+  @Test
+  public void shouldSizeTheExecutorToTheConnectionPool() {
+    Configuration pooled = new Configuration();
+    PooledDataSource dataSource = new PooledDataSource();
+    dataSource.setPoolMaximumActiveConnections(3);
+    pooled.setEnvironment(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    assertEquals(3, ((ThreadPoolExecutor) pooled.getAsyncExecutor()).getMaximumPoolSize());
+    assertEquals(2, ((ThreadPoolExecutor) configuration.getAsyncExecutor()).getMaximumPoolSize());
+  }
+
+  @Test
+  public void shouldShutDownTheExecutorWithTheConfiguration() {
+    ThreadPoolExecutor executor = (ThreadPoolExecutor) configuration.getAsyncExecutor();
+    configuration.close();
+    assertTrue(executor.isShutdown());
+  }
+
+  public interface NamesMapper {
+    @Select("select name from names")
+    CompletableFuture<List<String>> selectNames();
+
+    @Insert("insert into names (name) values (#{name})")
+    CompletionStage<Integer> insertName(String name);
+
+    @Select("select count(*) from names")
+    int countNames();
+  }
+
+  private SqlSessionFactory sqlSessionFactory() {
+    return (SqlSessionFactory) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { SqlSessionFactory.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("getConfiguration".equals(method.getName())) {
+              return configuration;
+            }
+            return sqlSession();
+          }
+        });
+  }
+
+  @SuppressWarnings("unchecked")
+  private Cursor<Object> cursor(final Object... rows) {
+    return (Cursor<Object>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Cursor.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("iterator".equals(method.getName())) {
+              return Arrays.asList(rows).iterator();
+            } else if ("close".equals(method.getName())) {
+              events.add("cursor close");
+            }
+            return null;
+          }
+        });
+  }
+
+  /**
+   * A session that records its calls and returns the name of the statement, or of the thread for lists.
+   */
+  private SqlSession sqlSession() {
+    return (SqlSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { SqlSession.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if ("getConfiguration".equals(name)) {
+              return configuration;
+            } else if ("commit".equals(name) || "rollback".equals(name) || "close".equals(name)) {
+              events.add(name);
+              return null;
+            }
+            events.add(name + " on " + Thread.currentThread().getName());
+            if ("selectCursor".equals(name)) {
+              return cursor("a", "b");
+            }
+            String statement = (String) args[0];
+            if (statement.endsWith("fail") || (args.length > 1 && "fail".equals(args[1]))) {
+              throw new PersistenceException("failed " + statement);
+            } else if ("selectList".equals(name)) {
+              return Collections.singletonList(Thread.currentThread().getName());
+            } else if ("insert".equals(name) || statement.endsWith("countNames")) {
+              return 1;
+            }
+            return statement + "(" + args[1] + ")";
+          }
+        });
+  }
+
+}
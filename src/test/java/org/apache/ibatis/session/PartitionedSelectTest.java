@@ -0,0 +1,240 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.defaults.DefaultAsyncSqlSession;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PartitionedSelectTest {
+
+  private Configuration configuration;
+  private AtomicInteger openSessions;
+  private AsyncSqlSession asyncSession;
+
+  @Before
+  public void setUp() {
+    configuration = new Configuration();
+    configuration.setAsyncPoolSize(3);
+    openSessions = new AtomicInteger();
+    asyncSession = new DefaultAsyncSqlSession(sqlSessionFactory());
+  }
+
+  @Test
+  public void shouldSplitKeyRangesEvenly() {
+    List<Map<String, Object>> ranges = Partitions.ranges(0, 10, 3);
+    assertEquals(3, ranges.size());
+    assertEquals(0L, ranges.get(0).get("from"));
+    assertEquals(4L, ranges.get(0).get("to"));
+    assertEquals(4L, ranges.get(1).get("from"));
+    assertEquals(7L, ranges.get(2).get("from"));
+    assertEquals(10L, ranges.get(2).get("to"));
+    assertEquals(2, Partitions.buckets(4).get(2).get("bucket"));
+  }
+
+  @Test
+  public void shouldHandleTheRowsOfEveryPartition() throws Exception {
+    final List<Object> rows = Collections.synchronizedList(new ArrayList<Object>());
+    asyncSession.selectPartitioned("selectKeys", Partitions.ranges(0, 1000, 4), new ResultHandler<Object>() {
+      @Override
+      public void handleResult(ResultContext<? extends Object> resultContext) {
+        rows.add(resultContext.getResultObject());
+      }
+    }).toCompletableFuture().get(5, TimeUnit.SECONDS);
+    assertEquals(1000, rows.size());
+    assertEquals(0, openSessions.get());
+  }
+
+  @Test
+  public void shouldFailWhenAPartitionFails() throws Exception {
+    List<Map<String, Object>> partitions = Partitions.ranges(0, 100, 2);
+    partitions.get(1).put("fail", true);
+    try {
+      asyncSession.selectPartitioned("selectKeys", partitions, new ResultHandler<Object>() {
+        @Override
+        public void handleResult(ResultContext<? extends Object> resultContext) {
+        }
+      }).toCompletableFuture().get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof PersistenceException);
+    }
+  }
+
+  @Test
+  public void shouldReturnTheRowsInTheOrderOfThePartitions() throws Exception {
+    Cursor<Long> cursor = asyncSession.selectPartitionedCursor("selectKeys", Partitions.ranges(0, 5000, 5));
+    long expected = 0;
+    for (Long key : cursor) {
+      assertEquals(expected++, key.longValue());
+    }
+    assertEquals(5000, expected);
+    assertTrue(cursor.isConsumed());
+    assertEquals(4999, cursor.getCurrentIndex());
+    waitForClosedSessions();
+  }
+
+  @Test
+  public void shouldStopThePartitionsWhenClosed() throws Exception {
+    Cursor<Long> cursor = asyncSession.selectPartitionedCursor("selectKeys", Partitions.ranges(0, 50000, 5));
+    Iterator<Long> iterator = cursor.iterator();
+    assertEquals(Long.valueOf(0), iterator.next());
+    cursor.close();
+    assertFalse(cursor.isOpen());
+    waitForClosedSessions();
+  }
+
+  @Test
+  public void shouldThrowTheFailureOfAPartitionWhenReachingIt() {
+    List<Map<String, Object>> partitions = Partitions.ranges(0, 10, 2);
+    partitions.get(1).put("fail", true);
+    Cursor<Long> cursor = asyncSession.selectPartitionedCursor("selectKeys", partitions);
+    Iterator<Long> iterator = cursor.iterator();
+    for (int i = 0; i < 5; i++) {
+      iterator.next();
+    }
+    try {
+      iterator.hasNext();
+      fail();
+    } catch (PersistenceException e) {
+      assertFalse(cursor.isOpen());
+    }
+  }
+
+  @Test(timeout = 5000)
+  public void shouldThrowWhenAPartitionReaderIsInterrupted() {
+    List<Map<String, Object>> partitions = Partitions.ranges(0, 10, 2);
+    partitions.get(1).put("interrupt", true);
+    Cursor<Long> cursor = asyncSession.selectPartitionedCursor("selectKeys", partitions);
+    Iterator<Long> iterator = cursor.iterator();
+    for (int i = 0; i < 5; i++) {
+      iterator.next();
+    }
+    try {
+      iterator.hasNext();
+      fail();
+    } catch (PersistenceException e) {
+      assertTrue(e.getCause() instanceof InterruptedException);
+      assertFalse(cursor.isOpen());
+    }
+  }
+
+  @Test
+  public void shouldCloseTheCursorWhenAPartitionIsRejected() {
+    ((ExecutorService) configuration.getAsyncExecutor()).shutdown();
+    Cursor<Long> cursor = asyncSession.selectPartitionedCursor("selectKeys", Partitions.ranges(0, 10, 2));
+    try {
+      cursor.iterator();
+      fail();
+    } catch (RejectedExecutionException e) {
+      assertFalse(cursor.isOpen());
+    }
+  }
+
+  private void waitForClosedSessions() throws InterruptedException {
+    for (int i = 0; i < 50 && openSessions.get() > 0; i++) {
+      Thread.sleep(100);
+    }
+    assertEquals(0, openSessions.get());
+  }
+
+  private SqlSessionFactory sqlSessionFactory() {
+    return (SqlSessionFactory) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { SqlSessionFactory.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("getConfiguration".equals(method.getName())) {
+              return configuration;
+            }
+            openSessions.incrementAndGet();
+            return sqlSession();
+          }
+        });
+  }
+
+  /**
+   * A session whose selects return the keys of the range of their partition.
+   */
+  private SqlSession sqlSession() {
+    return (SqlSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { SqlSession.class },
+        new InvocationHandler() {
+          @Override
+          @SuppressWarnings("unchecked")
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if ("close".equals(name)) {
+              openSessions.decrementAndGet();
+              return null;
+            } else if (!name.startsWith("select")) {
+              return null;
+            }
+            Map<String, Object> partition = (Map<String, Object>) args[1];
+            if (partition.containsKey("fail")) {
+              throw new PersistenceException("failed partition " + partition.get("partition"));
+            }
+            List<Object> keys = new ArrayList<Object>();
+            for (long key = (Long) partition.get("from"); key < (Long) partition.get("to"); key++) {
+              keys.add(key);
+            }
+            if ("selectCursor".equals(name)) {
+              if (partition.containsKey("interrupt")) {
+                // the reader is interrupted before it offers the first row
+                Thread.currentThread().interrupt();
+              }
+              return cursor(keys);
+            }
+            ResultHandler<Object> handler = (ResultHandler<Object>) args[2];
+            DefaultResultContext<Object> context = new DefaultResultContext<Object>();
+            for (Object key : keys) {
+              context.nextResultObject(key);
+              handler.handleResult(context);
+            }
+            return null;
+          }
+        });
+  }
+
+  @SuppressWarnings("unchecked")
+  private Cursor<Object> cursor(final List<Object> rows) {
+    return (Cursor<Object>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Cursor.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            return "iterator".equals(method.getName()) ? rows.iterator() : null;
+          }
+        });
+  }
+
+}
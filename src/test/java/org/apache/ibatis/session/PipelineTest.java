@@ -0,0 +1,271 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import static org.junit.Assert.*;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.exceptions.TooManyResultsException;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PipelineTest {
+
+  private Configuration configuration;
+  private List<String> events;
+  private SqlSession sqlSession;
+
+  @Before
+  public void setUp() {
+    events = Collections.synchronizedList(new ArrayList<String>());
+    configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource()));
+    ResultMap name = new ResultMap.Builder(configuration, "name", String.class, new ArrayList<ResultMapping>()).build();
+    List<ParameterMapping> id = Collections.singletonList(new ParameterMapping.Builder(configuration, "id", Integer.class).build());
+    configuration.addMappedStatement(new MappedStatement.Builder(configuration, "selectAuthor",
+        new StaticSqlSource(configuration, "select name from author where id = ?;", id), SqlCommandType.SELECT)
+        .resultMaps(Collections.singletonList(name)).build());
+    configuration.addMappedStatement(new MappedStatement.Builder(configuration, "selectPost",
+        new StaticSqlSource(configuration, "select title from post where author_id = ?", id), SqlCommandType.SELECT)
+        .resultMaps(Collections.singletonList(name)).build());
+    configuration.addMappedStatement(new MappedStatement.Builder(configuration, "updateAuthor",
+        new StaticSqlSource(configuration, "update author set name = name"), SqlCommandType.UPDATE).build());
+    sqlSession = new DefaultSqlSessionFactory(configuration).openSession();
+  }
+
+  @Test
+  public void shouldSendTheSelectsAsOneMultiStatementQuery() {
+    configuration.setMultiStatementPipelineEnabled(true);
+    Pipeline pipeline = sqlSession.pipeline();
+    Pipeline.Result<String> author = pipeline.selectOne("selectAuthor", 1);
+    Pipeline.Result<List<String>> posts = pipeline.selectList("selectPost", 2);
+    pipeline.execute();
+    assertEquals("select name from author where id = 1", author.get());
+    assertEquals(Collections.singletonList("select title from post where author_id = 2"), posts.get());
+    assertEquals(Collections.singletonList(
+        "execute select name from author where id = ?;\nselect title from post where author_id = ? [1, 2]"), executions());
+    sqlSession.close();
+  }
+
+  @Test
+  public void shouldRunTheSelectsOnTheirOwnConnectionsOtherwise() {
+    Pipeline pipeline = sqlSession.pipeline();
+    Pipeline.Result<String> author = pipeline.selectOne("selectAuthor", 1);
+    Pipeline.Result<List<String>> posts = pipeline.selectList("selectPost", 2);
+    assertEquals("getting a result runs the pipeline", "select name from author where id = 1", author.get());
+    assertEquals("select title from post where author_id = 2", posts.get().get(0));
+    assertEquals(2, executions().size());
+    assertEquals(2, count("connect"));
+    sqlSession.close();
+  }
+
+  @Test
+  public void shouldRunTheSelectsInTheSessionWhenItHasPendingChanges() {
+    sqlSession.update("updateAuthor");
+    Pipeline pipeline = sqlSession.pipeline();
+    pipeline.selectOne("selectAuthor", 1);
+    pipeline.selectList("selectPost", 2);
+    pipeline.execute();
+    assertEquals(3, executions().size());
+    assertEquals(1, count("connect"));
+    sqlSession.close();
+  }
+
+  @Test
+  public void shouldFailSelectOneWithTooManyResults() {
+    configuration.setMultiStatementPipelineEnabled(true);
+    Pipeline pipeline = sqlSession.pipeline();
+    Pipeline.Result<String> author = pipeline.selectOne("selectAuthor", 1);
+    Pipeline.Result<String> authors = pipeline.selectOne("selectAuthor", 3);
+    pipeline.execute();
+    assertNotNull(author.get());
+    try {
+      authors.get();
+      fail();
+    } catch (TooManyResultsException e) {
+      assertTrue(e.getMessage().contains("found: 3"));
+    }
+    sqlSession.close();
+  }
+
+  private List<String> executions() {
+    List<String> executions = new ArrayList<String>();
+    for (String event : events) {
+      if (event.startsWith("execute")) {
+        executions.add(event);
+      }
+    }
+    return executions;
+  }
+
+  private int count(String event) {
+    return Collections.frequency(events, event);
+  }
+
+  private DataSource dataSource() {
+    return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DataSource.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("getConnection".equals(method.getName())) {
+              events.add("connect");
+              return connection();
+            } else if ("getLogWriter".equals(method.getName())) {
+              return new PrintWriter(System.out);
+            } else if ("getParentLogger".equals(method.getName())) {
+              return Logger.getGlobal();
+            }
+            return defaultValue(method);
+          }
+        });
+  }
+
+  private Connection connection() {
+    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("prepareStatement".equals(method.getName())) {
+              return statement((Connection) proxy, (String) args[0]);
+            } else if ("getMetaData".equals(method.getName())) {
+              return proxy(DatabaseMetaData.class, "supportsMultipleResultSets", true);
+            }
+            return defaultValue(method);
+          }
+        });
+  }
+
+  /**
+   * Executes each statement of the sql by returning one result set per statement, whose rows repeat the statement
+   * with its parameter bound, as many times as the parameter.
+   */
+  private PreparedStatement statement(final Connection connection, final String sql) {
+    return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class },
+        new InvocationHandler() {
+          private final List<Object> parameters = new ArrayList<Object>();
+          private final String[] statements = sql.split(";\n");
+          private int current = -1;
+
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+              parameters.add(args[1]);
+            } else if ("execute".equals(name)) {
+              events.add("execute " + sql + " " + parameters);
+              current = 0;
+              return sql.startsWith("select");
+            } else if ("getResultSet".equals(name)) {
+              return current < statements.length && sql.startsWith("select") ? resultSet() : null;
+            } else if ("getMoreResults".equals(name)) {
+              current++;
+              return current < statements.length;
+            } else if ("getUpdateCount".equals(name)) {
+              return sql.startsWith("select") ? -1 : 1;
+            } else if ("getConnection".equals(name)) {
+              return connection;
+            }
+            return defaultValue(method);
+          }
+
+          private ResultSet resultSet() {
+            final Object parameter = parameters.get(current);
+            final String row = statements[current].replace(";", "").replace("?", String.valueOf(parameter));
+            final int rows = (Integer) parameter == 3 ? 3 : 1;
+            final ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ResultSetMetaData.class }, new InvocationHandler() {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args) {
+                    String name = method.getName();
+                    if ("getColumnCount".equals(name)) {
+                      return 1;
+                    } else if ("getColumnType".equals(name)) {
+                      return Types.VARCHAR;
+                    } else if (name.startsWith("getColumn")) {
+                      return name.endsWith("ClassName") ? String.class.getName() : "VALUE";
+                    }
+                    return defaultValue(method);
+                  }
+                });
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+                new InvocationHandler() {
+                  private int fetched;
+
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args) {
+                    String name = method.getName();
+                    if ("next".equals(name)) {
+                      return fetched++ < rows;
+                    } else if ("getString".equals(name)) {
+                      return row;
+                    } else if ("getMetaData".equals(name)) {
+                      return metaData;
+                    } else if ("getType".equals(name)) {
+                      return ResultSet.TYPE_FORWARD_ONLY;
+                    }
+                    return defaultValue(method);
+                  }
+                });
+          }
+        });
+  }
+
+  private Object proxy(Class<?> type, final String methodName, final Object value) {
+    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        return methodName.equals(method.getName()) ? value : defaultValue(method);
+      }
+    });
+  }
+
+  private static Object defaultValue(Method method) {
+    Class<?> type = method.getReturnType();
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -366,6 +366,74 @@ public class SqlProviderTest {
     }
   }
 
+  @Test
+  public void shouldReuseTheSqlOfAnEqualCacheKey() throws NoSuchMethodException {
+    Class<?> mapperType = CachedSqlProviderMapper.class;
+    Method mapperMethod = mapperType.getMethod("getUsersByIds", List.class);
+    ProviderSqlSource sqlSource = new ProviderSqlSource(new Configuration(),
+        mapperMethod.getAnnotation(SelectProvider.class), mapperType, mapperMethod);
+    CachedSqlProviderMapper.SqlProvider.invocations = 0;
+    List<Integer> ids = new ArrayList<Integer>();
+    ids.add(1);
+    ids.add(2);
+    String sql = sqlSource.getBoundSql(ids).getSql();
+    ids.set(0, 3);
+    assertEquals(sql, sqlSource.getBoundSql(ids).getSql());
+    assertEquals(1, CachedSqlProviderMapper.SqlProvider.invocations);
+    ids.add(4);
+    assertEquals(3, sqlSource.getBoundSql(ids).getParameterMappings().size());
+    assertEquals(2, CachedSqlProviderMapper.SqlProvider.invocations);
+    ids.clear();
+    assertEquals("select * from users", sqlSource.getBoundSql(ids).getSql());
+    sqlSource.getBoundSql(ids);
+    assertEquals("a null key is not cached", 4, CachedSqlProviderMapper.SqlProvider.invocations);
+  }
+
+  @Test
+  public void shouldNotInstantiateTheProviderForAStaticCacheKeyHit() throws NoSuchMethodException {
+    Class<?> mapperType = CachedSqlProviderMapper.class;
+    Method mapperMethod = mapperType.getMethod("getUsersByIdsWithStaticKey", List.class);
+    ProviderSqlSource sqlSource = new ProviderSqlSource(new Configuration(),
+        mapperMethod.getAnnotation(SelectProvider.class), mapperType, mapperMethod);
+    CachedSqlProviderMapper.SqlProvider.instances = 0;
+    List<Integer> ids = new ArrayList<Integer>();
+    ids.add(1);
+    sqlSource.getBoundSql(ids);
+    sqlSource.getBoundSql(ids);
+    assertEquals(0, CachedSqlProviderMapper.SqlProvider.instances);
+  }
+
+  @Test
+  public void shouldNotCacheTheSqlOfTooManyKeys() throws NoSuchMethodException {
+    Class<?> mapperType = CachedSqlProviderMapper.class;
+    Method mapperMethod = mapperType.getMethod("getUsersByIdsWithStaticKey", List.class);
+    ProviderSqlSource sqlSource = new ProviderSqlSource(new Configuration(),
+        mapperMethod.getAnnotation(SelectProvider.class), mapperType, mapperMethod);
+    List<Integer> ids = new ArrayList<Integer>();
+    for (int i = 0; i <= 1024; i++) {
+      ids.add(i);
+      sqlSource.getBoundSql(ids);
+    }
+    CachedSqlProviderMapper.SqlProvider.invocations = 0;
+    sqlSource.getBoundSql(ids);
+    assertEquals(1, CachedSqlProviderMapper.SqlProvider.invocations);
+    sqlSource.getBoundSql(new ArrayList<Integer>(ids.subList(0, 1)));
+    assertEquals(1, CachedSqlProviderMapper.SqlProvider.invocations);
+  }
+
+  @Test
+  public void cacheKeyMethodNotFound() throws NoSuchMethodException {
+    try {
+      Class<?> mapperType = CachedSqlProviderMapper.class;
+      Method mapperMethod = mapperType.getMethod("cacheKeyMethodNotFound", List.class);
+      new ProviderSqlSource(new Configuration(),
+            mapperMethod.getAnnotation(SelectProvider.class), mapperType, mapperMethod);
+      fail();
+    } catch (BuilderException e) {
+      assertTrue(e.getMessage().contains("Error creating SqlSource for SqlProvider. Cache key method 'notFound' with the parameters of 'getUsersByIds' not found in SqlProvider 'org.apache.ibatis.submitted.sqlprovider.SqlProviderTest$CachedSqlProviderMapper$SqlProvider'."));
+    }
+  }
+
   @Test
   public void shouldInsertUser() {
     SqlSession sqlSession = sqlSessionFactory.openSession();
@@ -570,6 +638,46 @@ public class SqlProviderTest {
     }
   }
 
+  public interface CachedSqlProviderMapper {
+    @SelectProvider(type = SqlProvider.class, method = "getUsersByIds", cacheKeyMethod = "getUsersByIdsKey")
+    List<User> getUsersByIds(List<Integer> ids);
+
+    @SelectProvider(type = SqlProvider.class, method = "getUsersByIds", cacheKeyMethod = "getUsersByIdsStaticKey")
+    List<User> getUsersByIdsWithStaticKey(List<Integer> ids);
+
+    @SelectProvider(type = SqlProvider.class, method = "getUsersByIds", cacheKeyMethod = "notFound")
+    List<User> cacheKeyMethodNotFound(List<Integer> ids);
+
+    class SqlProvider {
+
+      static int invocations;
+      static int instances;
+
+      public SqlProvider() {
+        instances++;
+      }
+
+      public static String getUsersByIds(List<Integer> ids) {
+        invocations++;
+        StringBuilder sql = new StringBuilder("select * from users");
+        for (int i = 0; i < ids.size(); i++) {
+          sql.append(i == 0 ? " where id in (" : ", ").append("#{list[").append(i).append("]}");
+        }
+        return ids.isEmpty() ? sql.toString() : sql.append(")").toString();
+      }
+
+      public Integer getUsersByIdsKey(List<Integer> ids) {
+        return ids.isEmpty() ? null : ids.size();
+      }
+
+      public static Integer getUsersByIdsStaticKey(List<Integer> ids) {
+        return ids.size();
+      }
+
+    }
+
+  }
+
   public interface StaticMethodSqlProviderMapper {
     @SelectProvider(type = SqlProvider.class, method = "noArgument")
     int noArgument();
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ import org.junit.Test;
 import org.mockito.Mock;
 
 import java.sql.Array;
+import java.sql.Connection;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
@@ -32,6 +34,9 @@ public class ArrayTypeHandlerTest extends BaseTypeHandlerTest {
   @Mock
   Array mockArray;
 
+  @Mock
+  Connection connection;
+
   @Override
   @Test
   public void shouldSetParameter() throws Exception {
@@ -39,6 +44,21 @@ public class ArrayTypeHandlerTest extends BaseTypeHandlerTest {
     verify(ps).setArray(1, mockArray);
   }
 
+  @Test
+  public void shouldSetCollectionParameterAsArray() throws Exception {
+    when(ps.getConnection()).thenReturn(connection);
+    when(connection.createArrayOf("INTEGER", new Object[]{1, null, 3})).thenReturn(mockArray);
+    TYPE_HANDLER.setParameter(ps, 1, Arrays.asList(1, null, 3), null);
+    verify(ps).setArray(1, mockArray);
+  }
+
+  @Test
+  public void shouldNotResolveTheTypeNameOfMixedElements() {
+    assertEquals("VARCHAR", ArrayTypeHandler.resolveTypeName(Arrays.asList("a", "b")));
+    assertNull(ArrayTypeHandler.resolveTypeName(Arrays.<Object>asList(1, "b")));
+    assertNull(ArrayTypeHandler.resolveTypeName(Arrays.asList(null, null)));
+  }
+
   @Override
   @Test
   public void shouldGetResultFromResultSetByName() throws Exception {